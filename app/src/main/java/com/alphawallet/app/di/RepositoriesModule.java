@@ -122,13 +122,11 @@ public class RepositoriesModule {
     TokenRepositoryType provideTokenRepository(
             EthereumNetworkRepositoryType ethereumNetworkRepository,
             TokenLocalSource tokenLocalSource,
-			OkHttpClient httpClient,
 			Context context,
 			TickerService tickerService) {
 	    return new TokenRepository(
 	            ethereumNetworkRepository,
 				tokenLocalSource,
-				httpClient,
 				context,
 				tickerService);
     }
@@ -5,8 +5,7 @@ import android.content.Context;
 import com.google.gson.Gson;
 import com.alphawallet.app.App;
 import com.alphawallet.app.service.RealmManager;
-
-import java.util.concurrent.TimeUnit;
+import com.alphawallet.app.service.Web3jClients;
 
 import javax.inject.Singleton;
 
@@ -30,13 +29,8 @@ class ToolsModule {
 	@Singleton
 	@Provides
 	OkHttpClient okHttpClient() {
-		return new OkHttpClient.Builder()
-                //.addInterceptor(new LogInterceptor())
-                .connectTimeout(10, TimeUnit.SECONDS)
-                .readTimeout(10, TimeUnit.SECONDS)
-                .writeTimeout(10, TimeUnit.SECONDS)
-				.retryOnConnectionFailure(false)
-                .build();
+		//share one connection pool with the node clients
+		return Web3jClients.getHttpClient();
 	}
 
 	@Singleton
@@ -0,0 +1,123 @@
+package com.alphawallet.app.entity;
+
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Immutable list of values decoded from a transaction input, read out of the input when accessed.
+ *
+ * Decoding only records where each value is in the input and how to read it, so decoding a transaction doesn't copy out
+ * strings or build BigIntegers which may never be used. A value is read the first time it's requested and kept for
+ * later reads. Lists are shared between threads: two threads reading the same value at once may both create it, which
+ * is harmless as the values are immutable.
+ */
+final class CalldataList<T> extends AbstractList<T> implements RandomAccess
+{
+    static final int WORD = -1;     //the 64 digit word, without any 0x prefix
+    static final int ADDRESS = -2;  //last 40 digits of the word, with 0x prefix
+    static final int VALUE = -3;    //the word as a BigInteger
+    static final int ZERO = -4;     //BigInteger.ZERO, marks a truncated array
+    //a kind >= 0 is the length of a string whose characters are the hex pairs at the position
+
+    static final int ENTRY_SIZE = 3; //position, kind and value count
+
+    private static final int WORD_LENGTH = 64;
+    private static final int ADDRESS_LENGTH = 40;
+    private static final int SMALL_VALUE_DIGITS = 15; //fits in a positive long
+
+    private final String input;
+    private final int[] entries; //position, kind and value count of each entry; an entry of several values is a run of words
+    private final int start;
+    private final int size;
+    private Object[] values;
+
+    /**
+     * @param entries position, kind and count triples; this list's values are read from the triples from start
+     * @param size number of values in the list
+     */
+    CalldataList(String input, int[] entries, int start, int size)
+    {
+        this.input = input;
+        this.entries = entries;
+        this.start = start;
+        this.size = size;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index)
+    {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        Object[] read = values;
+        if (read == null)
+        {
+            read = new Object[size];
+            values = read;
+        }
+
+        Object value = read[index];
+        if (value == null)
+        {
+            int entry = start;
+            int first = 0; //index of the entry's first value
+            while (index >= first + entries[entry + 2])
+            {
+                first += entries[entry + 2];
+                entry += ENTRY_SIZE;
+            }
+            value = readValue(entries[entry] + (index - first) * WORD_LENGTH, entries[entry + 1]);
+            read[index] = value;
+        }
+
+        return (T) value;
+    }
+
+    private Object readValue(int position, int kind)
+    {
+        switch (kind)
+        {
+            case WORD:
+                return Numeric.cleanHexPrefix(input.substring(position, position + WORD_LENGTH));
+            case ADDRESS:
+                return "0x" + input.substring(position + WORD_LENGTH - ADDRESS_LENGTH, position + WORD_LENGTH);
+            case VALUE:
+                return toBigInteger(input, position);
+            case ZERO:
+                return BigInteger.ZERO;
+            default:
+                StringBuilder sb = new StringBuilder(kind);
+                for (int i = 0; i < kind; i++)
+                {
+                    int charIndex = position + i * 2;
+                    sb.append((char) ((Character.digit(input.charAt(charIndex), 16) << 4) | Character.digit(input.charAt(charIndex + 1), 16)));
+                }
+                return Numeric.cleanHexPrefix(sb.toString());
+        }
+    }
+
+    private static BigInteger toBigInteger(String input, int position)
+    {
+        int end = position + WORD_LENGTH;
+        int smallStart = end - SMALL_VALUE_DIGITS;
+        for (int i = position; i < smallStart; i++)
+        {
+            if (input.charAt(i) != '0') return new BigInteger(input.substring(position, end), 16);
+        }
+
+        long value = 0;
+        for (int i = smallStart; i < end; i++)
+        {
+            value = (value << 4) | Character.digit(input.charAt(i), 16);
+        }
+        return BigInteger.valueOf(value);
+    }
+}
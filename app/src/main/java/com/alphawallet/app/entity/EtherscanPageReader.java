@@ -0,0 +1,74 @@
+package com.alphawallet.app.entity;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the 'result' list of an Etherscan API response, handing items to the consumer in chunks as they are decoded.
+ * Only one chunk is held in memory rather than the whole response body, its JSON tree and the decoded array.
+ */
+public class EtherscanPageReader
+{
+    public interface ChunkConsumer<T>
+    {
+        void onChunk(List<T> items) throws Exception;
+    }
+
+    /**
+     * @param source response body
+     * @param gson
+     * @param type item class, eg EtherscanTransaction
+     * @param chunkSize maximum items per chunk
+     * @param consumer receives each chunk
+     * @return false if the response has no result list, eg a rate limit message; items may already have been consumed if the list is truncated
+     */
+    public static <T> boolean read(Reader source, Gson gson, Class<T> type, int chunkSize, ChunkConsumer<T> consumer) throws Exception
+    {
+        try (JsonReader reader = new JsonReader(source))
+        {
+            reader.beginObject();
+            while (reader.hasNext())
+            {
+                if (reader.nextName().equals("result") && reader.peek() == JsonToken.BEGIN_ARRAY)
+                {
+                    readList(reader, gson, type, chunkSize, consumer);
+                    return true;
+                }
+                else
+                {
+                    reader.skipValue();
+                }
+            }
+        }
+        catch (IOException | IllegalStateException e)
+        {
+            //not a JSON object, eg an html error page
+        }
+
+        return false;
+    }
+
+    private static <T> void readList(JsonReader reader, Gson gson, Class<T> type, int chunkSize, ChunkConsumer<T> consumer) throws Exception
+    {
+        List<T> chunk = new ArrayList<>(chunkSize);
+        reader.beginArray();
+        while (reader.hasNext())
+        {
+            chunk.add(gson.fromJson(reader, type));
+            if (chunk.size() >= chunkSize)
+            {
+                consumer.onChunk(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        reader.endArray();
+
+        if (chunk.size() > 0) consumer.onChunk(chunk);
+    }
+}
@@ -494,6 +494,25 @@ public class Transaction implements Parcelable
 		}
 	}
 
+	/**
+	 * Decode the input afresh for writing to storage, so the stored form isn't affected by display changes
+	 * @param walletAddress wallet owning the transaction
+	 * @return decoded input, or null if there's no input or the wallet is unknown
+	 */
+	public TransactionInput decodeForStorage(String walletAddress)
+	{
+		if (!hasInput() || !Utils.isAddressValid(walletAddress)) return null;
+		try
+		{
+			return decoder.decodeInput(this, walletAddress);
+		}
+		catch (Exception e)
+		{
+			//don't stop the transaction being written; it's decoded when displayed
+			return null;
+		}
+	}
+
 	private void decodeTransactionInput(String walletAddress)
 	{
 		if (transactionInput == null && hasInput() && Utils.isAddressValid(walletAddress))
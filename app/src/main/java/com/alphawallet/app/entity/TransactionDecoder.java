@@ -8,83 +8,100 @@ import org.web3j.utils.Numeric;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static com.alphawallet.app.entity.TransactionDecoder.ReadState.ARGS;
-import static org.web3j.crypto.Keys.ADDRESS_LENGTH_IN_HEX;
-
 /**
  * Created by James on 2/02/2018.
  *
  * TransactionDecoder currently only decode a transaction input in the
  * string format, which is strictly a string starting with "0x" and
- * with an even number of hex digits followed. (Probably should be
- * bytes but we work with string for now.) It is used only for one
+ * with an even number of hex digits followed. It is used only for one
  * thing at the moment: decodeInput(), which returns the decoded
  * input.
+ *
+ * The decoder holds no parse state and the known function table is built once and never modified,
+ * so one instance can be used from any number of threads. Decoding only finds where each value is in the input;
+ * values are read out of the input when the result's lists are used, see {@link CalldataList}.
  */
-
-// TODO: Should be a factory class that emits an object containing transaction interpretation
 public class TransactionDecoder
 {
     public static final int FUNCTION_LENGTH = 10;
-    private final static List<String> endContractSignatures = new ArrayList<>();
+    private static final int WORD_LENGTH = 64; //256 bits in hex
 
-    private int parseIndex;
-    private Map<String, FunctionData> functionList;
+    //result lists
+    private static final int ADDRESSES = 0;
+    private static final int ARRAY_VALUES = 1;
+    private static final int SIG_DATA = 2;
+    private static final int MISC_DATA = 3;
+    private static final int LIST_COUNT = 4;
 
-    private ReadState state = ARGS;
-    private int sigCount = 0;
+    private static final Map<Integer, FunctionData> functionList = new HashMap<>();
+    private static final List<String> endContractSignatures = new ArrayList<>();
 
-    private FunctionData getUnknownFunction()
+    //where the values of the input being decoded are; kept per thread so a decode doesn't allocate one
+    private static final ThreadLocal<DecodeBuffer> buffers = new ThreadLocal<DecodeBuffer>()
     {
-        return new FunctionData("N/A", ContractType.OTHER);
-    }
+        @Override
+        protected DecodeBuffer initialValue()
+        {
+            return new DecodeBuffer();
+        }
+    };
 
-    public TransactionDecoder()
+    static
     {
         setupKnownFunctions();
+        endContractSignatures.add(buildMethodId("endContract()"));
+        endContractSignatures.add(buildMethodId("selfdestruct()"));
+        endContractSignatures.add(buildMethodId("kill()"));
+    }
+
+    private static FunctionData getUnknownFunction()
+    {
+        return new FunctionData("N/A", ContractType.OTHER);
     }
 
     public TransactionInput decodeInput(String input)
     {
-        ParseStage parseState = ParseStage.PARSE_FUNCTION;
-        parseIndex = 0;
         //1. check function
-        TransactionInput thisData = new TransactionInput();
-        if (input == null || input.length() < 10)
+        if (input == null || input.length() < FUNCTION_LENGTH)
         {
-            thisData.functionData = getUnknownFunction();
-            return thisData;
+            return new TransactionInput(getUnknownFunction(), null, Collections.emptyList(), Collections.emptyList(),
+                    Collections.emptyList(), Collections.emptyList(), null);
         }
 
-        try {
-            while (parseIndex < input.length() && !(parseState == ParseStage.FINISH)) {
-                switch (parseState) {
-                    case PARSE_FUNCTION: //get function
-                        parseState = setFunction(thisData, readBytes(input, FUNCTION_LENGTH), input.length());
-                        break;
-                    case PARSE_ARGS: //now get params
-                        parseState = getParams(thisData, input);
-                        break;
-                    case FINISH:
-                        break;
-                    case ERROR:
-                        //Perform any future error handling here
-                        parseState = ParseStage.FINISH;
-                        break;
-                }
-
-                if (parseIndex < 0) break; //error
-            }
+        FunctionData data = getFunction(input);
+        DecodeBuffer buffer = buffers.get();
+        buffer.reset();
+        if (data == null)
+        {
+            data = getUnknownFunction();
+            data.functionRawHex = input.substring(0, FUNCTION_LENGTH);
         }
-        catch (Exception e)
+        else
         {
-            e.printStackTrace();
+            try
+            {
+                getParams(data, input, buffer);
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
         }
 
+        //values are read from the input when they're used; the lists share nothing with the decoder or other results
+        int[] entries = buffer.getEntryCount() > 0 ? new int[buffer.getEntryCount() * CalldataList.ENTRY_SIZE] : null;
+        List<String> addresses = buffer.toList(ADDRESSES, input, entries);
+        List<BigInteger> arrayValues = buffer.toList(ARRAY_VALUES, input, entries);
+        List<String> sigData = buffer.toList(SIG_DATA, input, entries);
+        List<String> miscData = buffer.toList(MISC_DATA, input, entries);
+
+        TransactionInput thisData = new TransactionInput(data, null, addresses, arrayValues, sigData, miscData, null);
         thisData.setOperationType(null, null); //works for most cases; for magiclink requires tx and wallet data - but we don't see many of these now
         return thisData;
     }
@@ -104,151 +121,163 @@ public class TransactionDecoder
         return thisData;
     }
 
-    private ParseStage setFunction(TransactionInput thisData, String input, int length) {
-        //first get expected arg list:
-        FunctionData data = functionList.get(input);
-
-        if (data != null)
+    /**
+     * Look up the function called by a transaction input without decoding the arguments
+     * @param input transaction input
+     * @return known function, or an unknown function holding the selector
+     */
+    public static FunctionData getFunctionData(String input)
+    {
+        FunctionData data = (input != null && input.length() >= FUNCTION_LENGTH) ? getFunction(input) : null;
+        if (data == null)
         {
-            thisData.functionData = data;
-            thisData.arrayValues.clear();
-            thisData.addresses.clear();
-            thisData.sigData.clear();
-            thisData.miscData.clear();
-            thisData.functionData.functionRawHex = input;
+            data = getUnknownFunction();
+            if (input != null && input.length() >= FUNCTION_LENGTH) data.functionRawHex = input.substring(0, FUNCTION_LENGTH);
         }
-        else
+
+        return data;
+    }
+
+    private static FunctionData getFunction(String input)
+    {
+        if (input.charAt(0) != '0' || input.charAt(1) != 'x') return null;
+        int selector = 0;
+        for (int i = 2; i < FUNCTION_LENGTH; i++)
         {
-            thisData.functionData = getUnknownFunction();
-            thisData.functionData.functionRawHex = input;
-            return ParseStage.ERROR;
+            char c = input.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') digit = c - '0';
+            else if (c >= 'a' && c <= 'f') digit = c - 'a' + 10;
+            else return null;
+            selector = (selector << 4) | digit;
         }
 
-        return ParseStage.PARSE_ARGS;
+        return functionList.get(selector);
     }
 
-    enum ReadState
+    /**
+     * Find the arguments in the input, recording where each decoded value is. Values are checked as the previous
+     * decoder did, so a value which couldn't be read ends the decode at the same point.
+     */
+    private static void getParams(FunctionData functionData, String input, DecodeBuffer buffer)
     {
-        ARGS,
-        SIGNATURE
-    }
+        int index = FUNCTION_LENGTH;
+        int sigWords = 0; //signature words still to read
 
-    private ParseStage getParams(TransactionInput thisData, String input) {
-        state = ARGS;
-        BigInteger count;
-        StringBuilder sb = new StringBuilder();
-        if (thisData.functionData != null && thisData.functionData.args != null)
+        for (int argNumber = 0; argNumber < functionData.args.size(); argNumber++)
         {
-            for (String type : thisData.functionData.args)
+            String type = functionData.args.get(argNumber);
+            if (!hasWord(input, index)) break;
+            int argIndex = index;
+            index += WORD_LENGTH;
+            switch (type)
             {
-                String argData = read256bits(input);
-                if (argData.equals("0")) break;
-                switch (type)
-                {
-                    case "string":
-                        count = new BigInteger(argData, 16);
-                        sb.setLength(0);
-                        argData = read256bits(input);
-                        if (count.intValue() > argData.length()) count = BigInteger.valueOf(argData.length());
-                        for (int index = 0; index < (count.intValue()*2); index += 2)
-                        {
-                            int v = Integer.parseInt(argData.substring(index, index+2), 16);
-                            char c = (char)v;
-                            sb.append(c);
-                        }
-                        thisData.miscData.add(Numeric.cleanHexPrefix(sb.toString()));
-                        break;
-                    case "address":
-                        if (argData.length() >= 64 - ADDRESS_LENGTH_IN_HEX)
+                case "string":
+                    int length = readInt(input, argIndex);
+                    boolean hasData = hasWord(input, index);
+                    //only a string within one data word is read
+                    if (length > (hasData ? WORD_LENGTH / 2 : 0)) throw new StringIndexOutOfBoundsException("String exceeds data word");
+                    for (int i = index; i < index + length * 2; i++) hexDigit(input, i);
+                    buffer.add(MISC_DATA, index, length);
+                    if (hasData) index += WORD_LENGTH;
+                    break;
+                case "address":
+                    buffer.add(ADDRESSES, argIndex, CalldataList.ADDRESS);
+                    break;
+                case "bytes32[]":
+                case "uint16[]":
+                case "uint256[]":
+                    int count = readInt(input, argIndex);
+                    int runStart = index;
+                    int runCount = 0;
+                    boolean truncated = false;
+                    try
+                    {
+                        for (int i = 0; i < count; i++)
                         {
-                            thisData.addresses.add("0x" + argData.substring(64 - ADDRESS_LENGTH_IN_HEX));
+                            if (!hasWord(input, index))
+                            {
+                                truncated = true;
+                                break;
+                            }
+                            checkValue(input, index);
+                            runCount++;
+                            index += WORD_LENGTH;
                         }
-                        break;
-                    case "bytes32":
-                        addArg(thisData, argData);
-                        break;
-                    case "bytes32[]":
-                    case "uint16[]":
-                    case "uint256[]":
-                        count = new BigInteger(argData, 16);
-                        for (int i = 0; i < count.intValue(); i++) {
-                            String inputData = read256bits(input);
-                            thisData.arrayValues.add(new BigInteger(inputData, 16));
-                            if (inputData.equals("0")) break;
-                        }
-                        break;
-                    case "uint256":
-                        addArg(thisData, argData);
-                        break;
-                    case "uint8": //In our standards, we will put uint8 as the signature marker
-                        if (thisData.functionData.hasSig) {
-                            state = ReadState.SIGNATURE;
-                            sigCount = 0;
-                        }
-                        addArg(thisData, argData);
-                        break;
-                    case "nodata":
-                        //no need to store this data - eg placeholder to indicate presence of a vararg
-                        break;
-                    default:
-                        break;
-                }
+                    }
+                    finally
+                    {
+                        //values before one which can't be read are kept
+                        buffer.add(ARRAY_VALUES, runStart, CalldataList.VALUE, runCount);
+                    }
+                    if (truncated) buffer.add(ARRAY_VALUES, index, CalldataList.ZERO);
+                    break;
+                case "uint8": //In our standards, we will put uint8 as the signature marker
+                    if (functionData.hasSig) sigWords = 3;
+                    //fall through
+                case "bytes32":
+                case "uint256":
+                    if (sigWords > 0)
+                    {
+                        buffer.add(SIG_DATA, argIndex, CalldataList.WORD);
+                        sigWords--;
+                    }
+                    else
+                    {
+                        buffer.add(MISC_DATA, argIndex, CalldataList.WORD);
+                    }
+                    break;
+                case "nodata":
+                    //no need to store this data - eg placeholder to indicate presence of a vararg
+                    break;
+                default:
+                    break;
             }
         }
-        else
-        {
-            return ParseStage.FINISH; //skip to end of read if there are no args in the spec
-        }
+    }
 
-        return ParseStage.FINISH;
+    private static boolean hasWord(String input, int index)
+    {
+        return index + WORD_LENGTH <= input.length();
     }
 
-    private void addArg(TransactionInput thisData, String input)
+    private static int hexDigit(String input, int index)
     {
-        switch (state)
-        {
-            case ARGS:
-                thisData.miscData.add(Numeric.cleanHexPrefix(input));
-                break;
-            case SIGNATURE:
-                thisData.sigData.add(input);
-                if (++sigCount == 3) state = ARGS;
-                break;
-        }
+        int digit = Character.digit(input.charAt(index), 16);
+        if (digit < 0) throw new NumberFormatException("Invalid hex at " + index);
+        return digit;
     }
 
-    private String readBytes(String input, int bytes)
+    /**
+     * Low 32 bits of the word at index, as used for lengths and counts
+     */
+    private static int readInt(String input, int index)
     {
-        if ((parseIndex + bytes) <= input.length())
-        {
-            String value = input.substring(parseIndex, parseIndex+bytes);
-            parseIndex += bytes;
-            return value;
-        }
-        else
+        for (int i = index; i < index + WORD_LENGTH - 8; i++) hexDigit(input, i);
+        int value = 0;
+        for (int i = index + WORD_LENGTH - 8; i < index + WORD_LENGTH; i++)
         {
-            return "0";
+            value = (value << 4) | hexDigit(input, i);
         }
+        return value;
     }
 
-    private String read256bits(String input)
+    /**
+     * Check the word at index can be read as a BigInteger, which like BigInteger allows a leading sign
+     */
+    private static void checkValue(String input, int index)
     {
-        if ((parseIndex + 64) <= input.length())
-        {
-            String value = input.substring(parseIndex, parseIndex+64);
-            parseIndex += 64;
-            return value;
-        }
-        else
-        {
-            return "0";
-        }
+        int start = index;
+        char first = input.charAt(index);
+        if (first == '-' || first == '+') start++;
+        for (int i = start; i < index + WORD_LENGTH; i++) hexDigit(input, i);
     }
 
-    private void addFunction(String method, ContractType type, boolean hasSig)
+    private static void addFunction(String method, ContractType type, boolean hasSig)
     {
         String methodId = buildMethodId(method);
-        FunctionData data = functionList.get(methodId);
+        int selector = (int) Long.parseLong(Numeric.cleanHexPrefix(methodId), 16);
+        FunctionData data = functionList.get(selector);
         if (data != null)
         {
             data.addType(type);
@@ -256,13 +285,13 @@ public class TransactionDecoder
         else
         {
             data = new FunctionData(method, type, hasSig);
-            functionList.put(buildMethodId(method), data);
+            data.functionRawHex = methodId;
+            functionList.put(selector, data);
         }
     }
 
-    private void setupKnownFunctions()
+    private static void setupKnownFunctions()
     {
-        functionList = new HashMap<>();
         addFunction("transferFrom(address,address,uint16[])", ContractType.ERC875_LEGACY, false);
         addFunction("transfer(address,uint16[])", ContractType.ERC875_LEGACY, false);
         addFunction("trade(uint256,uint16[],uint8,bytes32,bytes32)", ContractType.ERC875_LEGACY, true);
@@ -317,11 +346,6 @@ public class TransactionDecoder
         addFunction("withdraw(uint256)", ContractType.CURRENCY, false); //0x2e1a7d4d0000000000000000000000000000000000000000000000000000000000000001
     }
 
-    public void addScanFunction(String methodSignature, boolean hasSig)
-    {
-        addFunction(methodSignature, ContractType.OTHER, hasSig);
-    }
-
     public ContractType getContractType(String input)
     {
         if (input.length() < 10) return ContractType.OTHER;
@@ -357,13 +381,12 @@ public class TransactionDecoder
 
         //ERC721/x or ERC20
 
-        for (String signature : functionList.keySet())
+        for (FunctionData data : functionList.values())
         {
-            String cleanSig = Numeric.cleanHexPrefix(signature);
+            String cleanSig = Numeric.cleanHexPrefix(data.functionRawHex);
             int index = input.indexOf(cleanSig);
             if (index >= 0)
             {
-                FunctionData data = functionList.get(signature);
                 for (ContractType type : data.contractType)
                 {
                     int count = 0;
@@ -391,11 +414,6 @@ public class TransactionDecoder
         return highestType;
     }
 
-    enum ParseStage
-    {
-        PARSE_FUNCTION, PARSE_ARGS, FINISH, ERROR
-    }
-
     public Sign.SignatureData getSignatureData(TransactionInput data)
     {
         Sign.SignatureData sigData = null;
@@ -442,11 +460,6 @@ public class TransactionDecoder
             return false;
         }
 
-        if (endContractSignatures.size() == 0)
-        {
-            buildEndContractSigs();
-        }
-
         for (String sig : endContractSignatures)
         {
             if (input.equals(sig)) return true;
@@ -455,11 +468,58 @@ public class TransactionDecoder
         return false;
     }
 
-    private static void buildEndContractSigs()
+    /**
+     * Position, kind and count of each entry found in the input, for each of the result lists
+     */
+    private static class DecodeBuffer
     {
-        endContractSignatures.add(buildMethodId("endContract()"));
-        endContractSignatures.add(buildMethodId("selfdestruct()"));
-        endContractSignatures.add(buildMethodId("kill()"));
+        private final int[][] entries = new int[LIST_COUNT][CalldataList.ENTRY_SIZE * 8];
+        private final int[] entryCounts = new int[LIST_COUNT];
+        private final int[] sizes = new int[LIST_COUNT];
+
+        void reset()
+        {
+            Arrays.fill(entryCounts, 0);
+            Arrays.fill(sizes, 0);
+        }
+
+        void add(int list, int position, int kind)
+        {
+            add(list, position, kind, 1);
+        }
+
+        /**
+         * @param count number of values; more than one is a run of consecutive words
+         */
+        void add(int list, int position, int kind, int count)
+        {
+            if (count == 0) return;
+            int offset = entryCounts[list] * CalldataList.ENTRY_SIZE;
+            if (offset + CalldataList.ENTRY_SIZE > entries[list].length) entries[list] = Arrays.copyOf(entries[list], entries[list].length * 2);
+            entries[list][offset] = position;
+            entries[list][offset + 1] = kind;
+            entries[list][offset + 2] = count;
+            entryCounts[list]++;
+            sizes[list] += count;
+        }
+
+        int getEntryCount()
+        {
+            int total = 0;
+            for (int count : entryCounts) total += count;
+            return total;
+        }
+
+        /**
+         * Copy the list's entries into the result's entries, after those of the lists before it
+         */
+        <T> List<T> toList(int list, String input, int[] resultEntries)
+        {
+            if (sizes[list] == 0) return Collections.emptyList();
+            int offset = 0;
+            for (int i = 0; i < list; i++) offset += entryCounts[i] * CalldataList.ENTRY_SIZE;
+            System.arraycopy(entries[list], 0, resultEntries, offset, entryCounts[list] * CalldataList.ENTRY_SIZE);
+            return new CalldataList<>(input, resultEntries, offset, sizes[list]);
+        }
     }
 }
-
@@ -59,6 +59,21 @@ public class TransactionInput
         miscData = new ArrayList<>();
     }
 
+    /**
+     * Input restored from its stored decoded form
+     */
+    public TransactionInput(FunctionData functionData, TransactionType type, List<String> addresses, List<BigInteger> arrayValues,
+                            List<String> sigData, List<String> miscData, String tradeAddress)
+    {
+        this.functionData = functionData;
+        this.type = type;
+        this.addresses = addresses;
+        this.arrayValues = arrayValues;
+        this.sigData = sigData;
+        this.miscData = miscData;
+        this.tradeAddress = tradeAddress;
+    }
+
     //Addresses are in 256bit format
     public boolean containsAddress(String address)
     {
@@ -0,0 +1,197 @@
+package com.alphawallet.app.entity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resumable sync position for one Etherscan transaction stream of a wallet on a chain.
+ *
+ * upperBlock is the highest block read; blocks above it are fetched in ascending pages.
+ * Block ranges that haven't been read yet are held as gaps, highest first. A first sync reads the newest page
+ * and leaves the rest of the history as a gap, which is then back-filled page by page in the background.
+ * If the head falls too far behind for one page, the newest page is read and the skipped range becomes a gap,
+ * so no stored transactions need to be discarded.
+ *
+ * Page bounds are inclusive: the last block of a full page may only be partially read so it stays inside the gap.
+ */
+public class TransactionSyncCursor
+{
+    public enum Stream
+    {
+        TRANSACTIONS("txlist"),
+        ERC20("tokentx"),
+        NFT("tokennfttx");
+
+        public final String action;
+
+        Stream(String action)
+        {
+            this.action = action;
+        }
+    }
+
+    private static final String CURSOR_KEY = "-syncCursor-";
+
+    public final int chainId;
+    public final Stream stream;
+    public final String address;
+    private long upperBlock;
+    private final List<long[]> gaps = new ArrayList<>(); //{ fromBlock, toBlock }, sorted by toBlock descending
+
+    public TransactionSyncCursor(int chainId, Stream stream, String address)
+    {
+        this.chainId = chainId;
+        this.stream = stream;
+        this.address = address;
+    }
+
+    public static String databaseKey(int chainId, Stream stream, String address)
+    {
+        return address.toLowerCase() + CURSOR_KEY + chainId + "-" + stream.name();
+    }
+
+    public String getDatabaseKey()
+    {
+        return databaseKey(chainId, stream, address);
+    }
+
+    public boolean isSynced()
+    {
+        return upperBlock > 0;
+    }
+
+    public long getUpperBlock()
+    {
+        return upperBlock;
+    }
+
+    /**
+     * @return next range to back-fill, or null if history is complete
+     */
+    public long[] getNextGap()
+    {
+        return gaps.isEmpty() ? null : gaps.get(0).clone();
+    }
+
+    public boolean isHistoryComplete()
+    {
+        return gaps.isEmpty();
+    }
+
+    /**
+     * Result of reading the newest page of the stream, either on first sync or after the head overflowed
+     *
+     * @param highBlock highest block in the page
+     * @param lowBlock lowest block in the page
+     * @param pageFull true if the page was full, ie there are older entries
+     */
+    public void onTopPageRead(long highBlock, long lowBlock, boolean pageFull)
+    {
+        if (pageFull) addGap(upperBlock > 0 ? upperBlock : 0, lowBlock);
+        upperBlock = Math.max(upperBlock, highBlock);
+    }
+
+    /**
+     * Result of reading the page ascending from upperBlock + 1.
+     * If the page was full the caller reads the top page next; the block range between the two pages becomes a gap.
+     */
+    public void onHeadPageRead(long highBlock, int count)
+    {
+        if (count > 0) upperBlock = Math.max(upperBlock, highBlock);
+    }
+
+    /**
+     * Result of back-filling the range returned by {@link #getNextGap()}
+     *
+     * @param gap the range that was read
+     * @param lowBlock lowest block in the page
+     * @param pageFull true if the page was full, so part of the range remains
+     */
+    public void onGapPageRead(long[] gap, long lowBlock, boolean pageFull)
+    {
+        removeGap(gap);
+        if (pageFull)
+        {
+            //a block with more entries than a page can't be split further; skip it rather than stall
+            long toBlock = lowBlock < gap[1] ? lowBlock : lowBlock - 1;
+            if (toBlock >= gap[0]) addGap(gap[0], toBlock);
+        }
+    }
+
+    private void addGap(long fromBlock, long toBlock)
+    {
+        if (toBlock < fromBlock) return;
+        int index = 0;
+        while (index < gaps.size() && gaps.get(index)[1] > toBlock) index++;
+        gaps.add(index, new long[] { fromBlock, toBlock });
+    }
+
+    private void removeGap(long[] gap)
+    {
+        for (int i = 0; i < gaps.size(); i++)
+        {
+            if (gaps.get(i)[0] == gap[0] && gaps.get(i)[1] == gap[1])
+            {
+                gaps.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return compact form for storage: "upperBlock;from-to,from-to"
+     */
+    public String encode()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(upperBlock).append(";");
+        for (int i = 0; i < gaps.size(); i++)
+        {
+            if (i > 0) sb.append(",");
+            sb.append(gaps.get(i)[0]).append("-").append(gaps.get(i)[1]);
+        }
+
+        return sb.toString();
+    }
+
+    public static TransactionSyncCursor decode(int chainId, Stream stream, String address, String encoded)
+    {
+        TransactionSyncCursor cursor = new TransactionSyncCursor(chainId, stream, address);
+        if (encoded == null || encoded.length() == 0) return cursor;
+
+        try
+        {
+            String[] parts = encoded.split(";", -1);
+            cursor.upperBlock = Long.parseLong(parts[0]);
+            if (parts.length > 1 && parts[1].length() > 0)
+            {
+                for (String range : parts[1].split(","))
+                {
+                    String[] bounds = range.split("-");
+                    cursor.addGap(Long.parseLong(bounds[0]), Long.parseLong(bounds[1]));
+                }
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            //corrupt entry, start again
+            return new TransactionSyncCursor(chainId, stream, address);
+        }
+
+        return cursor;
+    }
+
+    /**
+     * Start a cursor from the block markers used before cursors were stored
+     *
+     * @param upperBlock highest block previously read
+     * @param oldestBlockRead lowest block previously read, or 0 if history was read to the start
+     */
+    public static TransactionSyncCursor fromLegacy(int chainId, Stream stream, String address, long upperBlock, long oldestBlockRead)
+    {
+        TransactionSyncCursor cursor = new TransactionSyncCursor(chainId, stream, address);
+        cursor.upperBlock = upperBlock;
+        if (oldestBlockRead > 0) cursor.addGap(0, oldestBlockRead);
+        return cursor;
+    }
+}
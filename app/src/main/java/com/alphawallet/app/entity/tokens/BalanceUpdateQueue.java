@@ -0,0 +1,285 @@
+package com.alphawallet.app.entity.tokens;
+
+import android.text.format.DateUtils;
+
+import com.alphawallet.app.entity.ContractLocator;
+import com.alphawallet.app.entity.ContractType;
+import com.alphawallet.app.repository.TokensRealmSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * In-memory schedule of token balance checks for the current wallet.
+ *
+ * Tokens are held in buckets of identical update weighting; each bucket is a heap ordered by the last balance check.
+ * Within a bucket the oldest entry is always both the first to pass its cutoff and the one with the highest update factor,
+ * so choosing the next token only needs to inspect the head of each bucket plus the focus token and any pending chains,
+ * however many tokens are held.
+ *
+ * Entries are replaced rather than updated in place; superseded entries are flagged and dropped when they reach the head of their bucket.
+ */
+public class BalanceUpdateQueue
+{
+    private final Map<String, Entry> entries = new HashMap<>();      //tokenId -> live entry
+    private final Map<Integer, Entry> baseChainEntries = new HashMap<>(); //chainId -> live entry for the chain's native balance
+    private final Map<Integer, PriorityQueue<Entry>> buckets = new HashMap<>();
+
+    /**
+     * Replace the whole schedule, eg on wallet start or periodic resync with the database
+     * @param tokenMetas tokens eligible for balance update
+     */
+    public synchronized void load(TokenCardMeta[] tokenMetas)
+    {
+        entries.clear();
+        baseChainEntries.clear();
+        buckets.clear();
+        for (TokenCardMeta meta : tokenMetas)
+        {
+            add(meta.tokenId, meta.getChain(), meta.getAddress(), meta.type, meta.calculateBalanceUpdateWeight(), meta.lastUpdate);
+        }
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+        baseChainEntries.clear();
+        buckets.clear();
+    }
+
+    public synchronized boolean isEmpty()
+    {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Add new token or refresh an existing one after its balance has changed.
+     * Last check time is retained for tokens already in the schedule.
+     * @param token
+     */
+    public synchronized void addToken(Token token)
+    {
+        if (token == null || token.tokenInfo == null || token.getAddress() == null) return;
+        String tokenId = TokensRealmSource.databaseKey(token.tokenInfo.chainId, token.getAddress());
+        Entry existing = entries.get(tokenId);
+        long lastUpdate = existing != null ? existing.lastUpdate : token.updateBlancaTime;
+        add(tokenId, token.tokenInfo.chainId, token.getAddress(), token.getInterfaceSpec(), TokenCardMeta.calculateBalanceUpdateWeight(token), lastUpdate);
+    }
+
+    /**
+     * Shared by every path which schedules tokens, so the database load and tokens added while running agree
+     * @param networkFilter chains selected for display; empty means every chain
+     * @return true if balances on the chain are scheduled
+     */
+    public static boolean isInNetworkFilter(List<Integer> networkFilter, int chainId)
+    {
+        return networkFilter.isEmpty() || networkFilter.contains(chainId);
+    }
+
+    public synchronized void removeToken(int chainId, String address)
+    {
+        Entry existing = entries.remove(TokensRealmSource.databaseKey(chainId, address));
+        if (existing != null)
+        {
+            existing.superseded = true;
+            if (baseChainEntries.get(chainId) == existing) baseChainEntries.remove(chainId);
+        }
+    }
+
+    /**
+     * Reschedule token after a balance check was issued
+     * @param meta token that was checked
+     * @param checkTime time of check
+     */
+    public synchronized void markChecked(TokenCardMeta meta, long checkTime)
+    {
+        Entry existing = entries.get(meta.tokenId);
+        if (existing != null)
+        {
+            add(existing.tokenId, existing.chainId, existing.address, existing.type, existing.weight, checkTime);
+        }
+    }
+
+    /**
+     * Token update heuristic - calculates which token should be updated next
+     * @param currentTime
+     * @param focusToken token currently being viewed in detail, or null
+     * @param pendingChains chains with a recent transaction
+     * @param appHasFocus if false only base chains are checked
+     * @return token to update next, or null if nothing is due
+     */
+    public synchronized TokenCardMeta getNext(long currentTime, ContractLocator focusToken, Map<Integer, Long> pendingChains, boolean appHasFocus)
+    {
+        Entry highestEntry = null;
+        float highestWeighting = 0;
+
+        //focus token and pending chains may sit behind other tokens in their bucket, check them directly
+        List<Entry> candidates = new ArrayList<>();
+        if (focusToken != null)
+        {
+            candidates.add(entries.get(TokensRealmSource.databaseKey(focusToken.chainId, focusToken.address)));
+        }
+
+        for (Integer chainId : pendingChains.keySet())
+        {
+            candidates.add(baseChainEntries.get(chainId));
+        }
+
+        for (PriorityQueue<Entry> bucket : buckets.values())
+        {
+            Entry head = bucket.peek();
+            while (head != null && head.superseded)
+            {
+                bucket.poll();
+                head = bucket.peek();
+            }
+            candidates.add(head);
+        }
+
+        for (Entry candidate : candidates)
+        {
+            if (candidate == null || (!appHasFocus && !candidate.isEthereum())) continue; //only check chains when wallet out of focus
+
+            float updateFactor = calculateUpdateFactor(candidate, currentTime, focusToken, pendingChains);
+            if (updateFactor > highestWeighting)
+            {
+                highestWeighting = updateFactor;
+                highestEntry = candidate;
+            }
+        }
+
+        return highestEntry != null ? highestEntry.toMeta() : null;
+    }
+
+    /**
+     * Fetch all tokens on a chain that are due a balance check, highest priority first. Used to batch balance checks per chain.
+     * This walks the in-memory schedule for the chain, no database access.
+     * @param chainId
+     * @param currentTime
+     * @param focusToken
+     * @param pendingChains
+     * @param appHasFocus
+     * @return tokens due for update
+     */
+    public synchronized List<TokenCardMeta> getDueOnChain(int chainId, long currentTime, ContractLocator focusToken, Map<Integer, Long> pendingChains, boolean appHasFocus)
+    {
+        final Map<Entry, Float> dueMap = new HashMap<>();
+        for (Entry entry : entries.values())
+        {
+            if (entry.chainId != chainId || (!appHasFocus && !entry.isEthereum())) continue;
+            float updateFactor = calculateUpdateFactor(entry, currentTime, focusToken, pendingChains);
+            if (updateFactor > 0) dueMap.put(entry, updateFactor);
+        }
+
+        List<Entry> due = new ArrayList<>(dueMap.keySet());
+        Collections.sort(due, (e1, e2) -> Float.compare(dueMap.get(e2), dueMap.get(e1)));
+
+        List<TokenCardMeta> metas = new ArrayList<>();
+        for (Entry entry : due) metas.add(entry.toMeta());
+        return metas;
+    }
+
+    ///////////////////////////////////////////
+    // Update Heuristics - timings and weightings for token updates
+    // Fine tune how and when tokens are updated here
+
+    /**
+     * @return update factor, or zero if the token has been checked within its cutoff time
+     */
+    private float calculateUpdateFactor(Entry entry, long currentTime, ContractLocator focusToken, Map<Integer, Long> pendingChains)
+    {
+        long lastUpdateDiff = currentTime - entry.lastUpdate;
+
+        //simply multiply the weighting by the last diff.
+        float updateFactor = entry.weight * (float) lastUpdateDiff;
+        long cutoffCheck = 30*DateUtils.SECOND_IN_MILLIS; //normal minimum update frequency for token 30 seconds
+
+        if (focusToken != null && entry.chainId == focusToken.chainId && entry.address.equalsIgnoreCase(focusToken.address))
+        {
+            updateFactor = 3.0f * (float) lastUpdateDiff;
+            cutoffCheck = 15*DateUtils.SECOND_IN_MILLIS; //focus token can be checked every 15 seconds - focus token when erc20 or chain clicked on in wallet
+        }
+        else if (entry.isEthereum() && pendingChains.containsKey(entry.chainId)) //higher priority for checking balance of pending chain
+        {
+            cutoffCheck = 15*DateUtils.SECOND_IN_MILLIS;
+            updateFactor = 4.0f * (float) lastUpdateDiff; //chain has a recent transaction
+        }
+        else if (entry.isEthereum())
+        {
+            cutoffCheck = 20*DateUtils.SECOND_IN_MILLIS; //update check limit for base chains is 20 seconds
+        }
+        else if (focusToken != null)
+        {
+            updateFactor = 0.1f * (float) lastUpdateDiff;
+            cutoffCheck = 60*DateUtils.SECOND_IN_MILLIS; //when looking at token in detail view (ERC20TokenDetail) update other tokens at 1 minute cycle
+        }
+
+        return (lastUpdateDiff > (float)cutoffCheck) ? updateFactor : 0;
+    }
+
+    private void add(String tokenId, int chainId, String address, ContractType type, float weight, long lastUpdate)
+    {
+        Entry entry = new Entry(tokenId, chainId, address, type, weight, lastUpdate);
+        Entry previous = entries.put(tokenId, entry);
+        if (previous != null) previous.superseded = true;
+        if (entry.isEthereum()) baseChainEntries.put(chainId, entry);
+
+        int bucketKey = bucketKey(entry);
+        PriorityQueue<Entry> bucket = buckets.get(bucketKey);
+        if (bucket == null)
+        {
+            bucket = new PriorityQueue<>();
+            buckets.put(bucketKey, bucket);
+        }
+        bucket.add(entry);
+    }
+
+    /**
+     * Tokens share a bucket if the heuristic treats them identically apart from last update time
+     */
+    private static int bucketKey(Entry entry)
+    {
+        return (Float.floatToIntBits(entry.weight) << 1) | (entry.isEthereum() ? 1 : 0);
+    }
+
+    private static class Entry implements Comparable<Entry>
+    {
+        final String tokenId;
+        final int chainId;
+        final String address;
+        final ContractType type;
+        final float weight;
+        final long lastUpdate;
+        boolean superseded;
+
+        Entry(String tokenId, int chainId, String address, ContractType type, float weight, long lastUpdate)
+        {
+            this.tokenId = tokenId;
+            this.chainId = chainId;
+            this.address = address;
+            this.type = type;
+            this.weight = weight;
+            this.lastUpdate = lastUpdate;
+        }
+
+        boolean isEthereum()
+        {
+            return type == ContractType.ETHEREUM;
+        }
+
+        TokenCardMeta toMeta()
+        {
+            return new TokenCardMeta(chainId, address, "0", lastUpdate, 0, type);
+        }
+
+        @Override
+        public int compareTo(Entry other)
+        {
+            return Long.compare(lastUpdate, other.lastUpdate);
+        }
+    }
+}
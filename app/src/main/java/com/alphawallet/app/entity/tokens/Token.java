@@ -67,7 +67,7 @@ public class Token implements Parcelable, Comparable<Token>
     private int nameWeight;
     public int itemViewHeight;
 
-    private final Map<BigInteger, Map<String, TokenScriptResult.Attribute>> resultMap = new ConcurrentHashMap<>(); //Build result map for function parse, per tokenId
+    private final ConcurrentHashMap<BigInteger, Map<String, TokenScriptResult.Attribute>> resultMap = new ConcurrentHashMap<>(); //Build result map for function parse, per tokenId
     private Map<BigInteger, List<String>> functionAvailabilityMap = null;
 
     public String getNetworkName() { return shortNetworkName; }
@@ -943,11 +943,13 @@ public class Token implements Parcelable, Comparable<Token>
 
     public void setAttributeResult(BigInteger tokenId, TokenScriptResult.Attribute attrResult)
     {
+        //attributes in a level are resolved concurrently; putIfAbsent so no thread replaces another's result set
         Map<String, TokenScriptResult.Attribute> resultSet = resultMap.get(tokenId);
         if (resultSet == null)
         {
-            resultSet = new ConcurrentHashMap<>();
-            resultMap.put(tokenId, resultSet);
+            Map<String, TokenScriptResult.Attribute> newSet = new ConcurrentHashMap<>();
+            resultSet = resultMap.putIfAbsent(tokenId, newSet);
+            if (resultSet == null) resultSet = newSet;
         }
 
         resultSet.put(attrResult.id, attrResult);
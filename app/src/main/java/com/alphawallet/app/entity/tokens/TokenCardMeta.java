@@ -224,6 +224,16 @@ public class TokenCardMeta implements Comparable<TokenCardMeta>, Parcelable
         }
     }
 
+    /**
+     * Balance update weight of a token, calculated as for the token's meta loaded from the database
+     */
+    public static float calculateBalanceUpdateWeight(Token token)
+    {
+        String balance = token.hasPositiveBalance() ? "1" : "0"; //only whether the balance is positive affects the weight
+        return new TokenCardMeta(token.tokenInfo.chainId, token.getAddress(), balance, token.updateBlancaTime, null,
+                token.tokenInfo.name, token.tokenInfo.symbol, token.getInterfaceSpec()).calculateBalanceUpdateWeight();
+    }
+
     public float calculateBalanceUpdateWeight()
     {
         float updateWeight = 0;
@@ -0,0 +1,39 @@
+package com.alphawallet.app.entity.tokenscript;
+
+/**
+ * Adaptive block range for eth_getLogs on one chain.
+ *
+ * The range halves when the node rejects a query (most nodes cap result count or range) or returns a large result,
+ * and doubles while results stay small, so quiet chains catch up in few calls and busy ones stay within node limits.
+ */
+public class EventBlockWindow
+{
+    private static final long INITIAL_WINDOW = 100000;
+    private static final long MIN_WINDOW = 500;
+    private static final long MAX_WINDOW = 2000000;
+    private static final int SHRINK_LOG_COUNT = 2000;
+    private static final int GROW_LOG_COUNT = 200;
+
+    private long window = INITIAL_WINDOW;
+
+    public synchronized long getSize()
+    {
+        return window;
+    }
+
+    public synchronized void onResult(int logCount)
+    {
+        if (logCount > SHRINK_LOG_COUNT) window = Math.max(MIN_WINDOW, window / 2);
+        else if (logCount < GROW_LOG_COUNT) window = Math.min(MAX_WINDOW, window * 2);
+    }
+
+    /**
+     * @return true if the window could shrink; false if already at minimum
+     */
+    public synchronized boolean onError()
+    {
+        if (window == MIN_WINDOW) return false;
+        window = Math.max(MIN_WINDOW, window / 2);
+        return true;
+    }
+}
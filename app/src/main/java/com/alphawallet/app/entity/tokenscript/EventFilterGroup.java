@@ -0,0 +1,195 @@
+package com.alphawallet.app.entity.tokenscript;
+
+import com.alphawallet.token.entity.EventDefinition;
+
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.request.Filter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Event definitions on one contract, polled with a single eth_getLogs.
+ *
+ * The merged filter ORs the topics of every member filter at each position (a position any member leaves open is left open),
+ * so it returns a superset of the member logs. Logs are routed back to each definition by checking its own topics.
+ */
+public class EventFilterGroup
+{
+    private final int chainId;
+    private final String contractAddress;
+    private final Map<EventDefinition, List<Set<String>>> members = new LinkedHashMap<>(); //definition -> topic values per position, null for any
+
+    public EventFilterGroup(int chainId, String contractAddress)
+    {
+        this.chainId = chainId;
+        this.contractAddress = contractAddress;
+    }
+
+    public void add(EventDefinition ev, EthFilter filter)
+    {
+        List<Set<String>> topics = new ArrayList<>();
+        for (Filter.FilterTopic<?> topic : filter.getTopics())
+        {
+            Set<String> values = new HashSet<>();
+            if (topic instanceof Filter.ListTopic)
+            {
+                for (Filter.SingleTopic t : ((Filter.ListTopic) topic).getValue())
+                {
+                    if (t.getValue() != null) values.add(t.getValue().toLowerCase());
+                }
+            }
+            else if (topic.getValue() != null)
+            {
+                values.add(((String) topic.getValue()).toLowerCase());
+            }
+
+            topics.add(values.isEmpty() ? null : values);
+        }
+
+        members.put(ev, topics);
+    }
+
+    public int getChainId()
+    {
+        return chainId;
+    }
+
+    public String getContractAddress()
+    {
+        return contractAddress;
+    }
+
+    public Set<EventDefinition> getEvents()
+    {
+        return Collections.unmodifiableSet(members.keySet());
+    }
+
+    /**
+     * @return first block not yet read by every member
+     */
+    public BigInteger getStartBlock()
+    {
+        BigInteger startBlock = null;
+        for (EventDefinition ev : members.keySet())
+        {
+            if (startBlock == null || ev.readBlock.compareTo(startBlock) < 0) startBlock = ev.readBlock;
+        }
+
+        return startBlock != null ? startBlock : BigInteger.ZERO;
+    }
+
+    public EthFilter createFilter(BigInteger fromBlock, BigInteger toBlock)
+    {
+        EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(fromBlock), DefaultBlockParameter.valueOf(toBlock), contractAddress);
+
+        List<Set<String>> merged = new ArrayList<>();
+        boolean first = true;
+        for (List<Set<String>> topics : members.values())
+        {
+            if (first)
+            {
+                for (Set<String> values : topics) merged.add(values != null ? new HashSet<>(values) : null);
+                first = false;
+                continue;
+            }
+
+            for (int i = 0; i < merged.size(); i++)
+            {
+                if (merged.get(i) == null) continue;
+                //positions beyond a member's filter are open for that member
+                if (i >= topics.size() || topics.get(i) == null) merged.set(i, null);
+                else merged.get(i).addAll(topics.get(i));
+            }
+        }
+
+        //trailing open positions needn't be sent
+        while (merged.size() > 0 && merged.get(merged.size() - 1) == null) merged.remove(merged.size() - 1);
+
+        for (Set<String> values : merged)
+        {
+            if (values == null) filter.addNullTopic();
+            else if (values.size() == 1) filter.addSingleTopic(values.iterator().next());
+            else filter.addOptionalTopics(values.toArray(new String[0]));
+        }
+
+        return filter;
+    }
+
+    /**
+     * Split logs from the merged filter between the member definitions, skipping blocks a definition has already read
+     */
+    public Map<EventDefinition, List<EthLog.LogResult>> route(List<EthLog.LogResult> logs)
+    {
+        Map<EventDefinition, List<EthLog.LogResult>> routed = new LinkedHashMap<>();
+        for (EthLog.LogResult logResult : logs)
+        {
+            Log log = (Log) logResult.get();
+            for (Map.Entry<EventDefinition, List<Set<String>>> entry : members.entrySet())
+            {
+                if (log.getBlockNumber().compareTo(entry.getKey().readBlock) < 0 || !matches(log, entry.getValue())) continue;
+                List<EthLog.LogResult> evLogs = routed.get(entry.getKey());
+                if (evLogs == null)
+                {
+                    evLogs = new ArrayList<>();
+                    routed.put(entry.getKey(), evLogs);
+                }
+                evLogs.add(logResult);
+            }
+        }
+
+        return routed;
+    }
+
+    /**
+     * Record that all blocks up to and including toBlock have been read
+     */
+    public void markRead(BigInteger toBlock)
+    {
+        BigInteger nextBlock = toBlock.add(BigInteger.ONE);
+        for (EventDefinition ev : members.keySet())
+        {
+            if (ev.readBlock.compareTo(nextBlock) < 0) ev.readBlock = nextBlock;
+        }
+    }
+
+    /**
+     * @return stored form of the event's read block: the first block not yet read, in hex
+     */
+    public static String storedReadBlock(EventDefinition ev)
+    {
+        return ev.readBlock.toString(16);
+    }
+
+    /**
+     * @param stored value written by {@link #storedReadBlock(EventDefinition)}
+     * @return first block not yet read; the stored block itself must be read
+     */
+    public static BigInteger loadReadBlock(String stored)
+    {
+        return new BigInteger(stored, 16);
+    }
+
+    private boolean matches(Log log, List<Set<String>> topics)
+    {
+        List<String> logTopics = log.getTopics();
+        for (int i = 0; i < topics.size(); i++)
+        {
+            Set<String> values = topics.get(i);
+            if (values == null) continue;
+            if (logTopics == null || i >= logTopics.size() || logTopics.get(i) == null
+                    || !values.contains(logTopics.get(i).toLowerCase())) return false;
+        }
+
+        return true;
+    }
+}
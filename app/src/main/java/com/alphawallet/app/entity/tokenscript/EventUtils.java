@@ -1,6 +1,7 @@
 package com.alphawallet.app.entity.tokenscript;
 
 import com.alphawallet.app.entity.tokens.Token;
+import com.alphawallet.app.service.Web3jClients;
 import com.alphawallet.token.entity.Attribute;
 import com.alphawallet.token.entity.AttributeInterface;
 import com.alphawallet.token.entity.ContractAddress;
@@ -116,8 +117,12 @@ import org.web3j.abi.datatypes.generated.Uint80;
 import org.web3j.abi.datatypes.generated.Uint88;
 import org.web3j.abi.datatypes.generated.Uint96;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
 import org.web3j.protocol.core.DefaultBlockParameter;
 import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
 import org.web3j.protocol.core.methods.request.EthFilter;
 import org.web3j.protocol.core.methods.response.EthBlock;
 import org.web3j.protocol.core.methods.response.EthLog;
@@ -128,7 +133,13 @@ import org.web3j.utils.Numeric;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 import io.reactivex.Single;
 
@@ -152,6 +163,20 @@ import static org.web3j.tx.Contract.staticExtractEventParameters;
  */
 public abstract class EventUtils
 {
+    private static final int BLOCK_TIME_CACHE_SIZE = 512;
+    public static final int RPC_BATCH_LIMIT = 40; //keep batches within the request limits of public nodes
+
+    //block hash -> timestamp. Block timestamps never change for a given hash, so entries only leave by LRU eviction
+    private static final Map<String, Long> blockTimeCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, Long>(BLOCK_TIME_CACHE_SIZE, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest)
+                {
+                    return size() > BLOCK_TIME_CACHE_SIZE;
+                }
+            });
+
     public static EthFilter generateLogFilter(EventDefinition ev, List<BigInteger> tokenIds, AttributeInterface attrIf) throws Exception
     {
         return generateLogFilter(ev, null, tokenIds, attrIf);
@@ -264,6 +289,78 @@ public abstract class EventUtils
         });
     }
 
+    /**
+     * Resolve timestamps for a set of blocks. Blocks already seen are answered from the cache,
+     * the remainder are fetched in JSON-RPC batches if the chain accepts them. Blocks the batch didn't answer are then
+     * fetched one at a time.
+     *
+     * @param blockHashes may contain duplicates
+     * @param chainId
+     * @param web3j
+     * @return map of block hash to block timestamp (seconds). Blocks that couldn't be fetched are absent
+     * @throws IOException if the node couldn't be reached for a batch
+     */
+    public static Map<String, Long> getBlockTimes(Collection<String> blockHashes, int chainId, Web3j web3j) throws IOException
+    {
+        Map<String, Long> blockTimes = new HashMap<>();
+        List<String> required = new ArrayList<>();
+        for (String blockHash : new LinkedHashSet<>(blockHashes))
+        {
+            Long blockTime = blockTimeCache.get(blockTimeKey(chainId, blockHash));
+            if (blockTime != null) blockTimes.put(blockHash, blockTime);
+            else required.add(blockHash);
+        }
+
+        for (int i = 0; i < required.size(); i += RPC_BATCH_LIMIT)
+        {
+            List<String> chunk = required.subList(i, Math.min(i + RPC_BATCH_LIMIT, required.size()));
+            if (Web3jClients.isBatchSupported(chainId)) fetchBlockTimesBatch(chunk, chainId, web3j, blockTimes);
+            for (String blockHash : chunk)
+            {
+                if (blockTimes.containsKey(blockHash)) continue;
+                EthBlock block = getBlockDetails(blockHash, web3j).blockingGet();
+                if (block.getBlock() != null) putBlockTime(chainId, blockHash, block.getBlock().getTimestamp().longValue(), blockTimes);
+            }
+        }
+
+        return blockTimes;
+    }
+
+    private static void fetchBlockTimesBatch(List<String> blockHashes, int chainId, Web3j web3j, Map<String, Long> blockTimes) throws IOException
+    {
+        BatchRequest batch = web3j.newBatch();
+        Map<Long, String> requestMap = new HashMap<>();
+        for (String blockHash : blockHashes)
+        {
+            Request<?, EthBlock> request = web3j.ethGetBlockByHash(blockHash.trim(), false);
+            requestMap.put(request.getId(), blockHash);
+            batch.add(request);
+        }
+
+        BatchResponse batchResponse = Web3jClients.sendBatch(chainId, batch);
+        if (batchResponse == null) return; //node rejected the batch; the blocks are fetched individually
+
+        //match on id; nodes are not obliged to return batch results in request order
+        for (Response<?> response : batchResponse.getResponses())
+        {
+            String blockHash = requestMap.get(response.getId());
+            if (blockHash == null || response.hasError()) continue;
+            EthBlock.Block block = ((EthBlock) response).getBlock();
+            if (block != null) putBlockTime(chainId, blockHash, block.getTimestamp().longValue(), blockTimes);
+        }
+    }
+
+    private static void putBlockTime(int chainId, String blockHash, long blockTime, Map<String, Long> blockTimes)
+    {
+        blockTimeCache.put(blockTimeKey(chainId, blockHash), blockTime);
+        blockTimes.put(blockHash, blockTime);
+    }
+
+    private static String blockTimeKey(int chainId, String blockHash)
+    {
+        return chainId + "-" + blockHash.trim().toLowerCase();
+    }
+
     public static Single<EthTransaction> getTransactionDetails(String blockHash, Web3j web3j)
     {
         return Single.fromCallable(() -> {
@@ -0,0 +1,67 @@
+package com.alphawallet.app.entity.tokenscript;
+
+import com.alphawallet.token.entity.TSFilterProgram;
+import com.alphawallet.token.entity.TSSelection;
+import com.alphawallet.token.entity.TokenScriptResult;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fills the slot array of a selection's compiled program straight from a tokenId's attribute results.
+ *
+ * Which result each slot takes is worked out once when this is built, so evaluating the selection for each tokenId
+ * takes one lookup per slot and reuses the same slot array, rather than building a map of the required attributes
+ * for every evaluation. Not thread safe; build one per thread.
+ */
+public class SelectionSlots
+{
+    //intrinsic attributes, in the order their values are passed to evaluate
+    public static final String[] INTRINSIC_ATTRS = { "tokenId", "ownerAddress", "contractAddress" };
+
+    public final TSSelection selection;
+    private final TSFilterProgram program;
+    private final String[] attrNames;    //name of the required attribute for the slot, or null
+    private final int[] intrinsicIndex;  //index of the intrinsic attribute for the slot, or -1
+    private final TokenScriptResult.Attribute[] slotValues;
+
+    public SelectionSlots(TSSelection selection)
+    {
+        this.selection = selection;
+        program = selection.getProgram();
+        List<String> slotNames = program.getSlotNames();
+        List<String> requiredAttrs = selection.getRequiredAttrs();
+        attrNames = new String[slotNames.size()];
+        intrinsicIndex = new int[slotNames.size()];
+        slotValues = new TokenScriptResult.Attribute[slotNames.size()];
+
+        for (int i = 0; i < slotNames.size(); i++)
+        {
+            String name = slotNames.get(i);
+            intrinsicIndex[i] = -1;
+            for (int j = 0; j < INTRINSIC_ATTRS.length; j++)
+            {
+                if (INTRINSIC_ATTRS[j].equals(name)) intrinsicIndex[i] = j;
+            }
+            //only attributes the selection requires are passed to it, as before
+            if (intrinsicIndex[i] < 0 && requiredAttrs.contains(name)) attrNames[i] = name;
+        }
+    }
+
+    /**
+     * @param attrResults attribute results for the tokenId, or null if there are none
+     * @param intrinsicAttrs values of {@link #INTRINSIC_ATTRS} for the tokenId
+     * @return true if the selection filter matches
+     */
+    public boolean evaluate(Map<String, TokenScriptResult.Attribute> attrResults, TokenScriptResult.Attribute[] intrinsicAttrs)
+    {
+        for (int i = 0; i < slotValues.length; i++)
+        {
+            if (intrinsicIndex[i] >= 0) slotValues[i] = intrinsicAttrs[intrinsicIndex[i]];
+            else if (attrNames[i] != null && attrResults != null) slotValues[i] = attrResults.get(attrNames[i]);
+            else slotValues[i] = null;
+        }
+
+        return program.evaluate(slotValues);
+    }
+}
@@ -0,0 +1,163 @@
+package com.alphawallet.app.entity.tokenscript;
+
+import com.alphawallet.token.entity.ContractInfo;
+import com.alphawallet.token.tools.TokenDefinition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of parsed TokenDefinitions.
+ *
+ * Definitions are stored per script file, and indexed by every (chainId, address) of the holding contract
+ * so a script covering several chains or contracts is parsed once.
+ */
+public class TokenDefinitionCache
+{
+    private static final int MAX_DEFINITIONS = 16;
+
+    private final LinkedHashMap<String, CachedDefinition> definitions = new LinkedHashMap<>(MAX_DEFINITIONS, 0.75f, true); //file path -> definition, access ordered
+    private final Map<String, String> contractIndex = new HashMap<>(); //contract key -> file path
+
+    private long hits;
+    private long misses;
+    private long parseCount;
+    private long parseTimeMs;
+
+    public synchronized TokenDefinition get(int chainId, String address)
+    {
+        String filePath = contractIndex.get(contractKey(chainId, address));
+        CachedDefinition cached = filePath != null ? definitions.get(filePath) : null;
+        if (cached != null)
+        {
+            hits++;
+            return cached.definition;
+        }
+        else
+        {
+            misses++;
+            return null;
+        }
+    }
+
+    /**
+     * Add a freshly parsed definition
+     * @param chainId chain the definition was looked up from
+     * @param address address the definition was looked up from
+     * @param filePath script file, used as the cache key
+     * @param td parsed definition
+     * @param parseTime time taken to parse, for metrics
+     */
+    public synchronized void put(int chainId, String address, String filePath, TokenDefinition td, long parseTime)
+    {
+        if (td == null) return;
+        parseCount++;
+        parseTimeMs += parseTime;
+
+        invalidateFile(filePath);
+        CachedDefinition cached = new CachedDefinition(td);
+        cached.contractKeys.add(contractKey(chainId, address));
+
+        ContractInfo holdingContracts = td.contracts.get(td.holdingToken);
+        if (holdingContracts != null)
+        {
+            for (int chain : holdingContracts.addresses.keySet())
+            {
+                for (String addr : holdingContracts.addresses.get(chain))
+                {
+                    cached.contractKeys.add(contractKey(chain, addr));
+                }
+            }
+        }
+
+        for (String key : cached.contractKeys)
+        {
+            String previousFile = contractIndex.put(key, filePath);
+            //contract moved to a new script (eg a debug override), drop the old definition
+            if (previousFile != null && !previousFile.equals(filePath)) invalidateFile(previousFile);
+        }
+
+        definitions.put(filePath, cached);
+        trim();
+    }
+
+    public synchronized void invalidate(int chainId, String address)
+    {
+        String filePath = contractIndex.get(contractKey(chainId, address));
+        if (filePath != null) invalidateFile(filePath);
+    }
+
+    public synchronized void invalidateFile(String filePath)
+    {
+        CachedDefinition cached = definitions.remove(filePath);
+        if (cached != null) removeIndex(filePath, cached);
+    }
+
+    public synchronized void clear()
+    {
+        definitions.clear();
+        contractIndex.clear();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        long avgParse = parseCount > 0 ? parseTimeMs / parseCount : 0;
+        return "TokenDefinitionCache: " + definitions.size() + " definitions, " + hits + " hits, " + misses + " misses, "
+                + parseCount + " parses, " + avgParse + "ms average parse";
+    }
+
+    public synchronized long getHitCount()
+    {
+        return hits;
+    }
+
+    public synchronized long getMissCount()
+    {
+        return misses;
+    }
+
+    public synchronized long getParseTimeMs()
+    {
+        return parseTimeMs;
+    }
+
+    private void trim()
+    {
+        Iterator<Map.Entry<String, CachedDefinition>> iterator = definitions.entrySet().iterator();
+        while (definitions.size() > MAX_DEFINITIONS && iterator.hasNext())
+        {
+            Map.Entry<String, CachedDefinition> eldest = iterator.next();
+            iterator.remove();
+            removeIndex(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private void removeIndex(String filePath, CachedDefinition cached)
+    {
+        for (String key : cached.contractKeys)
+        {
+            if (filePath.equals(contractIndex.get(key))) contractIndex.remove(key);
+        }
+    }
+
+    private static String contractKey(int chainId, String address)
+    {
+        return address.toLowerCase() + "-" + chainId;
+    }
+
+    private static class CachedDefinition
+    {
+        final TokenDefinition definition;
+        final List<String> contractKeys = new ArrayList<>();
+
+        CachedDefinition(TokenDefinition td)
+        {
+            definition = td;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import android.text.TextUtils;
 import com.alphawallet.app.BuildConfig;
 import com.alphawallet.app.entity.tokens.Token;
 import com.alphawallet.app.repository.TokenRepository;
+import com.alphawallet.app.service.Web3jClients;
 import com.alphawallet.app.util.BalanceUtils;
 import com.alphawallet.app.util.Utils;
 import com.alphawallet.token.entity.As;
@@ -31,7 +32,11 @@ import org.web3j.abi.datatypes.Uint;
 import org.web3j.abi.datatypes.Utf8String;
 import org.web3j.abi.datatypes.generated.*;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
 import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
 import org.web3j.protocol.core.methods.request.EthFilter;
 import org.web3j.protocol.core.methods.response.EthCall;
 import org.web3j.protocol.core.methods.response.EthLog;
@@ -45,6 +50,8 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -832,6 +839,216 @@ public abstract class TokenscriptFunction
         }
     }
 
+    /**
+     * Resolve several attributes for several tokenIds at once.
+     * Contract calls needed are gathered first so identical calls are made only once, then each chain's calls are sent
+     * as JSON-RPC batch requests. Cached, static and event attributes resolve as in {@link #fetchAttrResult}.
+     *
+     * @param token
+     * @param attrs attributes to resolve
+     * @param tokenIds
+     * @param td
+     * @param attrIf
+     * @return map of tokenId to attribute results, keyed by attribute name
+     */
+    public Map<BigInteger, Map<String, TokenScriptResult.Attribute>> fetchAttrResults(Token token, List<Attribute> attrs, List<BigInteger> tokenIds,
+                                                                                    TokenDefinition td, AttributeInterface attrIf)
+    {
+        Map<BigInteger, Map<String, TokenScriptResult.Attribute>> resultSet = new HashMap<>();
+        Map<String, PendingCall> pendingCalls = new LinkedHashMap<>(); //keyed by chain, contract and encoded call
+        String walletAddress = attrIf.getWalletAddr();
+
+        for (BigInteger tokenId : tokenIds)
+        {
+            for (Attribute attr : attrs)
+            {
+                if (attr.function == null || attr.event != null || token.getAttributeResult(attr.name, tokenId) != null)
+                {
+                    addResult(resultSet, tokenId, fetchAttrResult(token, attr, tokenId, td, attrIf, false).blockingSingle());
+                    continue;
+                }
+
+                ContractAddress useAddress = new ContractAddress(attr.function);
+                long lastTxUpdate = attrIf.getLastTokenUpdate(useAddress.chainId, useAddress.address);
+                TransactionResult cachedResult = attrIf.getFunctionResult(useAddress, attr, tokenId);
+                if (!attr.isVolatile() && (attrIf.resolveOptimisedAttr(useAddress, attr, cachedResult) || !cachedResult.needsUpdating(lastTxUpdate)))
+                {
+                    addResult(resultSet, tokenId, parseFunctionResult(cachedResult, attr));
+                    continue;
+                }
+
+                Function function = generateTransactionFunction(token, tokenId, td, attr.function, attrIf);
+                PendingResult pending = new PendingResult(tokenId, attr, cachedResult);
+                if (function.getInputParameters() == null)
+                {
+                    //couldn't validate all the input param values
+                    completeResult(token, useAddress, function, "", pending, walletAddress, attrIf, resultSet);
+                    continue;
+                }
+
+                String encodedFunction = FunctionEncoder.encode(function);
+                String key = useAddress.chainId + "-" + useAddress.address.toLowerCase() + "-" + encodedFunction;
+                PendingCall call = pendingCalls.get(key);
+                if (call == null)
+                {
+                    call = new PendingCall(useAddress, function, encodedFunction);
+                    pendingCalls.put(key, call);
+                }
+                call.results.add(pending);
+            }
+        }
+
+        Map<Integer, List<PendingCall>> chainCalls = new HashMap<>();
+        for (PendingCall call : pendingCalls.values())
+        {
+            List<PendingCall> calls = chainCalls.get(call.contract.chainId);
+            if (calls == null)
+            {
+                calls = new ArrayList<>();
+                chainCalls.put(call.contract.chainId, calls);
+            }
+            calls.add(call);
+        }
+
+        for (int chainId : chainCalls.keySet())
+        {
+            sendCalls(chainId, chainCalls.get(chainId));
+        }
+
+        for (PendingCall call : pendingCalls.values())
+        {
+            for (PendingResult pending : call.results)
+            {
+                completeResult(token, call.contract, call.function, call.response, pending, walletAddress, attrIf, resultSet);
+            }
+        }
+
+        return resultSet;
+    }
+
+    private void sendCalls(int chainId, List<PendingCall> calls)
+    {
+        Web3j web3j = getWeb3jService(chainId);
+        if (calls.size() > 1 && Web3jClients.isBatchSupported(chainId))
+        {
+            for (int start = 0; start < calls.size(); start += TokenRepository.BALANCE_BATCH_LIMIT)
+            {
+                List<PendingCall> chunk = calls.subList(start, Math.min(start + TokenRepository.BALANCE_BATCH_LIMIT, calls.size()));
+                if (!sendBatch(web3j, chainId, chunk)) break;
+            }
+        }
+
+        //anything the batch didn't answer
+        for (PendingCall call : calls)
+        {
+            if (!call.sent)
+            {
+                call.response = callSmartContractFunction(web3j, call.function, call.contract.address, ZERO_ADDRESS);
+            }
+        }
+    }
+
+    /**
+     * @return false if the batch wasn't answered and the remaining calls should be sent individually
+     */
+    private boolean sendBatch(Web3j web3j, int chainId, List<PendingCall> calls)
+    {
+        Map<Long, PendingCall> requestMap = new HashMap<>();
+        BatchRequest batch = web3j.newBatch();
+        for (PendingCall call : calls)
+        {
+            Request<?, EthCall> request = web3j.ethCall(createEthCallTransaction(ZERO_ADDRESS, call.contract.address, call.encodedFunction),
+                    DefaultBlockParameterName.LATEST);
+            requestMap.put(request.getId(), call);
+            batch.add(request);
+        }
+
+        try
+        {
+            BatchResponse batchResponse = Web3jClients.sendBatch(chainId, batch);
+            if (batchResponse == null) return false; //node doesn't handle batch requests
+
+            //match on id; nodes are not obliged to return batch results in request order
+            for (Response<?> response : batchResponse.getResponses())
+            {
+                PendingCall call = requestMap.get(response.getId());
+                if (call == null) continue;
+                call.response = ((EthCall) response).getValue();
+                call.sent = true;
+            }
+        }
+        catch (IOException e)
+        {
+            //Connection error; don't retry the calls individually, the results will be restored from cache
+            for (PendingCall call : calls) call.sent = true;
+        }
+        catch (Exception e)
+        {
+            //unreadable response; send the calls individually this time round
+            if (BuildConfig.DEBUG) e.printStackTrace();
+            return false;
+        }
+
+        return true;
+    }
+
+    private void completeResult(Token token, ContractAddress contract, Function function, String response, PendingResult pending,
+                                String walletAddress, AttributeInterface attrIf, Map<BigInteger, Map<String, TokenScriptResult.Attribute>> resultSet)
+    {
+        TransactionResult transactionResult = new TransactionResult(contract.chainId, contract.address, pending.tokenId, pending.attr);
+        transactionResult.result = handleTransactionResult(transactionResult, function, response, pending.attr, System.currentTimeMillis());
+        addParseResultIfValid(token, pending.tokenId, pending.attr, transactionResult);
+        restoreFromDBIfRequired(transactionResult, pending.cachedResult);
+        attrIf.storeAuxData(walletAddress, transactionResult);
+        addResult(resultSet, pending.tokenId, parseFunctionResult(transactionResult, pending.attr));
+    }
+
+    private void addResult(Map<BigInteger, Map<String, TokenScriptResult.Attribute>> resultSet, BigInteger tokenId, TokenScriptResult.Attribute attrResult)
+    {
+        if (attrResult == null) return;
+        Map<String, TokenScriptResult.Attribute> tokenIdMap = resultSet.get(tokenId);
+        if (tokenIdMap == null)
+        {
+            tokenIdMap = new HashMap<>();
+            resultSet.put(tokenId, tokenIdMap);
+        }
+        tokenIdMap.put(attrResult.id, attrResult);
+    }
+
+    /**
+     * One contract call, shared by every tokenId and attribute which needs its result
+     */
+    private static class PendingCall
+    {
+        final ContractAddress contract;
+        final Function function;
+        final String encodedFunction;
+        final List<PendingResult> results = new ArrayList<>();
+        String response;
+        boolean sent;
+
+        PendingCall(ContractAddress contract, Function function, String encodedFunction)
+        {
+            this.contract = contract;
+            this.function = function;
+            this.encodedFunction = encodedFunction;
+        }
+    }
+
+    private static class PendingResult
+    {
+        final BigInteger tokenId;
+        final Attribute attr;
+        final TransactionResult cachedResult;
+
+        PendingResult(BigInteger tokenId, Attribute attr, TransactionResult cachedResult)
+        {
+            this.tokenId = tokenId;
+            this.attr = attr;
+            this.cachedResult = cachedResult;
+        }
+    }
+
     private Observable<TokenScriptResult.Attribute> getEventResult(TransactionResult txResult, Attribute attr, BigInteger tokenId, AttributeInterface attrIf)
     {
         //fetch the function
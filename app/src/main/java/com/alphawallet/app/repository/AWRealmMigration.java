@@ -242,6 +242,21 @@ public class AWRealmMigration implements RealmMigration
             if (realmData != null && !realmData.hasField("chainId")) realmData.addField("chainId", int.class);
             oldVersion++;
         }
+
+        if (oldVersion == 22)
+        {
+            RealmObjectSchema realmData = schema.get("RealmTransaction");
+            if (realmData != null)
+            {
+                if (!realmData.hasField("decodedType")) realmData.addField("decodedType", String.class);
+                if (!realmData.hasField("decodedAddresses")) realmData.addField("decodedAddresses", String.class);
+                if (!realmData.hasField("decodedValues")) realmData.addField("decodedValues", String.class);
+                if (!realmData.hasField("decodedSigData")) realmData.addField("decodedSigData", String.class);
+                if (!realmData.hasField("decodedMiscData")) realmData.addField("decodedMiscData", String.class);
+                if (!realmData.hasField("decodedTradeAddress")) realmData.addField("decodedTradeAddress", String.class);
+            }
+            oldVersion++;
+        }
     }
 
     @Override
@@ -0,0 +1,134 @@
+package com.alphawallet.app.repository;
+
+import com.alphawallet.app.repository.entity.RealmERC721Asset;
+import com.alphawallet.app.repository.entity.RealmToken;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Size bounded LRU cache of token database records for the wallet currently in use, keyed by database key (address-chainId).
+ * Sits in front of the Realm read in {@link TokensRealmSource#fetchToken}; all writes to a RealmToken must invalidate the entry
+ * once they're committed. Every invalidation advances a generation count, and a record read before an invalidation isn't
+ * cached, so a read racing a write can't leave the old record in the cache.
+ *
+ * Entries hold unmanaged copies of the Realm objects rather than Token objects, so each fetch builds its own Token
+ * and changes a caller makes to one can't be seen by any other caller.
+ */
+public class TokenCache
+{
+    private static final int MAX_CACHED_TOKENS = 512;
+
+    private final Map<String, CachedToken> tokens = new LinkedHashMap<String, CachedToken>(64, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedToken> eldest)
+        {
+            return size() > MAX_CACHED_TOKENS;
+        }
+    };
+
+    private String walletAddress;
+    private long hits;
+    private long misses;
+    private long generation;
+
+    public synchronized CachedToken get(String wallet, String dbKey)
+    {
+        CachedToken token = wallet.equalsIgnoreCase(walletAddress) ? tokens.get(dbKey) : null;
+        if (token != null) hits++;
+        else misses++;
+        return token;
+    }
+
+    /**
+     * @return generation to pass to {@link #put}; must be taken before the record is read from the database
+     */
+    public synchronized long getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * @param generation value of {@link #getGeneration()} before the record was read; the record isn't cached if there
+     *                   has been an invalidation since
+     * @param realmToken unmanaged copy of the token record
+     * @param assets unmanaged copies of the token's ERC721 asset records
+     */
+    public synchronized void put(String wallet, String dbKey, long generation, RealmToken realmToken, List<RealmERC721Asset> assets)
+    {
+        if (realmToken == null || generation != this.generation) return;
+        if (!wallet.equalsIgnoreCase(walletAddress))
+        {
+            //cache is wallet scoped
+            tokens.clear();
+            walletAddress = wallet.toLowerCase();
+        }
+        tokens.put(dbKey, new CachedToken(realmToken, assets));
+    }
+
+    public synchronized void invalidate(String wallet, String dbKey)
+    {
+        generation++;
+        if (wallet.equalsIgnoreCase(walletAddress)) tokens.remove(dbKey);
+    }
+
+    public synchronized void invalidateWallet(String wallet)
+    {
+        generation++;
+        if (wallet.equalsIgnoreCase(walletAddress)) tokens.clear();
+    }
+
+    /**
+     * Record a balance check without dropping the cached token
+     */
+    public synchronized void markChecked(String wallet, String dbKey, long checkTime)
+    {
+        CachedToken token = wallet.equalsIgnoreCase(walletAddress) ? tokens.get(dbKey) : null;
+        if (token != null) token.updateTime = checkTime;
+    }
+
+    public synchronized long getHitCount()
+    {
+        return hits;
+    }
+
+    public synchronized long getMissCount()
+    {
+        return misses;
+    }
+
+    public synchronized int size()
+    {
+        return tokens.size();
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "TokenCache: " + tokens.size() + " tokens, " + hits + " hits, " + misses + " misses";
+    }
+
+    /**
+     * Records are never modified once cached; the balance check time is held separately
+     */
+    public static class CachedToken
+    {
+        public final RealmToken realmToken;
+        public final List<RealmERC721Asset> assets;
+        volatile long updateTime;
+
+        CachedToken(RealmToken realmToken, List<RealmERC721Asset> assets)
+        {
+            this.realmToken = realmToken;
+            this.assets = assets;
+            this.updateTime = realmToken.getUpdateTime();
+        }
+
+        public long getUpdateTime()
+        {
+            return updateTime;
+        }
+    }
+}
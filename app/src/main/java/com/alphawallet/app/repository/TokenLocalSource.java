@@ -24,6 +24,7 @@ public interface TokenLocalSource {
     void updateTokenBalance(NetworkInfo network, Wallet wallet, Token token);
     boolean updateTokenBalance(Wallet wallet, int chainId, String tokenAddress, BigDecimal balance, List<BigInteger> balanceArray, ContractType type);
     void markBalanceChecked(Wallet wallet, int chainId, String tokenAddress);
+    TokenCardMeta[] updateTokenBalances(Wallet wallet, List<TokenCardMeta> tokens, Map<String, String> balances);
     Token fetchToken(int chainId, Wallet wallet, String address);
     void setEnable(NetworkInfo network, Wallet wallet, Token token, boolean isEnabled);
 
@@ -7,6 +7,7 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.alphawallet.app.BuildConfig;
 import com.alphawallet.app.entity.ContractLocator;
 import com.alphawallet.app.entity.ContractType;
 import com.alphawallet.app.entity.NetworkInfo;
@@ -21,9 +22,9 @@ import com.alphawallet.app.entity.tokens.TokenCardMeta;
 import com.alphawallet.app.entity.tokens.TokenFactory;
 import com.alphawallet.app.entity.tokens.TokenInfo;
 import com.alphawallet.app.entity.tokens.TokenTicker;
-import com.alphawallet.app.service.AWHttpService;
 import com.alphawallet.app.service.AssetDefinitionService;
 import com.alphawallet.app.service.TickerService;
+import com.alphawallet.app.service.Web3jClients;
 import com.alphawallet.app.service.TokensService;
 import com.alphawallet.app.util.AWEnsResolver;
 import com.alphawallet.app.util.Utils;
@@ -44,9 +45,14 @@ import org.web3j.abi.datatypes.generated.Int256;
 import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.abi.datatypes.generated.Uint8;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
 import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
 import org.web3j.protocol.core.methods.response.EthBlockNumber;
 import org.web3j.protocol.core.methods.response.EthCall;
+import org.web3j.protocol.core.methods.response.EthGetBalance;
 import org.web3j.utils.Numeric;
 
 import java.io.IOException;
@@ -57,10 +63,9 @@ import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Completable;
 import io.reactivex.Observable;
@@ -68,7 +73,6 @@ import io.reactivex.Single;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
 import io.realm.Realm;
-import okhttp3.OkHttpClient;
 
 import static com.alphawallet.app.entity.tokenscript.TokenscriptFunction.ZERO_ADDRESS;
 import static org.web3j.protocol.core.methods.request.Transaction.createEthCallTransaction;
@@ -78,7 +82,6 @@ public class TokenRepository implements TokenRepositoryType {
     private static final String TAG = "TRT";
     private final TokenLocalSource localSource;
     private final EthereumNetworkRepositoryType ethereumNetworkRepository;
-    private final OkHttpClient okClient;
     private final Context context;
     private final TickerService tickerService;
 
@@ -91,40 +94,24 @@ public class TokenRepository implements TokenRepositoryType {
 
     private static final int NODE_COMMS_ERROR = -1;
     private static final int CONTRACT_BALANCE_NULL = -2;
+    public static final int BALANCE_BATCH_LIMIT = 40; //keep batches within the request limits of public nodes
 
-    private final Map<Integer, Web3j> web3jNodeServers;
     private AWEnsResolver ensResolver;
 
     public TokenRepository(
             EthereumNetworkRepositoryType ethereumNetworkRepository,
             TokenLocalSource localSource,
-            OkHttpClient okClient,
             Context context,
             TickerService tickerService) {
         this.ethereumNetworkRepository = ethereumNetworkRepository;
         this.localSource = localSource;
-        this.ethereumNetworkRepository.addOnChangeDefaultNetwork(this::buildWeb3jClient);
-        this.okClient = okClient;
         this.context = context;
         this.tickerService = tickerService;
-
-        web3jNodeServers = new ConcurrentHashMap<>();
-    }
-
-    private void buildWeb3jClient(NetworkInfo networkInfo)
-    {
-        AWHttpService publicNodeService = new AWHttpService(networkInfo.rpcServerUrl, networkInfo.backupNodeUrl, okClient, false);
-        EthereumNetworkRepository.addRequiredCredentials(networkInfo.chainId, publicNodeService);
-        web3jNodeServers.put(networkInfo.chainId, Web3j.build(publicNodeService));
     }
 
     private Web3j getService(int chainId)
     {
-        if (!web3jNodeServers.containsKey(chainId))
-        {
-            buildWeb3jClient(ethereumNetworkRepository.getNetworkByChain(chainId));
-        }
-        return web3jNodeServers.get(chainId);
+        return Web3jClients.get(chainId);
     }
 
     // Only for sensing ERC721 Ticket
@@ -276,6 +263,138 @@ public class TokenRepository implements TokenRepositoryType {
                 .observeOn(Schedulers.io());
     }
 
+    /**
+     * Update balances of several tokens on one chain using a single JSON-RPC batch request,
+     * then write all the results in one database transaction.
+     * Falls back to individual balance calls if the batch fails.
+     *
+     * @param walletAddress
+     * @param chainId
+     * @param tokens tokens to check, see {@link #isBatchBalanceType}
+     * @return tokens whose balance changed
+     */
+    @Override
+    public Single<TokenCardMeta[]> updateTokenBalances(String walletAddress, int chainId, List<TokenCardMeta> tokens)
+    {
+        Wallet wallet = new Wallet(walletAddress);
+        return Single.fromCallable(() -> {
+            Map<String, String> balances = null;
+            if (Web3jClients.isBatchSupported(chainId))
+            {
+                balances = fetchBatchBalances(wallet, chainId, tokens);
+            }
+
+            if (balances != null)
+            {
+                return localSource.updateTokenBalances(wallet, tokens, balances);
+            }
+            else
+            {
+                return updateBalancesIndividually(wallet, chainId, tokens);
+            }
+        }).subscribeOn(Schedulers.io())
+          .observeOn(Schedulers.io());
+    }
+
+    public static boolean isBatchBalanceType(ContractType type)
+    {
+        switch (type)
+        {
+            case ETHEREUM:
+            case ERC20:
+            case DYNAMIC_CONTRACT:
+            case ERC721:
+            case ERC721_LEGACY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return map of tokenId to balance for each token the node answered, or null if the batch call failed
+     */
+    private Map<String, String> fetchBatchBalances(Wallet wallet, int chainId, List<TokenCardMeta> tokens)
+    {
+        Map<String, String> balances = new HashMap<>();
+        Map<Long, TokenCardMeta> requestMap = new HashMap<>();
+        Function function = balanceOf(wallet.address);
+        String encodedFunction = FunctionEncoder.encode(function);
+        Web3j web3j = getService(chainId);
+        BatchRequest batch = web3j.newBatch();
+
+        for (TokenCardMeta meta : tokens)
+        {
+            Request<?, ? extends Response<?>> request;
+            if (meta.isEthereum())
+            {
+                request = web3j.ethGetBalance(wallet.address, DefaultBlockParameterName.LATEST);
+            }
+            else
+            {
+                request = web3j.ethCall(createEthCallTransaction(wallet.address, meta.getAddress(), encodedFunction),
+                        DefaultBlockParameterName.LATEST);
+            }
+            requestMap.put(request.getId(), meta);
+            batch.add(request);
+        }
+
+        try
+        {
+            BatchResponse batchResponse = Web3jClients.sendBatch(chainId, batch);
+            if (batchResponse == null) return null; //node doesn't handle batch requests
+
+            //match on id; nodes are not obliged to return batch results in request order
+            for (Response<?> response : batchResponse.getResponses())
+            {
+                TokenCardMeta meta = requestMap.get(response.getId());
+                if (meta == null || response.hasError()) continue;
+
+                if (response instanceof EthGetBalance)
+                {
+                    balances.put(meta.tokenId, new BigDecimal(((EthGetBalance) response).getBalance()).toString());
+                }
+                else
+                {
+                    String responseValue = ((EthCall) response).getValue();
+                    if (TextUtils.isEmpty(responseValue)) continue;
+                    List<Type> values = FunctionReturnDecoder.decode(responseValue, function.getOutputParameters());
+                    if (values.size() > 0)
+                    {
+                        balances.put(meta.tokenId, new BigDecimal(((Uint256) values.get(0)).getValue()).toString());
+                    }
+                }
+            }
+        }
+        catch (InterruptedIOException|UnknownHostException e)
+        {
+            //expected to happen when user switches wallets
+        }
+        catch (Exception e)
+        {
+            //node or connection error; check the tokens individually this time round
+            if (BuildConfig.DEBUG) e.printStackTrace();
+            return null;
+        }
+
+        return balances;
+    }
+
+    private TokenCardMeta[] updateBalancesIndividually(Wallet wallet, int chainId, List<TokenCardMeta> tokens)
+    {
+        List<TokenCardMeta> changed = new ArrayList<>();
+        for (TokenCardMeta meta : tokens)
+        {
+            localSource.markBalanceChecked(wallet, chainId, meta.getAddress());
+            if (updateBalance(wallet, chainId, meta.getAddress(), meta.type).blockingGet())
+            {
+                changed.add(meta);
+            }
+        }
+
+        return changed.toArray(new TokenCardMeta[0]);
+    }
+
     @Override
     public Single<Token> addToken(Wallet wallet, TokenInfo tokenInfo, ContractType contractType)
     {
@@ -1437,15 +1556,7 @@ public class TokenRepository implements TokenRepositoryType {
 
     public static Web3j getWeb3jService(int chainId)
     {
-        OkHttpClient okClient = new OkHttpClient.Builder()
-                .connectTimeout(10, TimeUnit.SECONDS)
-                .readTimeout(10, TimeUnit.SECONDS)
-                .writeTimeout(10, TimeUnit.SECONDS)
-                .retryOnConnectionFailure(false)
-                .build();
-        AWHttpService publicNodeService = new AWHttpService(EthereumNetworkRepository.getNodeURLByNetworkId (chainId), EthereumNetworkRepository.getSecondaryNodeURL(chainId), okClient, false);
-        EthereumNetworkRepository.addRequiredCredentials(chainId, publicNodeService);
-        return Web3j.build(publicNodeService);
+        return Web3jClients.get(chainId);
     }
 
     private boolean ignoreToken(Token t)
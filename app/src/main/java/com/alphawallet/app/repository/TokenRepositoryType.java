@@ -28,6 +28,7 @@ public interface TokenRepositoryType {
 
     Observable<Token> fetchActiveTokenBalance(String walletAddress, Token token);
     Single<Boolean> updateTokenBalance(String walletAddress, int chainId, String tokenAddress, ContractType type);
+    Single<TokenCardMeta[]> updateTokenBalances(String walletAddress, int chainId, List<TokenCardMeta> tokens);
     Single<ContractLocator> getTokenResponse(String address, int chainId, String method);
     Single<Token[]> checkInterface(Token[] tokens, Wallet wallet);
     Completable setEnable(Wallet wallet, Token token, boolean isEnabled);
@@ -10,6 +10,7 @@ import com.alphawallet.app.entity.Wallet;
 import com.alphawallet.app.entity.opensea.Asset;
 import com.alphawallet.app.entity.opensea.AssetContract;
 import com.alphawallet.app.entity.opensea.Trait;
+import com.alphawallet.app.entity.tokens.BalanceUpdateQueue;
 import com.alphawallet.app.entity.tokens.ERC721Token;
 import com.alphawallet.app.entity.tokens.Token;
 import com.alphawallet.app.entity.tokens.TokenCardMeta;
@@ -29,6 +30,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -57,6 +59,8 @@ public class TokensRealmSource implements TokenLocalSource {
 
     public static final String EVENT_CARDS = "-eventName";
 
+    private static final TokenCache tokenCache = new TokenCache();
+
     private final RealmManager realmManager;
     private final EthereumNetworkRepositoryType ethereumNetworkRepository;
 
@@ -96,6 +100,11 @@ public class TokensRealmSource implements TokenLocalSource {
             {
                 ex.printStackTrace();
             }
+            finally
+            {
+                //after the commit, so a fetch can't read the old record and cache it again
+                for (Token token : tokens) tokenCache.invalidate(wallet.address, databaseKey(token));
+            }
             return tokens;
         });
     }
@@ -116,6 +125,7 @@ public class TokensRealmSource implements TokenLocalSource {
                 realmToken.deleteFromRealm();
                 realm.commitTransaction();
             }
+            tokenCache.invalidate(wallet.address, dbKey);
         }
     }
 
@@ -140,6 +150,7 @@ public class TokensRealmSource implements TokenLocalSource {
                     realmToken.setName(token.tokenInfo.name);
                     realmToken.setSymbol(token.tokenInfo.symbol);
                 });
+                tokenCache.invalidate(wallet.address, databaseKey(token));
             }
 
             return fetchToken(token.tokenInfo.chainId, wallet, token.getAddress());
@@ -197,15 +208,36 @@ public class TokensRealmSource implements TokenLocalSource {
     @Override
     public Token fetchToken(int chainId, Wallet wallet, String address)
     {
+        String dbKey = databaseKey(chainId, address);
+        TokenCache.CachedToken cached = tokenCache.get(wallet.address, dbKey);
+        if (cached != null)
+        {
+            //build a new Token each time; callers modify the Token they're given
+            Token t = createToken(cached.realmToken, null, wallet);
+            if (t == null) return null;
+            t.updateBlancaTime = cached.getUpdateTime();
+            addERC721Assets(t, cached.assets);
+            return t;
+        }
+
+        long generation = tokenCache.getGeneration(); //taken before the read so a write during it stops the put
+        Token t;
         try (Realm realm = realmManager.getRealmInstance(wallet))
         {
             RealmToken realmItem = realm.where(RealmToken.class)
-                    .equalTo("address", databaseKey(chainId, address))
+                    .equalTo("address", dbKey)
                     .equalTo("chainId", chainId)
                     .findFirst();
 
-            Token t = convertSingle(realmItem, realm, null, wallet);
-            if (t == null && address.equalsIgnoreCase(wallet.address))
+            t = createToken(realmItem, null, wallet);
+            if (t != null)
+            {
+                List<RealmERC721Asset> realmAssets = t.isERC721() ? getRealmERC721Assets(realmItem.getTokenIdList(), realm, t)
+                                                                  : new ArrayList<>();
+                addERC721Assets(t, realmAssets);
+                tokenCache.put(wallet.address, dbKey, generation, realm.copyFromRealm(realmItem), realm.copyFromRealm(realmAssets));
+            }
+            else if (address.equalsIgnoreCase(wallet.address))
             {
                 NetworkInfo info = ethereumNetworkRepository.getNetworkByChain(chainId);
                 if (info == null) return t;
@@ -213,13 +245,31 @@ public class TokensRealmSource implements TokenLocalSource {
                 realm.beginTransaction();
                 saveToken(realm, t);
                 realm.commitTransaction();
-                return t;
-            }
-            else
-            {
-                return t;
             }
         }
+
+        return t;
+    }
+
+    /**
+     * Must be called when a RealmToken or its assets are written outside of this class
+     * @param walletAddress
+     * @param chainId
+     * @param address
+     */
+    public static void invalidateCachedToken(String walletAddress, int chainId, String address)
+    {
+        tokenCache.invalidate(walletAddress, databaseKey(chainId, address));
+    }
+
+    public static void invalidateCachedWallet(String walletAddress)
+    {
+        tokenCache.invalidateWallet(walletAddress);
+    }
+
+    public static TokenCache getTokenCache()
+    {
+        return tokenCache;
     }
 
     private TokenTicker convertRealmTicker(RealmTokenTicker rawItem)
@@ -252,6 +302,7 @@ public class TokensRealmSource implements TokenLocalSource {
                 realmToken.setEnabled(isEnabled);
             }
             realm.commitTransaction();
+            tokenCache.invalidate(wallet.address, databaseKey(token));
         } catch (Exception ex) {
             if (realm != null && realm.isInTransaction()) {
                 realm.cancelTransaction();
@@ -318,6 +369,7 @@ public class TokensRealmSource implements TokenLocalSource {
                 realm.executeTransaction(r -> {
                     realmToken.setVisibilityChanged(true);
                 });
+                tokenCache.invalidate(wallet.address, databaseKey(token));
             }
         }
         catch (Exception ex)
@@ -365,8 +417,10 @@ public class TokensRealmSource implements TokenLocalSource {
 
             if (realmToken != null)
             {
+                long checkTime = System.currentTimeMillis();
                 realm.executeTransaction(instance ->
-                        realmToken.setUpdateTime(System.currentTimeMillis()));
+                        realmToken.setUpdateTime(checkTime));
+                tokenCache.markChecked(wallet.address, key, checkTime);
             }
         }
         catch (Exception e)
@@ -421,6 +475,7 @@ public class TokensRealmSource implements TokenLocalSource {
                 {
                     realm.commitTransaction();
                     realm.close();
+                    tokenCache.invalidate(wallet.address, key);
                 }
             }
         }
@@ -432,6 +487,74 @@ public class TokensRealmSource implements TokenLocalSource {
         return balanceChanged;
     }
 
+    /**
+     * Write the results of a batch balance check in a single transaction
+     * @param wallet
+     * @param tokens tokens that were checked; all are marked as checked
+     * @param balances new balance keyed by token database key, for the tokens that returned a result
+     * @return tokens whose balance changed
+     */
+    @Override
+    public TokenCardMeta[] updateTokenBalances(Wallet wallet, List<TokenCardMeta> tokens, Map<String, String> balances)
+    {
+        List<TokenCardMeta> changed = new ArrayList<>();
+        String[] keys = new String[tokens.size()];
+        Map<String, TokenCardMeta> metaMap = new HashMap<>();
+        for (int i = 0; i < tokens.size(); i++)
+        {
+            keys[i] = tokens.get(i).tokenId;
+            metaMap.put(keys[i], tokens.get(i));
+        }
+
+        try (Realm realm = realmManager.getRealmInstance(wallet))
+        {
+            RealmResults<RealmToken> realmTokens = realm.where(RealmToken.class)
+                    .in("address", keys)
+                    .findAll();
+
+            realm.executeTransaction(r -> {
+                long currentTime = System.currentTimeMillis();
+                for (RealmToken realmToken : realmTokens)
+                {
+                    TokenCardMeta meta = metaMap.get(realmToken.getAddress());
+                    String newBalance = balances.get(realmToken.getAddress());
+                    realmToken.setUpdateTime(currentTime);
+                    tokenCache.markChecked(wallet.address, realmToken.getAddress(), currentTime);
+                    if (meta == null || newBalance == null) continue;
+
+                    if (meta.type == ContractType.ERC721 || meta.type == ContractType.ERC721_LEGACY)
+                    {
+                        //only used for determining if balance is now zero
+                        if (newBalance.equals("0") && !realmToken.getBalance().equals("0"))
+                        {
+                            realmToken.setBalance("0");
+                            deleteAssets(r, realmToken.getAddress());
+                            Log.d(TAG, "Zero out ERC721 balance: " + realmToken.getName() + " :" + meta.getAddress());
+                            changed.add(meta);
+                        }
+                    }
+                    else if (!newBalance.equals(realmToken.getBalance()))
+                    {
+                        realmToken.setBalance(newBalance);
+                        Log.d(TAG, "Update Token Balance: " + realmToken.getName() + " :" + meta.getAddress());
+                        changed.add(meta);
+                    }
+                }
+            });
+        }
+        catch (Exception e)
+        {
+            //
+        }
+
+        for (TokenCardMeta meta : changed)
+        {
+            tokenCache.invalidate(wallet.address, meta.tokenId);
+        }
+
+        return changed.toArray(new TokenCardMeta[0]);
+    }
+
     @Override
     public void updateTokenBalance(NetworkInfo network, Wallet wallet, Token token)
     {
@@ -453,6 +576,7 @@ public class TokensRealmSource implements TokenLocalSource {
                 realmToken.updateTokenInfoIfRequired(token.tokenInfo);
                 token.setRealmInterfaceSpec(realmToken);
                 realm.commitTransaction();
+                tokenCache.invalidate(wallet.address, databaseKey(token));
             }
         }
         catch (Exception ex)
@@ -564,6 +688,10 @@ public class TokensRealmSource implements TokenLocalSource {
         {
             ex.printStackTrace();
         }
+        finally
+        {
+            tokenCache.invalidate(wallet.address, databaseKey(token));
+        }
     }
 
     private void saveERC721Assets(Realm realm, Token token) throws RealmException
@@ -642,35 +770,41 @@ public class TokensRealmSource implements TokenLocalSource {
         return false;
     }
 
-    private List<Asset> getERC721Assets(List<String> keys, Realm realm, Token token)
+    private List<RealmERC721Asset> getRealmERC721Assets(List<String> keys, Realm realm, Token token)
     {
-        List<Asset> assets = new ArrayList<>();
-        AssetContract contract = new AssetContract(token.tokenInfo.address, token.tokenInfo.name,
-                                                   token.tokenInfo.symbol, token.getInterfaceSpec().toString());
+        List<RealmERC721Asset> realmAssets = new ArrayList<>();
+        String dbKey = databaseKey(token.tokenInfo.chainId, token.tokenInfo.address);
 
         for (String key : keys)
         {
-            String dbKey = databaseKey(token.tokenInfo.chainId, contract.getAddress());
-
             RealmERC721Asset realmAsset = realm.where(RealmERC721Asset.class)
                     .equalTo("tokenIdAddr", RealmERC721Asset.tokenIdAddrName(key, dbKey))
                     .findFirst();
 
-            if (realmAsset != null)
-            {
-                Asset asset = new Asset(realmAsset.getTokenId(), contract);
-                asset.setBackgroundColor(realmAsset.getBackgroundColor());
-                asset.setDescription(realmAsset.getDescription());
-                asset.setExternalLink(realmAsset.getExternalLink());
-                asset.setImagePreviewUrl(realmAsset.getImagePreviewUrl());
-                asset.setTraits(realmAsset.getTraits());
-                asset.setName(realmAsset.getName());
-
-                assets.add(asset);
-            }
+            if (realmAsset != null) realmAssets.add(realmAsset);
         }
 
-        return assets;
+        return realmAssets;
+    }
+
+    private void addERC721Assets(Token token, List<RealmERC721Asset> realmAssets)
+    {
+        if (realmAssets.isEmpty()) return;
+        AssetContract contract = new AssetContract(token.tokenInfo.address, token.tokenInfo.name,
+                                                   token.tokenInfo.symbol, token.getInterfaceSpec().toString());
+
+        for (RealmERC721Asset realmAsset : realmAssets)
+        {
+            Asset asset = new Asset(realmAsset.getTokenId(), contract);
+            asset.setBackgroundColor(realmAsset.getBackgroundColor());
+            asset.setDescription(realmAsset.getDescription());
+            asset.setExternalLink(realmAsset.getExternalLink());
+            asset.setImagePreviewUrl(realmAsset.getImagePreviewUrl());
+            asset.setTraits(realmAsset.getTraits());
+            asset.setName(realmAsset.getName());
+
+            token.addAssetToTokenBalanceAssets(asset);
+        }
     }
 
     public TokenCardMeta[] fetchTokenMetasForUpdate(Wallet wallet, List<Integer> networkFilters)
@@ -686,7 +820,7 @@ public class TokensRealmSource implements TokenLocalSource {
 
             for (RealmToken t : realmItems)
             {
-                if (networkFilters.size() > 0 && !networkFilters.contains(t.getChainId()) ||
+                if (!BalanceUpdateQueue.isInNetworkFilter(networkFilters, t.getChainId()) ||
                         (t.getContractType() != ContractType.ETHEREUM && !t.getEnabled())) continue;
 
                 TokenCardMeta meta = new TokenCardMeta(t.getChainId(), t.getTokenAddress(),
@@ -821,6 +955,7 @@ public class TokensRealmSource implements TokenLocalSource {
                 if (updated > 0)
                 {
                     realm.commitTransaction();
+                    tokenCache.invalidateWallet(wallet.address);
                 }
                 else
                 {
@@ -1095,6 +1230,19 @@ public class TokensRealmSource implements TokenLocalSource {
     }
 
     private Token convertSingle(RealmToken realmItem, Realm realm, TokenFactory tf, Wallet wallet)
+    {
+        Token result = createToken(realmItem, tf, wallet);
+        if (result != null && result.isERC721()) //add erc721 assets
+        {
+            addERC721Assets(result, getRealmERC721Assets(realmItem.getTokenIdList(), realm, result));
+        }
+        return result;
+    }
+
+    /**
+     * @return Token for the stored record, without its ERC721 assets
+     */
+    private Token createToken(RealmToken realmItem, TokenFactory tf, Wallet wallet)
     {
         if (realmItem == null) return null;
         if (tf == null) tf   = new TokenFactory();
@@ -1103,20 +1251,6 @@ public class TokensRealmSource implements TokenLocalSource {
         if (network == null) return null;
         Token result = tf.createToken(info, realmItem, realmItem.getUpdateTime(), network.getShortName());
         result.setTokenWallet(wallet.address);
-
-        String useAddress = (realmItem.getContractType() == ContractType.ETHEREUM) ? "eth" : realmItem.getTokenAddress();
-
-        RealmTokenTicker rawItem = realm.where(RealmTokenTicker.class)
-                .equalTo("contract", useAddress + "-" + result.tokenInfo.chainId)
-                .findFirst();
-
-        if (result.isERC721()) //add erc721 assets
-        {
-            List<String> tokenIdAddrs = realmItem.getTokenIdList();
-            List<Asset>  assets       = getERC721Assets(tokenIdAddrs, realm, result);
-            for (Asset asset : assets)
-                result.addAssetToTokenBalanceAssets(asset);
-        }
         return result;
     }
 
@@ -17,6 +17,7 @@ public interface TransactionLocalSource {
 	Single<ActivityMeta[]> fetchActivityMetas(Wallet wallet, List<Integer> networkFilters, long fetchTime, int fetchLimit);
 	Transaction fetchTransaction(Wallet wallet, String hash);
 	void putTransaction(Wallet wallet, Transaction tx);
+	void putTransactions(Wallet wallet, Transaction[] txs);
     void deleteTransaction(Wallet wallet, String oldTxHash);
 
 	Realm getRealmInstance(Wallet wallet);
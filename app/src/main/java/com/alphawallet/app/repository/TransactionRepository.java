@@ -10,6 +10,7 @@ import com.alphawallet.app.entity.cryptokeys.SignatureReturnType;
 import com.alphawallet.app.repository.entity.RealmAuxData;
 import com.alphawallet.app.service.AccountKeystoreService;
 import com.alphawallet.app.service.TransactionsService;
+import com.alphawallet.app.service.Web3jClients;
 import com.alphawallet.app.web3.entity.Web3Transaction;
 import com.alphawallet.token.entity.Signable;
 
@@ -17,6 +18,11 @@ import org.web3j.crypto.RawTransaction;
 import org.web3j.crypto.Sign;
 import org.web3j.crypto.TransactionEncoder;
 import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthGetTransactionReceipt;
 import org.web3j.protocol.core.methods.response.EthSendTransaction;
 import org.web3j.protocol.core.methods.response.EthTransaction;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
@@ -25,14 +31,19 @@ import org.web3j.rlp.RlpList;
 import org.web3j.rlp.RlpType;
 import org.web3j.utils.Numeric;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import io.reactivex.Single;
 import io.reactivex.schedulers.Schedulers;
 import io.realm.Realm;
 
 import static com.alphawallet.app.entity.CryptoFunctions.sigFromByteArray;
+import static com.alphawallet.app.entity.tokenscript.EventUtils.RPC_BATCH_LIMIT;
 import static com.alphawallet.app.repository.TokenRepository.getWeb3jService;
 import static com.alphawallet.app.service.KeyService.FAILED_SIGNATURE;
 
@@ -346,6 +357,98 @@ public class TransactionRepository implements TransactionRepositoryType {
 		});
 	}
 
+	/**
+	 * Fetch transactions and their receipts in JSON-RPC batches, then store them in one database transaction.
+	 * Falls back to individual calls if the node rejects batches; a node which can't be reached fails the store.
+	 *
+	 * @param wallet
+	 * @param chainId
+	 * @param txTimes map of transaction hash to block time
+	 * @return transactions stored
+	 */
+	@Override
+	public Single<Transaction[]> storeRawTxs(Wallet wallet, int chainId, Map<String, Long> txTimes)
+	{
+		return Single.fromCallable(() -> {
+			Web3j web3j = getWeb3jService(chainId);
+			List<String> txHashes = new ArrayList<>(txTimes.keySet());
+			List<Transaction> txs = new ArrayList<>();
+
+			for (int i = 0; i < txHashes.size(); i += RPC_BATCH_LIMIT)
+			{
+				List<String> chunk = txHashes.subList(i, Math.min(i + RPC_BATCH_LIMIT, txHashes.size()));
+				Map<String, org.web3j.protocol.core.methods.response.Transaction> fetchedTxs = new HashMap<>();
+				Map<String, TransactionReceipt> receipts = new HashMap<>();
+				if (!Web3jClients.isBatchSupported(chainId) || !fetchTxBatch(web3j, chainId, chunk, fetchedTxs, receipts))
+				{
+					for (String txHash : chunk)
+					{
+						try
+						{
+							web3j.ethGetTransactionByHash(txHash).send().getTransaction().ifPresent(tx -> fetchedTxs.put(txHash, tx));
+							web3j.ethGetTransactionReceipt(txHash).send().getTransactionReceipt().ifPresent(r -> receipts.put(txHash, r));
+						}
+						catch (Exception e)
+						{
+							e.printStackTrace();
+						}
+					}
+				}
+
+				for (String txHash : chunk)
+				{
+					org.web3j.protocol.core.methods.response.Transaction fetchedTx = fetchedTxs.get(txHash);
+					TransactionReceipt receipt = receipts.get(txHash);
+					if (fetchedTx == null || receipt == null) continue;
+					txs.add(new Transaction(fetchedTx, chainId, receipt.isStatusOK(), txTimes.get(txHash)));
+				}
+			}
+
+			Transaction[] stored = txs.toArray(new Transaction[0]);
+			inDiskCache.putTransactions(wallet, stored);
+			return stored;
+		});
+	}
+
+	/**
+	 * @return false if the node rejected the batch, so the calls must be sent individually
+	 * @throws IOException if the node couldn't be reached
+	 */
+	private boolean fetchTxBatch(Web3j web3j, int chainId, List<String> txHashes,
+								 Map<String, org.web3j.protocol.core.methods.response.Transaction> fetchedTxs,
+								 Map<String, TransactionReceipt> receipts) throws IOException
+	{
+		BatchRequest batch = web3j.newBatch();
+		Map<Long, String> requestMap = new HashMap<>();
+		for (String txHash : txHashes)
+		{
+			Request<?, EthTransaction> txRequest = web3j.ethGetTransactionByHash(txHash);
+			Request<?, EthGetTransactionReceipt> receiptRequest = web3j.ethGetTransactionReceipt(txHash);
+			requestMap.put(txRequest.getId(), txHash);
+			requestMap.put(receiptRequest.getId(), txHash);
+			batch.add(txRequest).add(receiptRequest);
+		}
+
+		BatchResponse batchResponse = Web3jClients.sendBatch(chainId, batch);
+		if (batchResponse == null) return false;
+
+		//match on id; nodes are not obliged to return batch results in request order
+		for (Response<?> response : batchResponse.getResponses())
+		{
+			String txHash = requestMap.get(response.getId());
+			if (txHash == null || response.hasError()) continue;
+			if (response instanceof EthTransaction)
+			{
+				((EthTransaction) response).getTransaction().ifPresent(tx -> fetchedTxs.put(txHash, tx));
+			}
+			else if (response instanceof EthGetTransactionReceipt)
+			{
+				((EthGetTransactionReceipt) response).getTransactionReceipt().ifPresent(r -> receipts.put(txHash, r));
+			}
+		}
+		return true;
+	}
+
 	@Override
 	public void restartService()
 	{
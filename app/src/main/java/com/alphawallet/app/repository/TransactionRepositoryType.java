@@ -13,6 +13,7 @@ import org.web3j.protocol.core.methods.response.EthTransaction;
 
 import java.math.BigInteger;
 import java.util.List;
+import java.util.Map;
 
 import io.reactivex.Single;
 import io.realm.Realm;
@@ -40,6 +41,7 @@ public interface TransactionRepositoryType {
 
 	RealmAuxData fetchCachedEvent(String walletAddress, String eventKey);
 	Single<Transaction> storeRawTx(Wallet wallet, EthTransaction rawTx, long timeStamp);
+	Single<Transaction[]> storeRawTxs(Wallet wallet, int chainId, Map<String, Long> txTimes);
 
     void restartService();
 }
@@ -5,7 +5,10 @@ import android.util.Log;
 import com.alphawallet.app.entity.ActivityMeta;
 import com.alphawallet.app.entity.EventMeta;
 import com.alphawallet.app.entity.Transaction;
+import com.alphawallet.app.entity.TransactionDecoder;
+import com.alphawallet.app.entity.TransactionInput;
 import com.alphawallet.app.entity.TransactionMeta;
+import com.alphawallet.app.entity.TransactionType;
 import com.alphawallet.app.entity.Wallet;
 import com.alphawallet.app.repository.entity.RealmAuxData;
 import com.alphawallet.app.repository.entity.RealmTransaction;
@@ -13,7 +16,9 @@ import com.alphawallet.app.service.RealmManager;
 
 import org.web3j.protocol.core.methods.response.EthTransaction;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import io.reactivex.Single;
@@ -257,7 +262,7 @@ public class TransactionsRealmCache implements TransactionLocalSource {
                     realmTx = instance.createObject(RealmTransaction.class, tx.hash);
                 }
 
-                fill(instance, realmTx, tx);
+                fill(instance, realmTx, tx, wallet.address);
                 realm.insertOrUpdate(realmTx);
             });
         }
@@ -268,6 +273,36 @@ public class TransactionsRealmCache implements TransactionLocalSource {
         }
     }
 
+    @Override
+    public void putTransactions(Wallet wallet, Transaction[] txs)
+    {
+        if (txs.length == 0) return;
+        try (Realm instance = realmManager.getRealmInstance(wallet))
+        {
+            instance.executeTransaction(realm -> {
+                for (Transaction tx : txs)
+                {
+                    RealmTransaction realmTx = instance.where(RealmTransaction.class)
+                            .equalTo("hash", tx.hash)
+                            .findFirst();
+
+                    if (realmTx == null)
+                    {
+                        realmTx = instance.createObject(RealmTransaction.class, tx.hash);
+                    }
+
+                    fill(instance, realmTx, tx, wallet.address);
+                    realm.insertOrUpdate(realmTx);
+                }
+            });
+        }
+        catch (Exception e)
+        {
+            //do not record
+            e.printStackTrace();
+        }
+    }
+
     @Override
     public Transaction storeRawTx(Wallet wallet, int chainId, EthTransaction rawTx, long timeStamp, boolean isSuccessful)
     {
@@ -281,7 +316,7 @@ public class TransactionsRealmCache implements TransactionLocalSource {
         {
             instance.executeTransaction(realm -> {
                 RealmTransaction item = instance.createObject(RealmTransaction.class, ethTx.getHash());
-                fill(instance, item, tx);
+                fill(instance, item, tx, wallet.address);
                 realm.insertOrUpdate(item);
             });
         }
@@ -317,7 +352,10 @@ public class TransactionsRealmCache implements TransactionLocalSource {
         }
     }
 
-    public static void fill(Realm realm, RealmTransaction item, Transaction transaction)
+    /**
+     * @param walletAddress wallet owning the transaction, which its input is decoded for
+     */
+    public static void fill(Realm realm, RealmTransaction item, Transaction transaction, String walletAddress)
     {
         item.setError(transaction.error);
         item.setBlockNumber(transaction.blockNumber);
@@ -331,12 +369,89 @@ public class TransactionsRealmCache implements TransactionLocalSource {
         item.setInput(transaction.input);
         item.setGasUsed(transaction.gasUsed);
         item.setChainId(transaction.chainId);
+        setDecodedInput(item, transaction.decodeForStorage(walletAddress));
+    }
+
+    /**
+     * Store the decoded input with the transaction, or clear it if the input can't be stored as comma separated values
+     * @param item
+     * @param input decoded for the wallet owning the transaction
+     */
+    public static void setDecodedInput(RealmTransaction item, TransactionInput input)
+    {
+        if (input == null || input.type == null || !isStorable(input.addresses) || !isStorable(input.sigData)
+                || !isStorable(input.miscData))
+        {
+            item.setDecodedType(null);
+            return;
+        }
+
+        List<String> values = new ArrayList<>();
+        for (BigInteger value : input.arrayValues) values.add(value.toString(16));
+
+        item.setDecodedType(input.type.name());
+        item.setDecodedAddresses(join(input.addresses));
+        item.setDecodedValues(join(values));
+        item.setDecodedSigData(join(input.sigData));
+        item.setDecodedMiscData(join(input.miscData));
+        item.setDecodedTradeAddress(input.tradeAddress);
+    }
+
+    /**
+     * @return stored decoded input, or null if the input wasn't decoded when written
+     */
+    public static TransactionInput getDecodedInput(RealmTransaction item)
+    {
+        if (item.getDecodedType() == null) return null;
+        TransactionType type;
+        try
+        {
+            type = TransactionType.valueOf(item.getDecodedType());
+        }
+        catch (IllegalArgumentException e)
+        {
+            return null; //type no longer exists; decode again
+        }
+
+        List<BigInteger> values = new ArrayList<>();
+        for (String value : split(item.getDecodedValues())) values.add(new BigInteger(value, 16));
+
+        return new TransactionInput(TransactionDecoder.getFunctionData(item.getInput()), type, split(item.getDecodedAddresses()),
+                values, split(item.getDecodedSigData()), split(item.getDecodedMiscData()), item.getDecodedTradeAddress());
+    }
+
+    private static boolean isStorable(List<String> values)
+    {
+        for (String value : values)
+        {
+            if (value == null || value.isEmpty() || value.contains(",")) return false;
+        }
+        return true;
+    }
+
+    private static String join(List<String> values)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (String value : values)
+        {
+            if (sb.length() > 0) sb.append(",");
+            sb.append(value);
+        }
+        return sb.toString();
+    }
+
+    private static List<String> split(String values)
+    {
+        List<String> list = new ArrayList<>();
+        if (values == null || values.isEmpty()) return list;
+        Collections.addAll(list, values.split(","));
+        return list;
     }
 
     public static Transaction convert(RealmTransaction rawItem) {
         boolean isConstructor = rawItem.getInput() != null && rawItem.getInput().equals(Transaction.CONSTRUCTOR);
 
-	    return new Transaction(
+	    Transaction tx = new Transaction(
 	            rawItem.getHash(),
                 rawItem.getError(),
                 rawItem.getBlockNumber(),
@@ -352,6 +467,8 @@ public class TransactionsRealmCache implements TransactionLocalSource {
                 rawItem.getChainId(),
                 isConstructor
                 );
+        tx.transactionInput = getDecodedInput(rawItem);
+        return tx;
     }
 
     @Override
@@ -361,6 +361,7 @@ public class WalletDataRealmSource {
                     transfers.deleteAllFromRealm();
                 });
             }
+            TokensRealmSource.invalidateCachedWallet(wallet.address);
             return wallet;
         });
     }
@@ -21,6 +21,14 @@ public class RealmTransaction extends RealmObject {
     private long expectedCompletion;
     //private RealmList<RealmTransactionOperation> operations;
 
+    //decoded input, written with the transaction so the activity list needn't decode it again. Null if not decoded.
+    private String decodedType;
+    private String decodedAddresses;
+    private String decodedValues;
+    private String decodedSigData;
+    private String decodedMiscData;
+    private String decodedTradeAddress;
+
     public String getHash() {
         return hash;
     }
@@ -145,4 +153,64 @@ public class RealmTransaction extends RealmObject {
     {
         this.expectedCompletion = expectedCompletion;
     }
+
+    public String getDecodedType()
+    {
+        return decodedType;
+    }
+
+    public void setDecodedType(String decodedType)
+    {
+        this.decodedType = decodedType;
+    }
+
+    public String getDecodedAddresses()
+    {
+        return decodedAddresses;
+    }
+
+    public void setDecodedAddresses(String decodedAddresses)
+    {
+        this.decodedAddresses = decodedAddresses;
+    }
+
+    public String getDecodedValues()
+    {
+        return decodedValues;
+    }
+
+    public void setDecodedValues(String decodedValues)
+    {
+        this.decodedValues = decodedValues;
+    }
+
+    public String getDecodedSigData()
+    {
+        return decodedSigData;
+    }
+
+    public void setDecodedSigData(String decodedSigData)
+    {
+        this.decodedSigData = decodedSigData;
+    }
+
+    public String getDecodedMiscData()
+    {
+        return decodedMiscData;
+    }
+
+    public void setDecodedMiscData(String decodedMiscData)
+    {
+        this.decodedMiscData = decodedMiscData;
+    }
+
+    public String getDecodedTradeAddress()
+    {
+        return decodedTradeAddress;
+    }
+
+    public void setDecodedTradeAddress(String decodedTradeAddress)
+    {
+        this.decodedTradeAddress = decodedTradeAddress;
+    }
 }
@@ -24,7 +24,11 @@ import com.alphawallet.app.entity.opensea.Asset;
 import com.alphawallet.app.entity.tokens.ERC721Token;
 import com.alphawallet.app.entity.tokens.Token;
 import com.alphawallet.app.entity.tokens.TokenFactory;
+import com.alphawallet.app.entity.tokenscript.EventBlockWindow;
+import com.alphawallet.app.entity.tokenscript.EventFilterGroup;
 import com.alphawallet.app.entity.tokenscript.EventUtils;
+import com.alphawallet.app.entity.tokenscript.SelectionSlots;
+import com.alphawallet.app.entity.tokenscript.TokenDefinitionCache;
 import com.alphawallet.app.entity.tokenscript.TokenScriptFile;
 import com.alphawallet.app.entity.tokenscript.TokenscriptFunction;
 import com.alphawallet.app.repository.EthereumNetworkRepositoryType;
@@ -35,15 +39,16 @@ import com.alphawallet.app.repository.TransactionsRealmCache;
 import com.alphawallet.app.repository.entity.RealmAuxData;
 import com.alphawallet.app.repository.entity.RealmCertificateData;
 import com.alphawallet.app.repository.entity.RealmTokenScriptData;
+import com.alphawallet.app.repository.entity.RealmTransaction;
 import com.alphawallet.app.ui.HomeActivity;
 import com.alphawallet.app.ui.widget.entity.IconItem;
 import com.alphawallet.app.util.Utils;
 import com.alphawallet.app.viewmodel.HomeViewModel;
 import com.alphawallet.token.entity.Attribute;
+import com.alphawallet.token.entity.AttributeLevels;
 import com.alphawallet.token.entity.AttributeInterface;
 import com.alphawallet.token.entity.ContractAddress;
 import com.alphawallet.token.entity.ContractInfo;
-import com.alphawallet.token.entity.EvaluateSelection;
 import com.alphawallet.token.entity.EventDefinition;
 import com.alphawallet.token.entity.FunctionDefinition;
 import com.alphawallet.token.entity.MethodArg;
@@ -57,6 +62,7 @@ import com.alphawallet.token.entity.TokenscriptElement;
 import com.alphawallet.token.entity.TransactionResult;
 import com.alphawallet.token.entity.XMLDsigDescriptor;
 import com.alphawallet.token.tools.TokenDefinition;
+import com.alphawallet.token.tools.TokenDefinitionSnapshot;
 
 import org.jetbrains.annotations.NotNull;
 import org.web3j.abi.FunctionEncoder;
@@ -65,7 +71,6 @@ import org.web3j.crypto.Keys;
 import org.web3j.crypto.WalletUtils;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.methods.request.EthFilter;
-import org.web3j.protocol.core.methods.response.EthBlock;
 import org.web3j.protocol.core.methods.response.EthLog;
 import org.web3j.protocol.core.methods.response.Log;
 import org.xml.sax.SAXException;
@@ -87,6 +92,7 @@ import java.net.URLEncoder;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -130,7 +136,10 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
     public static final String ASSET_DETAIL_VIEW_NAME = "view";
     private static final String ASSET_DEFINITION_DB = "ASSET-db.realm";
     private static final String BUNDLED_SCRIPT = "bundled";
+    private static final String SNAPSHOT_DIR = "ts_snapshot";
     private static final long CHECK_TX_LOGS_INTERVAL = 20;
+    private static final int EVENT_POLL_CONCURRENCY = 2; //contracts polled at once on each chain
+    private static final int MAX_EVENT_WINDOWS_PER_POLL = 8;
 
     private final Context context;
     private final OkHttpClient okHttpClient;
@@ -145,8 +154,9 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
     private final TokenLocalSource tokenLocalSource;
     private final AlphaWalletService alphaWalletService;
     private final TransactionRepositoryType transactionRespository;
-    private TokenDefinition cachedDefinition = null;
+    private final TokenDefinitionCache definitionCache = new TokenDefinitionCache();
     private final ConcurrentHashMap<String, EventDefinition> eventList = new ConcurrentHashMap<>(); //List of events built during file load
+    private final ConcurrentHashMap<Integer, EventBlockWindow> blockWindows = new ConcurrentHashMap<>(); //chainId -> adaptive eth_getLogs range
     private final Semaphore assetLoadingLock;  // used to block if someone calls getAssetDefinitionASync() while loading
     private Disposable eventListener;           // timer thread that periodically checks event logs for scripts that require events
     private final Semaphore eventConnection;
@@ -236,13 +246,15 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
                 handledHashes.add(entry.getFileHash());
                 if (!tsf.exists() || tsf.fileChanged(entry.getFileHash()))
                 {
+                    definitionCache.invalidateFile(entry.getFilePath());
                     deleteTokenScriptFromRealm(realm, entry.getFileHash());
 
                     if (tsf.exists())
                     {
-                        handledHashes.add(tsf.calcMD5()); //add the hash of the new file
+                        String newHash = tsf.calcMD5();
+                        handledHashes.add(newHash); //add the hash of the new file
                         //re-parse script, file hash has changed
-                        final TokenDefinition td = parseFile(tsf.getInputStream());
+                        final TokenDefinition td = loadDefinition(tsf, newHash);
                                 cacheSignature(tsf)
                                 .map(definition -> getOriginContracts(td))
                                 .subscribeOn(Schedulers.io())
@@ -255,7 +267,7 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
                 else if (entry.hasEvents())
                 {
                     //populate events
-                    TokenDefinition td = parseFile(tsf.getInputStream());
+                    TokenDefinition td = loadDefinition(tsf, entry.getFileHash());
                     addToEventList(td);
                 }
             }
@@ -283,7 +295,7 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
                         final TokenScriptFile tsf = new TokenScriptFile(context, file.getAbsolutePath());
                         final String hash = tsf.calcMD5();
                         if (handledHashes.contains(hash)) return; //already handled this?
-                        final TokenDefinition td = parseFile(tsf.getInputStream());
+                        final TokenDefinition td = loadDefinition(tsf, hash);
                         cacheSignature(file)
                                 .map(definition -> getOriginContracts(td))
                                 .subscribeOn(Schedulers.io())
@@ -301,6 +313,7 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
 
     private void deleteTokenScriptFromRealm(Realm realm, String fileHash)
     {
+        deleteSnapshot(fileHash);
         //delete from realm
         realm.executeTransaction(r -> {
             //have to remove all instances of this hash
@@ -695,20 +708,9 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
     private TokenDefinition getDefinition(int chainId, String address)
     {
         if (address.equalsIgnoreCase(tokensService.getCurrentAddress())) address = "ethereum";
-        TokenDefinition result = null;
         //try cache
-        if (cachedDefinition != null)
-        {
-            //only match holding token
-            ContractInfo holdingContracts = cachedDefinition.contracts.get(cachedDefinition.holdingToken);
-            if (holdingContracts != null && holdingContracts.addresses.containsKey(chainId))
-            {
-                for (String addr : holdingContracts.addresses.get(chainId))
-                {
-                    if (addr.equalsIgnoreCase(address.toLowerCase())) return cachedDefinition;
-                }
-            }
-        }
+        TokenDefinition result = definitionCache.get(chainId, address);
+        if (result != null) return result;
 
         try (Realm realm = realmManager.getRealmInstance(ASSET_DEFINITION_DB))
         {
@@ -718,16 +720,17 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
 
             if (tsData != null)
             {
+                long parseStart = System.currentTimeMillis();
                 if (tsData.getFileHash().equals(BUNDLED_SCRIPT)) //handle bundled scripts
                 {
-                    cachedDefinition = getBundledDefinition(tsData.getFilePath());
+                    result = getBundledDefinition(tsData.getFilePath());
                 }
                 else
                 {
                     TokenScriptFile tf = new TokenScriptFile(context, tsData.getFilePath());
-                    cachedDefinition = parseFile(tf.getInputStream());
+                    result = loadDefinition(tf, tsData.getFileHash());
                 }
-                result = cachedDefinition;
+                definitionCache.put(chainId, address, tsData.getFilePath(), result, System.currentTimeMillis() - parseStart);
             }
         }
         catch (Exception e)
@@ -903,17 +906,78 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
 
     private TokenDefinition parseFile(InputStream xmlInputStream) throws IOException, SAXException, Exception
     {
-        Locale locale;
+        return new TokenDefinition(
+                xmlInputStream, getLocale(), this);
+    }
+
+    private Locale getLocale()
+    {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-            locale = context.getResources().getConfiguration().getLocales().get(0);
+            return context.getResources().getConfiguration().getLocales().get(0);
         }
         else
         {
-            locale = context.getResources().getConfiguration().locale;
+            return context.getResources().getConfiguration().locale;
         }
+    }
 
-        return new TokenDefinition(
-                xmlInputStream, locale, this);
+    /**
+     * Restore the definition from its snapshot if the script hasn't changed, otherwise parse the script and snapshot the result
+     * @param tsf script file
+     * @param fileHash current hash of the script file
+     * @return parsed definition
+     */
+    private TokenDefinition loadDefinition(TokenScriptFile tsf, String fileHash) throws Exception
+    {
+        File snapshot = getSnapshotFile(fileHash);
+        if (snapshot.exists())
+        {
+            try (InputStream in = new FileInputStream(snapshot))
+            {
+                TokenDefinition td = TokenDefinitionSnapshot.read(in, fileHash, getLocale());
+                if (td != null) return td;
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace(); //unreadable snapshot, fall back to parsing
+            }
+        }
+
+        TokenDefinition td = parseFile(tsf.getInputStream());
+        writeSnapshot(td, fileHash);
+        return td;
+    }
+
+    private void writeSnapshot(TokenDefinition td, String fileHash)
+    {
+        if (td == null || td.holdingToken == null) return;
+        File snapshot = getSnapshotFile(fileHash);
+        File tempFile = new File(snapshot.getParentFile(), fileHash + ".tmp");
+        try (OutputStream out = new FileOutputStream(tempFile))
+        {
+            TokenDefinitionSnapshot.write(td, fileHash, out);
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+            tempFile.delete();
+            return;
+        }
+
+        if (!tempFile.renameTo(snapshot)) tempFile.delete();
+    }
+
+    private void deleteSnapshot(String fileHash)
+    {
+        File snapshot = getSnapshotFile(fileHash);
+        if (snapshot.exists()) snapshot.delete();
+    }
+
+    private File getSnapshotFile(String fileHash)
+    {
+        File snapshotDir = new File(context.getCacheDir(), SNAPSHOT_DIR);
+        if (!snapshotDir.exists()) snapshotDir.mkdirs();
+        return new File(snapshotDir, fileHash);
     }
 
     private Single<TokenDefinition> handleNewTSFile(File newFile)
@@ -930,7 +994,9 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
             List<ContractLocator> originContracts = getOriginContracts(td);
             //remove all old definitions & certificates
             deleteScriptEntriesFromRealm(originContracts, isDebugOverride);
-            cachedDefinition = null;
+            //drop any parsed definitions for this file or its contracts
+            definitionCache.invalidateFile(tsf.getAbsolutePath());
+            for (ContractLocator cl : originContracts) definitionCache.invalidate(cl.chainId, cl.address);
             return cacheSignature(tsf)
                     .map(contracts -> fileLoadComplete(originContracts, tsf, td));
         }
@@ -1233,73 +1299,145 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
         if (eventListener != null && !eventListener.isDisposed()) eventListener.dispose();
         eventListener =  Observable.interval(0, CHECK_TX_LOGS_INTERVAL, TimeUnit.SECONDS)
                 .doOnNext(l -> {
-                    checkEvents()
+                    if (!eventConnection.tryAcquire()) return; //previous poll still running
+                    checkEventDisposable = checkEvents()
                             .subscribeOn(Schedulers.io())
                             .observeOn(AndroidSchedulers.mainThread())
-                            .subscribe(() -> {}, t -> {}) //results are handled within logging function
-                            .isDisposed();
+                            .doFinally(eventConnection::release)
+                            .subscribe(() -> {}, this::onError); //results are handled within logging function
                 }).subscribe();
     }
 
+    /**
+     * Poll all event definitions. Chains are polled concurrently; within a chain definitions sharing a contract
+     * are merged into one eth_getLogs, with up to EVENT_POLL_CONCURRENCY contracts in flight.
+     */
     private Completable checkEvents()
     {
-        //check events for corresponding tokens
-        return Completable.fromAction(() -> {
-            for (EventDefinition ev : eventList.values())
-            {
-                getEvent(ev);
-            }
-        });
+        final String walletAddress = tokensService.getCurrentAddress();
+        return Single.fromCallable(this::groupEventsByChain)
+                .flatMapCompletable(chainGroups -> Observable.fromIterable(chainGroups.entrySet())
+                        .flatMapCompletable(entry -> pollChainEvents(entry.getKey(), entry.getValue(), walletAddress)
+                                .subscribeOn(Schedulers.io())));
     }
 
-    private void getEvent(EventDefinition ev)
+    private Map<Integer, Map<String, EventFilterGroup>> groupEventsByChain()
     {
-        try
+        Map<Integer, Map<String, EventFilterGroup>> chainGroups = new HashMap<>();
+        for (EventDefinition ev : eventList.values())
         {
-            EthFilter filter = getEventFilter(ev);
-            if (filter == null) return;
-            if (BuildConfig.DEBUG) eventConnection.acquire(); //prevent overlapping event calls while debugging
-            final String walletAddress = tokensService.getCurrentAddress();
-            Web3j web3j = getWeb3jService(ev.getEventChainId());
+            try
+            {
+                EthFilter filter = getEventFilter(ev);
+                if (filter == null) continue;
+                int chainId = ev.getEventChainId();
+                String address = ev.getEventContractAddress().toLowerCase();
 
-            checkEventDisposable = handleLogs(ev, filter, web3j, walletAddress)
-                    .subscribeOn(Schedulers.io())
-                    .observeOn(Schedulers.computation())
-                    .subscribe();
-        }
-        catch (Exception e)
-        {
-            e.printStackTrace();
+                Map<String, EventFilterGroup> groups = chainGroups.get(chainId);
+                if (groups == null)
+                {
+                    groups = new HashMap<>();
+                    chainGroups.put(chainId, groups);
+                }
+
+                EventFilterGroup group = groups.get(address);
+                if (group == null)
+                {
+                    group = new EventFilterGroup(chainId, address);
+                    groups.put(address, group);
+                }
+
+                group.add(ev, filter);
+            }
+            catch (Exception e)
+            {
+                e.printStackTrace();
+            }
         }
+
+        return chainGroups;
     }
 
-    private Single<String> handleLogs(EventDefinition ev, EthFilter filter, Web3j web3j, final String walletAddress)
+    private Completable pollChainEvents(int chainId, Map<String, EventFilterGroup> groups, String walletAddress)
     {
-        return Single.fromCallable(() -> {
-            String txHash = "";
-            try
+        Web3j web3j = getWeb3jService(chainId);
+        EventBlockWindow window = getBlockWindow(chainId);
+        return Single.fromCallable(() -> web3j.ethBlockNumber().send().getBlockNumber())
+                .flatMapCompletable(latestBlock -> Observable.fromIterable(groups.values())
+                        .flatMapCompletable(group -> Completable.fromAction(() -> pollEventGroup(group, web3j, window, latestBlock, walletAddress))
+                                .subscribeOn(Schedulers.io()), false, EVENT_POLL_CONCURRENCY))
+                .doOnError(this::onError)
+                .onErrorComplete(); //don't let one chain's node failure stop the other chains
+    }
+
+    /**
+     * Read logs for a contract group from its earliest unread block up to the chain head, in adaptive block windows
+     */
+    private void pollEventGroup(EventFilterGroup group, Web3j web3j, EventBlockWindow window, BigInteger latestBlock, String walletAddress) throws IOException
+    {
+        BigInteger fromBlock = group.getStartBlock();
+        int windowCount = 0;
+        Map<EventDefinition, BigInteger> retryBlocks = new HashMap<>();
+        while (fromBlock.compareTo(latestBlock) <= 0 && windowCount < MAX_EVENT_WINDOWS_PER_POLL)
+        {
+            BigInteger toBlock = latestBlock.min(fromBlock.add(BigInteger.valueOf(window.getSize() - 1)));
+            EthLog ethLogs = web3j.ethGetLogs(group.createFilter(fromBlock, toBlock)).send();
+            windowCount++;
+            if (ethLogs.hasError())
             {
-                EthLog ethLogs = web3j.ethGetLogs(filter).send();
-                txHash = processLogs(ev, ethLogs.getLogs(), walletAddress);
+                //node rejected the range or result size; retry the same start with a smaller window
+                if (BuildConfig.DEBUG) System.out.println("Event log error: " + ethLogs.getError().getMessage());
+                if (!window.onError()) return;
+                continue;
             }
-            catch (Exception e)
+
+            List<EthLog.LogResult> logs = ethLogs.getLogs();
+            window.onResult(logs.size());
+            for (Map.Entry<EventDefinition, List<EthLog.LogResult>> entry : group.route(logs).entrySet())
             {
-                e.printStackTrace();
+                BigInteger retryBlock = processLogs(entry.getKey(), entry.getValue(), walletAddress);
+                if (retryBlock != null && !retryBlocks.containsKey(entry.getKey())) retryBlocks.put(entry.getKey(), retryBlock);
             }
-            finally
+
+            group.markRead(toBlock);
+            //events with skipped logs are read again from the first skipped block on the next poll
+            for (Map.Entry<EventDefinition, BigInteger> retry : retryBlocks.entrySet())
             {
-                if (BuildConfig.DEBUG) eventConnection.release();
+                retry.getKey().readBlock = retry.getValue();
             }
-            return txHash;
-        });
-        //More elegant, but requires a private node
-//        return web3j.ethLogFlowable(filter)
-//                .subscribeOn(Schedulers.io())
-//                .observeOn(AndroidSchedulers.mainThread())
-//                .subscribe(log -> {
-//            System.out.println("log.toString(): " +  log.toString());
-//            //TODO here: callback to event service listener
-//        }, this::onLogError);
+            storeEventReadBlocks(walletAddress, group.getEvents());
+            fromBlock = toBlock.add(BigInteger.ONE);
+        }
+    }
+
+    private EventBlockWindow getBlockWindow(int chainId)
+    {
+        EventBlockWindow window = blockWindows.get(chainId);
+        if (window == null)
+        {
+            window = new EventBlockWindow();
+            EventBlockWindow existing = blockWindows.putIfAbsent(chainId, window);
+            if (existing != null) window = existing;
+        }
+
+        return window;
+    }
+
+    private void storeEventReadBlocks(String walletAddress, Collection<EventDefinition> events)
+    {
+        try (Realm realm = realmManager.getRealmInstance(walletAddress))
+        {
+            realm.executeTransaction(r -> {
+                for (EventDefinition ev : events)
+                {
+                    writeLatestEventBlock(r, ev);
+                }
+            });
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
     }
 
     private EthFilter getEventFilter(EventDefinition ev) throws Exception
@@ -1314,145 +1452,185 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
         return EventUtils.generateLogFilter(ev, originToken, this);
     }
 
-    private String processLogs(EventDefinition ev, List<EthLog.LogResult> logs, String walletAddress)
+    /**
+     * Ingest a batch of event logs: block times are resolved through the shared block time cache with one batched lookup,
+     * missing transactions are fetched in batches, and all event results are written in a single database transaction.
+     *
+     * @return block to read the event from again if any logs were skipped because their block time couldn't be fetched,
+     * otherwise null
+     * @throws IOException if the node couldn't be reached; the logs are read again on the next poll
+     */
+    private BigInteger processLogs(EventDefinition ev, List<EthLog.LogResult> logs, String walletAddress) throws IOException
     {
-        if (logs.size() == 0) return ""; //early return
+        if (logs.size() == 0) return null; //early return
         int chainId = ev.contract.addresses.keySet().iterator().next();
         Web3j web3j = getWeb3jService(chainId);
 
-        String firstTxHash = "";
-
-        int index = logs.size() - 1;
-
-        for (int i = index; i >= 0; i--)
+        BigInteger latestBlock = BigInteger.ZERO;
+        for (EthLog.LogResult ethLog : logs)
         {
-            EthLog.LogResult ethLog = logs.get(i);
-            String txHash = ((Log)ethLog.get()).getTransactionHash();
-            if (TextUtils.isEmpty(firstTxHash)) firstTxHash = txHash;
-            String selectVal = EventUtils.getSelectVal(ev, ethLog);
-            BigInteger blockNumber = ((Log)ethLog.get()).getBlockNumber();
+            latestBlock = latestBlock.max(((Log)ethLog.get()).getBlockNumber());
+        }
 
-            if (blockNumber.compareTo(ev.readBlock) > 0)
-            {
-                //Should store the latest event value
-                storeLatestEventBlockTime(walletAddress, ev, blockNumber);
-            }
+        Map<String, Long> blockTimes = new HashMap<>();
+        if (ev.parentAttribute == null)
+        {
+            List<String> blockHashes = new ArrayList<>();
+            for (EthLog.LogResult ethLog : logs) blockHashes.add(((Log)ethLog.get()).getBlockHash());
+            blockTimes = EventUtils.getBlockTimes(blockHashes, chainId, web3j);
+        }
 
-            if (ev.parentAttribute != null)
+        BigInteger retryBlock = null;
+        BigInteger nextReadBlock = latestBlock.add(BigInteger.ONE);
+        if (ev.parentAttribute == null)
+        {
+            for (EthLog.LogResult ethLog : logs)
             {
-                storeEventValue(walletAddress, ev, ethLog, ev.parentAttribute, selectVal);
+                Log log = (Log)ethLog.get();
+                if (blockTimes.containsKey(log.getBlockHash())) continue;
+                BigInteger logRetryBlock = log.getBlockNumber();
+                retryBlock = retryBlock == null ? logRetryBlock : retryBlock.min(logRetryBlock);
             }
-            else
-            {
-                EthBlock txBlock = EventUtils.getBlockDetails(((Log)ethLog.get()).getBlockHash(), web3j).blockingGet();
-                long blockTime = txBlock.getBlock().getTimestamp().longValue();
-
-                storeActivityValue(walletAddress, ev, ethLog, blockTime, ev.activityName);
+            if (retryBlock != null) nextReadBlock = retryBlock;
+        }
 
-                //do we need to fetch transaction from chain or do we have it already?
-                com.alphawallet.app.entity.Transaction tx = transactionRespository.fetchCachedTransaction(walletAddress, txHash);
+        Map<String, Long> requiredTxs = writeEventLogs(walletAddress, ev, logs, nextReadBlock, blockTimes);
 
-                if (tx == null)
-                {
-                    EventUtils.getTransactionDetails(txHash, web3j)
-                            .flatMap(ethTx -> transactionRespository.storeRawTx(new Wallet(walletAddress), ethTx, blockTime))
-                            .subscribeOn(Schedulers.io())
-                            .observeOn(AndroidSchedulers.mainThread())
-                            .subscribe(System.out::println, this::onError)
-                            .isDisposed();
-                }
-            }
+        if (requiredTxs.size() > 0)
+        {
+            transactionRespository.storeRawTxs(new Wallet(walletAddress), chainId, requiredTxs)
+                    .subscribeOn(Schedulers.io())
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(txs -> { }, this::onError)
+                    .isDisposed();
         }
 
-        return firstTxHash;
+        return retryBlock;
     }
 
-    private void storeLatestEventBlockTime(String walletAddress, EventDefinition ev, BigInteger readBlock)
+    /**
+     * Write all event values from a log batch in one transaction
+     * @return transactions referenced by activity events which aren't yet in the database, with their block times
+     */
+    private Map<String, Long> writeEventLogs(String walletAddress, EventDefinition ev, List<EthLog.LogResult> logs,
+                                             BigInteger nextReadBlock, Map<String, Long> blockTimes)
     {
-        ev.readBlock = readBlock.add(BigInteger.ONE);
+        Map<String, Long> requiredTxs = new HashMap<>();
+        if (ev.parentAttribute != null && (tokensService.getCurrentAddress() == null || !WalletUtils.isValidAddress(tokensService.getCurrentAddress())))
+        {
+            return requiredTxs;
+        }
+
+        boolean updateReadBlock = nextReadBlock.compareTo(ev.readBlock) > 0;
+        if (updateReadBlock) ev.readBlock = nextReadBlock;
+
+        ContractAddress eventContractAddress = new ContractAddress(ev.getEventChainId(), ev.getEventContractAddress());
+
         try (Realm realm = realmManager.getRealmInstance(walletAddress))
         {
-            int chainId = ev.getEventChainId();
-            String eventAddress = ev.getEventContractAddress();
-            String eventName = ev.activityName != null ? ev.activityName : ev.attributeName;
-            String databaseKey = TokensRealmSource.eventBlockKey(chainId, eventAddress, ev.type.name, ev.filter);
             realm.executeTransaction(r -> {
-                RealmAuxData realmToken = realm.where(RealmAuxData.class)
-                        .equalTo("instanceKey", databaseKey)
-                        .findFirst();
-                if (realmToken == null) realmToken = realm.createObject(RealmAuxData.class, databaseKey);
-                realmToken.setResultTime(System.currentTimeMillis());
-                realmToken.setResult(ev.readBlock.toString(16));
-                realmToken.setFunctionId(eventName);
-                realmToken.setChainId(chainId);
-                realmToken.setTokenAddress("");
+                //Should store the latest event value
+                if (updateReadBlock) writeLatestEventBlock(r, ev);
+
+                for (int i = logs.size() - 1; i >= 0; i--)
+                {
+                    EthLog.LogResult ethLog = logs.get(i);
+                    if (ev.parentAttribute != null)
+                    {
+                        writeEventValue(r, ev, ethLog, ev.parentAttribute, eventContractAddress);
+                    }
+                    else
+                    {
+                        Log log = (Log)ethLog.get();
+                        Long blockTime = blockTimes.get(log.getBlockHash());
+                        if (blockTime == null) continue; //block not available; the read block is held back so the log is read again
+
+                        writeActivityValue(r, ev, ethLog, blockTime, eventContractAddress);
+
+                        //do we need to fetch transaction from chain or do we have it already?
+                        String txHash = log.getTransactionHash();
+                        if (!requiredTxs.containsKey(txHash) && r.where(RealmTransaction.class).equalTo("hash", txHash).findFirst() == null)
+                        {
+                            requiredTxs.put(txHash, blockTime);
+                        }
+                    }
+                }
             });
         }
         catch (Exception e)
         {
             e.printStackTrace();
         }
+
+        return requiredTxs;
     }
 
-    private void storeActivityValue(String walletAddress, EventDefinition ev, EthLog.LogResult log, long blockTime, String activityName)
+    private void writeLatestEventBlock(Realm realm, EventDefinition ev)
+    {
+        int chainId = ev.getEventChainId();
+        String eventAddress = ev.getEventContractAddress();
+        String eventName = ev.activityName != null ? ev.activityName : ev.attributeName;
+        String databaseKey = TokensRealmSource.eventBlockKey(chainId, eventAddress, ev.type.name, ev.filter);
+        RealmAuxData realmToken = realm.where(RealmAuxData.class)
+                .equalTo("instanceKey", databaseKey)
+                .findFirst();
+        if (realmToken == null) realmToken = realm.createObject(RealmAuxData.class, databaseKey);
+        realmToken.setResultTime(System.currentTimeMillis());
+        realmToken.setResult(EventFilterGroup.storedReadBlock(ev));
+        realmToken.setFunctionId(eventName);
+        realmToken.setChainId(chainId);
+        realmToken.setTokenAddress("");
+    }
+
+    private void writeActivityValue(Realm realm, EventDefinition ev, EthLog.LogResult log, long blockTime, ContractAddress cAddr)
     {
         BigInteger tokenId = EventUtils.getTokenId(ev, log);
         //split out all the event data
         String valueList = EventUtils.getAllTopics(ev, log);
 
-        String selectVal = EventUtils.getSelectVal(ev, log);
-
-        ContractAddress eventContractAddress = new ContractAddress(ev.getEventChainId(),
-                ev.getEventContractAddress());
-
-        //store this data
+        //store the event itself
         String txHash = ((Log) log.get()).getTransactionHash();
-        String key = TokensRealmSource.eventActivityKey(txHash, ev.type.name);
-        storeAuxData(walletAddress, key, tokenId, valueList, activityName, eventContractAddress, blockTime); //store the event itself
-    }
-
-    private void storeAuxData(String walletAddress, String databaseKey, BigInteger tokenId, String eventData, String activityName, ContractAddress cAddr, long blockTime)
+        String databaseKey = TokensRealmSource.eventActivityKey(txHash, ev.type.name);
+        RealmAuxData realmToken = realm.where(RealmAuxData.class)
+                .equalTo("instanceKey", databaseKey)
+                .findFirst();
+        if (realmToken == null) realmToken = realm.createObject(RealmAuxData.class, databaseKey);
+        realmToken.setResultTime(blockTime);
+        realmToken.setResult(valueList);
+        realmToken.setFunctionId(ev.activityName);
+        realmToken.setChainId(cAddr.chainId);
+        realmToken.setTokenId(tokenId.toString(16));
+        realmToken.setTokenAddress(cAddr.address);
+        realmToken.setResultReceivedTime(System.currentTimeMillis());
+    }
+
+    private void writeEventValue(Realm realm, EventDefinition ev, EthLog.LogResult log, Attribute attr, ContractAddress cAddr)
     {
-        try (Realm realm = realmManager.getRealmInstance(walletAddress))
-        {
-            realm.executeTransaction(r -> {
-                RealmAuxData realmToken = realm.where(RealmAuxData.class)
-                        .equalTo("instanceKey", databaseKey)
-                        .findFirst();
-                if (realmToken == null) realmToken = realm.createObject(RealmAuxData.class, databaseKey);
-                realmToken.setResultTime(blockTime);
-                realmToken.setResult(eventData);
-                realmToken.setFunctionId(activityName);
-                realmToken.setChainId(cAddr.chainId);
-                realmToken.setTokenId(tokenId.toString(16));
-                realmToken.setTokenAddress(cAddr.address);
-                realmToken.setResultReceivedTime(System.currentTimeMillis());
-            });
-        }
-        catch (Exception e)
-        {
-            e.printStackTrace();
-        }
-    }
-
-    private void storeEventValue(String walletAddress, EventDefinition ev, EthLog.LogResult log, Attribute attr,
-                                 String selectVal)
-    {
-        //store result
         BigInteger tokenId = EventUtils.getTokenId(ev, log);
+        String selectVal = EventUtils.getSelectVal(ev, log);
+        long blockNumber = ((Log)log.get()).getBlockNumber().longValue();
 
-        ContractAddress eventContractAddress = new ContractAddress(ev.getEventChainId(),
-                ev.getEventContractAddress());
-        TransactionResult txResult = getFunctionResult(eventContractAddress, attr, tokenId);
+        TransactionResult txResult = new TransactionResult(cAddr.chainId, cAddr.address, tokenId, attr);
         txResult.result = attr.getSyntaxVal(selectVal);
+        txResult.resultTime = blockNumber;
+        if (txResult.result == null) return;
 
-        long blockNumber = ((Log)log.get()).getBlockNumber().longValue();
+        String databaseKey = functionKey(cAddr, tokenId, attr.name);
+        RealmAuxData realmToken = realm.where(RealmAuxData.class)
+                .equalTo("instanceKey", databaseKey)
+                .equalTo("chainId", cAddr.chainId)
+                .findFirst();
 
         //Update the entry for the attribute if required
-        if (txResult.resultTime == 0 || blockNumber >= txResult.resultTime)
+        if (realmToken == null)
+        {
+            createAuxData(realm, txResult, databaseKey);
+        }
+        else if (realmToken.getResultTime() == 0 || blockNumber >= realmToken.getResultTime())
         {
-            txResult.resultTime = blockNumber;
-            storeAuxData(walletAddress, txResult);
+            realmToken.setResult(txResult.result);
+            realmToken.setResultTime(blockNumber);
+            realmToken.setResultReceivedTime(System.currentTimeMillis());
         }
     }
 
@@ -1749,32 +1927,27 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
                 Map<BigInteger, Map<String, TokenScriptResult.Attribute>> attrResults   // Map of attribute results vs tokenId
                         = getRequiredAttributeResults(requiredAttrNames, tokenIds, td, token); // Map of all required attribute values vs all the tokenIds
 
+                Map<String, SelectionSlots> actionSlots = new HashMap<>();
+                for (String actionName : actions.keySet())
+                {
+                    TSAction action = actions.get(actionName);
+                    TSSelection selection = action.exclude != null ? td.getSelection(action.exclude) : null;
+                    if (selection != null) actionSlots.put(actionName, new SelectionSlots(selection));
+                }
+
                 for (BigInteger tokenId : tokenIds)
                 {
+                    Map<String, TokenScriptResult.Attribute> tokenAttrs = attrResults.get(tokenId);
+                    TokenScriptResult.Attribute[] intrinsicAttrs = getIntrinsicAttributes(token, tokenId);
                     for (String actionName : actions.keySet())
                     {
-                        TSAction action = actions.get(actionName);
-                        TSSelection selection = action.exclude != null ? td.getSelection(action.exclude) : null;
-                        if (selection == null)
+                        SelectionSlots slots = actionSlots.get(actionName);
+                        //Now evaluate the selection, if any
+                        if (slots == null || !slots.evaluate(tokenAttrs, intrinsicAttrs) || slots.selection.denialMessage != null)
                         {
                             if (!validActions.containsKey(tokenId)) validActions.put(tokenId, new ArrayList<>());
                             validActions.get(tokenId).add(actionName);
                         }
-                        else
-                        {
-                            //get required Attribute Results for this tokenId & selection
-                            List<String> requiredAttributeNames = selection.getRequiredAttrs();
-                            Map<String, TokenScriptResult.Attribute> idAttrResults = getAttributeResultsForTokenIds(attrResults, requiredAttributeNames, tokenId);
-                            addIntrinsicAttributes(idAttrResults, token, tokenId); //adding intrinsic attributes eg ownerAddress, tokenId, contractAddress
-
-                            //Now evaluate the selection
-                            boolean exclude = EvaluateSelection.evaluate(selection.head, idAttrResults);
-                            if (!exclude || selection.denialMessage != null)
-                            {
-                                if (!validActions.containsKey(tokenId)) validActions.put(tokenId, new ArrayList<>());
-                                validActions.get(tokenId).add(actionName);
-                            }
-                        }
                     }
                 }
             }
@@ -1783,12 +1956,13 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
         });
     }
 
-    private void addIntrinsicAttributes(Map<String, TokenScriptResult.Attribute> attrs, Token token, BigInteger tokenId)
+    //intrinsic attributes, in the order of SelectionSlots.INTRINSIC_ATTRS: tokenId, ownerAddress & contractAddress
+    private TokenScriptResult.Attribute[] getIntrinsicAttributes(Token token, BigInteger tokenId)
     {
-        //add tokenId, ownerAddress & contractAddress
-        attrs.put("tokenId", new TokenScriptResult.Attribute("tokenId", "tokenId", tokenId, tokenId.toString(10)));
-        attrs.put("ownerAddress", new TokenScriptResult.Attribute("ownerAddress", "ownerAddress", BigInteger.ZERO, token.getWallet()));
-        attrs.put("contractAddress", new TokenScriptResult.Attribute("contractAddress", "contractAddress", BigInteger.ZERO, token.getAddress()));
+        return new TokenScriptResult.Attribute[] {
+                new TokenScriptResult.Attribute("tokenId", "tokenId", tokenId, tokenId.toString(10)),
+                new TokenScriptResult.Attribute("ownerAddress", "ownerAddress", BigInteger.ZERO, token.getWallet()),
+                new TokenScriptResult.Attribute("contractAddress", "contractAddress", BigInteger.ZERO, token.getAddress()) };
     }
 
     public String checkFunctionDenied(Token token, String actionName, List<BigInteger> tokenIds)
@@ -1802,22 +1976,12 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
             TSSelection selection = action.exclude != null ? td.getSelection(action.exclude) : null;
             if (selection != null)
             {
-                //gather list of attribute results
+                //resolve all the attrs the selection requires
                 List<String> requiredAttrs = selection.getRequiredAttrs();
-                //resolve all these attrs
-                Map<String, TokenScriptResult.Attribute> attrs = new HashMap<>();
-                //get results
-                for (String attrId : requiredAttrs)
-                {
-                    Attribute attr = td.attributes.get(attrId);
-                    if (attr == null) continue;
-                    TokenScriptResult.Attribute attrResult = tokenscriptUtility.fetchAttrResult(token, attr, tokenId, td, this, false).blockingSingle();
-                    if (attrResult != null) attrs.put(attrId, attrResult);
-                }
-
-                addIntrinsicAttributes(attrs, token, tokenId);
+                Map<BigInteger, Map<String, TokenScriptResult.Attribute>> attrResults
+                        = getRequiredAttributeResults(requiredAttrs, Collections.singletonList(tokenId), td, token);
 
-                boolean exclude = EvaluateSelection.evaluate(selection.head, attrs);
+                boolean exclude = new SelectionSlots(selection).evaluate(attrResults.get(tokenId), getIntrinsicAttributes(token, tokenId));
                 if (exclude && !TextUtils.isEmpty(selection.denialMessage))
                 {
                     denialMessage = selection.denialMessage;
@@ -1828,43 +1992,17 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
         return denialMessage;
     }
 
-    private Map<String, TokenScriptResult.Attribute> getAttributeResultsForTokenIds(Map<BigInteger, Map<String, TokenScriptResult.Attribute>> attrResults, List<String> requiredAttributeNames, BigInteger tokenId)
-    {
-        Map<String, TokenScriptResult.Attribute> results = new HashMap<>();
-        if (!attrResults.containsKey(tokenId)) return results; //check values
-
-        for (String attributeName : requiredAttributeNames)
-        {
-            results.put(attributeName, attrResults.get(tokenId).get(attributeName));
-        }
-
-        return results;
-    }
-
     private Map<BigInteger, Map<String, TokenScriptResult.Attribute>> getRequiredAttributeResults(List<String> requiredAttrNames, List<BigInteger> tokenIds, TokenDefinition td, Token token)
     {
-        Map<BigInteger, Map<String, TokenScriptResult.Attribute>> resultSet = new HashMap<>();
-        for (BigInteger tokenId : tokenIds)
+        List<Attribute> attrs = new ArrayList<>();
+        for (String attrName : requiredAttrNames)
         {
-            for (String attrName : requiredAttrNames)
-            {
-                Attribute attr = td.attributes.get(attrName);
-                if (attr == null) continue;
-                TokenScriptResult.Attribute attrResult = tokenscriptUtility.fetchAttrResult(token, attr, tokenId, td, this, false).blockingSingle();
-                if (attrResult != null)
-                {
-                    Map<String, TokenScriptResult.Attribute> tokenIdMap = resultSet.get(tokenId);
-                    if (tokenIdMap == null)
-                    {
-                        tokenIdMap = new HashMap<>();
-                        resultSet.put(tokenId, tokenIdMap);
-                    }
-                    tokenIdMap.put(attrName, attrResult);
-                }
-            }
+            Attribute attr = td.attributes.get(attrName);
+            if (attr != null) attrs.add(attr);
         }
 
-        return resultSet;
+        //resolve all the tokenId/attribute pairs together so the contract calls can be batched
+        return tokenscriptUtility.fetchAttrResults(token, attrs, tokenIds, td, this);
     }
 
     private List<String> getRequiredAttributeNames(Map<String, TSAction> actions, TokenDefinition td)
@@ -2186,7 +2324,7 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
         EventDefinition ev = eventList.get(eventKey);
         if (ev != null)
         {
-            ev.readBlock = new BigInteger(eventData.getResult(), 16).add(BigInteger.ONE); // add one so we don't pick up the same event again
+            ev.readBlock = EventFilterGroup.loadReadBlock(eventData.getResult());
         }
     }
 
@@ -2308,9 +2446,26 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
 
         tokenscriptUtility.buildAttrMap(attrList);
 
-        return Observable.fromIterable(attrList)
-                .flatMap(attr -> tokenscriptUtility.fetchAttrResult(token, attr, tokenId,
-                                                                    definition, this, itemView));
+        //resolve level by level: each level only references attributes in earlier levels, so is resolved concurrently
+        //once they're complete, and references are found in the token's result map rather than fetched again
+        Observable<TokenScriptResult.Attribute> results = Observable.empty();
+        AttributeLevels attributeLevels = definition.getAttributeLevels(extraAttrs);
+        for (List<Attribute> level : attributeLevels.getLevels())
+        {
+            results = results.concatWith(resolveAttrLevel(token, tokenId, level, definition, attributeLevels, itemView));
+        }
+
+        return results;
+    }
+
+    private Observable<TokenScriptResult.Attribute> resolveAttrLevel(Token token, BigInteger tokenId, List<Attribute> level,
+                                                                     TokenDefinition definition, AttributeLevels attributeLevels, boolean itemView)
+    {
+        return Observable.fromIterable(level)
+                .flatMap(attr -> tokenscriptUtility.fetchAttrResult(token, attr, tokenId, definition, this, itemView)
+                        .subscribeOn(Schedulers.io())
+                        .map(result -> attributeLevels.isReferenced(attr.name)
+                                ? tokenscriptUtility.addParseResultIfValid(token, tokenId, result) : result));
     }
 
     public Observable<TokenScriptResult.Attribute> resolveAttrs(Token token, List<BigInteger> tokenIds, List<Attribute> extraAttrs)
@@ -2381,11 +2536,11 @@ public class AssetDefinitionService implements ParseResult, AttributeInterface
     }
 
     /**
-     * Clear the currently cached definition. This forces the service to reload the definition so it's clean for the next usage.
+     * Clear the cached definitions. This forces the service to reload the definition so it's clean for the next usage.
      */
     public void clearCache()
     {
-        cachedDefinition = null;
+        definitionCache.clear();
     }
 
     public ContractLocator getHoldingContract(String importFileName)
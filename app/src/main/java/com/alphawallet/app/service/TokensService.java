@@ -16,6 +16,7 @@ import com.alphawallet.app.entity.ContractLocator;
 import com.alphawallet.app.entity.ContractType;
 import com.alphawallet.app.entity.NetworkInfo;
 import com.alphawallet.app.entity.Wallet;
+import com.alphawallet.app.entity.tokens.BalanceUpdateQueue;
 import com.alphawallet.app.entity.tokens.Token;
 import com.alphawallet.app.entity.tokens.TokenCardMeta;
 import com.alphawallet.app.entity.tokens.TokenInfo;
@@ -23,7 +24,9 @@ import com.alphawallet.app.entity.tokens.TokenTicker;
 import com.alphawallet.app.repository.EthereumNetworkRepository;
 import com.alphawallet.app.repository.EthereumNetworkRepositoryType;
 import com.alphawallet.app.repository.PreferenceRepositoryType;
+import com.alphawallet.app.repository.TokenRepository;
 import com.alphawallet.app.repository.TokenRepositoryType;
+import com.alphawallet.app.repository.TokensRealmSource;
 import com.alphawallet.token.entity.ContractAddress;
 
 import java.math.BigDecimal;
@@ -56,11 +59,14 @@ public class TokensService
     private static final long OPENSEA_CHECK_INTERVAL = 30 * DateUtils.SECOND_IN_MILLIS;
     private static final long OPENSEA_RINKEBY_CHECK = 4; //1 in [OPENSEA_RINKEBY_CHECK] opensea calls will to Rinkeby opensea
     public static final long PENDING_TIME_LIMIT = 3*DateUtils.MINUTE_IN_MILLIS; //cut off pending chain after 3 minutes
+    private static final long BALANCE_QUEUE_RESYNC_INTERVAL = 2*DateUtils.MINUTE_IN_MILLIS; //pick up tokens added or hidden outside of this service
 
     private static final Map<String, Float> tokenValueMap = new ConcurrentHashMap<>(); //this is used to compute the USD value of the tokens on an address
     private static final Map<Integer, Long> pendingChainMap = new ConcurrentHashMap<>();
     private static final Map<String, SparseArray<ContractType>> interfaceSpecMap = new ConcurrentHashMap<>();
     private final ConcurrentLinkedQueue<Token> tokenStoreList = new ConcurrentLinkedQueue<>();
+    private final BalanceUpdateQueue balanceUpdateQueue = new BalanceUpdateQueue();
+    private long nextBalanceQueueSync;
     private String currentAddress = null;
     private final EthereumNetworkRepositoryType ethereumNetworkRepository;
     private final TokenRepositoryType tokenRepository;
@@ -151,6 +157,7 @@ public class TokensService
             intent.putParcelableArrayListExtra(C.EXTRA_TOKENID_LIST, new ArrayList<>(Collections.singletonList(new ContractLocator(token.getAddress(), token.tokenInfo.chainId, token.getInterfaceSpec()))));
             context.sendBroadcast(intent);
             //now add to the balance update list if has balance
+            scheduleBalanceCheck(token);
         }
     }
 
@@ -198,6 +205,7 @@ public class TokensService
         if (tokens.length > 0)
         {
             System.out.println("Stored Token: " + tokens[0].getFullName());
+            addToBalanceQueue(tokens);
         }
     }
 
@@ -230,6 +238,7 @@ public class TokensService
             currentAddress = newWalletAddr.toLowerCase();
             tokenValueMap.clear();
             pendingChainMap.clear();
+            balanceUpdateQueue.clear();
             stopUpdateCycle();
         }
     }
@@ -274,6 +283,7 @@ public class TokensService
     {
         networkFilter.clear();
         networkFilter.addAll(ethereumNetworkRepository.getFilterNetworkList());
+        nextBalanceQueueSync = 0; //rebuild balance queue for the new filter
     }
 
     public void setFocusToken(Token token)
@@ -380,6 +390,7 @@ public class TokensService
         if (erc20CheckDisposable != null && !erc20CheckDisposable.isDisposed()) erc20CheckDisposable.dispose();
 
         addUnresolvedContracts(ethereumNetworkRepository.getAllKnownContracts(getNetworkFilters()));
+        nextBalanceQueueSync = 0;
 
         eventTimer = Observable.interval(1, 500, TimeUnit.MILLISECONDS)
                     .doOnNext(l -> checkTokensBalance()).subscribe();
@@ -401,15 +412,26 @@ public class TokensService
 
     private void checkTokensBalance()
     {
-        Token t = getNextInBalanceUpdateQueue();
+        TokenCardMeta t = getNextInBalanceUpdateQueue();
 
-        if (t != null)
+        if (t != null && canBatchBalanceCheck(t))
         {
-            if (BuildConfig.DEBUG) Log.d("TOKEN", "Updating: " + t.tokenInfo.chainId + (t.isEthereum()? " (Base Chain) ":"") + " : " + t.getAddress() + " : " + t.getFullName());
-            balanceCheckDisposable = tokenRepository.updateTokenBalance(currentAddress, t.tokenInfo.chainId, t.getAddress(), t.getInterfaceSpec())
+            //check all tokens on this chain that are due in one node round trip
+            List<TokenCardMeta> batch = getBalanceBatch(t);
+            if (BuildConfig.DEBUG) Log.d("TOKEN", "Updating: " + t.getChain() + " : batch of " + batch.size());
+            balanceCheckDisposable = tokenRepository.updateTokenBalances(currentAddress, t.getChain(), batch)
                     .subscribeOn(Schedulers.io())
                     .observeOn(AndroidSchedulers.mainThread())
-                    .subscribe(balanceChange -> onBalanceChange(balanceChange, t.tokenInfo.chainId), this::onError);
+                    .subscribe(this::onBalancesChanged, this::onError);
+        }
+        else if (t != null)
+        {
+            if (BuildConfig.DEBUG) Log.d("TOKEN", "Updating: " + t.getChain() + (t.isEthereum()? " (Base Chain) ":"") + " : " + t.getAddress());
+            balanceUpdateQueue.markChecked(t, System.currentTimeMillis());
+            balanceCheckDisposable = tokenRepository.updateTokenBalance(currentAddress, t.getChain(), t.getAddress(), t.type)
+                    .subscribeOn(Schedulers.io())
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(balanceChange -> onBalanceChange(balanceChange, t), this::onError);
         }
 
         if (System.currentTimeMillis() > nextOpenSeaCheck && focusToken == null) checkOpenSea();
@@ -421,10 +443,81 @@ public class TokensService
         return tokenRepository.fetchChainBalance(walletAddress, chainId);
     }
 
-    private void onBalanceChange(Boolean balanceChange, int chainId)
+    private void onBalanceChange(Boolean balanceChange, TokenCardMeta meta)
     {
         // could still be pending transactions so let's keep checking for a short while
-        if (balanceChange && BuildConfig.DEBUG) Log.d("TOKEN", "Change Registered: * " + chainId);
+        if (balanceChange && BuildConfig.DEBUG) Log.d("TOKEN", "Change Registered: * " + meta.getChain());
+        if (balanceChange)
+        {
+            //zero <-> positive balance transition alters the update weighting
+            scheduleBalanceCheck(getToken(meta.getChain(), meta.getAddress()));
+        }
+    }
+
+    private List<TokenCardMeta> getBalanceBatch(TokenCardMeta first)
+    {
+        long currentTime = System.currentTimeMillis();
+        List<TokenCardMeta> batch = new ArrayList<>();
+        batch.add(first);
+        for (TokenCardMeta meta : balanceUpdateQueue.getDueOnChain(first.getChain(), currentTime, focusToken, pendingChainMap, appHasFocus))
+        {
+            if (batch.size() >= TokenRepository.BALANCE_BATCH_LIMIT) break;
+            if (!meta.equals(first) && canBatchBalanceCheck(meta)) batch.add(meta);
+        }
+
+        for (TokenCardMeta meta : batch)
+        {
+            balanceUpdateQueue.markChecked(meta, currentTime);
+        }
+
+        return batch;
+    }
+
+    private boolean canBatchBalanceCheck(TokenCardMeta meta)
+    {
+        //contracts at the wallet address need the native balance handling in the single token update
+        return TokenRepository.isBatchBalanceType(meta.type)
+                && (meta.isEthereum() || !meta.getAddress().equalsIgnoreCase(currentAddress));
+    }
+
+    private void onBalancesChanged(TokenCardMeta[] changed)
+    {
+        for (TokenCardMeta meta : changed)
+        {
+            onBalanceChange(true, meta);
+        }
+    }
+
+    private void addToBalanceQueue(Token[] tokens)
+    {
+        for (Token token : tokens)
+        {
+            scheduleBalanceCheck(token);
+        }
+    }
+
+    /**
+     * Add a token to the balance schedule if the schedule loaded from the database would hold it
+     */
+    private void scheduleBalanceCheck(Token token)
+    {
+        if (token == null || token.tokenInfo == null) return;
+        if ((token.isEthereum() || token.tokenInfo.isEnabled) && BalanceUpdateQueue.isInNetworkFilter(networkFilter, token.tokenInfo.chainId))
+        {
+            balanceUpdateQueue.addToken(token);
+        }
+    }
+
+    /**
+     * Notify the service that the user has shown or hidden a token so the balance schedule is updated immediately
+     * @param token
+     * @param isEnabled
+     */
+    public void tokenEnabledChanged(Token token, boolean isEnabled)
+    {
+        if (token.isEthereum()) return; //base chain balances are always checked
+        if (isEnabled && BalanceUpdateQueue.isInNetworkFilter(networkFilter, token.tokenInfo.chainId)) balanceUpdateQueue.addToken(token);
+        else balanceUpdateQueue.removeToken(token.tokenInfo.chainId, token.getAddress());
     }
 
     private void checkPendingChains()
@@ -455,6 +548,7 @@ public class TokensService
         tokenCheckDisposable = openseaService.getTokens(currentAddress, info.chainId, info.getShortName(), this)
                 .flatMap(tokens -> tokenRepository.checkInterface(tokens, wallet)) //check the token interface
                 .flatMap(tokens -> tokenRepository.storeTokens(wallet, tokens)) //store fetched tokens
+                .map(tokens -> { addToBalanceQueue(tokens); return tokens; })
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(this::checkERC20, this::onOpenseaError);
@@ -471,6 +565,7 @@ public class TokensService
             NetworkInfo info = ethereumNetworkRepository.getNetworkByChain(MAINNET_ID);
             erc20CheckDisposable = tickerService.getTokensOnNetwork(info, walletAddress, this)
                     .flatMap(tokens -> tokenRepository.addERC20(new Wallet(walletAddress), tokens))
+                    .map(tokens -> { addToBalanceQueue(tokens); return tokens; })
                     .subscribeOn(Schedulers.io())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(this::finishCheckChain, this::onERC20Error);
@@ -562,60 +657,21 @@ public class TokensService
 
     /**
      * Token update heuristic - calculates which token should be updated next
+     * Picking from the in-memory schedule doesn't touch the database; the schedule is resynced from the DB periodically
      * @return
      */
-    public Token getNextInBalanceUpdateQueue()
+    public TokenCardMeta getNextInBalanceUpdateQueue()
     {
-        //pull all tokens from this wallet out of DB
-        TokenCardMeta[] tokenList = tokenRepository.fetchTokenMetasForUpdate(new Wallet(currentAddress), networkFilter);
-
-        //calculate update based on last update time & importance
-        float highestWeighting = 0;
         long currentTime = System.currentTimeMillis();
-        Token highestToken = null;
-
-        //this list will be in order of update.
-        for (TokenCardMeta check : tokenList)
+        if (currentTime > nextBalanceQueueSync || balanceUpdateQueue.isEmpty())
         {
-            Token token = getToken(check.getChain(), check.getAddress());
-            if (token == null) continue;
-            long lastUpdateDiff = currentTime - check.lastUpdate;
-            float weighting = check.calculateBalanceUpdateWeight();
-
-            if (!appHasFocus && !token.isEthereum()) continue; //only check chains when wallet out of focus
-
-            //simply multiply the weighting by the last diff.
-            float updateFactor = weighting * (float) lastUpdateDiff;
-            long cutoffCheck = 30*DateUtils.SECOND_IN_MILLIS; //normal minimum update frequency for token 30 seconds
-
-            if (focusToken != null && token.tokenInfo.chainId == focusToken.chainId && token.getAddress().equalsIgnoreCase(focusToken.address))
-            {
-                updateFactor = 3.0f * (float) lastUpdateDiff;
-                cutoffCheck = 15*DateUtils.SECOND_IN_MILLIS; //focus token can be checked every 15 seconds - focus token when erc20 or chain clicked on in wallet
-            }
-            else if (check.isEthereum() && pendingChainMap.containsKey(token.tokenInfo.chainId)) //higher priority for checking balance of pending chain
-            {
-                cutoffCheck = 15*DateUtils.SECOND_IN_MILLIS;
-                updateFactor = 4.0f * (float) lastUpdateDiff; //chain has a recent transaction
-            }
-            else if (check.isEthereum())
-            {
-                cutoffCheck = 20*DateUtils.SECOND_IN_MILLIS; //update check limit for base chains is 20 seconds
-            }
-            else if (focusToken != null)
-            {
-                updateFactor = 0.1f * (float) lastUpdateDiff;
-                cutoffCheck = 60*DateUtils.SECOND_IN_MILLIS; //when looking at token in detail view (ERC20TokenDetail) update other tokens at 1 minute cycle
-            }
-
-            if (updateFactor > highestWeighting && (lastUpdateDiff > (float)cutoffCheck))
-            {
-                highestWeighting = updateFactor;
-                highestToken = token;
-            }
+            //pull all tokens from this wallet out of DB
+            nextBalanceQueueSync = currentTime + BALANCE_QUEUE_RESYNC_INTERVAL;
+            balanceUpdateQueue.load(tokenRepository.fetchTokenMetasForUpdate(new Wallet(currentAddress), networkFilter));
+            if (BuildConfig.DEBUG) Log.d("TOKEN", TokensRealmSource.getTokenCache().toString());
         }
 
-        return highestToken;
+        return balanceUpdateQueue.getNext(currentTime, focusToken, pendingChainMap, appHasFocus);
     }
 
     /**
@@ -6,16 +6,19 @@ import androidx.annotation.NonNull;
 
 import com.alphawallet.app.entity.ContractType;
 import com.alphawallet.app.entity.ErrorEnvelope;
+import com.alphawallet.app.entity.EtherscanPageReader;
 import com.alphawallet.app.entity.EtherscanEvent;
 import com.alphawallet.app.entity.EtherscanTransaction;
 import com.alphawallet.app.entity.NetworkInfo;
 import com.alphawallet.app.entity.Transaction;
 import com.alphawallet.app.entity.TransactionMeta;
+import com.alphawallet.app.entity.TransactionSyncCursor;
 import com.alphawallet.app.entity.Wallet;
 import com.alphawallet.app.entity.tokens.ERC721Token;
 import com.alphawallet.app.entity.tokens.Token;
 import com.alphawallet.app.entity.tokens.TokenInfo;
 import com.alphawallet.app.entity.tokenscript.EventUtils;
+import com.alphawallet.app.repository.TokensRealmSource;
 import com.alphawallet.app.repository.TransactionsRealmCache;
 import com.alphawallet.app.repository.entity.RealmAuxData;
 import com.alphawallet.app.repository.entity.RealmToken;
@@ -24,12 +27,10 @@ import com.alphawallet.app.repository.entity.RealmTransfer;
 import com.alphawallet.token.entity.ContractAddress;
 import com.google.gson.Gson;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.methods.response.EthTransaction;
 
+import java.io.Closeable;
 import java.io.InterruptedIOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -55,12 +56,11 @@ import static com.alphawallet.app.repository.TokenRepository.getWeb3jService;
 public class TransactionsNetworkClient implements TransactionsNetworkClientType
 {
     private final int PAGESIZE = 800;
-    private final int SYNC_PAGECOUNT = 2; //how many pages to read when we first sync the account - means we store the first 1600 transactions only
-    //Note: if user wants to view transactions older than this, we fetch from etherscan on demand.
-    //Generally this would only happen when watching extremely active accounts for curiosity
+    private final int TOKEN_PAGESIZE = 100;
+    private final int WRITE_CHUNK = 100; //entries decoded and written per database transaction
+    private final int BACKFILL_PAGECOUNT = 2; //pages of history to back-fill when the user scrolls past the stored transactions
+    private final long LATEST_BLOCK = 999999999L;
     private final String BLOCK_ENTRY = "-erc20blockCheck-";
-    private final String ERC20_QUERY = "tokentx";
-    private final String ERC721_QUERY = "tokennfttx";
     private final int AUX_DATABASE_ID = 7; //increment this to do a one off refresh the AUX database, in case of changed design etc
     private final String DB_RESET = BLOCK_ENTRY + AUX_DATABASE_ID;
 
@@ -81,54 +81,35 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
      *
      * Transaction sync strategy:
      *
-     * Unsynced or out of sync:
+     * Each stream (normal transactions, ERC20 transfers and NFT transfers) keeps a TransactionSyncCursor per chain.
      *
-     * Read first 2400 transactions (3 pages) from top down.
+     * Unsynced: read the newest page, the older history is recorded as a gap.
      *
-     * Delete any transactions in database older than 2400th stored tx
-     *
-     * Synced:
-     *
-     * Read upwards from sync point
-     *
-     *
-     * On user scrolling down transaction list: if user is nearing bottom transaction limit begin fetching next 800
+     * Synced: read upwards from the cursor. If there are more new entries than fit in a page, read the newest page
+     * and record the skipped range as a gap.
      *
+     * Each pass also back-fills one page of the highest gap, fetched concurrently with the head read,
+     * so history is completed in the background. Scrolling past the stored transactions back-fills on demand.
      */
 
     /**
      * Scans the transactions for an address and stores new transactions in the database
      *
-     * If first sync, sync from top and read 2 pages.
-     * If not first sync, sync upward from existing entry.
-     * If reading more than one page, blank database and start from first sync.
-     *
      * @param walletAddress
      * @param networkInfo
-     * @param lastBlock
+     * @param lastBlock last block read before sync cursors were introduced; only used to start the cursor
      * @return
      */
     @Override
     public Single<Transaction[]> storeNewTransactions(String walletAddress, NetworkInfo networkInfo, String tokenAddress, final long lastBlock)
     {
         return Single.fromCallable(() -> {
-            long lastBlockNumber = lastBlock + 1;
             Map<String, Transaction> updates = new HashMap<>();
-            EtherscanTransaction lastTransaction = null;
+            TransactionSyncCursor cursor = null;
             try (Realm instance = realmManager.getRealmInstance(walletAddress))
             {
-                if (lastBlockNumber == 1) //first read of account. Read first 2 pages
-                {
-                    lastTransaction = syncDownwards(updates, instance, walletAddress, networkInfo, tokenAddress, 9999999999L);
-                }
-                else // try to sydenc upwards from the last read
-                {
-                    lastTransaction = syncUpwards(updates, instance, walletAddress, networkInfo, tokenAddress, lastBlockNumber);
-                }
-            }
-            catch (JSONException e)
-            {
-                //silent fail
+                cursor = loadCursor(instance, networkInfo.chainId, TransactionSyncCursor.Stream.TRANSACTIONS, tokenAddress, lastBlock);
+                syncStream(instance, cursor, networkInfo, walletAddress, updates, null);
             }
             catch (Exception e)
             {
@@ -137,8 +118,8 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
             finally
             {
                 //ensure transaction check time is always written
-                String lastBlockRead = (lastTransaction != null) ? lastTransaction.blockNumber : String.valueOf(lastBlock);
-                storeLatestBlockRead(walletAddress, networkInfo.chainId, tokenAddress, lastBlockRead);
+                long lastBlockRead = (cursor != null && cursor.isSynced()) ? cursor.getUpperBlock() : lastBlock;
+                storeLatestBlockRead(walletAddress, networkInfo.chainId, tokenAddress, String.valueOf(lastBlockRead));
             }
 
             return updates.values().toArray(new Transaction[0]);
@@ -146,52 +127,121 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
     }
 
     /**
-     * read PAGESIZE*2 transactions down from startingBlockNumber
+     * Advance a stream's cursor: read the head, and back-fill one page of history concurrently
      *
-     * Note that this call is the only place that the 'earliest transaction' block can be written from.
+     * @return number of entries read
      */
-    private EtherscanTransaction syncDownwards(Map<String, Transaction> updates, Realm instance, String walletAddress, NetworkInfo networkInfo, String tokenAddress, long startingBlockNumber) throws Exception
+    private int syncStream(Realm instance, TransactionSyncCursor cursor, NetworkInfo networkInfo, String walletAddress,
+                           Map<String, Transaction> updates, TokensService svs) throws Exception
     {
-        int page = 1;
-        List<Transaction> txList = new ArrayList<>();
-        EtherscanTransaction firstTransaction = null;
-        EtherscanTransaction lastTransaction = null;
-        boolean continueReading = true;
+        int pageSize = getPageSize(cursor.stream);
+        int readCount = 0;
 
-        while (continueReading) // only SYNC_PAGECOUNT pages at a time for each check, to avoid congestion
+        if (!cursor.isSynced())
         {
-            String response = readTransactions(networkInfo, tokenAddress, String.valueOf(startingBlockNumber), false, page++, PAGESIZE);
-            if (response == null) break;
-            if (response.equals("0"))
+            PageResult top = writePage(instance, cursor, fetchPage(networkInfo, cursor, 0, LATEST_BLOCK, false),
+                    networkInfo, walletAddress, updates, svs);
+            if (top != null && top.count > 0)
             {
-                storeEarliestBlockRead(instance, networkInfo.chainId, tokenAddress, startingBlockNumber);
-                break;
+                cursor.onTopPageRead(top.highBlock, top.lowBlock, top.count >= pageSize);
+                readCount += top.count;
             }
-            EtherscanTransaction[] myTxs = getEtherscanTransactions(response);
-            getRelatedTransactionList(txList, myTxs, walletAddress, networkInfo.chainId);
-            if (myTxs.length > 0 && firstTransaction == null)
+        }
+        else
+        {
+            long[] gap = cursor.getNextGap();
+            //requests go out together; bodies are then streamed into the database one after the other
+            Single<PageResponse> headFetch = fetchPageAsync(networkInfo, cursor, cursor.getUpperBlock() + 1, LATEST_BLOCK, true);
+            Single<PageResponse> gapFetch = gap != null ? fetchPageAsync(networkInfo, cursor, gap[0], gap[1], false) : Single.just(new PageResponse(null));
+            PageResponse[] responses = Single.zip(headFetch, gapFetch, (head, back) -> new PageResponse[] { head, back }).blockingGet();
+
+            try
             {
-                firstTransaction = myTxs[0];
+                PageResult head = writePage(instance, cursor, responses[0], networkInfo, walletAddress, updates, svs);
+                if (head != null)
+                {
+                    cursor.onHeadPageRead(head.highBlock, head.count);
+                    readCount += head.count;
+                    if (head.count >= pageSize)
+                    {
+                        //too far behind for one page; read the newest page and leave the range between as a gap
+                        PageResult top = writePage(instance, cursor, fetchPage(networkInfo, cursor, 0, LATEST_BLOCK, false),
+                                networkInfo, walletAddress, updates, svs);
+                        if (top != null && top.count > 0)
+                        {
+                            cursor.onTopPageRead(top.highBlock, top.lowBlock, top.count >= pageSize);
+                            readCount += top.count;
+                        }
+                    }
+                }
+
+                if (gap != null)
+                {
+                    readCount += backfillPage(instance, cursor, gap, responses[1], networkInfo, walletAddress, svs);
+                }
             }
-            if (myTxs.length > 0)
+            finally
             {
-                lastTransaction = myTxs[myTxs.length - 1];
+                responses[0].close();
+                responses[1].close();
             }
+        }
+
+        storeCursor(instance, cursor);
+        return readCount;
+    }
 
-            writeTransactions(instance, txList); //record transactions here
-            writeUpdates(updates, txList);
+    private int backfillPage(Realm instance, TransactionSyncCursor cursor, long[] gap, PageResponse response, NetworkInfo networkInfo,
+                             String walletAddress, TokensService svs) throws Exception
+    {
+        PageResult page = writePage(instance, cursor, response, networkInfo, walletAddress, null, svs);
+        if (page == null) return 0;
+        cursor.onGapPageRead(gap, page.lowBlock, page.count >= getPageSize(cursor.stream));
+        return page.count;
+    }
 
-            if (page > SYNC_PAGECOUNT) continueReading = false;
+    /**
+     * Stream a page of results into the database, WRITE_CHUNK entries per database transaction
+     *
+     * @return block span and count of the page, or null if the response was not a valid page
+     */
+    private PageResult writePage(Realm instance, TransactionSyncCursor cursor, PageResponse response, NetworkInfo networkInfo,
+                                 String walletAddress, Map<String, Transaction> updates, TokensService svs) throws Exception
+    {
+        try (PageResponse page = response)
+        {
+            if (page.response == null || page.response.body() == null) return null;
 
-            if (myTxs.length < PAGESIZE)
+            PageResult result = new PageResult();
+            boolean isList;
+            if (cursor.stream == TransactionSyncCursor.Stream.TRANSACTIONS)
             {
-                continueReading = false;
-                //store earliest transaction
-                if (lastTransaction != null) storeEarliestBlockRead(instance, networkInfo.chainId, tokenAddress, Long.parseLong(lastTransaction.blockNumber));
+                List<Transaction> txList = new ArrayList<>();
+                isList = EtherscanPageReader.read(page.response.body().charStream(), gson, EtherscanTransaction.class, WRITE_CHUNK, myTxs -> {
+                    getRelatedTransactionList(txList, myTxs, walletAddress, networkInfo.chainId);
+                    writeTransactions(instance, txList, walletAddress); //record transactions here
+                    writeUpdates(updates, txList);
+                    for (EtherscanTransaction etx : myTxs) result.add(etx.blockNumber);
+                });
+            }
+            else
+            {
+                boolean isNFT = cursor.stream == TransactionSyncCursor.Stream.NFT;
+                isList = EtherscanPageReader.read(page.response.body().charStream(), gson, EtherscanEvent.class, WRITE_CHUNK, eventList -> {
+                    EtherscanEvent[] events = eventList.toArray(new EtherscanEvent[0]);
+                    //we know all these events are relevant to the wallet
+                    writeEvents(instance, events, walletAddress, networkInfo, isNFT);
+
+                    //Now update tokens if we don't already know this token
+                    if (isNFT) writeERC721Tokens(instance, walletAddress, networkInfo, events, svs);
+                    else writeERC20Tokens(instance, walletAddress, networkInfo, events, svs);
+                    for (EtherscanEvent ev : events) result.add(ev.blockNumber);
+                });
             }
-        }
 
-        return firstTransaction;
+            //no result list, eg rate limit message
+            return isList ? result : null;
+        }
     }
 
     private void writeUpdates(Map<String, Transaction> updates, List<Transaction> txList)
@@ -205,36 +255,93 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
         }
     }
 
-    private EtherscanTransaction syncUpwards(Map<String, Transaction> updates, Realm instance, String walletAddress, NetworkInfo networkInfo, String tokenAddress, long lastBlockNumber) throws Exception
+    private int getPageSize(TransactionSyncCursor.Stream stream)
     {
-        int page = 1;
-        List<Transaction> txList = new ArrayList<>();
-        EtherscanTransaction lastTransaction;
+        return stream == TransactionSyncCursor.Stream.TRANSACTIONS ? PAGESIZE : TOKEN_PAGESIZE;
+    }
 
-        //only sync upwards by 1 page. If not sufficient then reset; delete DB and start again
-        String response = readTransactions(networkInfo, tokenAddress, String.valueOf(lastBlockNumber), true, page, PAGESIZE);
-        if (response == null || response.equals("0")) return null;
-        EtherscanTransaction[] myTxs = getEtherscanTransactions(response);
+    private TransactionSyncCursor loadCursor(Realm instance, int chainId, TransactionSyncCursor.Stream stream, String address, long legacyBlockRead)
+    {
+        RealmAuxData rd = instance.where(RealmAuxData.class)
+                .equalTo("instanceKey", TransactionSyncCursor.databaseKey(chainId, stream, address))
+                .findFirst();
 
-        if (myTxs.length == PAGESIZE)
+        if (rd != null)
+        {
+            return TransactionSyncCursor.decode(chainId, stream, address, rd.getResult());
+        }
+        else if (stream == TransactionSyncCursor.Stream.TRANSACTIONS && legacyBlockRead > 0)
         {
-            //too big, erase transaction list and start from top
-            deleteAllChainTransactions(instance, networkInfo.chainId, walletAddress);
-            lastTransaction = syncDownwards(updates, instance, walletAddress, networkInfo, tokenAddress, 999999999L); //re-sync downwards from top
-            lastTransaction.nonce = -1; //signal to refresh list - this doesn't get written to DB
-            return lastTransaction;
+            //carry over the previous sync; if the earliest transaction was never reached the history below the oldest stored tx is a gap
+            long oldestBlockRead = getFirstTransactionBlock(instance, chainId, address) > 0 ? 0 : getOldestBlockRead(instance, chainId);
+            return TransactionSyncCursor.fromLegacy(chainId, stream, address, legacyBlockRead, oldestBlockRead);
+        }
+        else if (stream != TransactionSyncCursor.Stream.TRANSACTIONS && legacyBlockRead > 1)
+        {
+            //token transfers were previously read upwards from the first block, so there's no gap
+            return TransactionSyncCursor.fromLegacy(chainId, stream, address, legacyBlockRead, 0);
         }
         else
         {
-            getRelatedTransactionList(txList, myTxs, walletAddress, networkInfo.chainId);
-            writeTransactions(instance, txList); //record transactions here
-            writeUpdates(updates, txList);
-            lastTransaction = myTxs[myTxs.length-1];
-            return lastTransaction;
+            return new TransactionSyncCursor(chainId, stream, address);
         }
     }
 
-    private void getRelatedTransactionList(List<Transaction> txList, EtherscanTransaction[] myTxs, String walletAddress, int chainId)
+    private void storeCursor(Realm instance, TransactionSyncCursor cursor)
+    {
+        instance.executeTransaction(r -> {
+            RealmAuxData rd = instance.where(RealmAuxData.class)
+                    .equalTo("instanceKey", cursor.getDatabaseKey())
+                    .findFirst();
+            if (rd == null) rd = instance.createObject(RealmAuxData.class, cursor.getDatabaseKey());
+            rd.setResult(cursor.encode());
+            rd.setResultTime(cursor.getUpperBlock());
+            rd.setChainId(cursor.chainId);
+            rd.setFunctionId(cursor.stream.action);
+            rd.setTokenAddress(cursor.address);
+            rd.setResultReceivedTime(System.currentTimeMillis());
+        });
+    }
+
+    private static class PageResponse implements Closeable
+    {
+        final okhttp3.Response response;
+
+        PageResponse(okhttp3.Response response)
+        {
+            this.response = response;
+        }
+
+        @Override
+        public void close()
+        {
+            if (response != null) response.close();
+        }
+    }
+
+    private static class PageResult
+    {
+        int count;
+        long highBlock;
+        long lowBlock = Long.MAX_VALUE;
+
+        void add(String blockNumber)
+        {
+            count++;
+            try
+            {
+                long block = Long.parseLong(blockNumber);
+                highBlock = Math.max(highBlock, block);
+                lowBlock = Math.min(lowBlock, block);
+            }
+            catch (NumberFormatException e)
+            {
+                //pending entry
+            }
+        }
+    }
+
+    private void getRelatedTransactionList(List<Transaction> txList, List<EtherscanTransaction> myTxs, String walletAddress, int chainId)
     {
         txList.clear();
         for (EtherscanTransaction etx : myTxs)
@@ -247,21 +354,7 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
         }
     }
 
-    private EtherscanTransaction[] getEtherscanTransactions(String response) throws JSONException
-    {
-        JSONObject stateData = new JSONObject(response);
-        JSONArray orders = stateData.getJSONArray("result");
-        return gson.fromJson(orders.toString(), EtherscanTransaction[].class);
-    }
-
-    private EtherscanEvent[] getEtherscanEvents(String response) throws JSONException
-    {
-        JSONObject stateData = new JSONObject(response);
-        JSONArray orders = stateData.getJSONArray("result");
-        return gson.fromJson(orders.toString(), EtherscanEvent[].class);
-    }
-
-    private boolean writeTransactions(Realm instance, List<Transaction> txList) throws Exception
+    private boolean writeTransactions(Realm instance, List<Transaction> txList, String walletAddress) throws Exception
     {
         if (txList.size() == 0) return false;
         boolean startedReWriting = false;
@@ -282,7 +375,7 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
                 startedReWriting = true;
             }
 
-            TransactionsRealmCache.fill(instance, realmTx, tx);
+            TransactionsRealmCache.fill(instance, realmTx, tx, walletAddress);
             instance.insertOrUpdate(realmTx);
         }
         instance.commitTransaction();
@@ -290,10 +383,18 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
         return startedReWriting;
     }
 
-    private String readTransactions(NetworkInfo networkInfo, String address, String firstBlock, boolean ascending, int page, int pageSize)
+    private Single<PageResponse> fetchPageAsync(NetworkInfo networkInfo, TransactionSyncCursor cursor, long startBlock, long endBlock, boolean ascending)
+    {
+        return Single.fromCallable(() -> fetchPage(networkInfo, cursor, startBlock, endBlock, ascending))
+                .subscribeOn(Schedulers.io());
+    }
+
+    /**
+     * Request one page of a stream between two blocks (inclusive). The body is left unread so it can be streamed by writePage
+     */
+    private PageResponse fetchPage(NetworkInfo networkInfo, TransactionSyncCursor cursor, long startBlock, long endBlock, boolean ascending)
     {
         okhttp3.Response response = null;
-        String result = null;
         String fullUrl = null;
 
         String sort = "asc";
@@ -308,32 +409,20 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
                 sb.append("/");
             }
 
-            sb.append("api?module=account&action=txlist&address=");
-            sb.append(address);
-            if (ascending)
-            {
-                sb.append("&startblock=");
-                sb.append(firstBlock);
-                sb.append("&endblock=999999999&sort=");
-            }
-            else
-            {
-                sb.append("&startblock=0");
-                sb.append("&endblock=");
-                sb.append(firstBlock);
-                sb.append("&sort=");
-            }
-
+            sb.append("api?module=account&action=");
+            sb.append(cursor.stream.action);
+            sb.append("&address=");
+            sb.append(cursor.address);
+            sb.append("&startblock=");
+            sb.append(startBlock);
+            sb.append("&endblock=");
+            sb.append(endBlock);
+            sb.append("&sort=");
             sb.append(sort);
-            if (page > 0)
-            {
-                sb.append("&page=");
-                sb.append(page);
-                sb.append("&offset=");
-                sb.append(pageSize);
-            }
+            sb.append("&page=1&offset=");
+            sb.append(getPageSize(cursor.stream));
 
-            if (networkInfo.etherscanTxUrl.contains("etherscan"))
+            if (networkInfo.etherscanTxUrl.contains("etherscan") || cursor.stream != TransactionSyncCursor.Stream.TRANSACTIONS)
             {
                 sb.append("&apikey=6U31FTHW3YYHKW6CYHKKGDPHI9HEJ9PU5F");
             }
@@ -348,12 +437,6 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
                         .build();
 
                 response = httpClient.newCall(request).execute();
-
-                result = response.body().string();
-                if (result != null && result.length() < 80 && result.contains("No transactions found"))
-                {
-                    result = "0";
-                }
             }
             catch (InterruptedIOException e)
             {
@@ -367,12 +450,12 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
             }
         }
 
-        return result;
+        return new PageResponse(response);
     }
 
     /**
      * This is the function called when a user scrolls to the bottom of a transaction list.
-     * First try to provide more transactions from the stored database. If there aren't any more then populate another page (800) from etherscan
+     * First try to provide more transactions from the stored database. If there aren't enough, back-fill history from etherscan
      *
      * @param walletAddress
      * @param network
@@ -384,23 +467,20 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
     {
         return Single.fromCallable(() -> {
             List<TransactionMeta> txList = fetchOlderThan(walletAddress, lastTxTime, network.chainId);
-            if (txList.size() < 800)
+            if (txList.size() < PAGESIZE)
             {
-                //fetch another page and return unless we already have the oldest Tx
-                long oldestTxTime = txList.size() > 0 ? txList.get(txList.size() - 1).getTimeStampSeconds() : lastTxTime;
                 try (Realm instance = realmManager.getRealmInstance(new Wallet(walletAddress)))
                 {
-                    long oldestBlockRead = getOldestBlockRead(instance, network.chainId, oldestTxTime);
-                    long oldestPossibleBlock = getFirstTransactionBlock(instance, network.chainId, walletAddress);
-                    System.out.println("DIAGNOSE: " + oldestBlockRead + " : " + oldestPossibleBlock);
-                    if (oldestBlockRead > 0 && oldestBlockRead != oldestPossibleBlock)
+                    TransactionSyncCursor cursor = loadCursor(instance, network.chainId, TransactionSyncCursor.Stream.TRANSACTIONS, walletAddress, 0);
+                    for (int i = 0; i < BACKFILL_PAGECOUNT && !cursor.isHistoryComplete(); i++)
                     {
-                        syncDownwards(null, instance, walletAddress, network, walletAddress, oldestBlockRead);
+                        long[] gap = cursor.getNextGap();
+                        backfillPage(instance, cursor, gap, fetchPage(network, cursor, gap[0], gap[1], false), network, walletAddress, null);
                     }
+                    storeCursor(instance, cursor);
 
                     //now re-read last blocks from DB
                     txList = fetchOlderThan(walletAddress, lastTxTime, network.chainId);
-
                 }
                 catch (Exception e)
                 {
@@ -483,74 +563,35 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
      */
     public Single<Integer> readERC20Transactions(String walletAddress, NetworkInfo networkInfo, TokensService svs)
     {
-        return Single.fromCallable(() -> {
-            //get latest block read
-            int eventCount = 0;
-            try (Realm instance = realmManager.getRealmInstance(new Wallet(walletAddress)))
-            {
-                //get last tokencheck
-                long lastBlockChecked = getTokenBlockRead(instance, networkInfo.chainId);
-                //fetch erc20 tx from Etherscan
-                String fetchTransactions = readNextTxBatch(walletAddress, networkInfo, lastBlockChecked, ERC20_QUERY);
-
-                if (fetchTransactions != null && fetchTransactions.length() > 100)
-                {
-                    //convert to gson
-                    EtherscanEvent[] events = getEtherscanEvents(fetchTransactions);
-                    //we know all these events are relevant to the wallet, and they are all ERC20 events
-                    writeEvents(instance, events, walletAddress, networkInfo, false);
-
-                    //Now update tokens if we don't already know this token
-                    writeERC20Tokens(instance, walletAddress, networkInfo, events, svs);
-
-                    lastBlockChecked = Long.parseLong(events[events.length - 1].blockNumber);
-
-                    //and update the top block read
-                    writeTokenBlockRead(instance, networkInfo.chainId, lastBlockChecked);
-                    eventCount = events.length;
-                }
-            }
-            catch (Exception e)
-            {
-                e.printStackTrace();
-            }
-            return eventCount;
-        }).observeOn(Schedulers.io());
+        return syncTokenStream(walletAddress, networkInfo, svs, TransactionSyncCursor.Stream.ERC20);
     }
 
     public Single<Integer> readNFTTransactions(String walletAddress, @NonNull NetworkInfo networkInfo, TokensService svs)
+    {
+        return syncTokenStream(walletAddress, networkInfo, svs, TransactionSyncCursor.Stream.NFT);
+    }
+
+    private Single<Integer> syncTokenStream(String walletAddress, @NonNull NetworkInfo networkInfo, TokensService svs, TransactionSyncCursor.Stream stream)
     {
         return Single.fromCallable(() -> {
-            //get latest block read
             int eventCount = 0;
             try (Realm instance = realmManager.getRealmInstance(new Wallet(walletAddress)))
             {
-                //get last tokencheck
-                long lastBlockChecked = getNFTokenBlockRead(instance, networkInfo.chainId);
-                String fetchTransactions = readNextTxBatch(walletAddress, networkInfo, lastBlockChecked, ERC721_QUERY);
-
-                if (fetchTransactions != null && fetchTransactions.length() > 100)
-                {
-                    //convert to gson
-                    EtherscanEvent[] events = getEtherscanEvents(fetchTransactions);
-                    writeEvents(instance, events, walletAddress, networkInfo, true);
+                boolean isNFT = stream == TransactionSyncCursor.Stream.NFT;
+                long legacyBlockRead = isNFT ? getNFTokenBlockRead(instance, networkInfo.chainId) : getTokenBlockRead(instance, networkInfo.chainId);
+                TransactionSyncCursor cursor = loadCursor(instance, networkInfo.chainId, stream, walletAddress, legacyBlockRead);
+                eventCount = syncStream(instance, cursor, networkInfo, walletAddress, null, svs);
 
-                    //Now update tokens if we don't already know this token
-                    writeERC721Tokens(instance, walletAddress, networkInfo, events, svs);
-
-                    lastBlockChecked = Long.parseLong(events[events.length - 1].blockNumber);
-
-                    //and update the top block read
-                    writeNFTokenBlockRead(instance, networkInfo.chainId, lastBlockChecked);
-                    eventCount = events.length;
-                }
+                //keep the reset marker entry current
+                if (isNFT) writeNFTokenBlockRead(instance, networkInfo.chainId, cursor.getUpperBlock());
+                else writeTokenBlockRead(instance, networkInfo.chainId, cursor.getUpperBlock());
             }
             catch (Exception e)
             {
                 e.printStackTrace();
             }
             return eventCount;
-        }).observeOn(Schedulers.io());
+        }).subscribeOn(Schedulers.io());
     }
 
     private void writeERC20Tokens(Realm instance, String walletAddress, NetworkInfo networkInfo, EtherscanEvent[] events, TokensService svs)
@@ -622,47 +663,6 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
         }
     }
 
-    private String readNextTxBatch(String walletAddress, NetworkInfo networkInfo, long lastBlockChecked, String queryType)
-    {
-        okhttp3.Response response;
-        String result = null;
-        final String START_BLOCK = "[START_BLOCK]";
-        final String WALLET_ADDR = "[WALLET_ADDR]";
-        final String ETHERSCAN = "[ETHERSCAN]";
-        final String QUERY_TYPE = "[QUERY_TYPE]";
-        String fullUrl = ETHERSCAN + "api?module=account&action=" + QUERY_TYPE + "&startBlock=" + START_BLOCK + "&address=" + WALLET_ADDR + "&page=1&offset=100&sort=asc&apikey=6U31FTHW3YYHKW6CYHKKGDPHI9HEJ9PU5F";
-        fullUrl = fullUrl.replace(QUERY_TYPE, queryType).replace(ETHERSCAN, networkInfo.etherscanTxUrl).replace(START_BLOCK, String.valueOf(lastBlockChecked + 1)).replace(WALLET_ADDR, walletAddress);
-        //sb.append("&apikey=6U31FTHW3YYHKW6CYHKKGDPHI9HEJ9PU5F");
-
-        try
-        {
-            Request request = new Request.Builder()
-                    .url(fullUrl)
-                    .get()
-                    .build();
-
-            response = httpClient.newCall(request).execute();
-
-            result = response.body().string();
-            if (result != null && result.length() < 80 && result.contains("No transactions found"))
-            {
-                result = "0";
-            }
-        }
-        catch (InterruptedIOException e)
-        {
-            //If user switches account or network during a fetch
-            //this exception is going to be thrown because we're terminating the API call
-            //Don't display error
-        }
-        catch (Exception e)
-        {
-            e.printStackTrace();
-        }
-
-        return result;
-    }
-
     private long getTokenBlockRead(Realm instance, int chainId)
     {
         RealmAuxData rd = instance.where(RealmAuxData.class)
@@ -725,7 +725,7 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
         });
     }
 
-    private long getOldestBlockRead(Realm instance, int chainId, long lastTxTime)
+    private long getOldestBlockRead(Realm instance, int chainId)
     {
         long txBlockRead = 0;
         try
@@ -819,75 +819,7 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
                     realmToken.setLastBlock(Long.parseLong(lastBlockRead));
                     realmToken.setLastTxTime(System.currentTimeMillis());
                 });
-            }
-        }
-        catch (Exception e)
-        {
-            //
-        }
-    }
-
-    private void storeEarliestBlockRead(Realm instance, int chainId, String walletAddress, long earliestBlock)
-    {
-        try
-        {
-            RealmToken realmToken = instance.where(RealmToken.class)
-                    .equalTo("address", databaseKey(chainId, walletAddress))
-                    .equalTo("chainId", chainId)
-                    .findFirst();
-
-            if (realmToken != null)
-            {
-                instance.executeTransaction(realm -> {
-                    realmToken.setEarliestTransactionBlock(earliestBlock);
-                });
-            }
-        }
-        catch (Exception e)
-        {
-            //
-        }
-    }
-
-    public void deleteAllChainTransactions(Realm instance, int chainId, String walletAddress)
-    {
-        try
-        {
-            RealmResults<RealmTransaction> txs = instance.where(RealmTransaction.class)
-                    .equalTo("chainId", chainId)
-                    .findAll();
-
-            if (txs != null && txs.size() > 0)
-            {
-                instance.executeTransaction(realm -> {
-                    txs.deleteAllFromRealm();
-                });
-            }
-
-            resetBlockRead(instance, chainId, walletAddress);
-        }
-        catch (Exception e)
-        {
-            //
-        }
-    }
-
-    private void resetBlockRead(Realm instance, int chainId, String walletAddress)
-    {
-        try
-        {
-            RealmToken realmToken = instance.where(RealmToken.class)
-                    .equalTo("address", databaseKey(chainId, walletAddress))
-                    .equalTo("chainId", chainId)
-                    .findFirst();
-
-            if (realmToken != null)
-            {
-                instance.executeTransaction(realm -> {
-                    realmToken.setEarliestTransactionBlock(0);
-                    realmToken.setLastBlock(0);
-                    realmToken.setLastTxTime(0);
-                });
+                TokensRealmSource.invalidateCachedToken(walletAddress, chainId, tokenAddress);
             }
         }
         catch (Exception e)
@@ -987,7 +919,7 @@ public class TransactionsNetworkClient implements TransactionsNetworkClientType
                     .findFirst();
 
             if (realmTx == null) realmTx = instance.createObject(RealmTransaction.class, tx.hash);
-            TransactionsRealmCache.fill(instance, realmTx, tx);
+            TransactionsRealmCache.fill(instance, realmTx, tx, walletAddress);
             instance.commitTransaction();
         }
         catch (Exception e)
@@ -50,7 +50,6 @@ public class TransactionsService
     private final Context context;
     private String currentAddress;
     private int currentChainIndex;
-    private boolean nftCheck;
 
     private final static int TRANSACTION_DROPPED = -1;
     private final static int TRANSACTION_SEEN = -2;
@@ -93,7 +92,6 @@ public class TransactionsService
     private void fetchTransactions()
     {
         currentChainIndex = 0;
-        nftCheck = false;
 
         if (fetchTransactionDisposable != null && !fetchTransactionDisposable.isDisposed())
             fetchTransactionDisposable.dispose();
@@ -132,20 +130,17 @@ public class TransactionsService
         if (currentChainIndex >= filters.size()) currentChainIndex = 0;
         int chainId = filters.get(currentChainIndex);
 
-        transactionsClient.readTransactions(currentAddress, ethereumNetworkRepository.getNetworkByChain(chainId), tokensService, nftCheck)
+        NetworkInfo network = ethereumNetworkRepository.getNetworkByChain(chainId);
+
+        //ERC20 and NFT transfer streams are read concurrently
+        Single.zip(transactionsClient.readTransactions(currentAddress, network, tokensService, false),
+                transactionsClient.readTransactions(currentAddress, network, tokensService, true),
+                Integer::sum)
                 .subscribeOn(Schedulers.io())
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(count -> { System.out.println("Received: " + count); }).isDisposed();
+                .subscribe(count -> { System.out.println("Received: " + count); }, Throwable::printStackTrace).isDisposed();
 
-        if (!nftCheck)
-        {
-            nftCheck = true;
-        }
-        else
-        {
-            nftCheck = false;
-            currentChainIndex++;
-        }
+        currentChainIndex++;
     }
 
     private void checkTransactionQueue()
@@ -0,0 +1,282 @@
+package com.alphawallet.app.service;
+
+import androidx.annotation.NonNull;
+
+import com.alphawallet.app.repository.EthereumNetworkRepository;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.BatchResponse;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/**
+ * App-wide registry of per-chain Web3j clients.
+ *
+ * All clients are built on one OkHttpClient so they share its connection pool and dispatcher. A chain's client is
+ * built on first use and rebuilt if the node URLs for the chain have changed since it was built.
+ * Each chain's HTTP calls are counted and timed, see {@link #getMetrics(int)}.
+ * Batch requests go through {@link #sendBatch(int, BatchRequest)} so every caller shares one view of which chains
+ * accept them.
+ */
+public class Web3jClients
+{
+    private static final OkHttpClient httpClient = new OkHttpClient.Builder()
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(10, TimeUnit.SECONDS)
+            .writeTimeout(10, TimeUnit.SECONDS)
+            .retryOnConnectionFailure(false)
+            .build();
+
+    private static final Map<Integer, ChainClient> clients = new ConcurrentHashMap<>();
+    private static final Map<Integer, RpcMetrics> metrics = new ConcurrentHashMap<>();
+
+    private static final long BATCH_RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(30);
+    private static final int JSON_RPC_INVALID_REQUEST = -32600;
+    private static final Map<Integer, Long> batchRejectedTime = new ConcurrentHashMap<>();
+
+    /**
+     * @return the OkHttpClient shared by every node connection
+     */
+    public static OkHttpClient getHttpClient()
+    {
+        return httpClient;
+    }
+
+    public static Web3j get(int chainId)
+    {
+        String nodeUrl = EthereumNetworkRepository.getNodeURLByNetworkId(chainId);
+        String secondaryUrl = EthereumNetworkRepository.getSecondaryNodeURL(chainId);
+
+        ChainClient client = clients.get(chainId);
+        if (client == null || !client.isFor(nodeUrl, secondaryUrl))
+        {
+            synchronized (clients)
+            {
+                client = clients.get(chainId);
+                if (client == null || !client.isFor(nodeUrl, secondaryUrl))
+                {
+                    client = buildClient(chainId, nodeUrl, secondaryUrl);
+                    clients.put(chainId, client);
+                }
+            }
+        }
+
+        return client.web3j;
+    }
+
+    /**
+     * @return request counts and latencies for the chain, or null if there have been no requests to it
+     */
+    public static RpcMetrics getMetrics(int chainId)
+    {
+        return metrics.get(chainId);
+    }
+
+    public static Map<Integer, RpcMetrics> getAllMetrics()
+    {
+        return new HashMap<>(metrics);
+    }
+
+    /**
+     * @return false if the chain's node has rejected a batch request within the retry interval
+     */
+    public static boolean isBatchSupported(int chainId)
+    {
+        Long rejectedTime = batchRejectedTime.get(chainId);
+        if (rejectedTime == null) return true;
+        if (System.currentTimeMillis() - rejectedTime < BATCH_RETRY_INTERVAL) return false;
+
+        batchRejectedTime.remove(chainId);
+        return true;
+    }
+
+    /**
+     * Send a batch request to the chain's node. If the node rejects the batch, batching is disabled for the chain
+     * until the retry interval has passed or the node URL changes.
+     * Transport and HTTP errors are thrown to the caller and don't affect whether the chain is batched.
+     *
+     * @return the responses, or null if the node rejected the batch
+     */
+    public static BatchResponse sendBatch(int chainId, BatchRequest batch) throws IOException
+    {
+        BatchResponse response;
+        try
+        {
+            response = batch.send();
+        }
+        catch (ClassCastException e)
+        {
+            //web3j expects an array of responses; a node which can't batch replies with a single error object
+            batchRejectedTime.put(chainId, System.currentTimeMillis());
+            return null;
+        }
+
+        if (isBatchRejection(response))
+        {
+            batchRejectedTime.put(chainId, System.currentTimeMillis());
+            return null;
+        }
+
+        return response;
+    }
+
+    private static boolean isBatchRejection(BatchResponse batchResponse)
+    {
+        List<? extends org.web3j.protocol.core.Response<?>> responses = batchResponse.getResponses();
+        if (responses.isEmpty()) return !batchResponse.getRequests().isEmpty();
+
+        //an invalid request error for every call is the node rejecting the batch itself
+        for (org.web3j.protocol.core.Response<?> response : responses)
+        {
+            if (!response.hasError() || response.getError().getCode() != JSON_RPC_INVALID_REQUEST) return false;
+        }
+
+        return true;
+    }
+
+    //called holding the clients lock
+    private static ChainClient buildClient(int chainId, String nodeUrl, String secondaryUrl)
+    {
+        RpcMetrics chainMetrics = metrics.get(chainId);
+        if (chainMetrics == null)
+        {
+            chainMetrics = new RpcMetrics();
+            metrics.put(chainId, chainMetrics);
+        }
+
+        //newBuilder shares the connection pool and dispatcher of the parent client
+        OkHttpClient chainHttpClient = httpClient.newBuilder()
+                .addInterceptor(chainMetrics)
+                .build();
+
+        //a new node may accept batches the old one didn't
+        batchRejectedTime.remove(chainId);
+
+        AWHttpService publicNodeService = new AWHttpService(nodeUrl, secondaryUrl, chainHttpClient, false);
+        EthereumNetworkRepository.addRequiredCredentials(chainId, publicNodeService);
+        return new ChainClient(nodeUrl, secondaryUrl, Web3j.build(publicNodeService));
+    }
+
+    private static class ChainClient
+    {
+        final String nodeUrl;
+        final String secondaryUrl;
+        final Web3j web3j;
+
+        ChainClient(String nodeUrl, String secondaryUrl, Web3j web3j)
+        {
+            this.nodeUrl = nodeUrl;
+            this.secondaryUrl = secondaryUrl;
+            this.web3j = web3j;
+        }
+
+        boolean isFor(String nodeUrl, String secondaryUrl)
+        {
+            return equals(this.nodeUrl, nodeUrl) && equals(this.secondaryUrl, secondaryUrl);
+        }
+
+        private static boolean equals(String a, String b)
+        {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * Request count, failure count and a latency histogram for the HTTP calls made to one chain.
+     * A call which falls back to the secondary node is recorded as two calls.
+     */
+    public static class RpcMetrics implements Interceptor
+    {
+        /** Upper bound in ms of each histogram bucket; the final bucket holds everything slower */
+        public static final long[] BUCKET_LIMITS = { 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalLatency = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_LIMITS.length + 1);
+
+        @NonNull
+        @Override
+        public Response intercept(@NonNull Chain chain) throws IOException
+        {
+            long start = System.nanoTime();
+            boolean success = false;
+            try
+            {
+                Response response = chain.proceed(chain.request());
+                success = response.isSuccessful();
+                return response;
+            }
+            finally
+            {
+                record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), success);
+            }
+        }
+
+        private void record(long latency, boolean success)
+        {
+            requests.incrementAndGet();
+            if (!success) failures.incrementAndGet();
+            totalLatency.addAndGet(latency);
+
+            int bucket = 0;
+            while (bucket < BUCKET_LIMITS.length && latency > BUCKET_LIMITS[bucket]) bucket++;
+            histogram.incrementAndGet(bucket);
+        }
+
+        public long getRequestCount()
+        {
+            return requests.get();
+        }
+
+        public long getFailureCount()
+        {
+            return failures.get();
+        }
+
+        public long getAverageLatency()
+        {
+            long count = requests.get();
+            return count > 0 ? totalLatency.get() / count : 0;
+        }
+
+        /**
+         * @return request count per bucket of {@link #BUCKET_LIMITS}, with one extra bucket for slower requests
+         */
+        public long[] getLatencyHistogram()
+        {
+            long[] counts = new long[histogram.length()];
+            for (int i = 0; i < counts.length; i++) counts[i] = histogram.get(i);
+            return counts;
+        }
+
+        @NonNull
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append("requests: ").append(getRequestCount())
+                    .append(", failures: ").append(getFailureCount())
+                    .append(", avg: ").append(getAverageLatency()).append("ms, histogram:");
+            long[] counts = getLatencyHistogram();
+            for (int i = 0; i < counts.length; i++)
+            {
+                sb.append(i < BUCKET_LIMITS.length ? " <=" + BUCKET_LIMITS[i] : " >" + BUCKET_LIMITS[BUCKET_LIMITS.length - 1])
+                        .append("ms:").append(counts[i]);
+            }
+            return sb.toString();
+        }
+    }
+}
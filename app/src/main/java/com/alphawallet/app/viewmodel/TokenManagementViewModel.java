@@ -60,6 +60,7 @@ public class TokenManagementViewModel extends BaseViewModel {
 
     public void setTokenEnabled(Wallet wallet, Token token, boolean enabled) {
         changeTokenEnableInteract.setEnable(wallet, token, enabled);
+        tokensService.tokenEnabledChanged(token, enabled);
     }
 
     public void showAddToken(Context context) {
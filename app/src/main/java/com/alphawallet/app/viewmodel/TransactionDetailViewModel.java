@@ -235,7 +235,7 @@ public class TransactionDetailViewModel extends BaseViewModel {
                     .findFirst();
 
             if (realmTx == null) realmTx = instance.createObject(RealmTransaction.class, tx.hash);
-            TransactionsRealmCache.fill(instance, realmTx, tx);
+            TransactionsRealmCache.fill(instance, realmTx, tx, wallet.address);
             instance.commitTransaction();
         }
         catch (Exception e)
@@ -0,0 +1,82 @@
+package com.alphawallet.app;
+
+import com.alphawallet.app.entity.tokenscript.EventFilterGroup;
+import com.alphawallet.token.entity.EventDefinition;
+
+import org.junit.Test;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks an event's read block survives being stored and loaded again without skipping a block
+ */
+public class EventReadBlockTest
+{
+    private static final String CONTRACT = "0xbc8dafeaca658ae0857c80d8aa6de4d487577c63";
+    private static final String TOPIC = "0xddf252ad1be2c89b69c2b068fc378daa952ba7f163c4a11628f55a4df523b3ef";
+
+    @Test
+    public void storedReadBlockReloadsToNextUnreadBlock()
+    {
+        EventDefinition ev = new EventDefinition();
+        EventFilterGroup group = createGroup(ev);
+        group.markRead(BigInteger.valueOf(149));
+        assertEquals(BigInteger.valueOf(150), group.getStartBlock());
+
+        EventDefinition reloaded = new EventDefinition();
+        reloaded.readBlock = EventFilterGroup.loadReadBlock(EventFilterGroup.storedReadBlock(ev));
+        EventFilterGroup reloadedGroup = createGroup(reloaded);
+
+        //the first block past the stored window is polled, and its logs are routed to the event
+        assertEquals(BigInteger.valueOf(150), reloadedGroup.getStartBlock());
+        Map<EventDefinition, List<EthLog.LogResult>> routed = reloadedGroup.route(Collections.singletonList(createLog(150)));
+        assertEquals(1, routed.get(reloaded).size());
+
+        //blocks already read stay read
+        assertTrue(reloadedGroup.route(Collections.singletonList(createLog(149))).isEmpty());
+    }
+
+    @Test
+    public void heldBackReadBlockReloadsAtSkippedLog()
+    {
+        //a log at block 120 was skipped, so the read block is held at that block
+        EventDefinition ev = new EventDefinition();
+        ev.readBlock = BigInteger.valueOf(120);
+
+        EventDefinition reloaded = new EventDefinition();
+        reloaded.readBlock = EventFilterGroup.loadReadBlock(EventFilterGroup.storedReadBlock(ev));
+        EventFilterGroup reloadedGroup = createGroup(reloaded);
+
+        assertEquals(BigInteger.valueOf(120), reloadedGroup.getStartBlock());
+        assertEquals(1, reloadedGroup.route(Collections.singletonList(createLog(120))).get(reloaded).size());
+    }
+
+    private static EventFilterGroup createGroup(EventDefinition ev)
+    {
+        EventFilterGroup group = new EventFilterGroup(1, CONTRACT);
+        EthFilter filter = new EthFilter(DefaultBlockParameterName.EARLIEST, DefaultBlockParameterName.LATEST, CONTRACT);
+        filter.addSingleTopic(TOPIC);
+        group.add(ev, filter);
+        return group;
+    }
+
+    private static EthLog.LogResult createLog(long blockNumber)
+    {
+        Log log = new Log();
+        log.setBlockNumber("0x" + Long.toHexString(blockNumber));
+        log.setTopics(Collections.singletonList(TOPIC));
+        log.setAddress(CONTRACT);
+        return new EthLog.LogObject(log.isRemoved(), log.getLogIndexRaw(), log.getTransactionIndexRaw(), log.getTransactionHash(),
+                log.getBlockHash(), log.getBlockNumberRaw(), log.getAddress(), log.getData(), log.getType(), log.getTopics());
+    }
+}
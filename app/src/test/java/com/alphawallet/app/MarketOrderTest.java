@@ -25,6 +25,7 @@ import org.web3j.protocol.core.methods.response.EthTransaction;
 
 import java.math.BigInteger;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
@@ -202,6 +203,12 @@ public class MarketOrderTest
                 return null;
             }
 
+            @Override
+            public Single<Transaction[]> storeRawTxs(Wallet wallet, int chainId, Map<String, Long> txTimes)
+            {
+                return null;
+            }
+
             @Override
             public void restartService()
             {
@@ -29,6 +29,7 @@ import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 
@@ -186,6 +187,12 @@ public class QRSelectionTest
                 return null;
             }
 
+            @Override
+            public Single<Transaction[]> storeRawTxs(Wallet wallet, int chainId, Map<String, Long> txTimes)
+            {
+                return null;
+            }
+
             @Override
             public void restartService()
             {
@@ -3,8 +3,15 @@ package com.alphawallet.app;
 import com.alphawallet.app.entity.TransactionDecoder;
 import com.alphawallet.app.entity.TransactionInput;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import org.junit.Test;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Created by weiwu on 7/3/18.
@@ -43,6 +50,66 @@ public class TransactionDecodingTest {
         assertEquals(BigInteger.valueOf(0x1b), new BigInteger(i.sigData.get(0), 16));
     }
 
+    /**
+     * One decoder shared by several threads gives the same results as decoding each input alone
+     */
+    @Test
+    public void DecoderCanBeShared() throws Exception {
+        TransactionDecoder shared = new TransactionDecoder();
+        String[] expected = new String[inputTestList.length];
+        for (int i = 0; i < inputTestList.length; i++) {
+            expected[i] = describe(new TransactionDecoder().decodeInput(inputTestList[i]));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            final int offset = thread;
+            results.add(executor.submit(() -> {
+                for (int pass = 0; pass < 20; pass++) {
+                    for (int i = 0; i < inputTestList.length; i++) {
+                        int index = (i + offset * 7) % inputTestList.length;
+                        if (!expected[index].equals(describe(shared.decodeInput(inputTestList[index])))) return false;
+                    }
+                }
+                return true;
+            }));
+        }
+
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Values are read from the input when requested; a truncated array ends with a zero value
+     */
+    @Test
+    public void ArrayValuesAreReadFromInput() {
+        TransactionDecoder t = new TransactionDecoder();
+        TransactionInput i = t.decodeInput(trade_transaction);
+        List<BigInteger> expected = new ArrayList<>();
+        for (int value = 9; value <= 18; value++) expected.add(BigInteger.valueOf(value));
+        assertEquals(expected, i.arrayValues);
+        assertSame(i.arrayValues.get(0), i.arrayValues.get(0));
+        assertEquals("000000000000000000000000000000000000000000000000000000005a9a00e2", i.miscData.get(0));
+
+        i = t.decodeInput(trade_transaction.substring(0, trade_transaction.length() - 128));
+        expected = new ArrayList<>(expected.subList(0, 8));
+        expected.add(BigInteger.ZERO);
+        assertEquals(expected, i.arrayValues);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void DecodedValuesCannotBeChanged() {
+        new TransactionDecoder().decodeInput(trade_transaction).sigData.add("00");
+    }
+
+    private String describe(TransactionInput i) {
+        return i.functionData.functionName + i.addresses + i.arrayValues + i.sigData + i.miscData;
+    }
+
     /**
      * Transaction soak test - checks through a lot of inputs
      */
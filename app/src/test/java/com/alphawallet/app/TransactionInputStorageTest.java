@@ -0,0 +1,93 @@
+package com.alphawallet.app;
+
+import com.alphawallet.app.entity.TransactionInput;
+import com.alphawallet.app.entity.TransactionType;
+import com.alphawallet.app.repository.TransactionsRealmCache;
+import com.alphawallet.app.repository.entity.RealmTransaction;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class TransactionInputStorageTest
+{
+    //trade(uint256,uint16[],uint8,bytes32,bytes32) selector
+    private static final String INPUT = "0x696ecc55000000000000000000000000000000000000000000000000000000005a9a00e2";
+    private static final String ADDRESS = "000000000000000000000000951c19daead668bfa8391c94286f8ce7cbda2fe3";
+    private static final String TRADE_ADDRESS = "0xbc8dAfeacA658Ae0857C80D8Aa6dE4D487577c63";
+
+    @Test
+    public void decodedInputRoundTrips()
+    {
+        TransactionInput input = new TransactionInput(null, TransactionType.MAGICLINK_PURCHASE,
+                new ArrayList<>(Arrays.asList(ADDRESS, "0000000000000000000000000000000000000000000000000000000000000001")),
+                new ArrayList<>(Arrays.asList(BigInteger.valueOf(9), new BigInteger("123456789abcdef0123456789", 16), BigInteger.ZERO)),
+                new ArrayList<>(Arrays.asList("1b", "c59d6718734043600a49ec2419e566fa03676058e88326ff1161c579c6b8e799")),
+                new ArrayList<>(Arrays.asList("5a9a00e2", "0a")),
+                TRADE_ADDRESS);
+
+        RealmTransaction item = new RealmTransaction();
+        item.setInput(INPUT);
+        TransactionsRealmCache.setDecodedInput(item, input);
+
+        //stored as plain columns
+        assertEquals("MAGICLINK_PURCHASE", item.getDecodedType());
+        assertEquals(ADDRESS + ",0000000000000000000000000000000000000000000000000000000000000001", item.getDecodedAddresses());
+        assertEquals("9,123456789abcdef0123456789,0", item.getDecodedValues());
+        assertEquals("1b,c59d6718734043600a49ec2419e566fa03676058e88326ff1161c579c6b8e799", item.getDecodedSigData());
+        assertEquals("5a9a00e2,0a", item.getDecodedMiscData());
+        assertEquals(TRADE_ADDRESS, item.getDecodedTradeAddress());
+
+        TransactionInput restored = TransactionsRealmCache.getDecodedInput(item);
+        assertNotNull(restored);
+        assertEquals(input.type, restored.type);
+        assertEquals(input.addresses, restored.addresses);
+        assertEquals(input.arrayValues, restored.arrayValues);
+        assertEquals(input.sigData, restored.sigData);
+        assertEquals(input.miscData, restored.miscData);
+        assertEquals(input.tradeAddress, restored.tradeAddress);
+        assertNotNull(restored.functionData);
+    }
+
+    @Test
+    public void emptyListsRoundTrip()
+    {
+        TransactionInput input = new TransactionInput(null, TransactionType.TRANSFER_TO, new ArrayList<>(), new ArrayList<>(),
+                new ArrayList<>(), new ArrayList<>(), null);
+
+        RealmTransaction item = new RealmTransaction();
+        TransactionsRealmCache.setDecodedInput(item, input);
+        TransactionInput restored = TransactionsRealmCache.getDecodedInput(item);
+
+        assertNotNull(restored);
+        assertEquals(TransactionType.TRANSFER_TO, restored.type);
+        assertEquals(0, restored.addresses.size());
+        assertEquals(0, restored.arrayValues.size());
+        assertEquals(0, restored.sigData.size());
+        assertEquals(0, restored.miscData.size());
+        assertNull(restored.tradeAddress);
+    }
+
+    @Test
+    public void unstorableInputIsCleared()
+    {
+        RealmTransaction item = new RealmTransaction();
+        TransactionsRealmCache.setDecodedInput(item, new TransactionInput(null, TransactionType.TRANSFER_TO,
+                new ArrayList<>(Arrays.asList(ADDRESS)), new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), null));
+        assertNotNull(TransactionsRealmCache.getDecodedInput(item));
+
+        //a value holding the separator can't be stored; the transaction is decoded again when displayed
+        TransactionsRealmCache.setDecodedInput(item, new TransactionInput(null, TransactionType.TRANSFER_TO,
+                new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>(Arrays.asList("a,b")), null));
+        assertNull(TransactionsRealmCache.getDecodedInput(item));
+
+        TransactionsRealmCache.setDecodedInput(item, null);
+        assertNull(TransactionsRealmCache.getDecodedInput(item));
+    }
+}
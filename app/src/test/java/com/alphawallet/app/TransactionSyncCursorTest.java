@@ -0,0 +1,107 @@
+package com.alphawallet.app;
+
+import com.alphawallet.app.entity.TransactionSyncCursor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionSyncCursorTest
+{
+    private static final String ADDRESS = "0xbc8dAfeacA658Ae0857C80D8Aa6dE4D487577c63";
+
+    @Test
+    public void firstSyncLeavesHistoryGap()
+    {
+        TransactionSyncCursor cursor = new TransactionSyncCursor(1, TransactionSyncCursor.Stream.TRANSACTIONS, ADDRESS);
+        assertFalse(cursor.isSynced());
+
+        cursor.onTopPageRead(1000, 900, true);
+        assertTrue(cursor.isSynced());
+        assertEquals(1000, cursor.getUpperBlock());
+        assertArrayEquals(new long[] { 0, 900 }, cursor.getNextGap());
+
+        //back-fill until complete
+        cursor.onGapPageRead(cursor.getNextGap(), 500, true);
+        assertArrayEquals(new long[] { 0, 500 }, cursor.getNextGap());
+        cursor.onGapPageRead(cursor.getNextGap(), 20, false);
+        assertTrue(cursor.isHistoryComplete());
+        assertNull(cursor.getNextGap());
+    }
+
+    @Test
+    public void smallAccountHasNoGap()
+    {
+        TransactionSyncCursor cursor = new TransactionSyncCursor(1, TransactionSyncCursor.Stream.ERC20, ADDRESS);
+        cursor.onTopPageRead(1000, 10, false);
+        assertTrue(cursor.isHistoryComplete());
+    }
+
+    @Test
+    public void headOverflowBecomesGap()
+    {
+        TransactionSyncCursor cursor = new TransactionSyncCursor(1, TransactionSyncCursor.Stream.TRANSACTIONS, ADDRESS);
+        cursor.onTopPageRead(1000, 990, false);
+
+        //full ascending page from 1001, then newest page
+        cursor.onHeadPageRead(1500, 800);
+        cursor.onTopPageRead(5000, 4200, true);
+        assertEquals(5000, cursor.getUpperBlock());
+        assertArrayEquals(new long[] { 1500, 4200 }, cursor.getNextGap());
+
+        //pages that overlap leave no gap
+        cursor.onGapPageRead(cursor.getNextGap(), 1500, false);
+        cursor.onHeadPageRead(5200, 800);
+        cursor.onTopPageRead(5300, 5100, true);
+        assertTrue(cursor.isHistoryComplete());
+    }
+
+    @Test
+    public void gapsAreFilledNewestFirst()
+    {
+        TransactionSyncCursor cursor = new TransactionSyncCursor(1, TransactionSyncCursor.Stream.NFT, ADDRESS);
+        cursor.onTopPageRead(1000, 900, true);
+        cursor.onHeadPageRead(1200, 100);
+        cursor.onTopPageRead(3000, 2000, true);
+        assertArrayEquals(new long[] { 1200, 2000 }, cursor.getNextGap());
+    }
+
+    @Test
+    public void oversizedBlockDoesNotStall()
+    {
+        TransactionSyncCursor cursor = new TransactionSyncCursor(1, TransactionSyncCursor.Stream.TRANSACTIONS, ADDRESS);
+        cursor.onTopPageRead(1000, 900, true);
+        //whole page within the top block of the gap
+        cursor.onGapPageRead(cursor.getNextGap(), 900, true);
+        assertArrayEquals(new long[] { 0, 899 }, cursor.getNextGap());
+    }
+
+    @Test
+    public void encodeRoundTrip()
+    {
+        TransactionSyncCursor cursor = new TransactionSyncCursor(3, TransactionSyncCursor.Stream.TRANSACTIONS, ADDRESS);
+        cursor.onTopPageRead(1000, 900, true);
+        cursor.onHeadPageRead(1200, 100);
+        cursor.onTopPageRead(3000, 2000, true);
+
+        TransactionSyncCursor decoded = TransactionSyncCursor.decode(3, TransactionSyncCursor.Stream.TRANSACTIONS, ADDRESS, cursor.encode());
+        assertEquals(cursor.encode(), decoded.encode());
+        assertEquals(3000, decoded.getUpperBlock());
+
+        TransactionSyncCursor corrupt = TransactionSyncCursor.decode(3, TransactionSyncCursor.Stream.TRANSACTIONS, ADDRESS, "x;1-");
+        assertFalse(corrupt.isSynced());
+    }
+
+    @Test
+    public void legacyCursor()
+    {
+        TransactionSyncCursor cursor = TransactionSyncCursor.fromLegacy(1, TransactionSyncCursor.Stream.TRANSACTIONS, ADDRESS, 5000, 3000);
+        assertEquals(5000, cursor.getUpperBlock());
+        assertArrayEquals(new long[] { 0, 3000 }, cursor.getNextGap());
+        assertTrue(TransactionSyncCursor.fromLegacy(1, TransactionSyncCursor.Stream.ERC20, ADDRESS, 5000, 0).isHistoryComplete());
+    }
+}
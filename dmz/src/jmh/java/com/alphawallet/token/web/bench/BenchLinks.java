@@ -0,0 +1,54 @@
+package com.alphawallet.token.web.bench;
+
+import com.alphawallet.token.entity.SalesOrderMalformed;
+import com.alphawallet.token.tools.ParseMagicLink;
+import com.alphawallet.token.web.Service.CryptoFunctions;
+
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Sign;
+
+import java.math.BigInteger;
+
+/**
+ * Signed magic links for the benchmarks
+ */
+public class BenchLinks
+{
+    public static final BigInteger PRIVATE_KEY = new BigInteger("1c7e9bb5b4bd3ecc0b04bd2d8a92b1d5a4d4e0c1f1b8a7c5e4d3c2b1a0918273", 16);
+    //holding contract of EntryToken.tsml on mainnet
+    public static final String DEFAULT_CONTRACT = "0x63ccef733a093e5bd773b41c96d3ece361464942";
+
+    /**
+     * @param contractAddress
+     * @param indices token indices being sold
+     * @param chainId
+     * @return full link, eg https://aw.app/AgAAAA...
+     */
+    public static String createLink(String contractAddress, int[] indices, int chainId) throws SalesOrderMalformed
+    {
+        ParseMagicLink parser = new ParseMagicLink(new CryptoFunctions(), null);
+        BigInteger price = BigInteger.ZERO;
+        long expiry = System.currentTimeMillis() / 1000 + 3600 * 24 * 365;
+        byte[] tradeBytes = parser.getTradeBytes(indices, contractAddress, price, expiry);
+        byte[] signature = sign(tradeBytes);
+        return parser.generateUniversalLink(indices, contractAddress, price, expiry, signature, chainId);
+    }
+
+    /**
+     * @return link data without the domain, as it appears in the request path
+     */
+    public static String getPath(String link)
+    {
+        return link.substring(link.lastIndexOf('/') + 1);
+    }
+
+    private static byte[] sign(byte[] message)
+    {
+        Sign.SignatureData signatureData = Sign.signMessage(message, ECKeyPair.create(PRIVATE_KEY));
+        byte[] sigBytes = new byte[65];
+        System.arraycopy(signatureData.getR(), 0, sigBytes, 0, 32);
+        System.arraycopy(signatureData.getS(), 0, sigBytes, 32, 32);
+        System.arraycopy(signatureData.getV(), 0, sigBytes, 64, 1);
+        return sigBytes;
+    }
+}
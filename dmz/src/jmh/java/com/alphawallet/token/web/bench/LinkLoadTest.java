@@ -0,0 +1,285 @@
+package com.alphawallet.token.web.bench;
+
+import com.alphawallet.token.web.AppSiteController;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test for the magic link server.
+ *
+ * Starts AppSiteController in this process against a StubRpcNode, then drives the link page and the XMLDSig
+ * verification endpoint from a number of client threads. Reports throughput, latency percentiles and the
+ * allocation rate of the server threads.
+ *
+ * Settings are system properties:
+ *   loadtest.target       link | xmldsig (default link)
+ *   loadtest.concurrency  client threads (default 16)
+ *   loadtest.warmup       warmup seconds (default 10)
+ *   loadtest.duration     measured seconds (default 30)
+ *   loadtest.nodeDelay    stub node latency in ms (default 0)
+ *   loadtest.repoDir      TokenScript directory (default ../lib/src/test/ts)
+ *   loadtest.contract     contract for the generated link (default EntryToken)
+ *   loadtest.xmldsigFile  file to post for verification (default ../lib/src/test/ts/EntryToken-valid-RSA.tsml)
+ *   loadtest.port         server port (default 18080)
+ */
+public class LinkLoadTest
+{
+    private static final String BOUNDARY = "----LinkLoadTestBoundary";
+
+    private final String target = System.getProperty("loadtest.target", "link");
+    private final int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+    private final int warmupSeconds = Integer.getInteger("loadtest.warmup", 10);
+    private final int durationSeconds = Integer.getInteger("loadtest.duration", 30);
+    private final long nodeDelay = Long.getLong("loadtest.nodeDelay", 0);
+    private final String repoDir = System.getProperty("loadtest.repoDir", "../lib/src/test/ts");
+    private final String contract = System.getProperty("loadtest.contract", BenchLinks.DEFAULT_CONTRACT);
+    private final String xmldsigFile = System.getProperty("loadtest.xmldsigFile", "../lib/src/test/ts/EntryToken-valid-RSA.tsml");
+    private final int port = Integer.getInteger("loadtest.port", 18080);
+
+    private final AtomicLong errors = new AtomicLong();
+
+    public static void main(String[] args) throws Exception
+    {
+        new LinkLoadTest().run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception
+    {
+        StubRpcNode node = new StubRpcNode(0, 8, nodeDelay);
+        node.start();
+
+        AppSiteController.main(new String[] {
+                "--server.port=" + port,
+                "--repository.dir=" + Paths.get(repoDir).toAbsolutePath().normalize(),
+                "--rpc.node.override=" + node.getUrl() });
+
+        Request request = createRequest();
+
+        //check the request works before measuring it
+        int status = request.send();
+        if (status != 200)
+        {
+            System.out.println("Request failed with status " + status + ", not running the load test");
+            node.stop();
+            return;
+        }
+
+        System.out.println("Warming up for " + warmupSeconds + "s with " + concurrency + " clients");
+        drive(request, warmupSeconds);
+
+        System.out.println("Measuring for " + durationSeconds + "s");
+        errors.set(0);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = getAllocatedBytes(threads);
+        long startTime = System.nanoTime();
+        Result result = drive(request, durationSeconds);
+        long elapsed = System.nanoTime() - startTime;
+        long serverAllocated = getAllocatedBytes(threads) - allocatedBefore - result.clientAllocated;
+
+        report(result, elapsed, serverAllocated);
+        node.stop();
+    }
+
+    private Result drive(Request request, int seconds) throws InterruptedException
+    {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long endTime = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<long[]> latencies = new ArrayList<>();
+        int[] counts = new int[concurrency];
+        AtomicLong clientAllocated = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        for (int i = 0; i < concurrency; i++)
+        {
+            final int client = i;
+            long[] clientLatencies = new long[1 << 20];
+            latencies.add(clientLatencies);
+            Thread thread = new Thread(() -> {
+                long allocatedStart = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+                int count = 0;
+                while (System.nanoTime() < endTime && count < clientLatencies.length)
+                {
+                    long start = System.nanoTime();
+                    try
+                    {
+                        if (request.send() != 200) errors.incrementAndGet();
+                    }
+                    catch (IOException e)
+                    {
+                        errors.incrementAndGet();
+                    }
+                    clientLatencies[count++] = System.nanoTime() - start;
+                }
+                counts[client] = count;
+                clientAllocated.addAndGet(threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocatedStart);
+                done.countDown();
+            }, "LoadTestClient-" + i);
+            thread.start();
+        }
+
+        done.await();
+
+        int total = 0;
+        for (int count : counts) total += count;
+        long[] all = new long[total];
+        int offset = 0;
+        for (int i = 0; i < concurrency; i++)
+        {
+            System.arraycopy(latencies.get(i), 0, all, offset, counts[i]);
+            offset += counts[i];
+        }
+        Arrays.sort(all);
+
+        return new Result(all, clientAllocated.get());
+    }
+
+    private void report(Result result, long elapsedNanos, long serverAllocated)
+    {
+        double seconds = elapsedNanos / 1e9;
+        long[] latencies = result.latencies;
+        System.out.println("---- " + target + ", " + concurrency + " clients, node delay " + nodeDelay + "ms ----");
+        System.out.printf("requests:    %d (%d errors)%n", latencies.length, errors.get());
+        System.out.printf("throughput:  %.1f req/s%n", latencies.length / seconds);
+        if (latencies.length > 0)
+        {
+            System.out.printf("latency p50: %.2f ms%n", percentile(latencies, 0.50));
+            System.out.printf("latency p90: %.2f ms%n", percentile(latencies, 0.90));
+            System.out.printf("latency p99: %.2f ms%n", percentile(latencies, 0.99));
+            System.out.printf("latency max: %.2f ms%n", latencies[latencies.length - 1] / 1e6);
+        }
+        System.out.printf("allocation:  %.1f MB/s, %.1f KB/request (server threads)%n",
+                serverAllocated / seconds / (1024 * 1024),
+                latencies.length > 0 ? serverAllocated / 1024.0 / latencies.length : 0.0);
+    }
+
+    private static double percentile(long[] sorted, double p)
+    {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+
+    /**
+     * Total bytes allocated by live threads; threads which have exited aren't counted
+     */
+    private static long getAllocatedBytes(com.sun.management.ThreadMXBean threads)
+    {
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+        {
+            if (allocated > 0) total += allocated;
+        }
+        return total;
+    }
+
+    private Request createRequest() throws Exception
+    {
+        switch (target)
+        {
+            case "xmldsig":
+                Path file = Paths.get(xmldsigFile);
+                byte[] body = multipartBody(file.getFileName().toString(), Files.readAllBytes(file));
+                URL verifyUrl = new URL("http://127.0.0.1:" + port + "/api/v1/verifyXMLDSig");
+                return () -> post(verifyUrl, body);
+            case "link":
+            default:
+                String link = BenchLinks.createLink(contract, new int[] { 0, 1 }, 1);
+                URL linkUrl = new URL("http://127.0.0.1:" + port + "/" + BenchLinks.getPath(link));
+                return () -> get(linkUrl);
+        }
+    }
+
+    private static int get(URL url) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try
+        {
+            int status = connection.getResponseCode();
+            drain(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+            return status;
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
+    private static int post(URL url, byte[] body) throws IOException
+    {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try
+        {
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + BOUNDARY);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = connection.getOutputStream())
+            {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            drain(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+            //a file which fails verification is still a completed request
+            return status == 202 || status == 400 ? 200 : status;
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException
+    {
+        if (in == null) return;
+        byte[] buffer = new byte[8192];
+        try (InputStream stream = in)
+        {
+            while (stream.read(buffer) != -1) { }
+        }
+    }
+
+    private static byte[] multipartBody(String fileName, byte[] content) throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        String header = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\"\r\n"
+                + "Content-Type: text/xml\r\n\r\n";
+        body.write(header.getBytes(StandardCharsets.UTF_8));
+        body.write(content);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    private interface Request
+    {
+        int send() throws IOException;
+    }
+
+    private static class Result
+    {
+        final long[] latencies;
+        final long clientAllocated;
+
+        Result(long[] latencies, long clientAllocated)
+        {
+            this.latencies = latencies;
+            this.clientAllocated = clientAllocated;
+        }
+    }
+}
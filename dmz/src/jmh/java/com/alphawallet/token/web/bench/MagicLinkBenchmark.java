@@ -0,0 +1,53 @@
+package com.alphawallet.token.web.bench;
+
+import com.alphawallet.token.entity.MagicLinkData;
+import com.alphawallet.token.tools.ParseMagicLink;
+import com.alphawallet.token.web.Service.CryptoFunctions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding a magic link, and recovering the signer as the link page does
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MagicLinkBenchmark
+{
+    private ParseMagicLink parser;
+    private String link;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        parser = new ParseMagicLink(new CryptoFunctions(), null);
+        link = BenchLinks.createLink(BenchLinks.DEFAULT_CONTRACT, new int[] { 0, 1 }, 1);
+    }
+
+    @Benchmark
+    public MagicLinkData parse() throws Exception
+    {
+        return parser.parseUniversalLink(link);
+    }
+
+    @Benchmark
+    public String parseAndRecoverOwner() throws Exception
+    {
+        MagicLinkData data = parser.parseUniversalLink(link);
+        return parser.getOwnerKey(data);
+    }
+}
@@ -0,0 +1,154 @@
+package com.alphawallet.token.web.bench;
+
+import com.github.cliftonlabs.json_simple.JsonArray;
+import com.github.cliftonlabs.json_simple.JsonObject;
+import com.github.cliftonlabs.json_simple.Jsoner;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.datatypes.DynamicArray;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal JSON-RPC node serving canned responses, so the link rendering path can be measured without a real node.
+ *
+ * eth_call is answered by function selector: name() and symbol() return fixed strings, balanceOf(address)
+ * returns an array of token ids 1..n, anything else returns a zero word. Batches are supported.
+ * An optional delay simulates node latency.
+ */
+public class StubRpcNode
+{
+    private static final String NAME = "0x06fdde03";
+    private static final String SYMBOL = "0x95d89b41";
+    private static final String BALANCE_OF = "0x70a08231";
+    private static final String ZERO_WORD = "0x0000000000000000000000000000000000000000000000000000000000000000";
+
+    private final HttpServer server;
+    private final long delayMillis;
+    private final String nameResult;
+    private final String symbolResult;
+    private final String balanceResult;
+
+    /**
+     * @param port port to listen on, or 0 for any free port
+     * @param tokenCount number of token ids returned by balanceOf
+     * @param delayMillis time to wait before answering each HTTP request
+     */
+    public StubRpcNode(int port, int tokenCount, long delayMillis) throws IOException
+    {
+        this.delayMillis = delayMillis;
+        nameResult = encode(new Utf8String("Stub Token"));
+        symbolResult = encode(new Utf8String("STUB"));
+        List<Uint256> tokenIds = new ArrayList<>();
+        for (int i = 1; i <= tokenCount; i++) tokenIds.add(new Uint256(BigInteger.valueOf(i)));
+        balanceResult = encode(new DynamicArray<>(Uint256.class, tokenIds));
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    public void start()
+    {
+        server.start();
+    }
+
+    public void stop()
+    {
+        server.stop(0);
+    }
+
+    public String getUrl()
+    {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        String response;
+        try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))
+        {
+            Object request = Jsoner.deserialize(reader);
+            if (request instanceof JsonArray)
+            {
+                JsonArray responses = new JsonArray();
+                for (Object call : (JsonArray) request) responses.add(respond((JsonObject) call));
+                response = responses.toJson();
+            }
+            else
+            {
+                response = respond((JsonObject) request).toJson();
+            }
+
+            if (delayMillis > 0) TimeUnit.MILLISECONDS.sleep(delayMillis);
+        }
+        catch (Exception e)
+        {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(body);
+        }
+    }
+
+    private JsonObject respond(JsonObject call)
+    {
+        JsonObject response = new JsonObject();
+        response.put("jsonrpc", "2.0");
+        response.put("id", call.get("id"));
+        response.put("result", getResult((String) call.get("method"),
+                (JsonArray) call.getOrDefault("params", new JsonArray())));
+        return response;
+    }
+
+    private Object getResult(String method, JsonArray params)
+    {
+        switch (method)
+        {
+            case "eth_call":
+                String data = (String) ((JsonObject) params.get(0)).getOrDefault("data", "");
+                if (data.startsWith(NAME)) return nameResult;
+                else if (data.startsWith(SYMBOL)) return symbolResult;
+                else if (data.startsWith(BALANCE_OF)) return balanceResult;
+                else return ZERO_WORD;
+            case "eth_blockNumber":
+                return "0x100";
+            case "eth_getLogs":
+                return new JsonArray();
+            case "net_version":
+                return "1";
+            case "web3_clientVersion":
+                return "StubRpcNode";
+            default:
+                return null;
+        }
+    }
+
+    private static String encode(Type value)
+    {
+        return "0x" + FunctionEncoder.encodeConstructor(Collections.singletonList(value));
+    }
+}
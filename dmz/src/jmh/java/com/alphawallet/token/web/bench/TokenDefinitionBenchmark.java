@@ -0,0 +1,70 @@
+package com.alphawallet.token.web.bench;
+
+import com.alphawallet.token.entity.ParseResult;
+import com.alphawallet.token.tools.TokenDefinition;
+import com.alphawallet.token.tools.TokenDefinitionStreamParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a TokenScript file with the DOM parser and the stream parser.
+ * Files are read from bench.ts.dir (default ../lib/src/test/ts).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenDefinitionBenchmark implements ParseResult
+{
+    @Param({ "EntryToken.tsml", "fifa.tsml", "DAI.tsml" })
+    public String script;
+
+    private byte[] content;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        content = Files.readAllBytes(Paths.get(System.getProperty("bench.ts.dir", "../lib/src/test/ts"), script));
+    }
+
+    @Benchmark
+    public TokenDefinition domParser() throws Exception
+    {
+        return new TokenDefinition(new ByteArrayInputStream(content), Locale.ENGLISH, this);
+    }
+
+    @Benchmark
+    public TokenDefinition streamParser() throws Exception
+    {
+        return TokenDefinitionStreamParser.parse(new ByteArrayInputStream(content), Locale.ENGLISH, this);
+    }
+
+    @Benchmark
+    public TokenDefinition streamParserWithoutViews() throws Exception
+    {
+        return TokenDefinitionStreamParser.parse(new ByteArrayInputStream(content), Locale.ENGLISH, this, false);
+    }
+
+    @Override
+    public void parseMessage(ParseResultId parseResult)
+    {
+    }
+}
@@ -0,0 +1,59 @@
+package com.alphawallet.token.web.bench;
+
+import com.alphawallet.token.entity.XMLDsigVerificationResult;
+import com.alphawallet.token.tools.XMLDSigVerifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signature and certificate chain verification of a TokenScript file, as done by /api/v1/verifyXMLDSig;
+ * verify measures a repeat of a cached file, verifyUncached a full verification.
+ * Files are read from bench.ts.dir (default ../lib/src/test/ts).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XMLDSigBenchmark
+{
+    @Param({ "EntryToken-valid-RSA.tsml", "fifa.tsml", "EntryToken.tsml" })
+    public String script;
+
+    private byte[] content;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        content = Files.readAllBytes(Paths.get(System.getProperty("bench.ts.dir", "../lib/src/test/ts"), script));
+    }
+
+    @Benchmark
+    public XMLDsigVerificationResult verify()
+    {
+        return new XMLDSigVerifier().VerifyXMLDSig(new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public XMLDsigVerificationResult verifyUncached()
+    {
+        XMLDSigVerifier.clearCache();
+        return new XMLDSigVerifier().VerifyXMLDSig(new ByteArrayInputStream(content));
+    }
+}
@@ -6,8 +6,8 @@ import com.github.cliftonlabs.json_simple.JsonObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -17,17 +17,21 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.servlet.NoHandlerFoundException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.springframework.web.servlet.view.RedirectView;
 import org.xml.sax.SAXException;
 
-import java.io.File;
+import java.io.BufferedWriter;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
@@ -38,17 +42,20 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.servlet.http.HttpServletRequest;
 
 import com.alphawallet.token.entity.AttributeInterface;
 import com.alphawallet.token.entity.ContractAddress;
-import com.alphawallet.token.entity.ContractInfo;
 import com.alphawallet.token.entity.MagicLinkData;
 import com.alphawallet.token.entity.MagicLinkInfo;
 import com.alphawallet.token.entity.NonFungibleToken;
@@ -59,9 +66,15 @@ import com.alphawallet.token.entity.TransactionResult;
 import com.alphawallet.token.tools.ParseMagicLink;
 import com.alphawallet.token.tools.TokenDefinition;
 import com.alphawallet.token.tools.XMLDSigVerifier;
+import com.alphawallet.token.web.Ethereum.TokenMetadataLoader;
 import com.alphawallet.token.web.Ethereum.TokenscriptFunction;
 import com.alphawallet.token.web.Ethereum.TransactionHandler;
+import com.alphawallet.token.web.Service.AttributeResultCache;
 import com.alphawallet.token.web.Service.CryptoFunctions;
+import com.alphawallet.token.web.Service.EthRPCClients;
+import com.alphawallet.token.web.Service.EthRPCNodes;
+import com.alphawallet.token.web.Service.PageTemplate;
+import com.alphawallet.token.web.Service.TokenDefinitionCache;
 import static com.alphawallet.token.tools.Convert.getEthString;
 import static com.alphawallet.token.tools.ParseMagicLink.normal;
 import static com.alphawallet.token.web.Ethereum.TokenscriptFunction.ZERO_ADDRESS;
@@ -72,8 +85,8 @@ import static com.alphawallet.token.web.Ethereum.TokenscriptFunction.ZERO_ADDRES
 public class AppSiteController implements AttributeInterface
 {
     private static CryptoFunctions cryptoFunctions = new CryptoFunctions();
-    private static Map<Integer, Map<String, File>> addresses;
-    private static Map<Integer, Map<String, Map<BigInteger, CachedResult>>> transactionResults = new ConcurrentHashMap<>();  //optimisation results
+    private static final TokenDefinitionCache definitionCache = new TokenDefinitionCache();
+    private static final AttributeResultCache attributeResults = new AttributeResultCache(10000, 60);
     private static final String appleAssociationConfig = "{\n" +
             "  \"applinks\": {\n" +
             "    \"apps\": [],\n" +
@@ -87,6 +100,15 @@ public class AppSiteController implements AttributeInterface
             "}";
     private final MagicLinkData magicLinkData = new MagicLinkData();
     private final TokenscriptFunction tokenscriptFunction = new TokenscriptFunction() { };
+    private static final PageTemplate pageTemplate = PageTemplate.load("templates/tokenscriptTemplate.html");
+    private static final PageTemplate injectTemplate = PageTemplate.load("templates/token_inject.js.tokenscript");
+    private static final MediaType TEXT_HTML_UTF8 = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+    private static final int LINK_WORKER_THREADS = 32;
+    private static final int LINK_QUEUE_SIZE = 256;
+    //requests beyond the worker pool and queue are turned away rather than piling up behind a slow node
+    private static final ExecutorService linkExecutor = new ThreadPoolExecutor(LINK_WORKER_THREADS, LINK_WORKER_THREADS,
+            60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(LINK_QUEUE_SIZE));
+    private static long linkRequestTimeout = 30000;
     private static Path repoDir;
     private static String infuraKey = "da3717f25f824cc1baa32d812386d93f";
 
@@ -101,14 +123,18 @@ public class AppSiteController implements AttributeInterface
         return new RedirectView("http://alphawallet.com");
     }
 
+    /**
+     * Node calls for the link are made on the link worker pool, freeing the servlet thread.
+     * If the page isn't ready within the request deadline the request fails with 503.
+     */
     @GetMapping(value = "/{UniversalLink}")
-    public @ResponseBody String handleUniversalLink(
+    public DeferredResult<ResponseEntity<StreamingResponseBody>> handleUniversalLink(
             @PathVariable("UniversalLink") String universalLink,
             Model model,
             HttpServletRequest request
     )
-            throws IOException, SAXException, NoHandlerFoundException
     {
+        DeferredResult<ResponseEntity<StreamingResponseBody>> result = new DeferredResult<>(linkRequestTimeout);
         String domain = request.getServerName();
         ParseMagicLink parser = new ParseMagicLink(cryptoFunctions, null);
         MagicLinkData data;
@@ -116,33 +142,72 @@ public class AppSiteController implements AttributeInterface
 
         try
         {
-            data = parser.parseUniversalLink(universalLink);
-            data.chainId = MagicLinkInfo.getNetworkIdFromDomain(domain);
+            int chainId = MagicLinkInfo.getNetworkIdFromDomain(domain);
+            //the path only holds the link data; restore the prefix of the domain it was served from
+            data = parser.parseUniversalLink(MagicLinkInfo.generatePrefix(chainId) + universalLink);
+            data.chainId = chainId;
             model.addAttribute("domain", MagicLinkInfo.getMagicLinkDomainFromNetworkId(data.chainId));
         }
         catch (SalesOrderMalformed e)
         {
-            return "error: " + e;
+            result.setResult(htmlResponse(HttpStatus.OK, out -> out.write("error: " + e)));
+            return result;
         }
         parser.getOwnerKey(data);
-        return handleTokenLink(data, universalLink);
+
+        try
+        {
+            Future<?> task = linkExecutor.submit(() -> {
+                try
+                {
+                    result.setResult(htmlResponse(HttpStatus.OK, handleTokenLink(data, universalLink)));
+                }
+                catch (Exception e)
+                {
+                    result.setErrorResult(e);
+                }
+            });
+
+            result.onTimeout(() -> {
+                task.cancel(true);
+                result.setResult(htmlResponse(HttpStatus.SERVICE_UNAVAILABLE, out -> out.write("error: timed out reading token from node")));
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            result.setResult(htmlResponse(HttpStatus.SERVICE_UNAVAILABLE, out -> out.write("error: server busy")));
+        }
+
+        return result;
+    }
+
+    private ResponseEntity<StreamingResponseBody> htmlResponse(HttpStatus status, PageTemplate.Fragment page)
+    {
+        StreamingResponseBody body = outputStream -> {
+            Writer out = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            page.writeTo(out);
+            out.flush();
+        };
+
+        return ResponseEntity.status(status).contentType(TEXT_HTML_UTF8).body(body);
     }
 
-    private String handleTokenLink(MagicLinkData data, String universalLink
-    ) throws IOException, SAXException, NoHandlerFoundException
+    private PageTemplate.Fragment handleTokenLink(MagicLinkData data, String universalLink)
     {
-        TokenDefinition definition = getTokenDefinition(data.chainId, data.contractAddress);
+        TokenDefinition definition = definitionCache.get(data.chainId, data.contractAddress);
 
         if (definition == null)
         {
             return renderTokenWithoutTokenScript(data, universalLink);
         }
+        TokenMetadataLoader metadata = new TokenMetadataLoader(data.chainId, data.contractAddress);
+        metadata.prefetch(data.contractType == normal ? data.ownerAddress : null);
         String available = "available";
         try
         {
             if(data.contractType == normal)
             {
-                checkTokensOwnedByMagicLinkCreator(data, definition);
+                checkTokensOwnedByMagicLinkCreator(data, definition, metadata);
             }
             else
             {
@@ -165,10 +230,8 @@ public class AppSiteController implements AttributeInterface
         System.out.println(firstTokenId.toString(16));
         ContractAddress cAddr = new ContractAddress(data.chainId, data.contractAddress);
         StringBuilder tokenData = new StringBuilder();
-        TransactionHandler txHandler = new TransactionHandler(data.chainId);
-
-        String tokenName = txHandler.getNameOnly(data.contractAddress);
-        String symbol = txHandler.getSymbolOnly(data.contractAddress);
+        String tokenName = metadata.getName();
+        String symbol = metadata.getSymbol();
 
         try
         {
@@ -181,9 +244,9 @@ public class AppSiteController implements AttributeInterface
             e.printStackTrace();
         }
 
+        //attributes resolve on io threads; this thread only collects them
         tokenscriptFunction.resolveAttributes(ZERO_ADDRESS, firstTokenId, this, cAddr, definition)
-                .forEach(attr -> TokenScriptResult.addPair(tokenData, attr.id, attr.text))
-                .isDisposed();
+                .blockingForEach(attr -> TokenScriptResult.addPair(tokenData, attr.id, attr.text));
 
         if (Calendar.getInstance().getTime().after(new Date(data.expiry*1000)))
         {
@@ -193,15 +256,17 @@ public class AppSiteController implements AttributeInterface
         String view = definition.getCardData("view");
         String style = definition.getCardData("style");
 
-        String scriptData = loadFile("templates/token_inject.js.tokenscript");
-        String tokenView = String.format(scriptData, tokenData.toString(), view);
+        Map<String, Object> injectValues = new HashMap<>();
+        injectValues.put("tokenData", tokenData);
+        injectValues.put("view", view);
 
-        return formWebPage(txHandler, data, universalLink, available, style, tokenView);
+        return formWebPage(metadata, data, universalLink, available, style, injectTemplate.bind(injectValues));
     }
 
-    private String renderTokenWithoutTokenScript(MagicLinkData data, String universalLink)
+    private PageTemplate.Fragment renderTokenWithoutTokenScript(MagicLinkData data, String universalLink)
     {
-        TransactionHandler txHandler = new TransactionHandler(data.chainId);
+        TokenMetadataLoader metadata = new TokenMetadataLoader(data.chainId, data.contractAddress);
+        metadata.prefetch(data.contractType == normal ? data.ownerAddress : null);
         String available = "available";
 
         if (Calendar.getInstance().getTime().after(new Date(data.expiry*1000)))
@@ -212,7 +277,7 @@ public class AppSiteController implements AttributeInterface
         {
             if(data.contractType == normal)
             {
-                checkTokensOwnedByMagicLinkCreator(data);
+                checkTokensOwnedByMagicLinkCreator(data, metadata);
             }
             else
             {
@@ -225,28 +290,26 @@ public class AppSiteController implements AttributeInterface
             available = "unavailable";
         }
 
-        return formWebPage(txHandler, data, universalLink, available, "", "");
+        return formWebPage(metadata, data, universalLink, available, "", "");
     }
 
-    private String formWebPage(
-            TransactionHandler txHandler,
+    private PageTemplate.Fragment formWebPage(
+            TokenMetadataLoader metadata,
             MagicLinkData data,
             String universalLink,
             String available,
             String style,
-            String tokenView
+            Object tokenView
     )
     {
-        String tokenName = txHandler.getName(data.contractAddress);
-        String symbol = txHandler.getSymbolOnly(data.contractAddress);
+        String tokenName = metadata.getName();
+        String symbol = metadata.getSymbol();
         String nameWithSymbol = tokenName + "(" + symbol + ")";
 
         String price = getEthString(data.price) + " " + MagicLinkInfo.getNetworkNameById(data.chainId);
 
         String title = data.ticketCount + " Tokens " + available;
 
-        String initHTML = loadFile("templates/tokenscriptTemplate.html");
-
         String expiry = new java.util.Date(data.expiry * 1000).toString();
 
         String availableUntil = "<span title=\"Unix Time is " + data.expiry + "\">" + expiry + "</span>";
@@ -256,46 +319,24 @@ public class AppSiteController implements AttributeInterface
         String etherscanAccountLink = MagicLinkInfo.getEtherscanURLbyNetwork(data.chainId) + "address/" + data.ownerAddress;
         String etherscanTokenLink = MagicLinkInfo.getEtherscanURLbyNetwork(data.chainId) + "address/" + data.contractAddress;
 
-        return String.format(
-                initHTML,
-                title,
-                style,
-                String.valueOf(data.ticketCount),
-                nameWithSymbol,
-                "",
-                price,
-                available,
-                data.ticketCount,
-                tokenName,
-                tokenView,
-                availableUntil,
-                action,
-                originalLink,
-                etherscanAccountLink,
-                data.ownerAddress,
-                etherscanTokenLink,
-                data.contractAddress
-        );
-    }
-
-    private TokenDefinition getTokenDefinition(int chainId, String contractAddress) throws IOException, SAXException, NoHandlerFoundException
-    {
-        File xml = null;
-        TokenDefinition definition = null;
-        if (addresses.containsKey(chainId) && addresses.get(chainId).containsKey(contractAddress))
-        {
-            xml = addresses.get(chainId).get(contractAddress);
-            if (xml == null) {
-                /* this is impossible to happen, because at least 1 xml should present or main() bails out */
-                throw new NoHandlerFoundException("GET", "/" + contractAddress, new HttpHeaders());
-            }
-            try(FileInputStream in = new FileInputStream(xml)) {
-                // TODO: give more detail in the error
-                // TODO: reflect on this: should the page bail out for contracts with completely no matching XML?
-                definition = new TokenDefinition(in, new Locale("en"), null);
-            }
-        }
-        return definition;
+        Map<String, Object> values = new HashMap<>();
+        values.put("title", title);
+        values.put("style", style);
+        values.put("ticketCount", data.ticketCount);
+        values.put("nameWithSymbol", nameWithSymbol);
+        values.put("price", price);
+        values.put("available", available);
+        values.put("tokenName", tokenName);
+        values.put("tokenView", tokenView);
+        values.put("availableUntil", availableUntil);
+        values.put("action", action);
+        values.put("originalLink", originalLink);
+        values.put("ownerLink", etherscanAccountLink);
+        values.put("ownerAddress", data.ownerAddress);
+        values.put("contractLink", etherscanTokenLink);
+        values.put("contractAddress", data.contractAddress);
+
+        return pageTemplate.bind(values);
     }
 
     private void checkTokensClaimableSpawnable(MagicLinkData data) throws Exception {
@@ -328,10 +369,9 @@ public class AppSiteController implements AttributeInterface
      * @param data
      * @throws Exception
      */
-    private void checkTokensOwnedByMagicLinkCreator(MagicLinkData data, TokenDefinition definition) throws Exception
+    private void checkTokensOwnedByMagicLinkCreator(MagicLinkData data, TokenDefinition definition, TokenMetadataLoader metadata) throws Exception
     {
-        TransactionHandler txHandler = new TransactionHandler(data.chainId);
-        List<BigInteger> balanceArray = txHandler.getBalanceArray(data.ownerAddress, data.contractAddress);
+        List<BigInteger> balanceArray = metadata.getBalanceArray(data.ownerAddress);
         data.tokenIds = new ArrayList<>();
 
         List<NonFungibleToken> selection = Arrays.stream(data.indices)
@@ -350,10 +390,9 @@ public class AppSiteController implements AttributeInterface
     }
 
     //For if there is no TokenScript
-    private void checkTokensOwnedByMagicLinkCreator(MagicLinkData data) throws Exception
+    private void checkTokensOwnedByMagicLinkCreator(MagicLinkData data, TokenMetadataLoader metadata) throws Exception
     {
-        TransactionHandler txHandler = new TransactionHandler(data.chainId);
-        List<BigInteger> balanceArray = txHandler.getBalanceArray(data.ownerAddress, data.contractAddress);
+        List<BigInteger> balanceArray = metadata.getBalanceArray(data.ownerAddress);
         data.tokenIds = new ArrayList<>();
 
         List<BigInteger> selection = Arrays.stream(data.indices)
@@ -372,126 +411,103 @@ public class AppSiteController implements AttributeInterface
         repoDir = Paths.get(value);
     }
 
+    @Value("${link.request.timeout:30}")
+    public void setLinkRequestTimeout(long seconds) {
+        linkRequestTimeout = TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    @Value("${attribute.cache.ttl:60}")
+    public void setAttributeCacheTtl(long seconds) {
+        attributeResults.setDefaultTtl(seconds);
+    }
+
+    /**
+     * Per attribute TTL, as a list of name=seconds, eg attribute.cache.ttl.attributes=balance=15,locality=3600
+     */
+    @Value("${attribute.cache.ttl.attributes:}")
+    public void setAttributeTtls(String value) {
+        for (String entry : value.split(",")) {
+            String[] pair = entry.split("=");
+            if (pair.length == 2) attributeResults.setAttributeTtl(pair[0].trim(), Long.parseLong(pair[1].trim()));
+        }
+    }
+
+    @Value("${rpc.node.override:}")
+    public void setNodeOverride(String url) {
+        EthRPCNodes.setNodeOverride(url);
+    }
+
+    @Value("${rpc.timeout.connect:10}")
+    public void setRpcConnectTimeout(long seconds) {
+        EthRPCClients.setTimeouts(seconds, EthRPCClients.getReadTimeout());
+    }
+
+    @Value("${rpc.timeout.read:20}")
+    public void setRpcReadTimeout(long seconds) {
+        EthRPCClients.setTimeouts(EthRPCClients.getConnectTimeout(), seconds);
+    }
+
     public static void main(String[] args) throws IOException { // TODO: should run System.exit() if IOException
-        addresses = new HashMap<Integer, Map<String, File>>();
         SpringApplication.run(AppSiteController.class, args);
         try (Stream<Path> dirStream = Files.walk(repoDir)) {
-            dirStream.filter(path -> path.toString().toLowerCase().endsWith(".tsml"))
+            dirStream.filter(TokenDefinitionCache::isScript)
                     .filter(Files::isRegularFile)
                     .filter(Files::isReadable)
                     .forEach(AppSiteController::addContractAddresses);
-
-            assert addresses != null : "Can't read all XML files";
         } catch (NoSuchFileException e) {
             System.err.println("repository.dir property is defined with a non-existing dir: " + repoDir.toString());
             System.err.println("Please edit your local copy of application.properties, or");
             System.err.println("try run with --repository.dir=/dir/to/repo");
             System.exit(255);
-        } catch (AssertionError e) {
+        } catch (RuntimeException e) {
             System.err.println("Can't read all the XML files in repository.dir: " + repoDir.toString());
             System.exit(254);
         }
 
-        if (addresses.size() == 0) { // if no XML file is found
+        if (definitionCache.size() == 0) { // if no XML file is found
             // the server still can run and wait for someone to dump an XML, but let's assume it's a mistake
             System.err.println("No valid contract XML found in " + repoDir.toString() + ", cowardly not continuing.");
             System.exit(253);
         } else {
             // the list should be reprinted whenever a new file is added.
             System.out.println("Serving an XML repo with the following contracts:");
-            addresses.forEach((chainId, addrMap) -> {
+            definitionCache.forEachChain((chainId, addrMap) -> {
                 System.out.println("Network ID: " + MagicLinkInfo.getNetworkNameById(chainId) + "(" + chainId + ")");
                 addrMap.forEach((addr, xml) -> {
-                    System.out.println(addr + ":" + xml.getPath());
+                    System.out.println(addr + ":" + xml.toString());
                 });
                 System.out.println(" ------------");
             });
         }
 
+        //pick up scripts added or edited while the server is running
+        definitionCache.watch(repoDir);
+        attributeResults.startBlockWatcher();
+
         loadInfuraKey();
 	}
 
     private static void addContractAddresses(Path path) {
-        try (InputStream input = Files.newInputStream(path)) {
-            TokenDefinition token = new TokenDefinition(input, new Locale("en"), null);
-            ContractInfo holdingContracts = token.contracts.get(token.holdingToken);
-            if (holdingContracts != null)
-                holdingContracts.addresses.keySet().stream().forEach(network -> addContractsToNetwork(network, networkAddresses(holdingContracts.addresses.get(network), path.toString())));
+        try {
+            definitionCache.load(path);
         } catch (IOException | SAXException e) {
             throw new RuntimeException(e); // make it safe to use in stream
         }
     }
 
-    private static void addContractsToNetwork(Integer network, Map<String, File> newTokenDescriptionAddresses)
-    {
-        Map<String, File> existingDefinitions = addresses.get(network);
-        if (existingDefinitions == null) existingDefinitions = new HashMap<>();
-
-        addresses.put(network, Stream.concat(existingDefinitions.entrySet().stream(), newTokenDescriptionAddresses.entrySet().stream())
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (value1, value2) -> new File(value2.getAbsolutePath())
-                         )
-                ));
-    }
-
-    private static Map<String, File> networkAddresses(List<String> strings, String path)
-    {
-        Map<String, File> addrMap = new HashMap<>();
-        strings.forEach(address -> addrMap.put(address, new File(path)));
-        return addrMap;
-    }
-
-    private String loadFile(String fileName) {
-        byte[] buffer = new byte[0];
-        try {
-            InputStream in = getClass()
-                    .getClassLoader().getResourceAsStream(fileName);
-            buffer = new byte[in.available()];
-            int len = in.read(buffer);
-            if (len < 1) {
-                throw new IOException("Nothing is read.");
-            }
-        } catch (Exception ex) {
-            ex.printStackTrace();
-        }
-        return new String(buffer);
-    }
-
-    //These functions are for caching and restoring results for optimsation.
-    //TODO: rather than a simple time invalidation method, periodically scan transactions for token contracts which have entries in this mapping
-    //      if any of those contracts has had a transaction written to it, then refresh all the cached entries
-    //      once events are available we can selectively update entries.
+    //Attribute results are cached for optimisation; see AttributeResultCache for the freshness policy
 
     @Override
     public TransactionResult getFunctionResult(ContractAddress contract, Attribute attr, BigInteger tokenId)
     {
-        String addressFunctionKey = contract.address + "-" + attr.name;
         TransactionResult tr = new TransactionResult(contract.chainId, contract.address, tokenId, attr);
-        //existing entry in map?
-        if (transactionResults.containsKey(contract.chainId))
-        {
-            Map<BigInteger, CachedResult> contractResult = transactionResults.get(contract.chainId).get(addressFunctionKey);
-            if (contractResult != null && contractResult.containsKey(tokenId))
-            {
-                tr.resultTime = contractResult.get(tokenId).resultTime;
-                tr.result = contractResult.get(tokenId).result;
-            }
-        }
-
-        return tr;
+        return attributeResults.get(contract, attr.name, tokenId, tr);
     }
 
     @Override
     public TransactionResult storeAuxData(String wAddress, TransactionResult tResult)
     {
-        String addressFunctionKey = tResult.contractAddress + "-" + tResult.attrId;
-        if (!transactionResults.containsKey(tResult.contractChainId)) transactionResults.put(tResult.contractChainId, new HashMap<>());
-        if (!transactionResults.get(tResult.contractChainId).containsKey(addressFunctionKey)) transactionResults.get(tResult.contractChainId).put(addressFunctionKey, new HashMap<>());
-        Map<BigInteger, CachedResult> tokenResultMap = transactionResults.get(tResult.contractChainId).get(addressFunctionKey);
-        tokenResultMap.put(tResult.tokenId, new CachedResult(tResult.resultTime, tResult.result));
-        transactionResults.get(tResult.contractChainId).put(addressFunctionKey, tokenResultMap);
+        attributeResults.put(tResult);
 
         return tResult;
     }
@@ -509,19 +525,23 @@ public class AppSiteController implements AttributeInterface
         return ZERO_ADDRESS;
     }
 
-    /**
-     * Can ditch this class once we have the transaction optimisation working as detailed in the "TO-DO" above
-     */
-    private class CachedResult
+    @GetMapping(value = "/api/v1/attributeCache", produces = "application/json")
+    @ResponseBody
+    public String getAttributeCacheMetrics()
     {
-        long resultTime;
-        String result;
+        return attributeResults.getMetrics().toJson();
+    }
 
-        CachedResult(long time, String r)
-        {
-            resultTime = time;
-            result = r;
-        }
+    /* usage:
+
+    $ curl localhost:8080/api/v1/tokenDefinitionCache
+    {"entries":12,"files":9,"hits":340,"misses":21,"parses":9,"parseFailures":0,"totalParseTimeMs":412,"lastParseTimeMs":38}
+     */
+    @GetMapping(value = "/api/v1/tokenDefinitionCache", produces = "application/json")
+    @ResponseBody
+    public String getTokenDefinitionCacheMetrics()
+    {
+        return definitionCache.getMetrics().toJson();
     }
 
     /* usage: (Weiwu documented after Sangalli's implementation)
@@ -555,7 +575,7 @@ public class AppSiteController implements AttributeInterface
     public ResponseEntity<String> validateSSLCertificate(@RequestParam("file") MultipartFile file) throws IOException {
         HttpStatus status = HttpStatus.ACCEPTED;
         JsonObject result = new JsonObject();
-        XMLDsigVerificationResult XMLDsigVerificationResult = new XMLDSigVerifier().VerifyXMLDSig(file.getInputStream());
+        XMLDsigVerificationResult XMLDsigVerificationResult = new XMLDSigVerifier().VerifyXMLDSig(file.getBytes());
         if (XMLDsigVerificationResult.isValid)
         {
             result.put("result", "pass");
@@ -0,0 +1,218 @@
+package com.alphawallet.token.web.Ethereum;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.abi.FunctionEncoder;
+import org.web3j.abi.FunctionReturnDecoder;
+import org.web3j.abi.datatypes.Function;
+import org.web3j.abi.datatypes.Type;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.BatchRequest;
+import org.web3j.protocol.core.DefaultBlockParameterName;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.response.EthCall;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.alphawallet.token.web.Service.EthRPCClients;
+
+import static org.web3j.protocol.core.methods.request.Transaction.createEthCallTransaction;
+
+/**
+ * Token name, symbol and balance for rendering one magic link.
+ *
+ * The values a page needs are fetched together in one JSON-RPC batch and each is fetched at most once per request.
+ * Name and symbol don't change, so they are also kept for a short time across requests.
+ */
+public class TokenMetadataLoader
+{
+    private static final Logger log = LoggerFactory.getLogger(TokenMetadataLoader.class);
+    private static final long METADATA_TTL = TimeUnit.MINUTES.toMillis(10);
+    private static final int METADATA_CACHE_SIZE = 512;
+
+    private static final Map<String, Metadata> metadataCache = new LinkedHashMap<String, Metadata>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Metadata> eldest)
+        {
+            return size() > METADATA_CACHE_SIZE;
+        }
+    };
+
+    private final int chainId;
+    private final String contractAddress;
+    private final TransactionHandler txHandler;
+    private Metadata metadata;
+    private String fetchedName;   //values returned by the prefetch batch
+    private String fetchedSymbol;
+    private final Map<String, List<BigInteger>> balances = new HashMap<>();
+
+    public TokenMetadataLoader(int chainId, String contractAddress)
+    {
+        this.chainId = chainId;
+        this.contractAddress = contractAddress;
+        this.txHandler = new TransactionHandler(chainId);
+        this.metadata = getCachedMetadata(chainId, contractAddress);
+    }
+
+    /**
+     * Fetch everything the page will need in one round trip
+     * @param ownerAddress owner to fetch the balance of, or null if the balance isn't needed
+     */
+    public void prefetch(String ownerAddress)
+    {
+        Web3j web3j = EthRPCClients.getWeb3j(chainId);
+        BatchRequest batch = web3j.newBatch();
+        Map<Long, Function> requestMap = new HashMap<>();
+
+        if (metadata == null)
+        {
+            addCall(web3j, batch, requestMap, TransactionHandler.stringParam("name"), null);
+            addCall(web3j, batch, requestMap, TransactionHandler.stringParam("symbol"), null);
+        }
+        if (ownerAddress != null && !balances.containsKey(ownerAddress))
+        {
+            addCall(web3j, batch, requestMap, TransactionHandler.balanceOfArray(ownerAddress), ownerAddress);
+        }
+
+        if (requestMap.isEmpty()) return;
+
+        try
+        {
+            //match on id; nodes are not obliged to return batch results in request order
+            for (Response<?> response : batch.send().getResponses())
+            {
+                Function function = requestMap.get(response.getId());
+                if (function == null || response.hasError()) continue;
+                String value = ((EthCall) response).getValue();
+                if (value == null || value.length() <= 2) continue;
+                List<Type> values = FunctionReturnDecoder.decode(value, function.getOutputParameters());
+                if (values.isEmpty()) continue;
+
+                switch (function.getName())
+                {
+                    case "name":
+                        fetchedName = (String) values.get(0).getValue();
+                        break;
+                    case "symbol":
+                        fetchedSymbol = (String) values.get(0).getValue();
+                        break;
+                    case "balanceOf":
+                        balances.put(ownerAddress, toBigIntegers(values.get(0)));
+                        break;
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            //values not fetched here are fetched individually when requested
+            log.warn("Metadata batch failed for {} on chain {}: {}", contractAddress, chainId, e.getMessage());
+        }
+
+        if (fetchedName != null && fetchedSymbol != null) setMetadata(fetchedName, fetchedSymbol);
+    }
+
+    public String getName()
+    {
+        if (metadata == null) loadMetadata();
+        return metadata.name;
+    }
+
+    public String getSymbol()
+    {
+        if (metadata == null) loadMetadata();
+        return metadata.symbol;
+    }
+
+    public List<BigInteger> getBalanceArray(String ownerAddress) throws Exception
+    {
+        List<BigInteger> balance = balances.get(ownerAddress);
+        if (balance == null)
+        {
+            balance = txHandler.getBalanceArray(ownerAddress, contractAddress);
+            balances.put(ownerAddress, balance);
+        }
+
+        return balance;
+    }
+
+    private void loadMetadata()
+    {
+        //only the values the batch didn't return are fetched
+        String name = fetchedName != null ? fetchedName : txHandler.getNameOnly(contractAddress);
+        String symbol = fetchedSymbol != null ? fetchedSymbol : txHandler.getSymbolOnly(contractAddress);
+        if (name != null && name.length() > 0)
+        {
+            setMetadata(name, symbol);
+        }
+        else
+        {
+            //don't keep a failed lookup beyond this request
+            metadata = new Metadata(name, symbol, 0);
+        }
+    }
+
+    private void setMetadata(String name, String symbol)
+    {
+        metadata = new Metadata(name, symbol, System.currentTimeMillis() + METADATA_TTL);
+        synchronized (metadataCache)
+        {
+            metadataCache.put(getKey(chainId, contractAddress), metadata);
+        }
+    }
+
+    private void addCall(Web3j web3j, BatchRequest batch, Map<Long, Function> requestMap, Function function, String from)
+    {
+        Request<?, EthCall> request = web3j.ethCall(createEthCallTransaction(from, contractAddress, FunctionEncoder.encode(function)),
+                DefaultBlockParameterName.LATEST);
+        requestMap.put(request.getId(), function);
+        batch.add(request);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<BigInteger> toBigIntegers(Type value)
+    {
+        List<BigInteger> result = new ArrayList<>();
+        for (Uint256 val : (List<Uint256>) value.getValue())
+        {
+            result.add(val.getValue());
+        }
+        return result;
+    }
+
+    private static Metadata getCachedMetadata(int chainId, String contractAddress)
+    {
+        synchronized (metadataCache)
+        {
+            Metadata cached = metadataCache.get(getKey(chainId, contractAddress));
+            return (cached != null && cached.expiry > System.currentTimeMillis()) ? cached : null;
+        }
+    }
+
+    private static String getKey(int chainId, String contractAddress)
+    {
+        return chainId + "-" + contractAddress.toLowerCase();
+    }
+
+    private static class Metadata
+    {
+        final String name;
+        final String symbol;
+        final long expiry;
+
+        Metadata(String name, String symbol, long expiry)
+        {
+            this.name = name;
+            this.symbol = symbol;
+            this.expiry = expiry;
+        }
+    }
+}
@@ -1,11 +1,11 @@
 package com.alphawallet.token.web.Ethereum;
 
 import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
 import com.alphawallet.token.entity.*;
 import com.alphawallet.token.tools.TokenDefinition;
-import com.alphawallet.token.web.Service.EthRPCNodes;
+import com.alphawallet.token.web.Service.EthRPCClients;
 
-import okhttp3.OkHttpClient;
 import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.FunctionReturnDecoder;
 import org.web3j.abi.TypeReference;
@@ -115,7 +115,6 @@ import org.web3j.abi.datatypes.generated.Uint96;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.response.EthCall;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.utils.Bytes;
 import org.web3j.utils.Numeric;
 
@@ -124,10 +123,10 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 import static org.web3j.protocol.core.methods.request.Transaction.createEthCallTransaction;
 
@@ -143,6 +142,15 @@ public abstract class TokenscriptFunction
     private final Map<String, String> refTags = new ConcurrentHashMap<>();
 
     public Function generateTransactionFunction(String walletAddr, BigInteger tokenId, TokenDefinition definition, FunctionDefinition function, AttributeInterface attrIf)
+    {
+        return generateTransactionFunction(walletAddr, tokenId, definition, function, attrIf, Collections.emptyMap());
+    }
+
+    /**
+     * @param resolved attribute values already resolved for this tokenId, used for references to other attributes
+     */
+    public Function generateTransactionFunction(String walletAddr, BigInteger tokenId, TokenDefinition definition, FunctionDefinition function,
+                                                AttributeInterface attrIf, Map<String, TokenScriptResult.Attribute> resolved)
     {
         boolean valueNotFound = false;
         //pre-parse tokenId.
@@ -152,7 +160,7 @@ public abstract class TokenscriptFunction
         List<TypeReference<?>> returnTypes = new ArrayList<TypeReference<?>>();
         for (MethodArg arg : function.parameters)
         {
-            String value = resolveReference(walletAddr, arg.element, tokenId, definition, attrIf);
+            String value = resolveReference(walletAddr, arg.element, tokenId, definition, attrIf, resolved);
             //get arg.element.value in the form of BigInteger if appropriate
             byte[] argValueBytes = null;
             BigInteger argValueBI = null;
@@ -702,24 +710,22 @@ public abstract class TokenscriptFunction
      */
     public Observable<TransactionResult> fetchResultFromEthereum(String walletAddress, ContractAddress contractAddress, Attribute attr,
                                                                  BigInteger tokenId, TokenDefinition definition, AttributeInterface attrIf, long lastTransactionTime)
+    {
+        return fetchResultFromEthereum(walletAddress, contractAddress, attr, tokenId, definition, attrIf, lastTransactionTime, Collections.emptyMap());
+    }
+
+    private Observable<TransactionResult> fetchResultFromEthereum(String walletAddress, ContractAddress contractAddress, Attribute attr,
+                                                                  BigInteger tokenId, TokenDefinition definition, AttributeInterface attrIf, long lastTransactionTime,
+                                                                  Map<String, TokenScriptResult.Attribute> resolved)
     {
         return Observable.fromCallable(() -> {
             long txUpdateTime = lastTransactionTime;
             TransactionResult transactionResult = new TransactionResult(contractAddress.chainId, contractAddress.address, tokenId, attr);
 
             // 1: create transaction call
-            org.web3j.abi.datatypes.Function transaction = generateTransactionFunction(walletAddress, tokenId, definition, attr.function, attrIf);
+            org.web3j.abi.datatypes.Function transaction = generateTransactionFunction(walletAddress, tokenId, definition, attr.function, attrIf, resolved);
             // 2: create web3 connection
-            OkHttpClient okClient = new OkHttpClient.Builder()
-                    .connectTimeout(5, TimeUnit.SECONDS)
-                    .readTimeout(5, TimeUnit.SECONDS)
-                    .writeTimeout(5, TimeUnit.SECONDS)
-                    .retryOnConnectionFailure(false)
-                    .build();
-
-            HttpService nodeService = new HttpService(EthRPCNodes.getNodeURLByNetworkId(contractAddress.chainId), okClient, false);
-
-            Web3j web3j = Web3j.build(nodeService);
+            Web3j web3j = EthRPCClients.getWeb3j(contractAddress.chainId);
 
             //now push the transaction
             String result;
@@ -808,24 +814,35 @@ public abstract class TokenscriptFunction
 
     public String resolveReference(String walletAddress, TokenscriptElement element, BigInteger tokenId, TokenDefinition definition, AttributeInterface attrIf)
     {
-        if (isEmpty(element.value))
+        return resolveReference(walletAddress, element, tokenId, definition, attrIf, Collections.emptyMap());
+    }
+
+    private String resolveReference(String walletAddress, TokenscriptElement element, BigInteger tokenId, TokenDefinition definition,
+                                    AttributeInterface attrIf, Map<String, TokenScriptResult.Attribute> resolved)
+    {
+        TokenScriptResult.Attribute attrRes = element.ref != null ? resolved.get(element.ref) : null;
+        if (!isEmpty(element.value))
         {
             return element.value;
         }
-        if (definition != null && definition.attributes.containsKey(element.ref)) //resolve from attribute
+        else if (attrRes != null) //resolve from result map
+        {
+            return attrRes.text;
+        }
+        else if (definition != null && definition.attributes.containsKey(element.ref)) //resolve from attribute
         {
             Attribute attr = definition.attributes.get(element.ref);
-            return fetchArgValue(walletAddress, element, attr, tokenId, definition, attrIf);
+            return fetchArgValue(walletAddress, element, attr, tokenId, definition, attrIf, resolved);
         }
         else if (localAttrs.containsKey(element.ref)) //wasn't able to resolve, attempt to resolve from local attributes or mark null if unresolved user input
         {
             Attribute attr = localAttrs.get(element.ref);
-            return fetchArgValue(walletAddress, element, attr, tokenId, definition, attrIf);
+            return fetchArgValue(walletAddress, element, attr, tokenId, definition, attrIf, resolved);
         }
         else if (localAttrs.containsKey(element.localRef))
         {
             Attribute attr = localAttrs.get(element.localRef);
-            return fetchArgValue(walletAddress, element, attr, tokenId, definition, attrIf);
+            return fetchArgValue(walletAddress, element, attr, tokenId, definition, attrIf, resolved);
         }
         else if (!isEmpty(element.localRef) && refTags.containsKey(element.localRef))
         {
@@ -837,7 +854,8 @@ public abstract class TokenscriptFunction
         }
     }
 
-    private String fetchArgValue(String walletAddress, TokenscriptElement element, Attribute attr, BigInteger tokenId, TokenDefinition definition, AttributeInterface attrIf)
+    private String fetchArgValue(String walletAddress, TokenscriptElement element, Attribute attr, BigInteger tokenId, TokenDefinition definition,
+                                 AttributeInterface attrIf, Map<String, TokenScriptResult.Attribute> resolved)
     {
         if (attr.userInput)
         {
@@ -849,7 +867,7 @@ public abstract class TokenscriptFunction
         }
         else
         {
-            return fetchAttrResult(walletAddress, attr, tokenId, definition, attrIf).blockingSingle().text;
+            return fetchAttrResult(walletAddress, attr, tokenId, definition, attrIf, resolved).blockingSingle().text;
         }
 
         return null;
@@ -883,6 +901,12 @@ public abstract class TokenscriptFunction
      */
     public Observable<TokenScriptResult.Attribute> fetchAttrResult(String walletAddress, Attribute attr, BigInteger tokenId,
                                                                    TokenDefinition td, AttributeInterface attrIf)
+    {
+        return fetchAttrResult(walletAddress, attr, tokenId, td, attrIf, Collections.emptyMap());
+    }
+
+    private Observable<TokenScriptResult.Attribute> fetchAttrResult(String walletAddress, Attribute attr, BigInteger tokenId,
+                                                                    TokenDefinition td, AttributeInterface attrIf, Map<String, TokenScriptResult.Attribute> resolved)
     {
         if (attr == null)
         {
@@ -912,7 +936,7 @@ public abstract class TokenscriptFunction
             else  //if cached value is invalid or if value is dynamic
             {
                 //for function query, never need wallet address
-                return fetchResultFromEthereum(walletAddress, useAddress, attr, tokenId, td, attrIf, 0)          // Fetch function result from blockchain
+                return fetchResultFromEthereum(walletAddress, useAddress, attr, tokenId, td, attrIf, 0, resolved)          // Fetch function result from blockchain
                         .map(result -> restoreFromDBIfRequired(result, cachedResult))  // If network unavailable restore value from cache
                         .map(txResult -> attrIf.storeAuxData("", txResult))                                          // store new data
                         .map(result -> parseFunctionResult(result, attr));    // write
@@ -922,12 +946,23 @@ public abstract class TokenscriptFunction
 
     public Observable<TokenScriptResult.Attribute> resolveAttributes(String walletAddress, BigInteger tokenId, AttributeInterface attrIf, ContractAddress cAddr, TokenDefinition td)
     {
-        td.context = new TokenscriptContext();
-        td.context.cAddr = cAddr;
-        td.context.attrInterface = attrIf;
+        //td is shared between requests; everything request specific is passed down the calls, never stored on it
+        //resolve level by level: each level only references attributes in earlier levels, so is resolved concurrently
+        //once they're complete, with references read from the resolved map rather than fetched again
+        Map<String, TokenScriptResult.Attribute> resolved = new ConcurrentHashMap<>();
+        Observable<TokenScriptResult.Attribute> results = Observable.empty();
+        AttributeLevels attributeLevels = td.getAttributeLevels();
+        for (List<Attribute> level : attributeLevels.getLevels())
+        {
+            results = results.concatWith(Observable.fromIterable(level)
+                    .flatMap(attr -> fetchAttrResult(walletAddress, attr, tokenId, td, attrIf, resolved)
+                            .subscribeOn(Schedulers.io())
+                            .doOnNext(result -> {
+                                if (attributeLevels.isReferenced(attr.name)) resolved.put(attr.name, result);
+                            })));
+        }
 
-        return Observable.fromIterable(new ArrayList<>(td.attributes.values()))
-                .flatMap(attr -> fetchAttrResult(walletAddress, attr, tokenId, td, attrIf));
+        return results;
     }
 
     private Observable<TokenScriptResult.Attribute> staticAttribute(Attribute attr, BigInteger tokenId)
@@ -958,7 +993,7 @@ public abstract class TokenscriptFunction
      */
     private TransactionResult restoreFromDBIfRequired(TransactionResult result, TransactionResult transactionResult)
     {
-        if (result.resultTime == 0 && transactionResult != null)
+        if (result.resultTime == 0 && transactionResult != null && result.result == null)
         {
             result.result = transactionResult.result;
             result.resultTime = transactionResult.resultTime;
@@ -0,0 +1,274 @@
+package com.alphawallet.token.web.Service;
+
+import com.alphawallet.token.entity.ContractAddress;
+import com.alphawallet.token.entity.TransactionResult;
+import com.github.cliftonlabs.json_simple.JsonObject;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Results of TokenScript function attributes, keyed by chain, contract, attribute and tokenId.
+ *
+ * Entries expire after the attribute's TTL, and are dropped early when a new block has a log from the contract,
+ * since the contract's state may have changed. The cache holds at most maxEntries, evicting the least recently used.
+ */
+public class AttributeResultCache
+{
+    private static final long BLOCK_POLL_SECONDS = 15;
+    private static final long MAX_LOG_BLOCK_RANGE = 1000; //if the poll falls further behind than this, drop the chain's entries instead
+
+    private final Map<String, CachedResult> results;
+    private final Map<String, Long> attributeTtl = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> lastBlockChecked = new ConcurrentHashMap<>();
+    private volatile long defaultTtl;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private ScheduledExecutorService blockWatcher;
+
+    public AttributeResultCache(int maxEntries, long defaultTtlSeconds)
+    {
+        results = new LinkedHashMap<String, CachedResult>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest)
+            {
+                return size() > maxEntries;
+            }
+        };
+        defaultTtl = TimeUnit.SECONDS.toMillis(defaultTtlSeconds);
+    }
+
+    public void setDefaultTtl(long seconds)
+    {
+        defaultTtl = TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * Set the time a result for the named attribute stays valid, overriding the default
+     * @param attributeName
+     * @param seconds
+     */
+    public void setAttributeTtl(String attributeName, long seconds)
+    {
+        attributeTtl.put(attributeName, TimeUnit.SECONDS.toMillis(seconds));
+    }
+
+    /**
+     * @return cached result with its resultTime, or an empty result (resultTime 0) if there's no valid entry
+     */
+    public TransactionResult get(ContractAddress contract, String attrName, BigInteger tokenId, TransactionResult tr)
+    {
+        String key = getKey(contract.chainId, contract.address, attrName, tokenId);
+        CachedResult cached;
+        synchronized (results)
+        {
+            cached = results.get(key);
+            if (cached != null && cached.expiry < System.currentTimeMillis())
+            {
+                results.remove(key);
+                cached = null;
+            }
+        }
+
+        if (cached != null)
+        {
+            hits.incrementAndGet();
+            tr.resultTime = cached.resultTime;
+            tr.result = cached.result;
+        }
+        else
+        {
+            misses.incrementAndGet();
+        }
+
+        return tr;
+    }
+
+    /**
+     * Store a fresh result; failed calls aren't stored so they're retried next time
+     * @param tResult
+     */
+    public void put(TransactionResult tResult)
+    {
+        if (tResult.result == null || tResult.resultTime < 0) return;
+
+        long currentTime = System.currentTimeMillis();
+        long resultTime = tResult.resultTime > 0 ? tResult.resultTime : currentTime;
+        long expiry = currentTime + attributeTtl.getOrDefault(tResult.attrId, defaultTtl);
+        String key = getKey(tResult.contractChainId, tResult.contractAddress, tResult.attrId, tResult.tokenId);
+        synchronized (results)
+        {
+            results.put(key, new CachedResult(resultTime, expiry, tResult.result));
+        }
+    }
+
+    /**
+     * Drop all results for a contract
+     * @param chainId
+     * @param address
+     */
+    public void invalidate(int chainId, String address)
+    {
+        String prefix = getContractPrefix(chainId, address);
+        synchronized (results)
+        {
+            Iterator<String> keys = results.keySet().iterator();
+            while (keys.hasNext())
+            {
+                if (keys.next().startsWith(prefix))
+                {
+                    keys.remove();
+                    invalidations.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public int size()
+    {
+        synchronized (results)
+        {
+            return results.size();
+        }
+    }
+
+    /**
+     * Start polling each chain which has cached results for new logs from the cached contracts
+     */
+    public void startBlockWatcher()
+    {
+        if (blockWatcher != null) return;
+        blockWatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "AttributeCacheBlockWatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        blockWatcher.scheduleWithFixedDelay(this::checkBlocks, BLOCK_POLL_SECONDS, BLOCK_POLL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void checkBlocks()
+    {
+        for (Map.Entry<Integer, Set<String>> chain : getCachedContracts().entrySet())
+        {
+            try
+            {
+                checkChain(chain.getKey(), chain.getValue());
+            }
+            catch (Exception e)
+            {
+                //node unavailable; entries still expire by TTL
+                System.out.println("Attribute cache block check failed for chain " + chain.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void checkChain(int chainId, Set<String> contracts) throws Exception
+    {
+        Web3j web3j = EthRPCClients.getWeb3j(chainId);
+        long currentBlock = web3j.ethBlockNumber().send().getBlockNumber().longValue();
+        Long lastBlock = lastBlockChecked.get(chainId);
+        lastBlockChecked.put(chainId, currentBlock);
+
+        if (lastBlock == null || currentBlock <= lastBlock)
+        {
+            return;
+        }
+        else if (currentBlock - lastBlock > MAX_LOG_BLOCK_RANGE)
+        {
+            for (String address : contracts) invalidate(chainId, address);
+            return;
+        }
+
+        EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(BigInteger.valueOf(lastBlock + 1)),
+                                         DefaultBlockParameter.valueOf(BigInteger.valueOf(currentBlock)),
+                                         new ArrayList<>(contracts));
+        EthLog ethLog = web3j.ethGetLogs(filter).send();
+        if (ethLog.hasError() || ethLog.getLogs() == null)
+        {
+            //unable to tell which contracts changed
+            lastBlockChecked.put(chainId, lastBlock);
+            throw new Exception(ethLog.hasError() ? ethLog.getError().getMessage() : "no logs");
+        }
+
+        Set<String> touched = new HashSet<>();
+        for (EthLog.LogResult<?> logResult : ethLog.getLogs())
+        {
+            if (logResult.get() instanceof Log) touched.add(((Log) logResult.get()).getAddress());
+        }
+
+        for (String address : touched) invalidate(chainId, address);
+    }
+
+    private Map<Integer, Set<String>> getCachedContracts()
+    {
+        Map<Integer, Set<String>> contracts = new HashMap<>();
+        synchronized (results)
+        {
+            for (String key : results.keySet())
+            {
+                String[] parts = key.split("-", 3);
+                contracts.computeIfAbsent(Integer.parseInt(parts[0]), id -> new HashSet<>()).add(parts[1]);
+            }
+        }
+
+        return contracts;
+    }
+
+    private static String getContractPrefix(int chainId, String address)
+    {
+        return chainId + "-" + address.toLowerCase() + "-";
+    }
+
+    private static String getKey(int chainId, String address, String attrName, BigInteger tokenId)
+    {
+        return getContractPrefix(chainId, address) + attrName + "-" + (tokenId != null ? tokenId.toString(16) : "");
+    }
+
+    public JsonObject getMetrics()
+    {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        JsonObject metrics = new JsonObject();
+        metrics.put("entries", size());
+        metrics.put("hits", hitCount);
+        metrics.put("misses", total - hitCount);
+        metrics.put("hitRatio", total > 0 ? (double) hitCount / total : 0.0);
+        metrics.put("invalidations", invalidations.get());
+        return metrics;
+    }
+
+    private static class CachedResult
+    {
+        final long resultTime;
+        final long expiry;
+        final String result;
+
+        CachedResult(long resultTime, long expiry, String result)
+        {
+            this.resultTime = resultTime;
+            this.expiry = expiry;
+            this.result = result;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.alphawallet.token.web.Service;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Shared Web3j clients, one per chain.
+ *
+ * All chains use a single OkHttpClient so connections to the RPC nodes are pooled and kept alive between
+ * requests, and multiplexed over HTTP/2 where the node supports it. Clients are created on first use and
+ * are safe to call from concurrent requests.
+ */
+public class EthRPCClients
+{
+    private static final int MAX_IDLE_CONNECTIONS = 20;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static final Map<Integer, Web3j> clients = new ConcurrentHashMap<>();
+    private static volatile OkHttpClient httpClient;
+    private static long connectTimeout = 10;
+    private static long readTimeout = 20;
+
+    /**
+     * Set the node timeouts; clients created after this call use the new values.
+     * @param connectSeconds
+     * @param readSeconds
+     */
+    public static synchronized void setTimeouts(long connectSeconds, long readSeconds)
+    {
+        if (connectSeconds == connectTimeout && readSeconds == readTimeout) return;
+        connectTimeout = connectSeconds;
+        readTimeout = readSeconds;
+        httpClient = null;
+        clients.clear();
+    }
+
+    public static synchronized long getConnectTimeout()
+    {
+        return connectTimeout;
+    }
+
+    public static synchronized long getReadTimeout()
+    {
+        return readTimeout;
+    }
+
+    public static Web3j getWeb3j(int chainId)
+    {
+        return clients.computeIfAbsent(chainId, id ->
+                Web3j.build(new HttpService(EthRPCNodes.getNodeURLByNetworkId(id), getHttpClient(), false)));
+    }
+
+    private static OkHttpClient getHttpClient()
+    {
+        OkHttpClient client = httpClient;
+        if (client == null)
+        {
+            synchronized (EthRPCClients.class)
+            {
+                if (httpClient == null)
+                {
+                    httpClient = new OkHttpClient.Builder()
+                            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                            .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                            .connectTimeout(connectTimeout, TimeUnit.SECONDS)
+                            .readTimeout(readTimeout, TimeUnit.SECONDS)
+                            .writeTimeout(readTimeout, TimeUnit.SECONDS)
+                            .retryOnConnectionFailure(true)
+                            .build();
+                }
+                client = httpClient;
+            }
+        }
+
+        return client;
+    }
+}
@@ -27,8 +27,18 @@ public class EthRPCNodes
     private static final String ARTIS_SIGMA1_RPC_URL = "https://rpc.sigma1.artis.network";
     private static final String ARTIS_TAU1_RPC_URL = "https://rpc.tau1.artis.network";
 
+    private static volatile String nodeOverride;
+
+    /**
+     * Send calls for every chain to one node, eg a local stub node for load testing
+     * @param url node URL, or empty to use the public nodes
+     */
+    public static void setNodeOverride(String url) {
+        nodeOverride = (url == null || url.isEmpty()) ? null : url;
+    }
 
     public static String getNodeURLByNetworkId(int networkId) {
+        if (nodeOverride != null) return nodeOverride;
         switch (networkId) {
             case MAINNET_NETWORK_ID:
                 return MAINNET_RPC_URL;
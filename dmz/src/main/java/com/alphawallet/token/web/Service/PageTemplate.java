@@ -0,0 +1,121 @@
+package com.alphawallet.token.web.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Template with named slots written as {{name}}.
+ *
+ * The template is split into literal text and slots once when it's loaded, so rendering only writes
+ * the pieces in order, straight to the output.
+ */
+public class PageTemplate
+{
+    private static final String SLOT_START = "{{";
+    private static final String SLOT_END = "}}";
+
+    /**
+     * Slot content that writes itself to the output, eg another template with its values
+     */
+    public interface Fragment
+    {
+        void writeTo(Writer out) throws IOException;
+    }
+
+    private final String[] text;  //literal text before each slot, plus the trailing text
+    private final String[] slots;
+
+    public PageTemplate(String template)
+    {
+        List<String> textList = new ArrayList<>();
+        List<String> slotList = new ArrayList<>();
+        int index = 0;
+        int start;
+        while ((start = template.indexOf(SLOT_START, index)) >= 0)
+        {
+            int end = template.indexOf(SLOT_END, start + SLOT_START.length());
+            if (end < 0) break;
+            textList.add(template.substring(index, start));
+            slotList.add(template.substring(start + SLOT_START.length(), end).trim());
+            index = end + SLOT_END.length();
+        }
+        textList.add(template.substring(index));
+
+        text = textList.toArray(new String[0]);
+        slots = slotList.toArray(new String[0]);
+    }
+
+    /**
+     * Load a template from the classpath
+     * @param resourceName eg "templates/tokenscriptTemplate.html"
+     */
+    public static PageTemplate load(String resourceName)
+    {
+        try (InputStream in = PageTemplate.class.getClassLoader().getResourceAsStream(resourceName))
+        {
+            if (in == null) throw new IOException("Template not found: " + resourceName);
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] block = new byte[8192];
+            int len;
+            while ((len = in.read(block)) != -1)
+            {
+                buffer.write(block, 0, len);
+            }
+            return new PageTemplate(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Write the template with slot values; a slot with no value is left empty
+     * @param out
+     * @param values slot name to value; values may be a Fragment
+     */
+    public void render(Writer out, Map<String, ?> values) throws IOException
+    {
+        for (int i = 0; i < slots.length; i++)
+        {
+            out.write(text[i]);
+            Object value = values.get(slots[i]);
+            if (value instanceof Fragment)
+            {
+                ((Fragment) value).writeTo(out);
+            }
+            else if (value != null)
+            {
+                out.write(value.toString());
+            }
+        }
+        out.write(text[slots.length]);
+    }
+
+    public Fragment bind(Map<String, ?> values)
+    {
+        return out -> render(out, values);
+    }
+
+    public String render(Map<String, ?> values)
+    {
+        StringWriter out = new StringWriter();
+        try
+        {
+            render(out, values);
+        }
+        catch (IOException e)
+        {
+            //not possible for a StringWriter
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,273 @@
+package com.alphawallet.token.web.Service;
+
+import com.alphawallet.token.entity.ContractInfo;
+import com.alphawallet.token.tools.TokenDefinition;
+import com.alphawallet.token.tools.TokenDefinitionStreamParser;
+import com.github.cliftonlabs.json_simple.JsonObject;
+
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Parsed TokenScript definitions of the repository, keyed by chain and holding contract.
+ *
+ * Each TSML file is parsed once, when it's loaded at startup or changes on disk, instead of on every request.
+ * Definitions are shared between requests so must be treated as read-only.
+ */
+public class TokenDefinitionCache
+{
+    private static final Locale LOCALE = new Locale("en");
+
+    private final Map<Path, TokenDefinition> definitions = new ConcurrentHashMap<>();
+    private final Map<Integer, Map<String, Path>> contracts = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong parseCount = new AtomicLong();
+    private final AtomicLong parseFailures = new AtomicLong();
+    private final AtomicLong totalParseTime = new AtomicLong();
+    private volatile long lastParseTime;
+
+    private WatchService watcher;
+
+    /**
+     * @return definition holding the contract, or null if there's no script for it
+     */
+    public TokenDefinition get(int chainId, String contractAddress)
+    {
+        Map<String, Path> chainContracts = contracts.get(chainId);
+        Path path = chainContracts != null ? chainContracts.get(contractAddress) : null;
+        TokenDefinition definition = path != null ? definitions.get(path) : null;
+        if (definition != null) hits.incrementAndGet();
+        else misses.incrementAndGet();
+        return definition;
+    }
+
+    /**
+     * Parse a TSML file and index it by its holding contracts, replacing any previous version of the file
+     * @param path
+     */
+    public void load(Path path) throws IOException, SAXException
+    {
+        long startTime = System.nanoTime();
+        TokenDefinition definition;
+        try (InputStream input = Files.newInputStream(path))
+        {
+            definition = TokenDefinitionStreamParser.parse(input, LOCALE, null);
+        }
+        catch (IOException | SAXException e)
+        {
+            parseFailures.incrementAndGet();
+            throw e;
+        }
+
+        lastParseTime = (System.nanoTime() - startTime) / 1000000;
+        totalParseTime.addAndGet(lastParseTime);
+        parseCount.incrementAndGet();
+
+        //swap in the new version before dropping contracts it no longer holds, so lookups never miss in between
+        definitions.put(path, definition);
+        Map<Integer, Set<String>> held = new HashMap<>();
+        ContractInfo holdingContracts = definition.contracts.get(definition.holdingToken);
+        if (holdingContracts != null)
+        {
+            holdingContracts.addresses.forEach((chainId, addresses) -> {
+                Map<String, Path> chainContracts = contracts.computeIfAbsent(chainId, id -> new ConcurrentHashMap<>());
+                for (String address : addresses) chainContracts.put(address, path);
+                held.put(chainId, new HashSet<>(addresses));
+            });
+        }
+
+        Map<Integer, Set<String>> dropped = new HashMap<>();
+        contracts.forEach((chainId, chainContracts) -> {
+            Set<String> addresses = held.getOrDefault(chainId, Collections.emptySet());
+            for (Map.Entry<String, Path> entry : chainContracts.entrySet())
+            {
+                if (entry.getValue().equals(path) && !addresses.contains(entry.getKey()))
+                {
+                    dropped.computeIfAbsent(chainId, id -> new HashSet<>()).add(entry.getKey());
+                }
+            }
+        });
+        reassign(dropped, path);
+    }
+
+    public void remove(Path path)
+    {
+        definitions.remove(path);
+        Map<Integer, Set<String>> dropped = new HashMap<>();
+        contracts.forEach((chainId, chainContracts) -> {
+            for (Map.Entry<String, Path> entry : chainContracts.entrySet())
+            {
+                if (entry.getValue().equals(path)) dropped.computeIfAbsent(chainId, id -> new HashSet<>()).add(entry.getKey());
+            }
+        });
+        reassign(dropped, path);
+    }
+
+    /**
+     * Point contracts which the file no longer holds at another loaded file holding them, or unmap them if there's none
+     */
+    private void reassign(Map<Integer, Set<String>> dropped, Path oldPath)
+    {
+        dropped.forEach((chainId, addresses) -> {
+            Map<String, Path> chainContracts = contracts.get(chainId);
+            for (String address : addresses)
+            {
+                Path newPath = findHolder(chainId, address, oldPath);
+                if (newPath != null) chainContracts.replace(address, oldPath, newPath);
+                else chainContracts.remove(address, oldPath);
+            }
+        });
+    }
+
+    private Path findHolder(int chainId, String address, Path exclude)
+    {
+        for (Map.Entry<Path, TokenDefinition> entry : definitions.entrySet())
+        {
+            if (entry.getKey().equals(exclude)) continue;
+            TokenDefinition definition = entry.getValue();
+            ContractInfo holdingContracts = definition.contracts.get(definition.holdingToken);
+            if (holdingContracts == null) continue;
+            List<String> addresses = holdingContracts.addresses.get(chainId);
+            if (addresses != null && addresses.contains(address)) return entry.getKey();
+        }
+
+        return null;
+    }
+
+    public int size()
+    {
+        int count = 0;
+        for (Map<String, Path> chainContracts : contracts.values()) count += chainContracts.size();
+        return count;
+    }
+
+    public void forEachChain(BiConsumer<Integer, Map<String, Path>> consumer)
+    {
+        contracts.forEach(consumer);
+    }
+
+    /**
+     * Reload definitions when TSML files under the repository are created, changed or deleted
+     * @param repoDir
+     */
+    public void watch(Path repoDir) throws IOException
+    {
+        watcher = FileSystems.getDefault().newWatchService();
+        try (Stream<Path> dirStream = Files.walk(repoDir))
+        {
+            for (Path dir : (Iterable<Path>) dirStream.filter(Files::isDirectory)::iterator)
+            {
+                dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            }
+        }
+
+        Thread watchThread = new Thread(this::processEvents, "TokenDefinitionWatcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    private void processEvents()
+    {
+        try
+        {
+            while (true)
+            {
+                WatchKey key = watcher.take();
+                Path dir = (Path) key.watchable();
+                //an editor save can produce several events for the same file; parse it once
+                Set<Path> changed = new HashSet<>();
+                for (WatchEvent<?> event : key.pollEvents())
+                {
+                    if (event.kind() == OVERFLOW) continue;
+                    Path path = dir.resolve((Path) event.context());
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(path))
+                    {
+                        path.register(watcher, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                    }
+                    else if (isScript(path))
+                    {
+                        changed.add(path);
+                    }
+                }
+
+                changed.forEach(this::reload);
+                key.reset();
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e)
+        {
+            //server is shutting down
+        }
+        catch (IOException e)
+        {
+            System.out.println("TokenScript repo watcher stopped: " + e.getMessage());
+        }
+    }
+
+    private void reload(Path path)
+    {
+        if (!Files.isRegularFile(path) || !Files.isReadable(path))
+        {
+            remove(path);
+            System.out.println("Removed TokenScript: " + path);
+            return;
+        }
+
+        try
+        {
+            load(path);
+            System.out.println("Reloaded TokenScript: " + path);
+        }
+        catch (Exception e)
+        {
+            //file may be part written, or invalid; keep serving the last good version
+            System.out.println("Unable to reload TokenScript " + path + ": " + e.getMessage());
+        }
+    }
+
+    public static boolean isScript(Path path)
+    {
+        return path.toString().toLowerCase().endsWith(".tsml");
+    }
+
+    public JsonObject getMetrics()
+    {
+        JsonObject metrics = new JsonObject();
+        metrics.put("entries", size());
+        metrics.put("files", definitions.size());
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("parses", parseCount.get());
+        metrics.put("parseFailures", parseFailures.get());
+        metrics.put("totalParseTimeMs", totalParseTime.get());
+        metrics.put("lastParseTimeMs", lastParseTime);
+        return metrics;
+    }
+}
@@ -0,0 +1,117 @@
+package com.alphawallet.token.web;
+
+import com.alphawallet.token.entity.MagicLinkInfo;
+import com.alphawallet.token.entity.SalesOrderMalformed;
+import com.alphawallet.token.tools.ParseMagicLink;
+import com.alphawallet.token.web.Service.CryptoFunctions;
+
+import org.junit.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Sign;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class AppSiteControllerTest
+{
+    private static final BigInteger PRIVATE_KEY = new BigInteger("1c7e9bb5b4bd3ecc0b04bd2d8a92b1d5a4d4e0c1f1b8a7c5e4d3c2b1a0918273", 16);
+    private static final String CONTRACT = "0x63ccef733a093e5bd773b41c96d3ece361464942";
+    private static final long RESULT_TIMEOUT = 10000;
+
+    private final AppSiteController controller = new AppSiteController();
+
+    public AppSiteControllerTest()
+    {
+        //keep node calls for the link page local; they fail straight away
+        controller.setNodeOverride("http://127.0.0.1:1");
+    }
+
+    @Test
+    public void bareLinkPathParsesWithDomainPrefix() throws Exception
+    {
+        int chainId = MagicLinkInfo.KOVAN_NETWORK_ID;
+        String domain = MagicLinkInfo.getMagicLinkDomainFromNetworkId(chainId);
+        String link = createLink(chainId);
+        String path = link.substring(link.lastIndexOf('/') + 1);
+
+        ExtendedModelMap model = new ExtendedModelMap();
+        DeferredResult<ResponseEntity<StreamingResponseBody>> result = controller.handleUniversalLink(path, model, requestFrom(domain));
+
+        //the domain is only added once the link has parsed
+        assertEquals(domain, model.get("domain"));
+        //the page for the parsed link is rendered; the token is unavailable as the node calls fail
+        String body = readBody(result);
+        assertFalse(body.startsWith("error: "));
+        assertTrue(body.contains(CONTRACT));
+    }
+
+    @Test
+    public void invalidLinkPathReturnsError() throws Exception
+    {
+        String domain = MagicLinkInfo.getMagicLinkDomainFromNetworkId(MagicLinkInfo.MAINNET_NETWORK_ID);
+
+        ExtendedModelMap model = new ExtendedModelMap();
+        DeferredResult<ResponseEntity<StreamingResponseBody>> result = controller.handleUniversalLink("AAAA", model, requestFrom(domain));
+
+        assertFalse(model.containsAttribute("domain"));
+        assertTrue(readBody(result).startsWith("error: "));
+    }
+
+    private static String createLink(int chainId) throws SalesOrderMalformed
+    {
+        ParseMagicLink parser = new ParseMagicLink(new CryptoFunctions(), null);
+        int[] indices = { 1, 2 };
+        long expiry = System.currentTimeMillis() / 1000 + 3600;
+        byte[] tradeBytes = parser.getTradeBytes(indices, CONTRACT, BigInteger.ZERO, expiry);
+        Sign.SignatureData signatureData = Sign.signMessage(tradeBytes, ECKeyPair.create(PRIVATE_KEY));
+        byte[] signature = new byte[65];
+        System.arraycopy(signatureData.getR(), 0, signature, 0, 32);
+        System.arraycopy(signatureData.getS(), 0, signature, 32, 32);
+        System.arraycopy(signatureData.getV(), 0, signature, 64, 1);
+        return parser.generateUniversalLink(indices, CONTRACT, BigInteger.ZERO, expiry, signature, chainId);
+    }
+
+    private static HttpServletRequest requestFrom(String serverName)
+    {
+        return (HttpServletRequest) Proxy.newProxyInstance(AppSiteControllerTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class },
+                (proxy, method, args) -> method.getName().equals("getServerName") ? serverName : null);
+    }
+
+    /**
+     * Waits for the link task to complete the result
+     * @return body of the page the result holds
+     */
+    @SuppressWarnings("unchecked")
+    private static String readBody(DeferredResult<ResponseEntity<StreamingResponseBody>> result) throws Exception
+    {
+        long deadline = System.currentTimeMillis() + RESULT_TIMEOUT;
+        while (!result.hasResult())
+        {
+            assertTrue("link page wasn't completed", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+
+        Object response = result.getResult();
+        assertTrue("link page failed: " + response, response instanceof ResponseEntity);
+        StreamingResponseBody body = ((ResponseEntity<StreamingResponseBody>) response).getBody();
+        assertNotNull(body);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,129 @@
+package com.alphawallet.token.web;
+
+import com.alphawallet.token.web.Ethereum.TokenMetadataLoader;
+import com.alphawallet.token.web.Service.EthRPCNodes;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Uint256;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks a partly failed metadata batch keeps the values it returned, against a stub node
+ */
+public class TokenMetadataLoaderTest
+{
+    private static final int CHAIN_ID = 31337; //not used by other tests, so the chain's client is built for the stub node
+    private static final String CONTRACT = "0x63ccef733a093e5bd773b41c96d3ece361464942";
+    private static final String NAME_SELECTOR = "0x06fdde03"; //name()
+    private static final String SYMBOL_SELECTOR = "0x95d89b41"; //symbol()
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, AtomicInteger> singleCalls = new ConcurrentHashMap<>();
+    private HttpServer node;
+
+    @Before
+    public void startNode() throws IOException
+    {
+        node = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        node.createContext("/", this::handle);
+        node.start();
+        EthRPCNodes.setNodeOverride("http://127.0.0.1:" + node.getAddress().getPort());
+    }
+
+    @After
+    public void stopNode()
+    {
+        EthRPCNodes.setNodeOverride(null);
+        node.stop(0);
+    }
+
+    @Test
+    public void revertedSymbolKeepsBatchedName()
+    {
+        TokenMetadataLoader loader = new TokenMetadataLoader(CHAIN_ID, CONTRACT);
+        loader.prefetch(null);
+
+        assertEquals("Test Token", loader.getName());
+        assertEquals("TT", loader.getSymbol());
+
+        //only the value the batch didn't return is fetched again
+        assertNull(singleCalls.get(NAME_SELECTOR));
+        assertEquals(1, singleCalls.get(SYMBOL_SELECTOR).get());
+    }
+
+    //batches revert symbol(); single calls answer both
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        JsonNode request = mapper.readTree(exchange.getRequestBody());
+        JsonNode response;
+        if (request.isArray())
+        {
+            ArrayNode responses = mapper.createArrayNode();
+            for (JsonNode call : request)
+            {
+                responses.add(respond(call, getSelector(call).equals(SYMBOL_SELECTOR)));
+            }
+            response = responses;
+        }
+        else
+        {
+            String selector = getSelector(request);
+            singleCalls.putIfAbsent(selector, new AtomicInteger());
+            singleCalls.get(selector).incrementAndGet();
+            response = respond(request, false);
+        }
+
+        byte[] body = mapper.writeValueAsBytes(response);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody())
+        {
+            os.write(body);
+        }
+    }
+
+    private ObjectNode respond(JsonNode call, boolean revert)
+    {
+        ObjectNode response = mapper.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", call.get("id"));
+        if (revert)
+        {
+            ObjectNode error = response.putObject("error");
+            error.put("code", 3);
+            error.put("message", "execution reverted");
+        }
+        else
+        {
+            String value = getSelector(call).equals(NAME_SELECTOR) ? "Test Token" : "TT";
+            //offset of the dynamic string, then the string itself
+            response.put("result", "0x" + TypeEncoder.encode(new Uint256(32))
+                    + TypeEncoder.encode(new Utf8String(value)));
+        }
+        return response;
+    }
+
+    private static String getSelector(JsonNode call)
+    {
+        return call.get("params").get(0).get("data").asText().substring(0, 10);
+    }
+}
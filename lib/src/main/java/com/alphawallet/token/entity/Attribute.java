@@ -43,6 +43,13 @@ public class Attribute {
     public EventDefinition event = null;
     public boolean userInput = false;
 
+    /**
+     * Blank attribute, populated field by field when restoring a definition snapshot
+     */
+    public Attribute()
+    {
+    }
+
     public Attribute(Element attr, TokenDefinition def) throws SAXException
     {
         originContract = def.contracts.get(def.holdingToken);
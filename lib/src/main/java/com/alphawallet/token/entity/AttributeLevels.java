@@ -0,0 +1,39 @@
+package com.alphawallet.token.entity;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Attributes grouped by dependency depth, with the names of the attributes that other attributes in the same set
+ * depend on. Attributes in the first level reference no other attribute; those in each later level reference only
+ * attributes in earlier levels, so the attributes within a level can be resolved concurrently once the levels before
+ * it are resolved.
+ */
+public class AttributeLevels
+{
+    public static final AttributeLevels EMPTY = new AttributeLevels(Collections.emptyList(), Collections.emptySet());
+
+    private final List<List<Attribute>> levels;
+    private final Set<String> referenced;
+
+    public AttributeLevels(List<List<Attribute>> levels, Set<String> referenced)
+    {
+        this.levels = levels;
+        this.referenced = Collections.unmodifiableSet(referenced);
+    }
+
+    public List<List<Attribute>> getLevels()
+    {
+        return levels;
+    }
+
+    /**
+     * @param name
+     * @return true if another attribute's function or event filter needs this attribute's value
+     */
+    public boolean isReferenced(String name)
+    {
+        return referenced.contains(name);
+    }
+}
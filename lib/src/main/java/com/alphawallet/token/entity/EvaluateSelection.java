@@ -7,7 +7,7 @@ import java.util.Map;
  */
 public abstract class EvaluateSelection
 {
-    private static final int STACK_CHECK = 10;
+    static final int STACK_CHECK = 10;
 
     public static boolean evaluate(TSFilterNode head, Map<String, TokenScriptResult.Attribute> attrs)
     {
@@ -29,6 +29,11 @@ public class TSActivityView
         return tokenViews.views.get(viewType);
     }
 
+    public TSOrigins getOrigins()
+    {
+        return eventOrigins;
+    }
+
     public String getEventName()
     {
         return eventOrigins.getOriginName();
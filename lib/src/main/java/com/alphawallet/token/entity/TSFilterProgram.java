@@ -0,0 +1,302 @@
+package com.alphawallet.token.entity;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A TSSelection filter compiled to a flat program.
+ *
+ * Instructions are stored in post-order so each one only depends on earlier results, and the last instruction is the
+ * result of the filter. Attribute names are resolved to slots and literal values are parsed when the program is
+ * compiled, so evaluation is a single pass over an array of attribute results with no map lookups or parsing.
+ *
+ * Gives the same result as {@link EvaluateSelection#evaluate(TSFilterNode, Map)}, but holds no evaluation state so
+ * one program can be evaluated from several threads.
+ */
+public class TSFilterProgram
+{
+    private final FilterType[] ops;
+    private final boolean[] negate;
+    private final int[] first;  // logic: instruction index, comparator: operand index
+    private final int[] second;
+
+    private final int[] operandSlot;           // attribute slot of the operand, or -1
+    private final boolean[] operandIsAttribute; // operand text is the text of the attribute
+    private final String[] operandText;        // operand text if it isn't an attribute
+    private final BigInteger[] operandValue;   // operand value if the attribute isn't present
+
+    private final List<String> slotNames;
+
+    private TSFilterProgram(Compiler compiler)
+    {
+        int size = compiler.ops.size();
+        ops = compiler.ops.toArray(new FilterType[size]);
+        negate = new boolean[size];
+        first = new int[size];
+        second = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            negate[i] = compiler.negate.get(i);
+            first[i] = compiler.first.get(i);
+            second[i] = compiler.second.get(i);
+        }
+
+        int operands = compiler.operandSlot.size();
+        operandSlot = new int[operands];
+        operandIsAttribute = new boolean[operands];
+        operandText = compiler.operandText.toArray(new String[operands]);
+        operandValue = compiler.operandValue.toArray(new BigInteger[operands]);
+        for (int i = 0; i < operands; i++)
+        {
+            operandSlot[i] = compiler.operandSlot.get(i);
+            operandIsAttribute[i] = compiler.operandIsAttribute.get(i);
+        }
+
+        slotNames = Collections.unmodifiableList(new ArrayList<>(compiler.slotOrder));
+    }
+
+    public static TSFilterProgram compile(TSFilterNode head)
+    {
+        Compiler compiler = new Compiler();
+        if (head != null && compiler.compile(head) > EvaluateSelection.STACK_CHECK)
+        {
+            //EvaluateSelection gives up on trees deeper than this and returns false
+            compiler.valid = false;
+        }
+
+        if (head == null || !compiler.valid)
+        {
+            //no instructions, evaluates to false
+            compiler = new Compiler();
+        }
+
+        return new TSFilterProgram(compiler);
+    }
+
+    /**
+     * @return attribute names in slot order; the array passed to {@link #evaluate(TokenScriptResult.Attribute[])}
+     * holds the result for each name at the same index
+     */
+    public List<String> getSlotNames()
+    {
+        return slotNames;
+    }
+
+    public boolean evaluate(Map<String, TokenScriptResult.Attribute> attrs)
+    {
+        TokenScriptResult.Attribute[] slotValues = new TokenScriptResult.Attribute[slotNames.size()];
+        for (int i = 0; i < slotValues.length; i++)
+        {
+            slotValues[i] = attrs.get(slotNames.get(i));
+        }
+
+        return evaluate(slotValues);
+    }
+
+    /**
+     * @param slotValues attribute result for each of {@link #getSlotNames()}, null if not resolved
+     */
+    public boolean evaluate(TokenScriptResult.Attribute[] slotValues)
+    {
+        if (ops.length == 0) return false;
+
+        boolean[] results = new boolean[ops.length];
+        for (int i = 0; i < ops.length; i++)
+        {
+            switch (ops[i])
+            {
+                case AND:
+                case OR:
+                    //as EvaluateSelection, both node types require both sides to be true
+                    results[i] = (results[first[i]] && results[second[i]]) != negate[i];
+                    break;
+                default:
+                    results[i] = compare(i, slotValues);
+                    break;
+            }
+        }
+
+        return results[ops.length - 1];
+    }
+
+    private boolean compare(int i, TokenScriptResult.Attribute[] slotValues)
+    {
+        String textLeft = getText(first[i], slotValues);
+        String textRight = getText(second[i], slotValues);
+
+        //a missing side is false whether or not the comparison is negated
+        if (textLeft == null || textRight == null) return false;
+
+        if (ops[i] == FilterType.EQUAL)
+        {
+            return textLeft.equalsIgnoreCase(textRight) != negate[i];
+        }
+
+        BigInteger valueLeft = getValue(first[i], slotValues);
+        BigInteger valueRight = getValue(second[i], slotValues);
+        if (valueLeft == null || valueRight == null) return false;
+
+        int comparison = valueLeft.compareTo(valueRight);
+        boolean result;
+        switch (ops[i])
+        {
+            case GREATER_THAN:
+                result = comparison > 0;
+                break;
+            case LESS_THAN:
+                result = comparison < 0;
+                break;
+            case GREATER_THAN_OR_EQUAL:
+                result = comparison >= 0;
+                break;
+            case LESS_THAN_OR_EQUAL_TO:
+                result = comparison <= 0;
+                break;
+            default:
+                return false;
+        }
+
+        return result != negate[i];
+    }
+
+    private String getText(int operand, TokenScriptResult.Attribute[] slotValues)
+    {
+        if (operandIsAttribute[operand])
+        {
+            TokenScriptResult.Attribute attr = slotValues[operandSlot[operand]];
+            return attr != null ? attr.text : null;
+        }
+        else
+        {
+            return operandText[operand];
+        }
+    }
+
+    private BigInteger getValue(int operand, TokenScriptResult.Attribute[] slotValues)
+    {
+        int slot = operandSlot[operand];
+        if (slot < 0) return null;
+        TokenScriptResult.Attribute attr = slotValues[slot];
+        return attr != null ? attr.value : operandValue[operand];
+    }
+
+    private static class Compiler
+    {
+        final List<FilterType> ops = new ArrayList<>();
+        final List<Boolean> negate = new ArrayList<>();
+        final List<Integer> first = new ArrayList<>();
+        final List<Integer> second = new ArrayList<>();
+
+        final List<Integer> operandSlot = new ArrayList<>();
+        final List<Boolean> operandIsAttribute = new ArrayList<>();
+        final List<String> operandText = new ArrayList<>();
+        final List<BigInteger> operandValue = new ArrayList<>();
+
+        final Map<String, Integer> slots = new HashMap<>();
+        final List<String> slotOrder = new ArrayList<>();
+        final Set<TSFilterNode> path = Collections.newSetFromMap(new IdentityHashMap<>());
+        boolean valid = true;
+        int lastInstruction;
+
+        /**
+         * Appends the node's instructions, leaving the node's own instruction in lastInstruction
+         *
+         * @return depth of logic nodes below and including this node
+         */
+        int compile(TSFilterNode node)
+        {
+            //an incomplete expression can leave a node referring back to its parent
+            if (!valid || node == null || !path.add(node))
+            {
+                valid = false;
+                return 0;
+            }
+
+            int depth = 0;
+            if (node.isNodeLogic())
+            {
+                int firstDepth = compile(node.first);
+                int firstInstruction = lastInstruction;
+                int secondDepth = compile(node.second);
+                int secondInstruction = lastInstruction;
+                depth = Math.max(firstDepth, secondDepth) + 1;
+                lastInstruction = addInstruction(node, firstInstruction, secondInstruction);
+            }
+            else if (node.isLeafLogic() && node.first != null && node.second != null)
+            {
+                lastInstruction = addInstruction(node, addOperand(node.first), addOperand(node.second));
+            }
+            else
+            {
+                valid = false;
+            }
+
+            path.remove(node);
+            return depth;
+        }
+
+        private int addInstruction(TSFilterNode node, int firstIndex, int secondIndex)
+        {
+            ops.add(node.type);
+            negate.add(node.negate);
+            first.add(firstIndex);
+            second.add(secondIndex);
+            return ops.size() - 1;
+        }
+
+        //mirrors TSFilterNode getValue and getBIValue
+        private int addOperand(TSFilterNode node)
+        {
+            int slot = -1;
+            boolean isAttribute = false;
+            String text = null;
+
+            if (node.logic != null && node.logic != TSFilterNode.LogicState.NONE)
+            {
+                text = node.logic.toString();
+            }
+            else if (node.type == FilterType.ATTRIBUTE)
+            {
+                isAttribute = true;
+            }
+            else if (node.strValue != null && node.strValue.length() > 0)
+            {
+                text = node.strValue;
+            }
+
+            if (node.strValue != null && node.strValue.length() > 0)
+            {
+                slot = getSlot(node.strValue);
+            }
+            else if (isAttribute)
+            {
+                //no name to look up, never matches
+                isAttribute = false;
+            }
+
+            operandSlot.add(slot);
+            operandIsAttribute.add(isAttribute);
+            operandText.add(text);
+            operandValue.add(node.value);
+            return operandSlot.size() - 1;
+        }
+
+        private int getSlot(String name)
+        {
+            Integer slot = slots.get(name);
+            if (slot == null)
+            {
+                slot = slots.size();
+                slots.put(name, slot);
+                slotOrder.add(name);
+            }
+            return slot;
+        }
+    }
+}
@@ -23,17 +23,23 @@ public class TSSelection
     public Map<String, String> names = null; //use these names if the selection filter is true
     private boolean negate = false;
     public String name = null;
+    private final String filterExpression;
+    private final TSFilterProgram program;
 
     public static final Pattern decodeParam = Pattern.compile("[$][{](\\w*)[}]$");
 
     public TSSelection(String filterExpression) throws SAXException
     {
+        this.filterExpression = filterExpression;
         //tokenise
         List<String> tokens = tokeniseExpression(filterExpression);
         ListIterator<String> tokenItr = tokens.listIterator();
 
         //recursive parse
         head = parseNextNode(null, tokenItr);
+
+        //compile once here rather than walking the tree for each token evaluated
+        program = TSFilterProgram.compile(head);
     }
 
     private TSFilterNode parseNextNode(TSFilterNode currentNode, ListIterator<String> tokens) throws SAXException
@@ -312,6 +318,24 @@ public class TSSelection
         }
     }
 
+    public TSFilterProgram getProgram()
+    {
+        return program;
+    }
+
+    /**
+     * @return true if the filter matches the attribute results
+     */
+    public boolean evaluate(Map<String, TokenScriptResult.Attribute> attrs)
+    {
+        return program.evaluate(attrs);
+    }
+
+    public String getFilterExpression()
+    {
+        return filterExpression;
+    }
+
     public boolean checkParse()
     {
         return name != null && name.length() > 0
@@ -24,16 +24,17 @@ public class TokenDefinition {
 
     public final Map<String, ContractInfo> contracts = new HashMap<>();
     public final Map<String, TSAction> actions = new HashMap<>();
-    private Map<String, String> labels = new HashMap<>(); // store plural etc for token name
-    private final Map<String, NamedType> namedTypeLookup = new HashMap<>(); //used to protect against name collision
-    private final TSTokenViewHolder tokenViews = new TSTokenViewHolder();
-    private final Map<String, TSSelection> selections = new HashMap<>();
-    private final Map<String, TSActivityView> activityCards = new HashMap<>();
+    Map<String, String> labels = new HashMap<>(); // store plural etc for token name
+    final Map<String, NamedType> namedTypeLookup = new HashMap<>(); //used to protect against name collision
+    final TSTokenViewHolder tokenViews = new TSTokenViewHolder();
+    final Map<String, TSSelection> selections = new HashMap<>();
+    final Map<String, TSActivityView> activityCards = new HashMap<>();
+    private AttributeLevels attributeLevels = AttributeLevels.EMPTY; //attributes grouped by dependency depth
 
     public String nameSpace;
     public TokenscriptContext context;
     public String holdingToken = null;
-    private int actionCount;
+    int actionCount;
 
     public static final String TOKENSCRIPT_CURRENT_SCHEMA = "2020/06";
     public static final String TOKENSCRIPT_REPO_SERVER = "https://repo.tokenscript.org/";
@@ -66,6 +67,9 @@ public class TokenDefinition {
     */
     protected String keyName = null;
 
+    /* set when the definition was parsed without view bodies, see TokenDefinitionStreamParser */
+    boolean viewsSkipped = false;
+
     public List<FunctionDefinition> getFunctionData()
     {
         List<FunctionDefinition> defs = new ArrayList<>();
@@ -360,6 +364,7 @@ public class TokenDefinition {
         {
             parseTags(xml);
             extractSignedInfo(xml);
+            buildAttributeLevels();
         }
         catch (IOException|SAXException e)
         {
@@ -380,43 +385,55 @@ public class TokenDefinition {
             if (n.getNodeType() == ELEMENT_NODE)
             {
                 Element element = (Element)n;
-                switch (element.getLocalName())
+                if (element.getLocalName().equals("cards"))
                 {
-                    case "origins":
-                        TSOrigins origin = parseOrigins(element); //parseOrigins(element);
-                        if (origin.isType(TSOriginType.Contract)) holdingToken = origin.getOriginName();
-                        break;
-                    case "contract":
-                        handleAddresses(element);
-                        break;
-                    case "label":
-                        labels = extractLabelTag(element);
-                        break;
-                    case "selection":
-                        TSSelection selection = parseSelection(element);
-                        if (selection != null && selection.checkParse())
-                            selections.put(selection.name, selection);
-                        break;
-                    case "module":
-                        handleModule(element, null);
-                        break;
-                    case "cards":
-                        handleCards(element);
-                        break;
-                    case "attribute":
-                        Attribute attr = new Attribute((Element) n, this);
-                        if (attr.bitmask != null || attr.function != null)
-                        {
-                            attributes.put(attr.name, attr);
-                        }
-                        break;
-                    default:
-                        break;
+                    handleCards(element);
+                }
+                else
+                {
+                    extractTag(element);
                 }
             }
         }
     }
 
+    /**
+     * Interpret a child of the token element, other than the cards
+     */
+    void extractTag(Element element) throws Exception
+    {
+        switch (element.getLocalName())
+        {
+            case "origins":
+                TSOrigins origin = parseOrigins(element); //parseOrigins(element);
+                if (origin.isType(TSOriginType.Contract)) holdingToken = origin.getOriginName();
+                break;
+            case "contract":
+                handleAddresses(element);
+                break;
+            case "label":
+                labels = extractLabelTag(element);
+                break;
+            case "selection":
+                TSSelection selection = parseSelection(element);
+                if (selection != null && selection.checkParse())
+                    selections.put(selection.name, selection);
+                break;
+            case "module":
+                handleModule(element, null);
+                break;
+            case "attribute":
+                Attribute attr = new Attribute(element, this);
+                if (attr.bitmask != null || attr.function != null)
+                {
+                    attributes.put(attr.name, attr);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
     private TSSelection parseSelection(Element node) throws SAXException
     {
         String name = "";
@@ -492,26 +509,37 @@ public class TokenDefinition {
             if (node.getNodeType() != ELEMENT_NODE)
                 continue;
 
-            Element element = (Element) node;
-            switch (node.getLocalName())
-            {
-                case "origins":
-                    TSOrigins origins = parseOrigins(element);
-                    if (origins.isType(TSOriginType.Event)) activityView = new TSActivityView(origins);
-                    break;
-                case "view": //TODO: Localisation
-                case "item-view":
-                    if (activityView == null) throw new SAXException("Activity card declared without origins tag");
-                    activityView.addView(node.getLocalName(), new TSTokenView(element));
-                    break;
-                default:
-                    throw new SAXException("Unknown tag <" + node.getLocalName() + "> tag in tokens");
-            }
+            activityView = processActivityElement(activityView, (Element) node);
         }
 
         return activityView;
     }
 
+    TSActivityView processActivityElement(TSActivityView activityView, Element element) throws Exception
+    {
+        switch (element.getLocalName())
+        {
+            case "origins":
+                TSOrigins origins = parseOrigins(element);
+                if (origins.isType(TSOriginType.Event)) activityView = new TSActivityView(origins);
+                break;
+            case "view": //TODO: Localisation
+            case "item-view":
+                addActivityView(activityView, element.getLocalName(), new TSTokenView(element));
+                break;
+            default:
+                throw new SAXException("Unknown tag <" + element.getLocalName() + "> tag in tokens");
+        }
+
+        return activityView;
+    }
+
+    void addActivityView(TSActivityView activityView, String viewName, TSTokenView view) throws SAXException
+    {
+        if (activityView == null) throw new SAXException("Activity card declared without origins tag");
+        activityView.addView(viewName, view);
+    }
+
     private void processTokenCardElements(Element card) throws Exception
     {
         NodeList ll = card.getChildNodes();
@@ -522,29 +550,33 @@ public class TokenDefinition {
             if (node.getNodeType() != ELEMENT_NODE)
                 continue;
 
-            Element element = (Element) node;
-            switch (node.getLocalName())
-            {
-                case "attribute":
-                    Attribute attr = new Attribute(element, this);
-                    tokenViews.localAttributeTypes.put(attr.name, attr);
-                    break;
-                case "view": //TODO: Localisation
-                case "item-view":
-                    TSTokenView v = new TSTokenView(element);
-                    tokenViews.views.put(node.getLocalName(), v);
-                    break;
-                case "view-iconified":
-                    throw new SAXException("Deprecated <view-iconified> used in <ts:token>. Replace with <item-view>");
-                case "style":
-                    tokenViews.globalStyle = getHTMLContent(element);
-                    break;
-                case "script":
-                    //misplaced script tag
-                    throw new SAXException("Misplaced <script> tag in <ts:token>");
-                default:
-                    throw new SAXException("Unknown tag <" + node.getLocalName() + "> tag in tokens");
-            }
+            processTokenCardElement((Element) node);
+        }
+    }
+
+    void processTokenCardElement(Element element) throws Exception
+    {
+        switch (element.getLocalName())
+        {
+            case "attribute":
+                Attribute attr = new Attribute(element, this);
+                tokenViews.localAttributeTypes.put(attr.name, attr);
+                break;
+            case "view": //TODO: Localisation
+            case "item-view":
+                TSTokenView v = new TSTokenView(element);
+                tokenViews.views.put(element.getLocalName(), v);
+                break;
+            case "view-iconified":
+                throw new SAXException("Deprecated <view-iconified> used in <ts:token>. Replace with <item-view>");
+            case "style":
+                tokenViews.globalStyle = getHTMLContent(element);
+                break;
+            case "script":
+                //misplaced script tag
+                throw new SAXException("Misplaced <script> tag in <ts:token>");
+            default:
+                throw new SAXException("Unknown tag <" + element.getLocalName() + "> tag in tokens");
         }
     }
 
@@ -566,7 +598,7 @@ public class TokenDefinition {
         return bestGuess;
     }
 
-    private void determineNamespace(Document xml, ParseResult result)
+    void determineNamespace(Document xml, ParseResult result)
     {
         nameSpace = ATTESTATION;
 
@@ -652,10 +684,7 @@ public class TokenDefinition {
     private TSAction handleAction(Element action) throws Exception
     {
         NodeList ll = action.getChildNodes();
-        TSAction tsAction = new TSAction();
-        tsAction.order = actionCount;
-        tsAction.exclude = action.getAttribute("exclude");
-        actionCount++;
+        TSAction tsAction = startAction(action.getAttribute("exclude"));
         for (int j = 0; j < ll.getLength(); j++)
         {
             Node node = ll.item(j);
@@ -665,51 +694,64 @@ public class TokenDefinition {
             if (node.getPrefix() != null && node.getPrefix().equalsIgnoreCase("ds"))
                 continue;
 
-            Element element = (Element) node;
-            switch (node.getLocalName())
-            {
-                case "label":
-                    tsAction.name = getLocalisedString(element);
-                    break;
-                case "attribute":
-                    Attribute attr = new Attribute(element, this);
-                    if (tsAction.attributes == null) {
-                        tsAction.attributes = new HashMap<>();
-                    }
-                    tsAction.attributes.put(attr.name, attr);
-                    break;
-                case "transaction":
-                    handleTransaction(tsAction, element);
-                    break;
-                case "exclude":
-                    tsAction.exclude = element.getAttribute("selection");
-                    break;
-                case "selection":
-                    throw new SAXException("<ts:selection> tag must be in main scope (eg same as <ts:origins>)");
-                case "view": //localised?
-                    tsAction.view = new TSTokenView(element);
-                    break;
-                case "style":
-                    tsAction.style = getHTMLContent(element);
-                    break;
-                case "input": //required for action only scripts
-                    handleInput(element);
-                    holdingToken = contracts.keySet().iterator().next(); //first key value
-                    break;
-                case "output":
-                    //TODO: Not yet handled.
-                    break;
-                case "script":
-                    //misplaced script tag
-                    throw new SAXException("Misplaced <script> tag in Action '" + tsAction.name + "'");
-                default:
-                    throw new SAXException("Unknown tag <" + node.getLocalName() + "> tag in Action '" + tsAction.name + "'");
-            }
+            processActionElement(tsAction, (Element) node);
         }
 
         return tsAction;
     }
 
+    TSAction startAction(String exclude)
+    {
+        TSAction tsAction = new TSAction();
+        tsAction.order = actionCount;
+        tsAction.exclude = exclude;
+        actionCount++;
+        return tsAction;
+    }
+
+    void processActionElement(TSAction tsAction, Element element) throws Exception
+    {
+        switch (element.getLocalName())
+        {
+            case "label":
+                tsAction.name = getLocalisedString(element);
+                break;
+            case "attribute":
+                Attribute attr = new Attribute(element, this);
+                if (tsAction.attributes == null) {
+                    tsAction.attributes = new HashMap<>();
+                }
+                tsAction.attributes.put(attr.name, attr);
+                break;
+            case "transaction":
+                handleTransaction(tsAction, element);
+                break;
+            case "exclude":
+                tsAction.exclude = element.getAttribute("selection");
+                break;
+            case "selection":
+                throw new SAXException("<ts:selection> tag must be in main scope (eg same as <ts:origins>)");
+            case "view": //localised?
+                tsAction.view = new TSTokenView(element);
+                break;
+            case "style":
+                tsAction.style = getHTMLContent(element);
+                break;
+            case "input": //required for action only scripts
+                handleInput(element);
+                holdingToken = contracts.keySet().iterator().next(); //first key value
+                break;
+            case "output":
+                //TODO: Not yet handled.
+                break;
+            case "script":
+                //misplaced script tag
+                throw new SAXException("Misplaced <script> tag in Action '" + tsAction.name + "'");
+            default:
+                throw new SAXException("Unknown tag <" + element.getLocalName() + "> tag in Action '" + tsAction.name + "'");
+        }
+    }
+
     private Element getFirstChildElement(Element e)
     {
         for(Node n=e.getFirstChild(); n!=null; n=n.getNextSibling())
@@ -795,6 +837,15 @@ public class TokenDefinition {
         return this.keyName;
     }
 
+    /**
+     * @return true if the definition was parsed without views. View names are present but their content isn't available;
+     * the script must be parsed again with views to render them
+     */
+    public boolean hasSkippedViews()
+    {
+        return viewsSkipped;
+    }
+
     public String getTokenNameList()
     {
         StringBuilder sb = new StringBuilder();
@@ -1037,7 +1088,7 @@ public class TokenDefinition {
         }
     }
 
-    private String getHTMLContent(Node content)
+    String getHTMLContent(Node content)
     {
         StringBuilder sb = new StringBuilder();
 
@@ -1215,6 +1266,7 @@ public class TokenDefinition {
      */
     public String getCardData(String tag)
     {
+        checkViewsParsed();
         TSTokenView view = tokenViews.views.get("view");
 
         if (tag.equals("view")) return view.tokenView;
@@ -1243,14 +1295,21 @@ public class TokenDefinition {
 
     public String getTokenView(String viewTag)
     {
+        checkViewsParsed();
         return tokenViews.getView(viewTag);
     }
 
     public String getTokenViewStyle(String viewTag)
     {
+        checkViewsParsed();
         return tokenViews.getViewStyle(viewTag);
     }
 
+    private void checkViewsParsed()
+    {
+        if (viewsSkipped) throw new IllegalStateException("Views were skipped when this definition was parsed");
+    }
+
     public Map<String, Attribute> getTokenViewLocalAttributes()
     {
         return tokenViews.localAttributeTypes;
@@ -1265,4 +1324,123 @@ public class TokenDefinition {
     {
         return selections.get(id);
     }
+
+    /**
+     * Dependency levels of the definition's attributes
+     */
+    public AttributeLevels getAttributeLevels()
+    {
+        return attributeLevels;
+    }
+
+    /**
+     * Dependency levels of the definition's attributes plus extra attributes, eg the local attributes of a view or action.
+     * References are found across both, so a definition attribute can depend on a local attribute and vice versa.
+     * @param extraAttrs
+     * @return
+     */
+    public AttributeLevels getAttributeLevels(Collection<Attribute> extraAttrs)
+    {
+        if (extraAttrs == null || extraAttrs.isEmpty()) return attributeLevels;
+
+        Map<String, Attribute> allAttrs = new LinkedHashMap<>(attributes);
+        for (Attribute attr : extraAttrs) allAttrs.put(attr.name, attr);
+
+        try
+        {
+            return buildLevels(allAttrs);
+        }
+        catch (SAXException e)
+        {
+            //cycle through a local attribute; references will be resolved as they're encountered
+            return new AttributeLevels(Collections.singletonList(new ArrayList<>(allAttrs.values())), getReferences(allAttrs));
+        }
+    }
+
+    /**
+     * Names of the attributes in attrs which are referenced from attr's function arguments or event filter
+     */
+    public static Set<String> getAttributeReferences(Attribute attr, Map<String, Attribute> attrs)
+    {
+        Set<String> refs = new HashSet<>();
+        if (attr.function != null)
+        {
+            for (MethodArg arg : attr.function.parameters)
+            {
+                if (arg.element == null) continue;
+                if (arg.element.ref != null && attrs.containsKey(arg.element.ref)) refs.add(arg.element.ref);
+                if (arg.element.localRef != null && attrs.containsKey(arg.element.localRef)) refs.add(arg.element.localRef);
+            }
+        }
+        if (attr.event != null && attr.event.filter != null)
+        {
+            String filterValue = attr.event.getFilterTopicValue();
+            if (filterValue != null && attrs.containsKey(filterValue)) refs.add(filterValue);
+        }
+
+        return refs;
+    }
+
+    /**
+     * Build the dependency levels of the attributes; called once parsing is complete
+     * @throws SAXException if attributes reference each other in a cycle
+     */
+    void buildAttributeLevels() throws SAXException
+    {
+        attributeLevels = buildLevels(attributes);
+    }
+
+    private static Set<String> getReferences(Map<String, Attribute> attrs)
+    {
+        Set<String> referenced = new HashSet<>();
+        for (Attribute attr : attrs.values()) referenced.addAll(getAttributeReferences(attr, attrs));
+        return referenced;
+    }
+
+    private static AttributeLevels buildLevels(Map<String, Attribute> attrs) throws SAXException
+    {
+        Map<String, Set<String>> unresolved = new LinkedHashMap<>();
+        Set<String> referenced = new HashSet<>();
+        for (Attribute attr : attrs.values())
+        {
+            Set<String> refs = getAttributeReferences(attr, attrs);
+            referenced.addAll(refs);
+            unresolved.put(attr.name, refs);
+        }
+
+        List<List<Attribute>> levels = new ArrayList<>();
+        while (!unresolved.isEmpty())
+        {
+            List<Attribute> level = new ArrayList<>();
+            for (Map.Entry<String, Set<String>> entry : unresolved.entrySet())
+            {
+                boolean ready = true;
+                for (String ref : entry.getValue())
+                {
+                    if (unresolved.containsKey(ref))
+                    {
+                        ready = false;
+                        break;
+                    }
+                }
+                if (ready) level.add(attrs.get(entry.getKey()));
+            }
+
+            if (level.isEmpty())
+            {
+                StringBuilder names = new StringBuilder();
+                for (String name : unresolved.keySet())
+                {
+                    if (names.length() > 0) names.append(", ");
+                    names.append(name);
+                }
+                throw new SAXException("Circular attribute reference between: " + names);
+            }
+
+            for (Attribute attr : level) unresolved.remove(attr.name);
+            levels.add(Collections.unmodifiableList(level));
+        }
+
+        return new AttributeLevels(Collections.unmodifiableList(levels), referenced);
+    }
 }
@@ -0,0 +1,745 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.As;
+import com.alphawallet.token.entity.Attribute;
+import com.alphawallet.token.entity.ContractInfo;
+import com.alphawallet.token.entity.EthereumTransaction;
+import com.alphawallet.token.entity.EventDefinition;
+import com.alphawallet.token.entity.FunctionDefinition;
+import com.alphawallet.token.entity.MethodArg;
+import com.alphawallet.token.entity.NamedType;
+import com.alphawallet.token.entity.TSAction;
+import com.alphawallet.token.entity.TSActivityView;
+import com.alphawallet.token.entity.TSOriginType;
+import com.alphawallet.token.entity.TSOrigins;
+import com.alphawallet.token.entity.TSSelection;
+import com.alphawallet.token.entity.TSTokenView;
+import com.alphawallet.token.entity.TokenscriptElement;
+import org.xml.sax.SAXException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compact binary snapshot of a parsed TokenDefinition, so a script that hasn't changed can be restored without any XML work.
+ *
+ * A snapshot is tied to the hash of the script file it came from and the locale it was parsed with (localised strings are
+ * resolved during parsing); {@link #read} returns null if either doesn't match, or the snapshot was written by a different
+ * format version, and the caller should fall back to parsing the script.
+ *
+ * Bump SNAPSHOT_VERSION on any change to the format or to the entity fields written here.
+ */
+public class TokenDefinitionSnapshot
+{
+    public static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_MAGIC = 0x54535344; // 'TSSD'
+
+    private static final String[] VIEW_NAMES = { "view", "item-view" };
+
+    //object reference encoding
+    private static final int REF_NULL = 0;
+    private static final int REF_NAMED = 1;
+    private static final int REF_INLINE = 2;
+
+    public static void write(TokenDefinition td, String fileHash, OutputStream out) throws IOException
+    {
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out));
+        new Writer(td, dos).writeDefinition(fileHash);
+        dos.flush();
+    }
+
+    /**
+     * Restore definition from a snapshot
+     * @param in snapshot stream
+     * @param fileHash hash of the current script file
+     * @param locale locale the definition is required in
+     * @return restored definition, or null if the snapshot is stale or from another format version
+     * @throws IOException if the snapshot is corrupt
+     */
+    public static TokenDefinition read(InputStream in, String fileHash, Locale locale) throws IOException
+    {
+        DataInputStream dis = new DataInputStream(new BufferedInputStream(in));
+        if (dis.readInt() != SNAPSHOT_MAGIC || readVarInt(dis) != SNAPSHOT_VERSION) return null;
+        if (!fileHash.equals(readString(dis)) || !locale.getLanguage().equals(readString(dis))) return null;
+
+        TokenDefinition td = new TokenDefinition();
+        td.locale = locale;
+        new Reader(td, dis).readDefinition();
+        try
+        {
+            td.buildAttributeLevels();
+        }
+        catch (SAXException e)
+        {
+            throw new IOException(e.getMessage(), e);
+        }
+        return td;
+    }
+
+    private static class Writer
+    {
+        private final TokenDefinition td;
+        private final DataOutputStream out;
+        private final Map<ContractInfo, String> contractNames = new IdentityHashMap<>();
+        private final Map<NamedType, String> namedTypes = new IdentityHashMap<>();
+
+        Writer(TokenDefinition td, DataOutputStream out)
+        {
+            this.td = td;
+            this.out = out;
+            for (Map.Entry<String, ContractInfo> entry : td.contracts.entrySet()) contractNames.put(entry.getValue(), entry.getKey());
+            for (Map.Entry<String, NamedType> entry : td.namedTypeLookup.entrySet()) namedTypes.put(entry.getValue(), entry.getKey());
+        }
+
+        void writeDefinition(String fileHash) throws IOException
+        {
+            out.writeInt(SNAPSHOT_MAGIC);
+            writeVarInt(out, SNAPSHOT_VERSION);
+            writeString(out, fileHash);
+            writeString(out, td.locale != null ? td.locale.getLanguage() : "");
+
+            writeString(out, td.nameSpace);
+            writeString(out, td.holdingToken);
+            writeString(out, td.getKeyName());
+            writeVarInt(out, td.actionCount);
+            writeStringMap(td.labels);
+
+            writeVarInt(out, td.contracts.size());
+            for (Map.Entry<String, ContractInfo> entry : td.contracts.entrySet())
+            {
+                writeString(out, entry.getKey());
+                writeContractInfo(entry.getValue());
+            }
+
+            writeVarInt(out, td.namedTypeLookup.size());
+            for (Map.Entry<String, NamedType> entry : td.namedTypeLookup.entrySet())
+            {
+                writeString(out, entry.getKey());
+                writeNamedType(entry.getValue());
+            }
+
+            writeAttributes(td.attributes);
+            writeAttributes(td.tokenViews.localAttributeTypes);
+            writeVarInt(out, td.tokenViews.views.size());
+            for (Map.Entry<String, TSTokenView> entry : td.tokenViews.views.entrySet())
+            {
+                writeString(out, entry.getKey());
+                writeView(entry.getValue());
+            }
+            writeString(out, td.tokenViews.globalStyle);
+
+            writeVarInt(out, td.selections.size());
+            for (TSSelection selection : td.selections.values())
+            {
+                writeString(out, selection.name);
+                writeString(out, selection.getFilterExpression());
+                writeString(out, selection.denialMessage);
+                writeStringMap(selection.names);
+            }
+
+            writeVarInt(out, td.actions.size());
+            for (Map.Entry<String, TSAction> entry : td.actions.entrySet())
+            {
+                writeString(out, entry.getKey());
+                writeAction(entry.getValue());
+            }
+
+            writeVarInt(out, td.activityCards.size());
+            for (Map.Entry<String, TSActivityView> entry : td.activityCards.entrySet())
+            {
+                writeString(out, entry.getKey());
+                writeActivityView(entry.getValue());
+            }
+        }
+
+        private void writeContractInfo(ContractInfo info) throws IOException
+        {
+            writeString(out, info.contractInterface);
+            writeVarInt(out, info.addresses.size());
+            for (Map.Entry<Integer, List<String>> entry : info.addresses.entrySet())
+            {
+                writeVarInt(out, entry.getKey());
+                writeVarInt(out, entry.getValue().size());
+                for (String address : entry.getValue()) writeString(out, address);
+            }
+        }
+
+        private void writeContractRef(ContractInfo info) throws IOException
+        {
+            if (info == null)
+            {
+                writeVarInt(out, REF_NULL);
+            }
+            else if (contractNames.containsKey(info))
+            {
+                writeVarInt(out, REF_NAMED);
+                writeString(out, contractNames.get(info));
+            }
+            else
+            {
+                writeVarInt(out, REF_INLINE);
+                writeContractInfo(info);
+            }
+        }
+
+        private void writeNamedType(NamedType type) throws IOException
+        {
+            writeString(out, type.name);
+            writeVarInt(out, type.sequence.size());
+            for (NamedType.SequenceElement se : type.sequence)
+            {
+                writeString(out, se.name);
+                writeString(out, se.type);
+                out.writeBoolean(se.indexed);
+            }
+        }
+
+        private void writeNamedTypeRef(NamedType type) throws IOException
+        {
+            if (type == null)
+            {
+                writeVarInt(out, REF_NULL);
+            }
+            else if (namedTypes.containsKey(type))
+            {
+                writeVarInt(out, REF_NAMED);
+                writeString(out, namedTypes.get(type));
+            }
+            else
+            {
+                writeVarInt(out, REF_INLINE);
+                writeNamedType(type);
+            }
+        }
+
+        private void writeAttributes(Map<String, Attribute> attributes) throws IOException
+        {
+            if (attributes == null)
+            {
+                writeVarInt(out, -1);
+                return;
+            }
+
+            writeVarInt(out, attributes.size());
+            for (Map.Entry<String, Attribute> entry : attributes.entrySet())
+            {
+                writeString(out, entry.getKey());
+                writeAttribute(entry.getValue());
+            }
+        }
+
+        private void writeAttribute(Attribute attr) throws IOException
+        {
+            writeString(out, attr.name);
+            writeString(out, attr.label);
+            writeBigInteger(out, attr.bitmask);
+            writeVarInt(out, attr.bitshift);
+            writeEnum(out, attr.syntax);
+            writeEnum(out, attr.as);
+            if (attr.members == null)
+            {
+                writeVarInt(out, -1);
+            }
+            else
+            {
+                writeVarInt(out, attr.members.size());
+                for (Map.Entry<BigInteger, String> entry : attr.members.entrySet())
+                {
+                    writeBigInteger(out, entry.getKey());
+                    writeString(out, entry.getValue());
+                }
+            }
+            writeContractRef(attr.originContract);
+            writeFunction(attr.function);
+            writeEvent(attr.event, attr);
+            out.writeBoolean(attr.userInput);
+        }
+
+        private void writeFunction(FunctionDefinition fd) throws IOException
+        {
+            out.writeBoolean(fd != null);
+            if (fd == null) return;
+            writeContractRef(fd.contract);
+            writeString(out, fd.method);
+            writeEnum(out, fd.syntax);
+            writeEnum(out, fd.as);
+            writeVarInt(out, fd.parameters.size());
+            for (MethodArg arg : fd.parameters)
+            {
+                writeString(out, arg.parameterType);
+                writeElement(arg.element);
+            }
+
+            out.writeBoolean(fd.tx != null);
+            if (fd.tx != null)
+            {
+                writeVarInt(out, fd.tx.args.size());
+                for (Map.Entry<String, TokenscriptElement> entry : fd.tx.args.entrySet())
+                {
+                    writeString(out, entry.getKey());
+                    writeElement(entry.getValue());
+                }
+            }
+        }
+
+        private void writeElement(TokenscriptElement element) throws IOException
+        {
+            out.writeBoolean(element != null);
+            if (element == null) return;
+            writeString(out, element.localRef);
+            writeString(out, element.ref);
+            writeString(out, element.value);
+        }
+
+        private void writeEvent(EventDefinition ev, Attribute owner) throws IOException
+        {
+            out.writeBoolean(ev != null);
+            if (ev == null) return;
+            writeContractRef(ev.contract);
+            writeString(out, ev.attributeName);
+            writeNamedTypeRef(ev.type);
+            writeString(out, ev.filter);
+            writeString(out, ev.select);
+            writeString(out, ev.activityName);
+            out.writeBoolean(owner != null && ev.parentAttribute == owner);
+        }
+
+        private void writeView(TSTokenView view) throws IOException
+        {
+            out.writeBoolean(view != null);
+            if (view == null) return;
+            writeString(out, view.style);
+            writeString(out, view.tokenView);
+        }
+
+        private void writeAction(TSAction action) throws IOException
+        {
+            writeVarInt(out, action.order);
+            writeString(out, action.exclude);
+            writeView(action.view);
+            writeString(out, action.style);
+            writeString(out, action.name);
+            writeAttributes(action.attributes);
+            writeFunction(action.function);
+        }
+
+        private void writeActivityView(TSActivityView activityView) throws IOException
+        {
+            out.writeBoolean(activityView != null);
+            if (activityView == null) return;
+            TSOrigins origins = activityView.getOrigins();
+            writeEnum(out, origins.isType(TSOriginType.Event) ? TSOriginType.Event : TSOriginType.Contract);
+            writeString(out, origins.getOriginName());
+            writeEvent(origins.getOriginEvent(), null);
+            for (String viewName : VIEW_NAMES) writeView(activityView.getView(viewName));
+        }
+
+        private void writeStringMap(Map<String, String> map) throws IOException
+        {
+            if (map == null)
+            {
+                writeVarInt(out, -1);
+                return;
+            }
+
+            writeVarInt(out, map.size());
+            for (Map.Entry<String, String> entry : map.entrySet())
+            {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+        }
+    }
+
+    private static class Reader
+    {
+        private final TokenDefinition td;
+        private final DataInputStream in;
+
+        Reader(TokenDefinition td, DataInputStream in)
+        {
+            this.td = td;
+            this.in = in;
+        }
+
+        void readDefinition() throws IOException
+        {
+            td.nameSpace = readString(in);
+            td.holdingToken = readString(in);
+            td.keyName = readString(in);
+            td.actionCount = readVarInt(in);
+            Map<String, String> labels = readStringMap();
+            td.labels = labels != null ? labels : new HashMap<>();
+
+            int count = readVarInt(in);
+            for (int i = 0; i < count; i++)
+            {
+                String name = readString(in);
+                td.contracts.put(name, readContractInfo());
+            }
+
+            count = readVarInt(in);
+            for (int i = 0; i < count; i++)
+            {
+                String name = readString(in);
+                td.namedTypeLookup.put(name, readNamedType());
+            }
+
+            td.attributes.putAll(readAttributes());
+            td.tokenViews.localAttributeTypes.putAll(readAttributes());
+            count = readVarInt(in);
+            for (int i = 0; i < count; i++)
+            {
+                String name = readString(in);
+                td.tokenViews.views.put(name, readView());
+            }
+            td.tokenViews.globalStyle = readString(in);
+
+            count = readVarInt(in);
+            for (int i = 0; i < count; i++)
+            {
+                String name = readString(in);
+                String filterExpression = readString(in);
+                TSSelection selection;
+                try
+                {
+                    selection = new TSSelection(filterExpression);
+                }
+                catch (SAXException e)
+                {
+                    throw new IOException("Corrupt selection in snapshot: " + name, e);
+                }
+                selection.name = name;
+                selection.denialMessage = readString(in);
+                selection.names = readStringMap();
+                td.selections.put(name, selection);
+            }
+
+            count = readVarInt(in);
+            for (int i = 0; i < count; i++)
+            {
+                String name = readString(in);
+                td.actions.put(name, readAction());
+            }
+
+            count = readVarInt(in);
+            for (int i = 0; i < count; i++)
+            {
+                String name = readString(in);
+                td.activityCards.put(name, readActivityView());
+            }
+        }
+
+        private ContractInfo readContractInfo() throws IOException
+        {
+            ContractInfo info = new ContractInfo(readString(in));
+            int chainCount = readVarInt(in);
+            for (int i = 0; i < chainCount; i++)
+            {
+                int chainId = readVarInt(in);
+                int addressCount = readVarInt(in);
+                List<String> addresses = new ArrayList<>(addressCount);
+                for (int j = 0; j < addressCount; j++) addresses.add(readString(in));
+                info.addresses.put(chainId, addresses);
+            }
+
+            return info;
+        }
+
+        private ContractInfo readContractRef() throws IOException
+        {
+            switch (readVarInt(in))
+            {
+                case REF_NAMED:
+                    return td.contracts.get(readString(in));
+                case REF_INLINE:
+                    return readContractInfo();
+                default:
+                    return null;
+            }
+        }
+
+        private NamedType readNamedType() throws IOException
+        {
+            NamedType type = new NamedType(readString(in));
+            int count = readVarInt(in);
+            for (int i = 0; i < count; i++)
+            {
+                NamedType.SequenceElement se = type.new SequenceElement();
+                se.name = readString(in);
+                se.type = readString(in);
+                se.indexed = in.readBoolean();
+                type.sequence.add(se);
+            }
+
+            return type;
+        }
+
+        private NamedType readNamedTypeRef() throws IOException
+        {
+            switch (readVarInt(in))
+            {
+                case REF_NAMED:
+                    return td.namedTypeLookup.get(readString(in));
+                case REF_INLINE:
+                    return readNamedType();
+                default:
+                    return null;
+            }
+        }
+
+        private Map<String, Attribute> readAttributes() throws IOException
+        {
+            int count = readVarInt(in);
+            if (count < 0) return null;
+            Map<String, Attribute> attributes = new HashMap<>();
+            for (int i = 0; i < count; i++)
+            {
+                String name = readString(in);
+                attributes.put(name, readAttribute());
+            }
+
+            return attributes;
+        }
+
+        private Attribute readAttribute() throws IOException
+        {
+            Attribute attr = new Attribute();
+            attr.name = readString(in);
+            attr.label = readString(in);
+            attr.bitmask = readBigInteger(in);
+            attr.bitshift = readVarInt(in);
+            attr.syntax = readEnum(in, TokenDefinition.Syntax.values());
+            attr.as = readEnum(in, As.values());
+            int memberCount = readVarInt(in);
+            if (memberCount >= 0)
+            {
+                attr.members = new HashMap<>();
+                for (int i = 0; i < memberCount; i++)
+                {
+                    BigInteger key = readBigInteger(in);
+                    attr.members.put(key, readString(in));
+                }
+            }
+            attr.originContract = readContractRef();
+            attr.function = readFunction();
+            attr.event = readEvent(attr);
+            attr.userInput = in.readBoolean();
+            return attr;
+        }
+
+        private FunctionDefinition readFunction() throws IOException
+        {
+            if (!in.readBoolean()) return null;
+            FunctionDefinition fd = new FunctionDefinition();
+            fd.contract = readContractRef();
+            fd.method = readString(in);
+            fd.syntax = readEnum(in, TokenDefinition.Syntax.values());
+            fd.as = readEnum(in, As.values());
+            int count = readVarInt(in);
+            for (int i = 0; i < count; i++)
+            {
+                MethodArg arg = new MethodArg();
+                arg.parameterType = readString(in);
+                arg.element = readElement();
+                fd.parameters.add(arg);
+            }
+
+            if (in.readBoolean())
+            {
+                fd.tx = new EthereumTransaction();
+                count = readVarInt(in);
+                for (int i = 0; i < count; i++)
+                {
+                    String name = readString(in);
+                    fd.tx.args.put(name, readElement());
+                }
+            }
+
+            return fd;
+        }
+
+        private TokenscriptElement readElement() throws IOException
+        {
+            if (!in.readBoolean()) return null;
+            TokenscriptElement element = new TokenscriptElement();
+            element.localRef = readString(in);
+            element.ref = readString(in);
+            element.value = readString(in);
+            return element;
+        }
+
+        private EventDefinition readEvent(Attribute owner) throws IOException
+        {
+            if (!in.readBoolean()) return null;
+            EventDefinition ev = new EventDefinition();
+            ev.contract = readContractRef();
+            ev.attributeName = readString(in);
+            ev.type = readNamedTypeRef();
+            ev.filter = readString(in);
+            ev.select = readString(in);
+            ev.activityName = readString(in);
+            if (in.readBoolean()) ev.parentAttribute = owner;
+            return ev;
+        }
+
+        private TSTokenView readView() throws IOException
+        {
+            if (!in.readBoolean()) return null;
+            String style = readString(in);
+            return new TSTokenView(style, readString(in));
+        }
+
+        private TSAction readAction() throws IOException
+        {
+            TSAction action = new TSAction();
+            action.order = readVarInt(in);
+            action.exclude = readString(in);
+            action.view = readView();
+            action.style = readString(in);
+            action.name = readString(in);
+            action.attributes = readAttributes();
+            action.function = readFunction();
+            return action;
+        }
+
+        private TSActivityView readActivityView() throws IOException
+        {
+            if (!in.readBoolean()) return null;
+            TSOriginType type = readEnum(in, TSOriginType.values());
+            String originName = readString(in);
+            EventDefinition ev = readEvent(null);
+            TSActivityView activityView;
+            try
+            {
+                activityView = new TSActivityView(new TSOrigins.Builder(type).name(originName).event(ev).build());
+            }
+            catch (SAXException e)
+            {
+                throw new IOException("Corrupt activity card in snapshot: " + originName, e);
+            }
+
+            for (String viewName : VIEW_NAMES)
+            {
+                TSTokenView view = readView();
+                if (view != null) activityView.addView(viewName, view);
+            }
+
+            return activityView;
+        }
+
+        private Map<String, String> readStringMap() throws IOException
+        {
+            int count = readVarInt(in);
+            if (count < 0) return null;
+            Map<String, String> map = new HashMap<>();
+            for (int i = 0; i < count; i++)
+            {
+                String key = readString(in);
+                map.put(key, readString(in));
+            }
+
+            return map;
+        }
+    }
+
+    //Primitive encoding. Lengths and counts are zigzag varints so -1 can mark null at a single byte cost.
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException
+    {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0)
+        {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException
+    {
+        int zigzag = 0;
+        int shift = 0;
+        int b;
+        do
+        {
+            if (shift > 28) throw new IOException("Malformed varint in snapshot");
+            b = in.readUnsignedByte();
+            zigzag |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException
+    {
+        if (value == null)
+        {
+            writeVarInt(out, -1);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException
+    {
+        int length = readVarInt(in);
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBigInteger(DataOutputStream out, BigInteger value) throws IOException
+    {
+        if (value == null)
+        {
+            writeVarInt(out, -1);
+            return;
+        }
+
+        byte[] bytes = value.toByteArray();
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static BigInteger readBigInteger(DataInputStream in) throws IOException
+    {
+        int length = readVarInt(in);
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new BigInteger(bytes);
+    }
+
+    private static void writeEnum(DataOutputStream out, Enum<?> value) throws IOException
+    {
+        writeVarInt(out, value != null ? value.ordinal() : -1);
+    }
+
+    private static <T extends Enum<T>> T readEnum(DataInputStream in, T[] values) throws IOException
+    {
+        int ordinal = readVarInt(in);
+        if (ordinal < 0) return null;
+        if (ordinal >= values.length) throw new IOException("Unknown enum value in snapshot");
+        return values[ordinal];
+    }
+}
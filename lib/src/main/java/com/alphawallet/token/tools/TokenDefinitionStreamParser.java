@@ -0,0 +1,605 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.ParseResult;
+import com.alphawallet.token.entity.TSAction;
+import com.alphawallet.token.entity.TSActivityView;
+import com.alphawallet.token.entity.TSTokenView;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Builds a TokenDefinition from a StAX pull parser instead of a full W3C DOM of the script.
+ *
+ * The script structure (token, cards, card) is walked as a stream. Each small leaf element (attribute, contract, module,
+ * label etc) is read into a detached DOM fragment and handed to the same TokenDefinition handlers as the DOM parser,
+ * then discarded, so only one such fragment is held at a time. View bodies, which are the bulk of most scripts,
+ * are serialised straight from the stream, or skipped entirely for a structure only parse; see {@link TokenDefinition#hasSkippedViews()}.
+ *
+ * The resulting object model matches the DOM constructor. Legacy (non namespaced) scripts are only detected at the end of the
+ * stream so may throw a parse error instead of returning an empty definition.
+ *
+ * Note that javax.xml.stream is not available on Android.
+ */
+public class TokenDefinitionStreamParser
+{
+    private static final String XMLDSIG_NAMESPACE = "http://www.w3.org/2000/09/xmldsig#";
+
+    private final TokenDefinition td;
+    private final XMLStreamReader reader;
+    private final Document fragmentDoc;
+    private final boolean includeViews;
+    private boolean tokenFound = false;
+    private StringBuilder keyNameText = null;
+
+    /**
+     * Parse script including all views
+     */
+    public static TokenDefinition parse(InputStream xmlAsset, Locale locale, ParseResult result) throws IOException, SAXException
+    {
+        return parse(xmlAsset, locale, result, true);
+    }
+
+    /**
+     * @param xmlAsset script stream
+     * @param locale locale to resolve strings in
+     * @param result parse result callback, may be null
+     * @param includeViews false for a structure only parse: view and style bodies are skipped and can't be loaded later,
+     *                     and the view getters throw. View names are still recorded
+     * @return parsed definition
+     */
+    public static TokenDefinition parse(InputStream xmlAsset, Locale locale, ParseResult result, boolean includeViews) throws IOException, SAXException
+    {
+        /* guard input from bad programs which creates Locale not following ISO 639 */
+        if (locale.getLanguage().length() < 2 || locale.getLanguage().length() > 3) {
+            throw new SAXException("Locale object wasn't created following ISO 639");
+        }
+
+        TokenDefinition td = new TokenDefinition();
+        td.locale = locale;
+
+        XMLStreamReader reader = null;
+        try
+        {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+            factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+            reader = factory.createXMLStreamReader(xmlAsset);
+            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+            dbFactory.setNamespaceAware(true);
+            Document fragmentDoc = dbFactory.newDocumentBuilder().newDocument();
+
+            return new TokenDefinitionStreamParser(td, reader, fragmentDoc, includeViews).parseDocument(result);
+        }
+        catch (ParserConfigurationException e)
+        {
+            e.printStackTrace();
+            return td;
+        }
+        catch (XMLStreamException e)
+        {
+            throw new SAXException(e.getMessage(), e);
+        }
+        catch (IOException|SAXException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace(); //catch other type of exception not thrown by this function.
+            if (result != null) result.parseMessage(ParseResult.ParseResultId.PARSE_FAILED);
+            return td;
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                try { reader.close(); } catch (XMLStreamException e) { /* ignore */ }
+            }
+        }
+    }
+
+    private TokenDefinitionStreamParser(TokenDefinition td, XMLStreamReader reader, Document fragmentDoc, boolean includeViews)
+    {
+        this.td = td;
+        this.reader = reader;
+        this.fragmentDoc = fragmentDoc;
+        this.includeViews = includeViews;
+    }
+
+    private TokenDefinition parseDocument(ParseResult result) throws Exception
+    {
+        while (reader.getEventType() != XMLStreamConstants.START_ELEMENT)
+        {
+            if (!reader.hasNext()) return td;
+            next();
+        }
+
+        //namespace is determined from the root element's attributes, in DOM attribute order
+        Element root = createElement();
+        fragmentDoc.appendChild(root);
+        td.determineNamespace(fragmentDoc, result);
+        fragmentDoc.removeChild(root);
+        checkElement();
+
+        if (td.nameSpace == null)
+        {
+            System.out.println("Legacy XML format - no longer supported");
+            return td;
+        }
+
+        if (reader.getLocalName().equals("card")) //action only script
+        {
+            TSAction action = readAction();
+            td.actions.put(action.name, action);
+        }
+        else
+        {
+            readToken();
+        }
+
+        while (reader.hasNext()) next(); //trailing content, eg signature
+        td.buildAttributeLevels();
+
+        if (!tokenFound)
+        {
+            System.out.println("Legacy XML format - no longer supported");
+            TokenDefinition empty = new TokenDefinition();
+            empty.locale = td.locale;
+            empty.nameSpace = td.nameSpace;
+            return empty;
+        }
+
+        return td;
+    }
+
+    private void readToken() throws Exception
+    {
+        while (nextChildElement())
+        {
+            if (reader.getLocalName().equals("cards"))
+            {
+                readCards();
+            }
+            else
+            {
+                td.extractTag(readFragment());
+            }
+        }
+    }
+
+    private void readCards() throws Exception
+    {
+        while (nextChildElement())
+        {
+            switch (reader.getLocalName())
+            {
+                case "token":
+                    readTokenCard();
+                    break;
+                case "card":
+                    readCard();
+                    break;
+                default:
+                    skipElement();
+                    break;
+            }
+        }
+    }
+
+    private void readCard() throws Exception
+    {
+        String type = getAttribute("type");
+        switch (type)
+        {
+            case "token":
+                readTokenCard();
+                break;
+            case "action":
+                TSAction action = readAction();
+                td.actions.put(action.name, action);
+                break;
+            case "activity":
+                String name = getAttribute("name");
+                td.activityCards.put(name, readActivityCard());
+                break;
+            default:
+                throw new SAXException("Unexpected card type found: " + type);
+        }
+    }
+
+    private void readTokenCard() throws Exception
+    {
+        while (nextChildElement())
+        {
+            switch (reader.getLocalName())
+            {
+                case "view":
+                case "item-view":
+                    String viewName = reader.getLocalName();
+                    td.tokenViews.views.put(viewName, readView());
+                    break;
+                case "style":
+                    if (includeViews) td.tokenViews.globalStyle = td.getHTMLContent(readFragment());
+                    else skipElement();
+                    break;
+                default:
+                    td.processTokenCardElement(readFragment());
+                    break;
+            }
+        }
+    }
+
+    private TSAction readAction() throws Exception
+    {
+        TSAction tsAction = td.startAction(getAttribute("exclude"));
+        while (nextChildElement())
+        {
+            if (reader.getPrefix() != null && reader.getPrefix().equalsIgnoreCase("ds"))
+            {
+                skipElement();
+                continue;
+            }
+
+            switch (reader.getLocalName())
+            {
+                case "view":
+                    tsAction.view = readView();
+                    break;
+                case "style":
+                    if (includeViews) tsAction.style = td.getHTMLContent(readFragment());
+                    else skipElement();
+                    break;
+                default:
+                    td.processActionElement(tsAction, readFragment());
+                    break;
+            }
+        }
+
+        return tsAction;
+    }
+
+    private TSActivityView readActivityCard() throws Exception
+    {
+        TSActivityView activityView = null;
+        while (nextChildElement())
+        {
+            switch (reader.getLocalName())
+            {
+                case "view":
+                case "item-view":
+                    String viewName = reader.getLocalName();
+                    td.addActivityView(activityView, viewName, readView());
+                    break;
+                default:
+                    activityView = td.processActivityElement(activityView, readFragment());
+                    break;
+            }
+        }
+
+        return activityView;
+    }
+
+    /**
+     * Build the view directly from the stream, producing the same html as TSTokenView(Element).
+     * Reader is positioned on the view start element, and left on its end element.
+     */
+    private TSTokenView readView() throws XMLStreamException
+    {
+        if (!includeViews)
+        {
+            skipElement();
+            td.viewsSkipped = true;
+            return new TSTokenView("", "");
+        }
+
+        StringBuilder style = new StringBuilder();
+        StringBuilder view = new StringBuilder();
+        int childCount = 0;
+        String onlyText = null;
+        boolean inText = false;
+
+        while (true)
+        {
+            switch (next())
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    childCount++;
+                    inText = false;
+                    if (reader.getLocalName().equals("style"))
+                    {
+                        style.append(readHTMLContent());
+                    }
+                    else
+                    {
+                        view.append(readElementHTML());
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (!inText)
+                    {
+                        childCount++;
+                        onlyText = reader.getText();
+                    }
+                    else if (onlyText != null)
+                    {
+                        onlyText += reader.getText();
+                    }
+                    inText = true;
+                    break;
+                case XMLStreamConstants.COMMENT:
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    childCount++;
+                    inText = false;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (childCount == 1 && onlyText != null)
+                    {
+                        //handle text item-view
+                        return new TSTokenView(style.toString(), onlyText.replace("’", "&#x2019;"));
+                    }
+                    return new TSTokenView(style.toString(), view.toString());
+                default:
+                    break;
+            }
+        }
+    }
+
+    private String readElementHTML() throws XMLStreamException
+    {
+        String localName = reader.getLocalName();
+        StringBuilder sb = new StringBuilder();
+        sb.append("<");
+        sb.append(localName);
+        sb.append(htmlAttributes());
+        sb.append(">");
+        sb.append(readHTMLContent());
+        sb.append("</");
+        sb.append(localName);
+        sb.append(">");
+
+        return sb.toString();
+    }
+
+    /**
+     * Serialise the content of the current element, leaving the reader on its end element
+     */
+    private String readHTMLContent() throws XMLStreamException
+    {
+        StringBuilder sb = new StringBuilder();
+        while (true)
+        {
+            switch (next())
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    sb.append(readElementHTML());
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    sb.append(reader.getText().replace("’", "&#x2019;"));
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    sb.append(reader.getPIData() != null ? reader.getPIData() : "");
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    return sb.toString();
+                default: //no need to record comment nodes
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Attributes of the current element, including namespace declarations, ordered by qualified name as a DOM would hold them
+     */
+    private String htmlAttributes()
+    {
+        List<String[]> attrs = new ArrayList<>();
+        for (int i = 0; i < reader.getNamespaceCount(); i++)
+        {
+            String prefix = reader.getNamespacePrefix(i);
+            if (prefix == null || prefix.isEmpty()) attrs.add(new String[] { "xmlns", "xmlns", reader.getNamespaceURI(i) });
+            else attrs.add(new String[] { "xmlns:" + prefix, prefix, reader.getNamespaceURI(i) });
+        }
+
+        for (int i = 0; i < reader.getAttributeCount(); i++)
+        {
+            String prefix = reader.getAttributePrefix(i);
+            String localName = reader.getAttributeLocalName(i);
+            String qName = (prefix == null || prefix.isEmpty()) ? localName : prefix + ":" + localName;
+            attrs.add(new String[] { qName, localName, reader.getAttributeValue(i) });
+        }
+
+        Collections.sort(attrs, (a1, a2) -> a1[0].compareTo(a2[0]));
+
+        StringBuilder sb = new StringBuilder();
+        for (String[] attr : attrs)
+        {
+            sb.append(" ");
+            sb.append(attr[1]);
+            sb.append("=\"");
+            sb.append(attr[2]);
+            sb.append("\"");
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Read the current element and its content into a detached DOM fragment, leaving the reader on its end element
+     */
+    private Element readFragment() throws XMLStreamException
+    {
+        Element fragment = createElement();
+        Node current = fragment;
+        while (true)
+        {
+            switch (next())
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    Element child = createElement();
+                    current.appendChild(child);
+                    current = child;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    Node last = current.getLastChild();
+                    if (last != null && last.getNodeType() == Node.TEXT_NODE)
+                    {
+                        last.setNodeValue(last.getNodeValue() + reader.getText());
+                    }
+                    else
+                    {
+                        current.appendChild(fragmentDoc.createTextNode(reader.getText()));
+                    }
+                    break;
+                case XMLStreamConstants.COMMENT:
+                    current.appendChild(fragmentDoc.createComment(reader.getText()));
+                    break;
+                case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                    current.appendChild(fragmentDoc.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (current == fragment) return fragment;
+                    current = current.getParentNode();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private Element createElement()
+    {
+        String namespace = reader.getNamespaceURI();
+        String prefix = reader.getPrefix();
+        String qName = (prefix == null || prefix.isEmpty()) ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+        Element element = fragmentDoc.createElementNS(namespace == null || namespace.isEmpty() ? null : namespace, qName);
+
+        for (int i = 0; i < reader.getNamespaceCount(); i++)
+        {
+            String nsPrefix = reader.getNamespacePrefix(i);
+            String nsName = (nsPrefix == null || nsPrefix.isEmpty()) ? "xmlns" : "xmlns:" + nsPrefix;
+            element.setAttributeNS(XMLConstants.XMLNS_ATTRIBUTE_NS_URI, nsName, reader.getNamespaceURI(i));
+        }
+
+        for (int i = 0; i < reader.getAttributeCount(); i++)
+        {
+            String attrNamespace = reader.getAttributeNamespace(i);
+            String attrPrefix = reader.getAttributePrefix(i);
+            String attrName = (attrPrefix == null || attrPrefix.isEmpty()) ? reader.getAttributeLocalName(i) : attrPrefix + ":" + reader.getAttributeLocalName(i);
+            element.setAttributeNS(attrNamespace == null || attrNamespace.isEmpty() ? null : attrNamespace, attrName, reader.getAttributeValue(i));
+        }
+
+        return element;
+    }
+
+    private void skipElement() throws XMLStreamException
+    {
+        int depth = 1;
+        while (depth > 0)
+        {
+            switch (next())
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Advance to the next child element of the current element
+     * @return true if positioned on a child start element, false if the parent's end element was reached
+     */
+    private boolean nextChildElement() throws XMLStreamException
+    {
+        while (true)
+        {
+            switch (next())
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    return true;
+                case XMLStreamConstants.END_ELEMENT:
+                case XMLStreamConstants.END_DOCUMENT:
+                    return false;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private String getAttribute(String name)
+    {
+        String value = reader.getAttributeValue(null, name);
+        return value != null ? value : ""; //match DOM getAttribute
+    }
+
+    /**
+     * All reads go through here so whole-document lookups of the DOM parser (token element presence, signature KeyName)
+     * see every element, including those skipped or serialised as html.
+     */
+    private int next() throws XMLStreamException
+    {
+        int event = reader.next();
+        switch (event)
+        {
+            case XMLStreamConstants.START_ELEMENT:
+                checkElement();
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if (keyNameText != null) keyNameText.append(reader.getText());
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                if (keyNameText != null && isElement(XMLDSIG_NAMESPACE, "KeyName"))
+                {
+                    td.keyName = keyNameText.toString();
+                    keyNameText = null;
+                }
+                break;
+            default:
+                break;
+        }
+
+        return event;
+    }
+
+    private void checkElement()
+    {
+        if (isElement(td.nameSpace, "token")) tokenFound = true;
+        if (td.keyName == null && keyNameText == null && isElement(XMLDSIG_NAMESPACE, "KeyName")) keyNameText = new StringBuilder();
+    }
+
+    private boolean isElement(String namespace, String localName)
+    {
+        return namespace != null && namespace.equals(reader.getNamespaceURI()) && localName.equals(reader.getLocalName());
+    }
+}
@@ -4,20 +4,24 @@ import org.w3c.dom.DOMException;
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigInteger;
 import java.security.InvalidAlgorithmParameterException;
+import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.KeyException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.Principal;
 import java.security.PublicKey;
 import java.security.Security;
 import java.security.cert.CertPathValidator;
 import java.security.cert.CertPathValidatorException;
-import java.security.cert.CertificateException;
 import java.security.cert.CertificateExpiredException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.CertificateNotYetValidException;
@@ -26,8 +30,11 @@ import java.security.cert.TrustAnchor;
 import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
 import javax.xml.crypto.AlgorithmMethod;
@@ -68,29 +75,174 @@ import com.alphawallet.token.entity.XMLDsigVerificationResult;
  * - Multi-signature XML file
  * - Ignores any public key provided in KeyInfo
  *
+ * Results are cached by the SHA-256 of the file, so verifying the same file again is a lookup.
+ * A valid result is kept until the signing certificate's notAfter, and at most VALID_RESULT_TTL
+ * so that a revocation is eventually seen. Failures are kept for a shorter time, except a failure to
+ * find the revocation status, which may pass on the next attempt and isn't cached.
+ *
  * See the test case for usage examples.
  */
 public class XMLDSigVerifier {
 
+    private static final int CACHE_SIZE = 256;
+    private static final long VALID_RESULT_TTL = TimeUnit.HOURS.toMillis(1);
+    private static final long FAILED_RESULT_TTL = TimeUnit.MINUTES.toMillis(5);
+
+    private static final Map<String, CachedVerification> verificationCache = new LinkedHashMap<String, CachedVerification>(16, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedVerification> eldest)
+        {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    //trust anchors of the installed JRE, built once
+    private static PKIXParameters pkixParameters;
+
     public XMLDsigVerificationResult VerifyXMLDSig(InputStream fileStream)
     {
+        try
+        {
+            return VerifyXMLDSig(readAll(fileStream));
+        }
+        catch (IOException e)
+        {
+            XMLDsigVerificationResult result = new XMLDsigVerificationResult();
+            result.failureReason = e.getMessage();
+            return result;
+        }
+    }
+
+    public XMLDsigVerificationResult VerifyXMLDSig(byte[] fileContent)
+    {
+        String digest = getDigest(fileContent);
+        CachedVerification cached = getCached(digest);
+        if (cached != null) return copyOf(cached.result);
+
         XMLDsigVerificationResult result = new XMLDsigVerificationResult();
+        long expiry = System.currentTimeMillis() + FAILED_RESULT_TTL;
+        boolean cacheable = true;
         try
         {
             //Signature will also be validated in this call, if it fails an exception is thrown
             //No point to validate the certificate is this signature is invalid to begin with
             //And TrustAddressGenerator needs to get an XMLSignature too.
-            XMLSignature signature = getValidXMLSignature(fileStream);
+            XMLSignature signature = getValidXMLSignature(new ByteArrayInputStream(fileContent));
             result.isValid = true; //would go to catch if this was not the case
             //check that the tsml file is signed by a valid certificate
-            return validateCertificateIssuer(signature, result);
+            X509Certificate signingCert = validateCertificateIssuer(signature, result);
+            expiry = getValidResultExpiry(signingCert);
         }
         catch(Exception e)
         {
             result.isValid = false;
             result.failureReason = e.getMessage();
-            return result;
+            //the same file fails again unless the failure came from reaching the revocation service
+            cacheable = !isTransientFailure(e);
         }
+
+        if (digest != null && cacheable)
+        {
+            synchronized (verificationCache)
+            {
+                verificationCache.put(digest, new CachedVerification(result, expiry));
+            }
+        }
+
+        return copyOf(result);
+    }
+
+    /**
+     * Drop all cached verification results
+     */
+    public static void clearCache()
+    {
+        synchronized (verificationCache)
+        {
+            verificationCache.clear();
+        }
+    }
+
+    private static CachedVerification getCached(String digest)
+    {
+        if (digest == null) return null;
+        synchronized (verificationCache)
+        {
+            CachedVerification cached = verificationCache.get(digest);
+            if (cached != null && cached.expiry < System.currentTimeMillis())
+            {
+                verificationCache.remove(digest);
+                cached = null;
+            }
+            return cached;
+        }
+    }
+
+    /**
+     * @return true if the revocation status couldn't be found, eg the OCSP responder couldn't be reached
+     */
+    private static boolean isTransientFailure(Throwable e)
+    {
+        for (Throwable cause = e; cause != null; cause = cause.getCause())
+        {
+            if (cause instanceof IOException) return true;
+            if (cause instanceof CertPathValidatorException
+                    && ((CertPathValidatorException) cause).getReason() == CertPathValidatorException.BasicReason.UNDETERMINED_REVOCATION_STATUS)
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static long getValidResultExpiry(X509Certificate signingCert)
+    {
+        long currentTime = System.currentTimeMillis();
+        long expiry = currentTime + VALID_RESULT_TTL;
+        long notAfter = signingCert != null ? signingCert.getNotAfter().getTime() : 0;
+        //an already expired cert is allowed, so its notAfter doesn't change the result
+        if (notAfter > currentTime) expiry = Math.min(expiry, notAfter);
+        return expiry;
+    }
+
+    private static String getDigest(byte[] content)
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return new BigInteger(1, digest.digest(content)).toString(16);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            return null; //no caching
+        }
+    }
+
+    private static byte[] readAll(InputStream fileStream) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = fileStream.read(buffer)) != -1)
+        {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    //cached results are never handed out, as callers may modify them
+    private static XMLDsigVerificationResult copyOf(XMLDsigVerificationResult result)
+    {
+        XMLDsigVerificationResult copy = new XMLDsigVerificationResult();
+        copy.isValid = result.isValid;
+        copy.keyName = result.keyName;
+        copy.issuerPrincipal = result.issuerPrincipal;
+        copy.subjectPrincipal = result.subjectPrincipal;
+        copy.keyType = result.keyType;
+        copy.failureReason = result.failureReason;
+        return copy;
     }
 
     XMLSignature getValidXMLSignature(InputStream fileStream)
@@ -133,13 +285,13 @@ public class XMLDSigVerifier {
         return signature;
     }
 
-    private void validateCertificateChain(List<X509Certificate> certList)
+    private static synchronized PKIXParameters getPKIXParameters()
             throws NoSuchAlgorithmException,
             KeyStoreException,
-            InvalidAlgorithmParameterException,
-            CertificateException,
-            CertPathValidatorException
+            InvalidAlgorithmParameterException
     {
+        if (pkixParameters != null) return pkixParameters;
+
         // By default on Oracle JRE, algorithm is PKIX
         TrustManagerFactory tmf = TrustManagerFactory
                 .getInstance(TrustManagerFactory.getDefaultAlgorithm());
@@ -148,7 +300,6 @@ public class XMLDSigVerifier {
         tmf.init((KeyStore) null);
 
         X509TrustManager tm = (X509TrustManager) tmf.getTrustManagers()[0];
-        CertPathValidator cpv = CertPathValidator.getInstance("PKIX");
         Set<TrustAnchor> anch = new HashSet<>();
         for (X509Certificate cert : tm.getAcceptedIssuers())
         {
@@ -157,10 +308,19 @@ public class XMLDSigVerifier {
         PKIXParameters params = new PKIXParameters(anch);
         Security.setProperty("ocsp.enable", "true");
         params.setRevocationEnabled(true);
+        //not modified after this point, so it can be shared by concurrent validations
+        pkixParameters = params;
+        return pkixParameters;
+    }
+
+    void validateCertificateChain(List<X509Certificate> certList)
+            throws GeneralSecurityException
+    {
+        CertPathValidator cpv = CertPathValidator.getInstance("PKIX");
         CertificateFactory factory = CertificateFactory.getInstance("X.509");
         try
         {
-            cpv.validate(factory.generateCertPath(certList), params);
+            cpv.validate(factory.generateCertPath(certList), getPKIXParameters());
         }
         catch (CertPathValidatorException e)
         {
@@ -231,33 +391,29 @@ public class XMLDSigVerifier {
         return signer;
     }
 
-    private XMLDsigVerificationResult validateCertificateIssuer(XMLSignature signature, XMLDsigVerificationResult result) {
-        try
+    /**
+     * @return signing certificate
+     * @throws Exception if the certificate chain is invalid or couldn't be checked
+     */
+    private X509Certificate validateCertificateIssuer(XMLSignature signature, XMLDsigVerificationResult result) throws Exception {
+        KeyInfo xmlKeyInfo = signature.getKeyInfo();
+        List<X509Certificate> certList = getCertificateChainFromXML(xmlKeyInfo.getContent());
+        List<X509Certificate> orderedCerts = reorderCertificateChain(certList);
+        X509Certificate signingCert = selectSigningKeyFromXML(xmlKeyInfo.getContent());
+        //Throws if invalid
+        validateCertificateChain(orderedCerts);
+        result.issuerPrincipal = signingCert.getIssuerX500Principal().getName();
+        result.subjectPrincipal = signingCert.getSubjectX500Principal().getName();
+        result.keyType = signingCert.getSigAlgName();
+        for (Object o : xmlKeyInfo.getContent())
         {
-            KeyInfo xmlKeyInfo = signature.getKeyInfo();
-            List<X509Certificate> certList = getCertificateChainFromXML(xmlKeyInfo.getContent());
-            List<X509Certificate> orderedCerts = reorderCertificateChain(certList);
-            X509Certificate signingCert = selectSigningKeyFromXML(xmlKeyInfo.getContent());
-            //Throws if invalid
-            validateCertificateChain(orderedCerts);
-            result.issuerPrincipal = signingCert.getIssuerX500Principal().getName();
-            result.subjectPrincipal = signingCert.getSubjectX500Principal().getName();
-            result.keyType = signingCert.getSigAlgName();
-            for (Object o : xmlKeyInfo.getContent())
+            XMLStructure xmlStructure = (XMLStructure) o;
+            if (xmlStructure instanceof KeyName)
             {
-                XMLStructure xmlStructure = (XMLStructure) o;
-                if (xmlStructure instanceof KeyName)
-                {
-                    result.keyName = ((KeyName) xmlStructure).getName();
-                }
+                result.keyName = ((KeyName) xmlStructure).getName();
             }
         }
-        catch(Exception e)
-        {
-            result.isValid = false;
-            result.failureReason = e.getMessage();
-        }
-        return result;
+        return signingCert;
     }
 
     private List getCertificateChainFromXML(List xmlElements) throws KeyStoreException {
@@ -388,6 +544,18 @@ public class XMLDSigVerifier {
         }
     }
 
+    private static class CachedVerification
+    {
+        final XMLDsigVerificationResult result;
+        final long expiry;
+
+        CachedVerification(XMLDsigVerificationResult result, long expiry)
+        {
+            this.result = result;
+            this.expiry = expiry;
+        }
+    }
+
     private class SimpleKeySelectorResult implements KeySelectorResult
     {
         private PublicKey pk;
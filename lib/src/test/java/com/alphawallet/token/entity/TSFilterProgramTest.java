@@ -0,0 +1,207 @@
+package com.alphawallet.token.entity;
+
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the compiled selection program gives the same result as the EvaluateSelection tree walk
+ */
+public class TSFilterProgramTest
+{
+    private static final String[] ATTR_NAMES = { "a", "b", "c", "expired", "hello" };
+    //the parser only takes a plain name on the left of a comparison
+    private static final String[] LEFT_OPERANDS = { "a", "b", "c", "expired", "true", "5", "missing" };
+    private static final String[] RIGHT_OPERANDS = { "0", "1", "5", "-3", "true", "FALSE", "hello", "${b}", "${c}", "a", "missing", "123456789012345678901234567890" };
+    private static final String[] COMPARATORS = { "=", "<", ">", "<=", ">=" };
+    private static final BigInteger[] VALUES = { null, BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(5), BigInteger.valueOf(-3), new BigInteger("123456789012345678901234567890") };
+    private static final String[] TEXTS = { null, "0", "1", "5", "true", "TRUE", "false", "hello", "" };
+
+    private final String[] expressions = {
+            "allowance>0",
+            "allowance=0",
+            "expired=TRUE",
+            "!(expired=TRUE)",
+            "&(a>1)(b<=5)",
+            "|(a=hello)(b=${c})",
+            "!(&(a>=0)(b<0))",
+            "&(|(a=1)(b=1))(!(c=true))",
+            "a=${b}",
+            "a<${c}",
+            "true=TRUE",
+            "5>=a",
+            "hello=hello",
+            "(a>-3)",
+            "&(a=1)(|(b=2)(&(c=3)(!(a<4))))"
+    };
+
+    @Test
+    public void knownExpressionsMatchTreeEvaluation() throws SAXException
+    {
+        Random random = new Random(1);
+        for (String expression : expressions)
+        {
+            TSSelection selection = new TSSelection(expression);
+            for (int i = 0; i < 200; i++)
+            {
+                assertSameResult(selection, randomAttributes(random, "allowance"));
+            }
+        }
+    }
+
+    @Test
+    public void randomExpressionsMatchTreeEvaluation() throws SAXException
+    {
+        Random random = new Random(7);
+        for (int i = 0; i < 2000; i++)
+        {
+            TSSelection selection = new TSSelection(randomExpression(random, random.nextInt(5)));
+            for (int j = 0; j < 25; j++)
+            {
+                assertSameResult(selection, randomAttributes(random));
+            }
+        }
+    }
+
+    @Test
+    public void filterDepthLimitMatchesTreeEvaluation() throws SAXException
+    {
+        Map<String, TokenScriptResult.Attribute> attrs = new HashMap<>();
+        addAttribute(attrs, "a", BigInteger.ONE, "1");
+
+        //the tree evaluator resolves up to STACK_CHECK levels of logic nodes
+        TSSelection withinLimit = new TSSelection(nestedAnd(EvaluateSelection.STACK_CHECK));
+        assertTrue(withinLimit.evaluate(attrs));
+        assertSameResult(withinLimit, attrs);
+
+        TSSelection beyondLimit = new TSSelection(nestedAnd(EvaluateSelection.STACK_CHECK + 1));
+        assertFalse(beyondLimit.evaluate(attrs));
+        assertSameResult(beyondLimit, attrs);
+    }
+
+    @Test
+    public void slotsCoverRequiredAttributes() throws SAXException
+    {
+        TSSelection selection = new TSSelection("&(|(a=1)(b=hello))(!(c<5))");
+        assertTrue(selection.getProgram().getSlotNames().containsAll(selection.getRequiredAttrs()));
+
+        TokenScriptResult.Attribute[] slotValues = new TokenScriptResult.Attribute[selection.getProgram().getSlotNames().size()];
+        for (int i = 0; i < slotValues.length; i++)
+        {
+            String name = selection.getProgram().getSlotNames().get(i);
+            switch (name)
+            {
+                case "a":
+                    slotValues[i] = new TokenScriptResult.Attribute(name, name, BigInteger.ONE, "1");
+                    break;
+                case "b":
+                    slotValues[i] = new TokenScriptResult.Attribute(name, name, BigInteger.ZERO, "hello");
+                    break;
+                case "c":
+                    slotValues[i] = new TokenScriptResult.Attribute(name, name, BigInteger.TEN, "10");
+                    break;
+            }
+        }
+
+        assertTrue(selection.getProgram().evaluate(slotValues));
+    }
+
+    @Test
+    public void incompleteExpressionEvaluatesFalse() throws SAXException
+    {
+        Map<String, TokenScriptResult.Attribute> attrs = new HashMap<>();
+        addAttribute(attrs, "a", BigInteger.ONE, "1");
+        addAttribute(attrs, "b", BigInteger.ONE, "1");
+
+        //these parse to a tree with no head or one which refers back to itself, which the tree evaluator can't walk
+        String[] incomplete = { "&(a=1)", "|(a=1)(${b}=1)", "${a}=1", "!" };
+        for (String expression : incomplete)
+        {
+            assertFalse(expression, new TSSelection(expression).evaluate(attrs));
+        }
+    }
+
+    private void assertSameResult(TSSelection selection, Map<String, TokenScriptResult.Attribute> attrs)
+    {
+        boolean expected = EvaluateSelection.evaluate(selection.head, attrs);
+        assertEquals(selection.getFilterExpression() + " with " + describe(attrs), expected, selection.evaluate(attrs));
+    }
+
+    private String randomExpression(Random random, int depth)
+    {
+        StringBuilder sb = new StringBuilder();
+        if (random.nextInt(4) == 0) sb.append("!");
+        if (depth == 0 || random.nextInt(4) == 0)
+        {
+            sb.append("(")
+                    .append(pick(random, LEFT_OPERANDS))
+                    .append(pick(random, COMPARATORS))
+                    .append(pick(random, RIGHT_OPERANDS))
+                    .append(")");
+        }
+        else
+        {
+            sb.append("(")
+                    .append(random.nextBoolean() ? "&" : "|")
+                    .append(randomExpression(random, depth - 1))
+                    .append(randomExpression(random, depth - 1))
+                    .append(")");
+        }
+        return sb.toString();
+    }
+
+    private Map<String, TokenScriptResult.Attribute> randomAttributes(Random random, String... extraNames)
+    {
+        List<String> names = new ArrayList<>();
+        for (String name : ATTR_NAMES) names.add(name);
+        for (String name : extraNames) names.add(name);
+
+        Map<String, TokenScriptResult.Attribute> attrs = new HashMap<>();
+        for (String name : names)
+        {
+            if (random.nextInt(5) == 0) continue;
+            addAttribute(attrs, name, VALUES[random.nextInt(VALUES.length)], TEXTS[random.nextInt(TEXTS.length)]);
+        }
+        return attrs;
+    }
+
+    private static String nestedAnd(int depth)
+    {
+        String expression = "(a=1)";
+        for (int i = 0; i < depth; i++)
+        {
+            expression = "(&" + expression + "(a=1))";
+        }
+        return expression;
+    }
+
+    private static void addAttribute(Map<String, TokenScriptResult.Attribute> attrs, String name, BigInteger value, String text)
+    {
+        attrs.put(name, new TokenScriptResult.Attribute(name, name, value, text));
+    }
+
+    private static String pick(Random random, String[] options)
+    {
+        return options[random.nextInt(options.length)];
+    }
+
+    private static String describe(Map<String, TokenScriptResult.Attribute> attrs)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (TokenScriptResult.Attribute attr : attrs.values())
+        {
+            sb.append(attr.id).append("=").append(attr.value).append("/").append(attr.text).append(" ");
+        }
+        return sb.toString();
+    }
+}
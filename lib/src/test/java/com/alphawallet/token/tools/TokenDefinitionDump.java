@@ -0,0 +1,184 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.Attribute;
+import com.alphawallet.token.entity.ContractInfo;
+import com.alphawallet.token.entity.EventDefinition;
+import com.alphawallet.token.entity.FunctionDefinition;
+import com.alphawallet.token.entity.MethodArg;
+import com.alphawallet.token.entity.NamedType;
+import com.alphawallet.token.entity.TSAction;
+import com.alphawallet.token.entity.TSActivityView;
+import com.alphawallet.token.entity.TSSelection;
+import com.alphawallet.token.entity.TSTokenView;
+import com.alphawallet.token.entity.TokenscriptElement;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Renders a TokenDefinition's object model as canonical text (maps sorted by key, object references followed)
+ * so two definitions built by different routes can be compared with a single assertEquals.
+ */
+class TokenDefinitionDump
+{
+    static String dump(TokenDefinition td)
+    {
+        StringBuilder sb = new StringBuilder();
+        line(sb, 0, "nameSpace", td.nameSpace);
+        line(sb, 0, "holdingToken", td.holdingToken);
+        line(sb, 0, "keyName", td.getKeyName());
+        line(sb, 0, "actionCount", td.actionCount);
+        line(sb, 0, "labels", new TreeMap<>(td.labels));
+
+        for (Map.Entry<String, ContractInfo> e : new TreeMap<>(td.contracts).entrySet())
+        {
+            line(sb, 0, "contract", e.getKey());
+            contract(sb, 1, e.getValue());
+        }
+
+        for (Map.Entry<String, NamedType> e : new TreeMap<>(td.namedTypeLookup).entrySet())
+        {
+            line(sb, 0, "namedType", e.getKey());
+            namedType(sb, 1, e.getValue());
+        }
+
+        attributes(sb, 0, "attribute", td.attributes);
+        attributes(sb, 0, "localAttribute", td.tokenViews.localAttributeTypes);
+        for (Map.Entry<String, TSTokenView> e : new TreeMap<>(td.tokenViews.views).entrySet())
+        {
+            line(sb, 0, "tokenView", e.getKey());
+            view(sb, 1, e.getValue());
+        }
+        line(sb, 0, "globalStyle", td.tokenViews.globalStyle);
+
+        for (Map.Entry<String, TSSelection> e : new TreeMap<>(td.selections).entrySet())
+        {
+            TSSelection s = e.getValue();
+            line(sb, 0, "selection", e.getKey());
+            line(sb, 1, "name", s.name);
+            line(sb, 1, "filter", s.getFilterExpression());
+            line(sb, 1, "denial", s.denialMessage);
+            line(sb, 1, "names", s.names != null ? new TreeMap<>(s.names) : null);
+            line(sb, 1, "requiredAttrs", s.getRequiredAttrs());
+        }
+
+        for (Map.Entry<String, TSAction> e : new TreeMap<>(td.actions).entrySet())
+        {
+            TSAction a = e.getValue();
+            line(sb, 0, "action", e.getKey());
+            line(sb, 1, "order", a.order);
+            line(sb, 1, "exclude", a.exclude);
+            line(sb, 1, "name", a.name);
+            line(sb, 1, "style", a.style);
+            view(sb, 1, a.view);
+            if (a.attributes != null) attributes(sb, 1, "attribute", a.attributes);
+            function(sb, 1, a.function);
+        }
+
+        for (Map.Entry<String, TSActivityView> e : new TreeMap<>(td.activityCards).entrySet())
+        {
+            TSActivityView av = e.getValue();
+            line(sb, 0, "activity", e.getKey());
+            line(sb, 1, "eventName", av.getEventName());
+            event(sb, 1, av.getOrigins().getOriginEvent());
+            view(sb, 1, av.getView("view"));
+            view(sb, 1, av.getView("item-view"));
+        }
+
+        return sb.toString();
+    }
+
+    private static void attributes(StringBuilder sb, int indent, String tag, Map<String, Attribute> attrs)
+    {
+        for (Map.Entry<String, Attribute> e : new TreeMap<>(attrs).entrySet())
+        {
+            Attribute attr = e.getValue();
+            line(sb, indent, tag, e.getKey());
+            line(sb, indent + 1, "name", attr.name);
+            line(sb, indent + 1, "label", attr.label);
+            line(sb, indent + 1, "bitmask", attr.bitmask);
+            line(sb, indent + 1, "bitshift", attr.bitshift);
+            line(sb, indent + 1, "syntax", attr.syntax);
+            line(sb, indent + 1, "as", attr.as);
+            line(sb, indent + 1, "members", attr.members != null ? new TreeMap<BigInteger, String>(attr.members) : null);
+            line(sb, indent + 1, "userInput", attr.userInput);
+            line(sb, indent + 1, "originContract", "");
+            contract(sb, indent + 2, attr.originContract);
+            function(sb, indent + 1, attr.function);
+            event(sb, indent + 1, attr.event);
+            if (attr.event != null) line(sb, indent + 1, "eventParentIsOwner", attr.event.parentAttribute == attr);
+        }
+    }
+
+    private static void function(StringBuilder sb, int indent, FunctionDefinition fd)
+    {
+        if (fd == null) return;
+        line(sb, indent, "function", fd.method);
+        line(sb, indent + 1, "syntax", fd.syntax);
+        line(sb, indent + 1, "as", fd.as);
+        contract(sb, indent + 1, fd.contract);
+        for (MethodArg arg : fd.parameters)
+        {
+            line(sb, indent + 1, "param", arg.parameterType);
+            element(sb, indent + 2, arg.element);
+        }
+        if (fd.tx != null)
+        {
+            for (Map.Entry<String, TokenscriptElement> e : new TreeMap<>(fd.tx.args).entrySet())
+            {
+                line(sb, indent + 1, "txArg", e.getKey());
+                element(sb, indent + 2, e.getValue());
+            }
+        }
+    }
+
+    private static void event(StringBuilder sb, int indent, EventDefinition ev)
+    {
+        if (ev == null) return;
+        line(sb, indent, "event", ev.attributeName);
+        line(sb, indent + 1, "filter", ev.filter);
+        line(sb, indent + 1, "select", ev.select);
+        line(sb, indent + 1, "activityName", ev.activityName);
+        contract(sb, indent + 1, ev.contract);
+        namedType(sb, indent + 1, ev.type);
+    }
+
+    private static void element(StringBuilder sb, int indent, TokenscriptElement element)
+    {
+        if (element == null) return;
+        line(sb, indent, "ref", element.ref);
+        line(sb, indent, "localRef", element.localRef);
+        line(sb, indent, "value", element.value);
+    }
+
+    private static void contract(StringBuilder sb, int indent, ContractInfo info)
+    {
+        if (info == null) return;
+        line(sb, indent, "interface", info.contractInterface);
+        line(sb, indent, "addresses", new TreeMap<>(info.addresses));
+    }
+
+    private static void namedType(StringBuilder sb, int indent, NamedType type)
+    {
+        if (type == null) return;
+        line(sb, indent, "type", type.name);
+        for (NamedType.SequenceElement se : type.sequence)
+        {
+            line(sb, indent + 1, se.name, se.type + (se.indexed ? " indexed" : ""));
+        }
+    }
+
+    private static void view(StringBuilder sb, int indent, TSTokenView view)
+    {
+        if (view == null) return;
+        line(sb, indent, "style", view.style);
+        line(sb, indent, "view", view.tokenView);
+    }
+
+    private static void line(StringBuilder sb, int indent, String tag, Object value)
+    {
+        for (int i = 0; i < indent; i++) sb.append("  ");
+        sb.append(tag).append(": ").append(value).append("\n");
+    }
+}
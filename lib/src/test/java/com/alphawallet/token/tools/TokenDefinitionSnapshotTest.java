@@ -0,0 +1,95 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.ParseResult;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TokenDefinitionSnapshotTest implements ParseResult
+{
+    private static final String FILE_HASH = "0123456789abcdef";
+    private final List<ParseResultId> parseResults = new ArrayList<>();
+    private final File[] testScripts = {
+            new File("src/test/ts/DAI.tsml"),
+            new File("src/test/ts/EntryToken.tsml"),
+            new File("src/test/ts/entrytoken.canonicalized.xml"),
+            new File("src/test/ts/fifa.tsml")
+    };
+
+    @Test
+    public void snapshotRestoresSameDefinition() throws IOException, SAXException
+    {
+        for (File script : testScripts)
+        {
+            assertTrue(script.exists());
+            TokenDefinition parsed = parse(script);
+            TokenDefinition restored = TokenDefinitionSnapshot.read(new ByteArrayInputStream(snapshot(parsed)), FILE_HASH, new Locale("en"));
+
+            assertNotNull(restored);
+            assertEquals(script.getName(), TokenDefinitionDump.dump(parsed), TokenDefinitionDump.dump(restored));
+            assertEquals(parsed.getTokenName(1), restored.getTokenName(1));
+            assertEquals(parsed.hasEvents(), restored.hasEvents());
+        }
+    }
+
+    @Test
+    public void snapshotPreservesContractReferences() throws IOException, SAXException
+    {
+        TokenDefinition parsed = parse(testScripts[0]);
+        TokenDefinition restored = TokenDefinitionSnapshot.read(new ByteArrayInputStream(snapshot(parsed)), FILE_HASH, new Locale("en"));
+
+        assertNotNull(restored);
+        for (String actionName : restored.actions.keySet())
+        {
+            if (restored.actions.get(actionName).function == null) continue;
+            assertTrue(restored.contracts.containsValue(restored.actions.get(actionName).function.contract));
+        }
+    }
+
+    @Test
+    public void staleSnapshotIsRejected() throws IOException, SAXException
+    {
+        TokenDefinition parsed = parse(testScripts[0]);
+        byte[] data = snapshot(parsed);
+
+        assertNull(TokenDefinitionSnapshot.read(new ByteArrayInputStream(data), "fedcba9876543210", new Locale("en")));
+        assertNull(TokenDefinitionSnapshot.read(new ByteArrayInputStream(data), FILE_HASH, new Locale("ru")));
+        assertNull(TokenDefinitionSnapshot.read(new ByteArrayInputStream(new byte[] { 0, 0, 0, 0, 0 }), FILE_HASH, new Locale("en")));
+    }
+
+    //snapshots are only taken of definitions which parsed against a known schema
+    private TokenDefinition parse(File script) throws IOException, SAXException
+    {
+        parseResults.clear();
+        TokenDefinition td = new TokenDefinition(new FileInputStream(script), new Locale("en"), this);
+        assertEquals(script.getName(), 1, parseResults.size());
+        assertTrue(script.getName(), parseResults.get(0) == ParseResultId.OK || parseResults.get(0) == ParseResultId.XML_OUT_OF_DATE);
+        return td;
+    }
+
+    private byte[] snapshot(TokenDefinition td) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        TokenDefinitionSnapshot.write(td, FILE_HASH, bos);
+        return bos.toByteArray();
+    }
+
+    @Override
+    public void parseMessage(ParseResultId parseResult)
+    {
+        parseResults.add(parseResult);
+    }
+}
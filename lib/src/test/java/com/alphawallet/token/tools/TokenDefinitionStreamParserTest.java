@@ -0,0 +1,79 @@
+package com.alphawallet.token.tools;
+
+import com.alphawallet.token.entity.ParseResult;
+import com.alphawallet.token.entity.TSAction;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TokenDefinitionStreamParserTest implements ParseResult
+{
+    private int parseFailures;
+    private final File[] testScripts = new File("src/test/ts").listFiles((dir, name) -> name.endsWith(".tsml") || name.endsWith(".xml"));
+
+    @Test
+    public void streamParseMatchesDOM() throws IOException, SAXException
+    {
+        assertTrue(testScripts.length > 0);
+        for (File script : testScripts)
+        {
+            TokenDefinition dom = new TokenDefinition(new FileInputStream(script), new Locale("en"), this);
+            TokenDefinition stream = TokenDefinitionStreamParser.parse(new FileInputStream(script), new Locale("en"), this);
+
+            assertEquals(script.getName(), TokenDefinitionDump.dump(dom), TokenDefinitionDump.dump(stream));
+            assertFalse(stream.hasSkippedViews());
+        }
+
+        assertEquals(0, parseFailures);
+    }
+
+    @Test
+    public void skippedViewsKeepStructure() throws IOException, SAXException
+    {
+        for (File script : testScripts)
+        {
+            TokenDefinition dom = new TokenDefinition(new FileInputStream(script), new Locale("en"), this);
+            TokenDefinition structure = TokenDefinitionStreamParser.parse(new FileInputStream(script), new Locale("en"), this, false);
+
+            assertEquals(script.getName(), dom.holdingToken, structure.holdingToken);
+            assertEquals(script.getName(), dom.contracts.keySet(), structure.contracts.keySet());
+            assertEquals(script.getName(), dom.attributes.keySet(), structure.attributes.keySet());
+            assertEquals(script.getName(), dom.getViews(), structure.getViews());
+            assertEquals(script.getName(), dom.actions.keySet(), structure.actions.keySet());
+            for (TSAction action : structure.actions.values())
+            {
+                assertTrue(action.view == null || action.view.tokenView.isEmpty());
+            }
+            assertEquals(script.getName(), !dom.tokenViews.views.isEmpty() || !dom.actions.isEmpty(), structure.hasSkippedViews());
+            if (!structure.hasSkippedViews()) continue;
+
+            //skipped view content isn't returned as if it were empty
+            try
+            {
+                structure.getTokenView("view");
+                fail(script.getName());
+            }
+            catch (IllegalStateException e)
+            {
+                //expected
+            }
+        }
+
+        assertEquals(0, parseFailures);
+    }
+
+    @Override
+    public void parseMessage(ParseResultId parseResult)
+    {
+        if (parseResult == ParseResultId.PARSE_FAILED) parseFailures++;
+    }
+}
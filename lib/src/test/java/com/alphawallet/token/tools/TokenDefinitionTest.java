@@ -1,12 +1,18 @@
 package com.alphawallet.token.tools;
 
+import com.alphawallet.token.entity.Attribute;
+import com.alphawallet.token.entity.AttributeLevels;
 import com.alphawallet.token.entity.ContractInfo;
+import com.alphawallet.token.entity.FunctionDefinition;
+import com.alphawallet.token.entity.MethodArg;
 import com.alphawallet.token.entity.ParseResult;
+import com.alphawallet.token.entity.TokenscriptElement;
 import org.junit.Test;
 import org.xml.sax.SAXException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.List;
 import java.util.Locale;
 import static junit.framework.TestCase.assertNotNull;
 import static org.junit.Assert.assertEquals;
@@ -51,6 +57,74 @@ public class TokenDefinitionTest implements ParseResult
         assertNotNull(ticketAsset);
     }
 
+    @Test
+    public void AttributesAreLevelledByDependency() throws SAXException
+    {
+        TokenDefinition td = new TokenDefinition();
+        addAttribute(td, "balance", "ownerAddress");
+        addAttribute(td, "price", "tokenId");
+        addAttribute(td, "locked", "balance");
+        addAttribute(td, "value", "locked", "price");
+        td.buildAttributeLevels();
+
+        AttributeLevels attributeLevels = td.getAttributeLevels();
+        List<List<Attribute>> levels = attributeLevels.getLevels();
+        assertEquals(3, levels.size());
+        assertEquals(2, levels.get(0).size());
+        assertEquals("locked", levels.get(1).get(0).name);
+        assertEquals("value", levels.get(2).get(0).name);
+        assertTrue(attributeLevels.isReferenced("balance"));
+        assertFalse(attributeLevels.isReferenced("value"));
+    }
+
+    @Test
+    public void ExtraAttributeReferencesAreIncludedInLevels() throws SAXException
+    {
+        TokenDefinition td = new TokenDefinition();
+        addAttribute(td, "balance", "ownerAddress");
+        addAttribute(td, "price", "tokenId");
+        td.buildAttributeLevels();
+
+        //local attributes of a view, one referencing a definition attribute and one referencing another local attribute
+        TokenDefinition view = new TokenDefinition();
+        addAttribute(view, "local", "price");
+        addAttribute(view, "display", "local");
+
+        AttributeLevels attributeLevels = td.getAttributeLevels(view.attributes.values());
+        assertEquals(3, attributeLevels.getLevels().size());
+        assertEquals("display", attributeLevels.getLevels().get(2).get(0).name);
+        assertTrue(attributeLevels.isReferenced("price"));
+        assertTrue(attributeLevels.isReferenced("local"));
+        assertFalse(attributeLevels.isReferenced("balance"));
+        assertFalse(td.getAttributeLevels().isReferenced("price"));
+    }
+
+    @Test(expected = SAXException.class)
+    public void CircularAttributeReferenceShouldThrowException() throws SAXException
+    {
+        TokenDefinition td = new TokenDefinition();
+        addAttribute(td, "first", "third");
+        addAttribute(td, "second", "first");
+        addAttribute(td, "third", "second");
+        td.buildAttributeLevels();
+    }
+
+    private void addAttribute(TokenDefinition td, String name, String... refs)
+    {
+        Attribute attr = new Attribute();
+        attr.name = name;
+        attr.function = new FunctionDefinition();
+        for (String ref : refs)
+        {
+            MethodArg arg = new MethodArg();
+            arg.parameterType = "uint256";
+            arg.element = new TokenscriptElement();
+            arg.element.ref = ref;
+            attr.function.parameters.add(arg);
+        }
+        td.attributes.put(name, attr);
+    }
+
     @Override
     public void parseMessage(ParseResultId parseResult)
     {
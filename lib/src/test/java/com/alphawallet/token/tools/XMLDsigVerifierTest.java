@@ -2,9 +2,24 @@ package com.alphawallet.token.tools;
 
 import com.alphawallet.token.entity.XMLDsigVerificationResult;
 import org.junit.Test;
+import org.w3c.dom.DOMException;
+import org.xml.sax.SAXException;
 
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.security.GeneralSecurityException;
+import java.security.cert.CertPathValidatorException;
+import java.security.cert.X509Certificate;
+import java.util.List;
+
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureException;
+import javax.xml.parsers.ParserConfigurationException;
+
+import static org.junit.Assert.assertEquals;
 
 public class XMLDsigVerifierTest {
 
@@ -33,6 +48,40 @@ public class XMLDsigVerifierTest {
         assert(result.subjectPrincipal.equals("CN=aw.app"));
     }
 
+    @Test
+    public void testCachedVerification() throws Exception {
+        XMLDSigVerifier.clearCache();
+        CountingVerifier verifier = new CountingVerifier();
+        XMLDsigVerificationResult first = verifier.VerifyXMLDSig(new FileInputStream("src/test/ts/EntryToken-valid-RSA.tsml"));
+        first.subjectPrincipal = "modified by caller";
+        XMLDsigVerificationResult second = verifier.VerifyXMLDSig(new FileInputStream("src/test/ts/EntryToken-valid-RSA.tsml"));
+        assert(second.isValid);
+        assert(second.subjectPrincipal.equals("CN=aw.app"));
+        assertEquals(1, verifier.signatureChecks);
+
+        //a failed verification is cached as a failure
+        XMLDsigVerificationResult invalid = verifier.VerifyXMLDSig(new FileInputStream("src/test/ts/EntryToken.tsml"));
+        XMLDsigVerificationResult invalidAgain = verifier.VerifyXMLDSig(new FileInputStream("src/test/ts/EntryToken.tsml"));
+        assert(!invalidAgain.isValid);
+        assert(invalidAgain.failureReason.equals(invalid.failureReason));
+        assertEquals(2, verifier.signatureChecks);
+    }
+
+    @Test
+    public void testRevocationCheckFailureNotCached() throws Exception {
+        XMLDSigVerifier.clearCache();
+        CountingVerifier verifier = new CountingVerifier();
+        verifier.revocationUnavailable = true;
+        XMLDsigVerificationResult result = verifier.VerifyXMLDSig(new FileInputStream("src/test/ts/EntryToken-valid-RSA.tsml"));
+        assert(!result.isValid);
+
+        //once the revocation service can be reached the file is verified again
+        verifier.revocationUnavailable = false;
+        result = verifier.VerifyXMLDSig(new FileInputStream("src/test/ts/EntryToken-valid-RSA.tsml"));
+        assert(result.isValid);
+        assertEquals(2, verifier.signatureChecks);
+    }
+
     @Test
     public void testFifaTSMLECDSA() throws Exception {
         InputStream EntryToken = new FileInputStream("src/test/ts/fifa.tsml");
@@ -65,4 +114,25 @@ public class XMLDsigVerifierTest {
         assert(!result.isValid);
         assert(result.failureReason.contains("NotBefore")); // save travis from misreporting thanks to timezone
     }
-}
\ No newline at end of file
+
+    private static class CountingVerifier extends XMLDSigVerifier {
+        int signatureChecks;
+        boolean revocationUnavailable;
+
+        @Override
+        XMLSignature getValidXMLSignature(InputStream fileStream) throws ParserConfigurationException, IOException,
+                SAXException, MarshalException, XMLSignatureException, DOMException {
+            signatureChecks++;
+            return super.getValidXMLSignature(fileStream);
+        }
+
+        @Override
+        void validateCertificateChain(List<X509Certificate> certList) throws GeneralSecurityException {
+            if (revocationUnavailable) {
+                throw new CertPathValidatorException("Unable to determine revocation status due to network error",
+                        new SocketTimeoutException(), null, -1, CertPathValidatorException.BasicReason.UNDETERMINED_REVOCATION_STATUS);
+            }
+            super.validateCertificateChain(certList);
+        }
+    }
+}
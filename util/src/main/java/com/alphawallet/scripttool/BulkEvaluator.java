@@ -0,0 +1,342 @@
+package com.alphawallet.scripttool;
+
+import com.alphawallet.scripttool.Entity.CachedResult;
+import com.alphawallet.scripttool.Entity.TokenscriptFunction;
+import com.alphawallet.scripttool.Ethereum.TransactionHandler;
+import com.alphawallet.token.entity.Attribute;
+import com.alphawallet.token.entity.AttributeInterface;
+import com.alphawallet.token.entity.ContractAddress;
+import com.alphawallet.token.entity.ContractInfo;
+import com.alphawallet.token.entity.TransactionResult;
+import com.alphawallet.token.tools.TokenDefinition;
+import com.google.gson.JsonObject;
+
+import org.web3j.abi.datatypes.Address;
+import org.web3j.crypto.WalletUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk mode for the ScriptTool: evaluates every TokenScript in a directory for every holder in an address list.
+ *
+ * Each definition is parsed once, then each (definition, contract, holder) item is resolved on a fixed size worker pool
+ * using the shared per-chain clients. One JSON object is written per line as each item completes:
+ *   {"file":..., "chainId":..., "contract":..., "holder":..., "tokenId":..., "attributes":{...}, "ms":...}
+ * Items which fail carry an "error" member in place of "attributes". ERC20 holdings are evaluated once, ERC721 and ERC875
+ * holdings once per token held; holders with no balance are skipped. Contracts with any other interface get a single
+ * error line rather than being evaluated.
+ */
+public class BulkEvaluator
+{
+    private final File scriptDirectory;
+    private final File addressFile;
+    private final int threads;
+    private final PrintStream out;
+
+    private final Map<Integer, TransactionHandler> txHandlers = new ConcurrentHashMap<>();
+    private final AtomicInteger items = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    public BulkEvaluator(File scriptDirectory, File addressFile, int threads, PrintStream out)
+    {
+        this.scriptDirectory = scriptDirectory;
+        this.addressFile = addressFile;
+        this.threads = threads;
+        this.out = out;
+    }
+
+    /**
+     * @return number of items which failed
+     */
+    public int run() throws IOException, InterruptedException
+    {
+        List<String> holders = readAddresses();
+        File[] files = scriptDirectory.listFiles((dir, name) -> name.endsWith(".tsml") || name.endsWith(".xml"));
+        if (files == null) throw new IOException("Can't read directory " + scriptDirectory);
+        Arrays.sort(files);
+
+        long startTime = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        //limit queued items so output streams as we go rather than after everything is queued
+        Semaphore inFlight = new Semaphore(threads * 4);
+
+        for (File file : files)
+        {
+            TokenDefinition definition = parse(file);
+            if (definition == null) continue;
+
+            ContractInfo holdingContract = definition.contracts.get(definition.holdingToken);
+            for (int chainId : holdingContract.addresses.keySet())
+            {
+                for (String address : holdingContract.addresses.get(chainId))
+                {
+                    ContractAddress cAddr = new ContractAddress(chainId, address);
+                    if (!isSupported(holdingContract.contractInterface))
+                    {
+                        JsonObject line = createLine(file, cAddr, null, null);
+                        line.addProperty("error", "Unsupported interface: " + holdingContract.contractInterface);
+                        errors.incrementAndGet();
+                        write(line);
+                        continue;
+                    }
+
+                    for (String holder : holders)
+                    {
+                        inFlight.acquire();
+                        pool.execute(() -> {
+                            try
+                            {
+                                evaluate(file, definition, holdingContract, cAddr, holder);
+                            }
+                            finally
+                            {
+                                inFlight.release();
+                            }
+                        });
+                    }
+                }
+            }
+        }
+
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+        System.err.println(items.get() + " items, " + errors.get() + " errors, " + skipped.get() + " holders with no balance in " + (System.currentTimeMillis() - startTime) + "ms");
+        return errors.get();
+    }
+
+    private TokenDefinition parse(File file)
+    {
+        long startTime = System.currentTimeMillis();
+        JsonObject line = new JsonObject();
+        line.addProperty("file", file.getName());
+        try (FileInputStream in = new FileInputStream(file))
+        {
+            TokenDefinition definition = new TokenDefinition(in, new Locale("en"), null);
+            if (definition.holdingToken == null || definition.contracts.get(definition.holdingToken) == null)
+            {
+                line.addProperty("error", "Has no <ts:ethereum contract=...> element");
+            }
+            else
+            {
+                return definition;
+            }
+        }
+        catch (Exception e)
+        {
+            line.addProperty("error", "Invalid definition file: " + describe(e));
+        }
+
+        line.addProperty("ms", System.currentTimeMillis() - startTime);
+        errors.incrementAndGet();
+        write(line);
+        return null;
+    }
+
+    private void evaluate(File file, TokenDefinition definition, ContractInfo holdingContract, ContractAddress cAddr, String holder)
+    {
+        long startTime = System.currentTimeMillis();
+        List<BigInteger> tokenIds;
+        try
+        {
+            tokenIds = getTokenIds(holdingContract, cAddr, holder);
+        }
+        catch (Exception e)
+        {
+            JsonObject line = createLine(file, cAddr, holder, null);
+            line.addProperty("error", "Balance fetch failed: " + describe(e));
+            line.addProperty("ms", System.currentTimeMillis() - startTime);
+            errors.incrementAndGet();
+            write(line);
+            return;
+        }
+
+        if (tokenIds.isEmpty())
+        {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        TokenscriptFunction tokenscriptFunction = new TokenscriptFunction() { };
+        HolderAttributes attrIf = new HolderAttributes(holder);
+        for (BigInteger tokenId : tokenIds)
+        {
+            JsonObject line = createLine(file, cAddr, holder, tokenId);
+            try
+            {
+                JsonObject attributes = new JsonObject();
+                tokenscriptFunction.resolveAttributes(holder, tokenId, attrIf, cAddr, definition)
+                        .blockingForEach(attr -> attributes.addProperty(attr.id, attr.text));
+                line.add("attributes", attributes);
+            }
+            catch (Exception e)
+            {
+                line.addProperty("error", describe(e));
+                errors.incrementAndGet();
+            }
+
+            //first item includes the balance fetch
+            line.addProperty("ms", System.currentTimeMillis() - startTime);
+            write(line);
+            startTime = System.currentTimeMillis();
+        }
+    }
+
+    private static boolean isSupported(String contractInterface)
+    {
+        return contractInterface != null && (contractInterface.equalsIgnoreCase("ERC20")
+                || contractInterface.equalsIgnoreCase("ERC721") || contractInterface.equalsIgnoreCase("ERC875"));
+    }
+
+    /**
+     * @return token IDs held, or empty if the holder has no balance. Fungible ERC20 balances use tokenId 0
+     */
+    private List<BigInteger> getTokenIds(ContractInfo holdingContract, ContractAddress cAddr, String holder) throws Exception
+    {
+        TransactionHandler txHandler = txHandlers.computeIfAbsent(cAddr.chainId, TransactionHandler::new);
+        Set<BigInteger> tokenIds = new LinkedHashSet<>();
+        switch (holdingContract.contractInterface.toUpperCase(Locale.ROOT))
+        {
+            case "ERC875":
+                for (BigInteger tokenId : txHandler.getBalanceArray(holder, cAddr.address))
+                {
+                    if (tokenId.signum() != 0) tokenIds.add(tokenId);
+                }
+                break;
+            case "ERC721":
+                int count = txHandler.getBalance(holder, cAddr.address).intValueExact();
+                for (int i = 0; i < count; i++)
+                {
+                    tokenIds.add(txHandler.getTokenOfOwnerByIndex(holder, cAddr.address, BigInteger.valueOf(i)));
+                }
+                break;
+            default: //ERC20
+                if (txHandler.getBalance(holder, cAddr.address).signum() > 0) tokenIds.add(BigInteger.ZERO);
+                break;
+        }
+
+        return new ArrayList<>(tokenIds);
+    }
+
+    private JsonObject createLine(File file, ContractAddress cAddr, String holder, BigInteger tokenId)
+    {
+        JsonObject line = new JsonObject();
+        line.addProperty("file", file.getName());
+        line.addProperty("chainId", cAddr.chainId);
+        line.addProperty("contract", cAddr.address);
+        if (holder != null) line.addProperty("holder", holder);
+        if (tokenId != null) line.addProperty("tokenId", tokenId.toString(10));
+        return line;
+    }
+
+    private void write(JsonObject line)
+    {
+        items.incrementAndGet();
+        String text = line.toString();
+        synchronized (out)
+        {
+            out.println(text);
+        }
+    }
+
+    private static String describe(Exception e)
+    {
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    private List<String> readAddresses() throws IOException
+    {
+        List<String> addresses = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(addressFile)))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) continue;
+                if (WalletUtils.isValidAddress(line))
+                {
+                    addresses.add(new Address(line).toString());
+                }
+                else
+                {
+                    System.err.println("ERROR: " + line + " is not a valid Ethereum address");
+                }
+            }
+        }
+
+        return addresses;
+    }
+
+    /**
+     * Result cache for one holder; function results depend on the holder so can't be shared between them
+     */
+    private static class HolderAttributes implements AttributeInterface
+    {
+        private final String walletAddress;
+        private final Map<String, CachedResult> results = new ConcurrentHashMap<>();
+
+        HolderAttributes(String walletAddress)
+        {
+            this.walletAddress = walletAddress;
+        }
+
+        @Override
+        public TransactionResult getFunctionResult(ContractAddress contract, Attribute attr, BigInteger tokenId)
+        {
+            TransactionResult tr = new TransactionResult(contract.chainId, contract.address, tokenId, attr);
+            CachedResult cached = results.get(getKey(contract.chainId, contract.address, attr.name, tokenId));
+            if (cached != null)
+            {
+                tr.resultTime = cached.resultTime;
+                tr.result = cached.result;
+            }
+            return tr;
+        }
+
+        @Override
+        public TransactionResult storeAuxData(String wallet, TransactionResult tResult)
+        {
+            results.put(getKey(tResult.contractChainId, tResult.contractAddress, tResult.attrId, tResult.tokenId),
+                    new CachedResult(tResult.resultTime, tResult.result));
+            return tResult;
+        }
+
+        @Override
+        public boolean resolveOptimisedAttr(ContractAddress contract, Attribute attr, TransactionResult transactionResult)
+        {
+            return false;
+        }
+
+        @Override
+        public String getWalletAddr()
+        {
+            return walletAddress;
+        }
+
+        private static String getKey(int chainId, String address, String attrId, BigInteger tokenId)
+        {
+            return chainId + "-" + address + "-" + attrId + "-" + tokenId;
+        }
+    }
+}
@@ -2,5 +2,5 @@ package com.alphawallet.scripttool.Entity;
 
 public enum ParseState
 {
-    ARG, TS_FILE, USER_ADDR
+    ARG, TS_FILE, USER_ADDR, TS_DIR, ADDR_FILE, THREADS, OUT_FILE
 }
@@ -4,7 +4,6 @@ package com.alphawallet.scripttool.Entity;
 import io.reactivex.Observable;
 import com.alphawallet.token.entity.*;
 import com.alphawallet.token.tools.TokenDefinition;
-import okhttp3.OkHttpClient;
 import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.FunctionReturnDecoder;
 import org.web3j.abi.TypeReference;
@@ -114,10 +113,9 @@ import org.web3j.abi.datatypes.generated.Uint96;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.response.EthCall;
-import org.web3j.protocol.http.HttpService;
 import org.web3j.utils.Bytes;
 import org.web3j.utils.Numeric;
-import com.alphawallet.ethereum.EthereumNetworkBase;
+import com.alphawallet.scripttool.Ethereum.EthRPCClients;
 
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -127,7 +125,6 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
 
 import static org.web3j.protocol.core.methods.request.Transaction.createEthCallTransaction;
 
@@ -709,18 +706,8 @@ public abstract class TokenscriptFunction
 
             // 1: create transaction call
             org.web3j.abi.datatypes.Function transaction = generateTransactionFunction(walletAddress, tokenId, definition, attr.function, attrIf);
-            // 2: create web3 connection
-            OkHttpClient okClient = new OkHttpClient.Builder()
-                    .connectTimeout(5, TimeUnit.SECONDS)
-                    .readTimeout(5, TimeUnit.SECONDS)
-                    .writeTimeout(5, TimeUnit.SECONDS)
-                    .retryOnConnectionFailure(false)
-                    .build();
-
-            String nodeURL = EthereumNetworkBase.getNetworkByChain(contractAddress.chainId).rpcServerUrl;
-            HttpService nodeService = new HttpService(nodeURL, okClient, false);
-
-            Web3j web3j = Web3j.build(nodeService);
+            // 2: get web3 connection
+            Web3j web3j = EthRPCClients.getWeb3j(contractAddress.chainId);
 
             //now push the transaction
             String result;
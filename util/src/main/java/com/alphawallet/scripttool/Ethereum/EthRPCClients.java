@@ -0,0 +1,40 @@
+package com.alphawallet.scripttool.Ethereum;
+
+import com.alphawallet.ethereum.EthereumNetworkBase;
+import com.alphawallet.ethereum.NetworkInfo;
+
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.http.HttpService;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Shared Web3j clients, one per chain.
+ *
+ * All chains use a single OkHttpClient so connections to the RPC nodes are pooled between calls.
+ * Clients are created on first use and are safe to call from concurrent workers.
+ */
+public class EthRPCClients
+{
+    private static final OkHttpClient httpClient = new OkHttpClient.Builder()
+            .connectTimeout(10, TimeUnit.SECONDS)
+            .readTimeout(20, TimeUnit.SECONDS)
+            .writeTimeout(20, TimeUnit.SECONDS)
+            .retryOnConnectionFailure(false)
+            .build();
+
+    private static final Map<Integer, Web3j> clients = new ConcurrentHashMap<>();
+
+    public static Web3j getWeb3j(int chainId)
+    {
+        return clients.computeIfAbsent(chainId, id -> {
+            NetworkInfo info = EthereumNetworkBase.getNetworkByChain(id);
+            if (info == null) throw new IllegalArgumentException("Unknown chain: " + id);
+            return Web3j.build(new HttpService(info.rpcServerUrl, httpClient, false));
+        });
+    }
+}
@@ -1,7 +1,6 @@
 package com.alphawallet.scripttool.Ethereum;
 
 
-import com.alphawallet.ethereum.EthereumNetworkBase;
 import org.web3j.abi.FunctionEncoder;
 import org.web3j.abi.FunctionReturnDecoder;
 import org.web3j.abi.TypeReference;
@@ -15,31 +14,27 @@ import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.DefaultBlockParameterName;
 import org.web3j.protocol.core.methods.request.Transaction;
 import org.web3j.protocol.core.methods.response.Web3ClientVersion;
-import org.web3j.protocol.http.HttpService;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import com.alphawallet.token.entity.BadContract;
 
-import okhttp3.OkHttpClient;
-
 public class TransactionHandler
 {
-    private static Web3j mWeb3;
+    private final Web3j mWeb3;
 
     public TransactionHandler(int networkId)
     {
-        String nodeURL = EthereumNetworkBase.getNetworkByChain(networkId).rpcServerUrl;
-        OkHttpClient.Builder builder = new OkHttpClient.Builder();
-        builder.connectTimeout(20, TimeUnit.SECONDS);
-        builder.readTimeout(20, TimeUnit.SECONDS);
-        HttpService service = new HttpService(nodeURL, builder.build(), false);
-        mWeb3 = Web3j.build(service);
+        mWeb3 = EthRPCClients.getWeb3j(networkId);
+    }
+
+    public void printClientVersion()
+    {
         try
         {
             Web3ClientVersion web3ClientVersion = mWeb3.web3ClientVersion().sendAsync().get();
@@ -64,6 +59,26 @@ public class TransactionHandler
         return result;
     }
 
+    /**
+     * ERC20 and ERC721 balanceOf(owner): token amount, or number of tokens held
+     */
+    public BigInteger getBalance(String address, String contractAddress) throws Exception
+    {
+        BigInteger balance = getContractData(contractAddress, balanceOf(address));
+        if (balance == null) throw new BadContract();
+        return balance;
+    }
+
+    /**
+     * ERC721 enumerable extension; fails on contracts which don't implement it
+     */
+    public BigInteger getTokenOfOwnerByIndex(String address, String contractAddress, BigInteger index) throws Exception
+    {
+        BigInteger tokenId = getContractData(contractAddress, tokenOfOwnerByIndex(address, index));
+        if (tokenId == null) throw new BadContract();
+        return tokenId;
+    }
+
     public String getNameOnly(String address)
     {
         String name = "";
@@ -172,5 +187,18 @@ public class TransactionHandler
                 Collections.singletonList(new Address(owner)),
                 Collections.singletonList(new TypeReference<DynamicArray<Uint256>>() {}));
     }
-}
 
+    private static org.web3j.abi.datatypes.Function balanceOf(String owner) {
+        return new org.web3j.abi.datatypes.Function(
+                "balanceOf",
+                Collections.singletonList(new Address(owner)),
+                Collections.singletonList(new TypeReference<Uint256>() {}));
+    }
+
+    private static org.web3j.abi.datatypes.Function tokenOfOwnerByIndex(String owner, BigInteger index) {
+        return new org.web3j.abi.datatypes.Function(
+                "tokenOfOwnerByIndex",
+                Arrays.asList(new Address(owner), new Uint256(index)),
+                Collections.singletonList(new TypeReference<Uint256>() {}));
+    }
+}
@@ -18,7 +18,9 @@ import org.xml.sax.SAXException;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -27,7 +29,11 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static com.alphawallet.scripttool.Entity.ParseState.ADDR_FILE;
 import static com.alphawallet.scripttool.Entity.ParseState.ARG;
+import static com.alphawallet.scripttool.Entity.ParseState.OUT_FILE;
+import static com.alphawallet.scripttool.Entity.ParseState.THREADS;
+import static com.alphawallet.scripttool.Entity.ParseState.TS_DIR;
 import static com.alphawallet.scripttool.Entity.ParseState.TS_FILE;
 import static com.alphawallet.scripttool.Entity.ParseState.USER_ADDR;
 
@@ -35,6 +41,10 @@ public class ScriptTool implements AttributeInterface
 {
     private File tokenScriptFile;
     private Address userAddress = Address.DEFAULT;
+    private File scriptDirectory;
+    private File addressFile;
+    private File outputFile;
+    private int threads = 8;
 
     private Map<Integer, Map<String, Map<BigInteger, CachedResult>>> transactionResults = new ConcurrentHashMap<>();  //optimisation results
 
@@ -67,6 +77,18 @@ public class ScriptTool implements AttributeInterface
                         case "-address":
                             p = USER_ADDR;
                             break;
+                        case "-dir":
+                            p = TS_DIR;
+                            break;
+                        case "-addresses":
+                            p = ADDR_FILE;
+                            break;
+                        case "-threads":
+                            p = THREADS;
+                            break;
+                        case "-out":
+                            p = OUT_FILE;
+                            break;
                         case "-help":
                             showUsage();
                             break;
@@ -107,10 +129,47 @@ public class ScriptTool implements AttributeInterface
                     }
                     p = ARG;
                     break;
+                case TS_DIR:
+                    scriptDirectory = new File(arg);
+                    if (!scriptDirectory.isDirectory())
+                    {
+                        System.out.println("ERROR: " + arg + " is not a directory.");
+                        scriptDirectory = null;
+                    }
+                    p = ARG;
+                    break;
+                case ADDR_FILE:
+                    addressFile = new File(arg);
+                    if (!addressFile.isFile())
+                    {
+                        System.out.println("ERROR: " + arg + " File not found.");
+                        addressFile = null;
+                    }
+                    p = ARG;
+                    break;
+                case THREADS:
+                    try
+                    {
+                        threads = Math.max(1, Integer.parseInt(arg));
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        System.out.println("ERROR: " + arg + " is not a number");
+                    }
+                    p = ARG;
+                    break;
+                case OUT_FILE:
+                    outputFile = new File(arg);
+                    p = ARG;
+                    break;
             }
         }
 
-        if (tokenScriptFile != null)
+        if (scriptDirectory != null && addressFile != null)
+        {
+            runBulk();
+        }
+        else if (tokenScriptFile != null)
         {
             dumpTokenInfo();
         }
@@ -120,6 +179,23 @@ public class ScriptTool implements AttributeInterface
     {
         System.out.println("Usage:");
         System.out.println("scripttool -tokenscript <TokenScript File> -address <Ethereum address>");
+        System.out.println("scripttool -dir <TokenScript directory> -addresses <address file> [-threads <n>] [-out <JSON Lines file>]");
+    }
+
+    private void runBulk()
+    {
+        int errors = 1;
+        try (PrintStream out = outputFile != null ? new PrintStream(new FileOutputStream(outputFile), false, "UTF-8") : null)
+        {
+            errors = new BulkEvaluator(scriptDirectory, addressFile, threads, out != null ? out : System.out).run();
+        }
+        catch (Exception e)
+        {
+            System.out.println("ERROR in bulk evaluation:");
+            e.printStackTrace();
+        }
+
+        Runtime.getRuntime().exit(errors == 0 ? 0 : 1);
     }
 
     private void dumpTokenInfo()
@@ -175,6 +251,7 @@ public class ScriptTool implements AttributeInterface
     private String tokenAttributesToJson(ContractInfo holdingContract, ContractAddress cAddr, TokenDefinition definition) throws java.lang.Exception {
         StringBuilder      tokenData = new StringBuilder();
         TransactionHandler txHandler = new TransactionHandler(cAddr.chainId);
+        txHandler.printClientVersion();
         List<BigInteger>   balanceArray = null;
 
         String tokenName = txHandler.getNameOnly(cAddr.address);